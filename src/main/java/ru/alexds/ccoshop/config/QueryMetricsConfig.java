@@ -0,0 +1,166 @@
+package ru.alexds.ccoshop.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import ru.alexds.ccoshop.service.QueryMetricsService;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Конфигурация сбора статистики SQL-запросов.
+ * Источник данных оборачивается прокси, который замеряет время выполнения каждого запроса и передает его
+ * в {@link QueryMetricsService}, а репозитории Spring Data - перехватчиком, который отмечает выполняемый
+ * метод репозитория для определения места вызова.
+ * Каждый вызов JDBC проходит через рефлексию, а определение места вызова обходит стек на каждом запросе,
+ * поэтому сбор статистики по умолчанию выключен и включается на время диагностики (shop.query-metrics.enabled=true).
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "shop.query-metrics.enabled", havingValue = "true")
+public class QueryMetricsConfig {
+
+    /**
+     * Оборачивает источник данных прокси, замеряющим время выполнения запросов.
+     * Сервис статистики получается лениво, так как источник данных создается раньше сервисов.
+     */
+    @Bean
+    static BeanPostProcessor queryMetricsDataSourcePostProcessor(ObjectProvider<QueryMetricsService> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? proxyDataSource(dataSource, metrics) : bean;
+            }
+        };
+    }
+
+    /**
+     * Добавляет в прокси репозиториев перехватчик, отмечающий выполняемый метод репозитория.
+     */
+    @Bean
+    static BeanPostProcessor queryMetricsRepositoryPostProcessor(ObjectProvider<QueryMetricsService> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> {
+                                String repository = repositoryInformation.getRepositoryInterface().getSimpleName();
+                                proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                                    QueryMetricsService service = metrics.getObject();
+                                    String previous = service.enterRepository(repository + "." + invocation.getMethod().getName());
+                                    try {
+                                        return invocation.proceed();
+                                    } finally {
+                                        service.exitRepository(previous);
+                                    }
+                                });
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Вспомогательный метод: оборачивает источник данных прокси-подклассом его собственного класса.
+     * Прокси остается экземпляром пула (например, HikariDataSource и AutoCloseable), поэтому Spring находит
+     * у бина метод close() и закрывает пул при остановке контекста; вызов передается исходному пулу.
+     *
+     * @param dataSource Источник данных
+     * @param metrics    Сервис статистики
+     * @return Прокси источника данных, оборачивающий выдаваемые соединения
+     */
+    private static DataSource proxyDataSource(DataSource dataSource, ObjectProvider<QueryMetricsService> metrics) {
+        ProxyFactory factory = new ProxyFactory(dataSource);
+        factory.setProxyTargetClass(!Modifier.isFinal(dataSource.getClass().getModifiers()));
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            Object result = invocation.proceed();
+            return result instanceof Connection connection && !invocation.getMethod().getName().equals("unwrap")
+                    ? proxy(Connection.class, connection, null, metrics) : result;
+        });
+        return (DataSource) factory.getProxy();
+    }
+
+    /**
+     * Вспомогательный метод: создает прокси JDBC-объекта. Соединения и запросы, возвращаемые прокси,
+     * также оборачиваются; вызовы execute* у запросов замеряются.
+     *
+     * @param type    Интерфейс JDBC
+     * @param target  Оборачиваемый объект
+     * @param sql     Текст подготовленного запроса (null для источника данных, соединения и простого запроса)
+     * @param metrics Сервис статистики
+     * @return Прокси объекта
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, String sql, ObjectProvider<QueryMetricsService> metrics) {
+        String[] batchSql = new String[1];
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            String name = method.getName();
+            if (target instanceof Statement && name.startsWith("execute")) {
+                String executed = args != null && args.length > 0 && args[0] instanceof String text ? text
+                        : sql != null ? sql : batchSql[0];
+                long start = System.nanoTime();
+                try {
+                    return invoke(target, method, args);
+                } finally {
+                    record(metrics, executed, System.nanoTime() - start);
+                }
+            }
+            if (target instanceof Statement && name.equals("addBatch") && args != null && args.length == 1 && batchSql[0] == null) {
+                batchSql[0] = (String) args[0];
+            }
+
+            Object result = invoke(target, method, args);
+            if (name.equals("unwrap")) {
+                return result;
+            }
+            if (result instanceof Connection connection) {
+                return proxy(Connection.class, connection, null, metrics);
+            }
+            String prepared = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+            if (result instanceof CallableStatement statement) {
+                return proxy(CallableStatement.class, statement, prepared, metrics);
+            } else if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, statement, prepared, metrics);
+            } else if (result instanceof Statement statement) {
+                return proxy(Statement.class, statement, null, metrics);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Вспомогательный метод: учитывает выполнение запроса. Ошибка сбора статистики не должна прерывать сам запрос,
+     * поэтому она только записывается в лог.
+     */
+    private static void record(ObjectProvider<QueryMetricsService> metrics, String sql, long elapsedNanos) {
+        try {
+            metrics.getObject().record(sql, elapsedNanos);
+        } catch (RuntimeException | StackOverflowError e) {
+            log.warn("Failed to record query metrics: {}", e.toString());
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
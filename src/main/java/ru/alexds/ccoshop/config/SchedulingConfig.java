@@ -0,0 +1,12 @@
+package ru.alexds.ccoshop.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Конфигурация фоновых задач по расписанию (сброс и истечение резервов горячих товаров и т.п.).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
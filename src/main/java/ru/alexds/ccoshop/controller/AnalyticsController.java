@@ -0,0 +1,132 @@
+package ru.alexds.ccoshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.alexds.ccoshop.dto.DailySalesDTO;
+import ru.alexds.ccoshop.dto.SalesBreakdownDTO;
+import ru.alexds.ccoshop.entity.ErrorResponse;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.service.SalesAnalyticsService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Контроллер аналитики продаж для административной панели.
+ * Все отчеты строятся по дневным агрегатам, а не по заказам.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+@Validated
+@Slf4j
+@Tag(name = "Analytics Controller", description = "API для аналитики продаж")
+public class AnalyticsController {
+    private final SalesAnalyticsService salesAnalyticsService; // Сервис аналитики продаж
+
+    /**
+     * Получает выручку и количество заказов по дням за период.
+     *
+     * @param from Первый день периода (включительно)
+     * @param to   Последний день периода (включительно)
+     * @return HTTP-ответ со списком продаж по дням
+     */
+    @Operation(summary = "Выручка по дням")
+    @GetMapping("/sales/daily")
+    public ResponseEntity<List<DailySalesDTO>> getDailySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.debug("Request to get daily sales from {} to {}", from, to);
+        return ResponseEntity.ok(salesAnalyticsService.getDailySales(from, to));
+    }
+
+    /**
+     * Получает количество заказов по статусам за период.
+     *
+     * @param from Первый день периода (включительно)
+     * @param to   Последний день периода (включительно)
+     * @return HTTP-ответ с картой "статус - количество заказов"
+     */
+    @Operation(summary = "Количество заказов по статусам")
+    @GetMapping("/orders/status-counts")
+    public ResponseEntity<Map<Status, Long>> getStatusCounts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.debug("Request to get order status counts from {} to {}", from, to);
+        return ResponseEntity.ok(salesAnalyticsService.getStatusCounts(from, to));
+    }
+
+    /**
+     * Получает самые продаваемые продукты за период.
+     *
+     * @param from  Первый день периода (включительно)
+     * @param to    Последний день периода (включительно)
+     * @param limit Максимальное количество продуктов
+     * @return HTTP-ответ со списком продаж по продуктам
+     */
+    @Operation(summary = "Самые продаваемые продукты")
+    @GetMapping("/sales/products")
+    public ResponseEntity<List<SalesBreakdownDTO>> getTopProducts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(1000) int limit) {
+        log.debug("Request to get top {} products from {} to {}", limit, from, to);
+        return ResponseEntity.ok(salesAnalyticsService.getTopProducts(from, to, limit));
+    }
+
+    /**
+     * Получает продажи по категориям за период.
+     *
+     * @param from Первый день периода (включительно)
+     * @param to   Последний день периода (включительно)
+     * @return HTTP-ответ со списком продаж по категориям
+     */
+    @Operation(summary = "Продажи по категориям")
+    @GetMapping("/sales/categories")
+    public ResponseEntity<List<SalesBreakdownDTO>> getCategorySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.debug("Request to get category sales from {} to {}", from, to);
+        return ResponseEntity.ok(salesAnalyticsService.getCategorySales(from, to));
+    }
+
+    /**
+     * Пересчитывает дневные агрегаты за период по таблице заказов.
+     *
+     * @param from Первый день периода (включительно)
+     * @param to   Последний день периода (включительно)
+     * @return HTTP-ответ с количеством пересчитанных дней
+     */
+    @Operation(summary = "Пересчитать агрегаты продаж за период")
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> backfill(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("Request to backfill sales rollups from {} to {}", from, to);
+        long started = System.currentTimeMillis();
+        int days = salesAnalyticsService.backfill(from, to);
+        return ResponseEntity.ok(Map.of("days", days, "elapsedMs", System.currentTimeMillis() - started));
+    }
+
+    /**
+     * Обрабатывает некорректный период отчета.
+     *
+     * @param ex Исключение с описанием ошибки
+     * @return HTTP-ответ с описанием ошибки и статусом 400 (Bad Request)
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
+        ErrorResponse error = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), "INVALID_RANGE", ex.getMessage());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+}
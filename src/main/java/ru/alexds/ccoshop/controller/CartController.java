@@ -9,11 +9,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import ru.alexds.ccoshop.dto.CartBatchRequestDTO;
 import ru.alexds.ccoshop.dto.CartItemDTO;
+import ru.alexds.ccoshop.dto.CartViewDTO;
 import ru.alexds.ccoshop.dto.OrderDTO;
 import ru.alexds.ccoshop.entity.ErrorResponse;
 import ru.alexds.ccoshop.exeption.CartItemNotFoundException;
 import ru.alexds.ccoshop.exeption.InsufficientStockException;
+import ru.alexds.ccoshop.exeption.ProductNotFoundException;
 import ru.alexds.ccoshop.service.CartService;
 import ru.alexds.ccoshop.service.OrderService;
 
@@ -64,6 +67,20 @@ public class CartController {
         return ResponseEntity.ok(cartItems);
     }
 
+    /**
+     * Получает корзину пользователя для отображения: строки с названием, текущей ценой и остатком продуктов
+     * и итоги корзины, посчитанные на сервере.
+     *
+     * @param userId Идентификатор пользователя, чья корзина запрашивается
+     * @return HTTP-ответ с представлением корзины
+     */
+    @Operation(summary = "Получение корзины пользователя с данными продуктов и итогами")
+    @GetMapping("/{userId}/view")
+    public ResponseEntity<CartViewDTO> getCartView(@PathVariable Long userId) {
+        log.debug("Request to get cart view for user ID: {}", userId);
+        return ResponseEntity.ok(cartService.getCartView(userId));
+    }
+
     /**
      * Добавляет товар в корзину пользователя.
      *
@@ -78,6 +95,22 @@ public class CartController {
         return ResponseEntity.status(HttpStatus.CREATED).body(addedCartItem);
     }
 
+    /**
+     * Применяет к корзине пользователя список операций добавления, изменения и удаления товаров в одной транзакции.
+     *
+     * @param userId  Идентификатор пользователя, чья корзина изменяется
+     * @param request Список операций (тип операции, идентификатор продукта, количество)
+     * @return HTTP-ответ с содержимым корзины после изменений
+     * @throws InsufficientStockException если на складе недостаточно товара
+     * @throws ProductNotFoundException   если продукт не найден
+     */
+    @Operation(summary = "Пакетное изменение корзины")
+    @PostMapping("/{userId}/batch")
+    public ResponseEntity<List<CartItemDTO>> applyBatch(@PathVariable Long userId, @RequestBody @Valid CartBatchRequestDTO request) {
+        log.debug("Request to apply {} cart operations for user ID: {}", request.getOperations().size(), userId);
+        return ResponseEntity.ok(cartService.applyBatch(userId, request.getOperations()));
+    }
+
     /**
      * Обновляет количество товара в корзине.
      *
@@ -153,6 +186,32 @@ public class CartController {
         return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Обрабатывает исключение при отсутствии продукта.
+     *
+     * @param ex Исключение, которое возникает при попытке добавить в корзину несуществующий продукт
+     * @return HTTP-ответ с сообщением об ошибке
+     */
+    @ExceptionHandler(ProductNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleProductNotFound(ProductNotFoundException ex) {
+        log.error("Product not found: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(HttpStatus.NOT_FOUND.value(), "PRODUCT_NOT_FOUND", ex.getMessage());
+        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Обрабатывает исключение при недопустимой операции над корзиной.
+     *
+     * @param ex Исключение, которое возникает при недопустимом количестве в операции
+     * @return HTTP-ответ с сообщением об ошибке
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
+        log.error("Invalid cart operation: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), "INVALID_OPERATION", ex.getMessage());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * Обрабатывает исключения, связанные с ошибками валидации входных данных.
      *
@@ -0,0 +1,64 @@
+package ru.alexds.ccoshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.alexds.ccoshop.service.HotSkuInventoryService;
+
+import java.util.Map;
+
+/**
+ * Контроллер для управления режимом горячих товаров (распродаж).
+ * Позволяет отмечать товары, остатки которых обслуживаются счетчиками в памяти, и смотреть их состояние.
+ */
+@RestController
+@RequestMapping("/api/inventory/hot")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Inventory Controller", description = "API для управления горячими товарами")
+public class InventoryController {
+    private final HotSkuInventoryService hotSkuInventoryService; // Сервис горячих товаров
+
+    /**
+     * Получает состояние всех горячих товаров.
+     *
+     * @return HTTP-ответ с картой "идентификатор продукта - свободный остаток, резервы, несброшенные продажи"
+     */
+    @Operation(summary = "Состояние горячих товаров")
+    @GetMapping
+    public ResponseEntity<Map<Long, Map<String, Integer>>> getHotSkus() {
+        log.debug("Request to get hot SKU statistics");
+        return ResponseEntity.ok(hotSkuInventoryService.getStatistics());
+    }
+
+    /**
+     * Отмечает товар как горячий.
+     *
+     * @param productId Идентификатор продукта
+     * @return HTTP-ответ без содержимого со статусом 204 (No Content)
+     */
+    @Operation(summary = "Отметить товар как горячий")
+    @PostMapping("/{productId}")
+    public ResponseEntity<Void> flag(@PathVariable Long productId) {
+        log.debug("Request to flag product ID: {} as hot SKU", productId);
+        hotSkuInventoryService.flag(productId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Снимает отметку горячего товара и сбрасывает его продажи в БД.
+     *
+     * @param productId Идентификатор продукта
+     * @return HTTP-ответ без содержимого со статусом 204 (No Content)
+     */
+    @Operation(summary = "Снять отметку горячего товара")
+    @DeleteMapping("/{productId}")
+    public ResponseEntity<Void> unflag(@PathVariable Long productId) {
+        log.debug("Request to unflag hot SKU product ID: {}", productId);
+        hotSkuInventoryService.unflag(productId);
+        return ResponseEntity.noContent().build();
+    }
+}
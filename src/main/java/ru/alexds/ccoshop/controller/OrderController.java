@@ -3,18 +3,41 @@ package ru.alexds.ccoshop.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.alexds.ccoshop.dto.BulkStatusUpdateRequestDTO;
+import ru.alexds.ccoshop.dto.BulkStatusUpdateResultDTO;
+import ru.alexds.ccoshop.dto.CursorPageDTO;
 import ru.alexds.ccoshop.dto.OrderDTO;
 import ru.alexds.ccoshop.dto.OrderItemDTO;
+import ru.alexds.ccoshop.dto.OrderStatusUpdateDTO;
+import ru.alexds.ccoshop.entity.ErrorResponse;
 import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.service.OrderBulkStatusService;
+import ru.alexds.ccoshop.service.OrderExportService;
 import ru.alexds.ccoshop.service.OrderItemService;
 import ru.alexds.ccoshop.service.OrderService;
+import ru.alexds.ccoshop.service.OrderStatusStreamService;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -33,6 +56,9 @@ import java.util.Optional;
 public class OrderController {
     private final OrderService orderService; // Сервис для управления заказами
     private final OrderItemService orderItemService; // Сервис для управления элементами заказов
+    private final OrderExportService orderExportService; // Сервис потоковой выгрузки заказов
+    private final OrderStatusStreamService orderStatusStreamService; // Сервис подписок на статус заказа
+    private final OrderBulkStatusService orderBulkStatusService; // Сервис массовой смены статуса заказов
 
     /**
      * Создает новый заказ на основе корзины пользователя.
@@ -71,6 +97,62 @@ public class OrderController {
         return ResponseEntity.ok(orders); // Возвращаем список заказов с кодом 200
     }
 
+    /**
+     * Получает страницу всех заказов (от новых к старым) с курсорной пагинацией.
+     *
+     * @param cursor Курсор из предыдущей страницы (не указывается для первой страницы)
+     * @param size   Размер страницы
+     * @return HTTP-ответ со страницей заказов и курсором следующей страницы
+     */
+    @Operation(summary = "Получить страницу всех заказов (курсорная пагинация)")
+    @GetMapping
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getOrdersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int size) {
+        log.debug("Запрос на получение страницы заказов, курсор: {}, размер: {}", cursor, size);
+        return ResponseEntity.ok(orderService.getOrdersPage(cursor, size));
+    }
+
+    /**
+     * Выгружает заказы за период в формате CSV или NDJSON.
+     * Строки записываются в ответ по мере чтения из БД, без накопления выгрузки в памяти.
+     *
+     * @param from   Начало периода (включительно)
+     * @param to     Конец периода (не включительно)
+     * @param format Формат выгрузки: csv или ndjson
+     * @return HTTP-ответ с потоком выгрузки
+     */
+    @Operation(summary = "Выгрузить заказы за период (CSV или NDJSON)")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "csv") String format) {
+        log.debug("Запрос на выгрузку заказов между {} и {} в формате {}", from, to, format);
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Некорректный период выгрузки: " + from + " - " + to);
+        }
+
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        if (!ndjson && !"csv".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Неподдерживаемый формат выгрузки: " + format);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            if (ndjson) {
+                orderExportService.exportNdjson(from, to, writer);
+            } else {
+                orderExportService.exportCsv(from, to, writer);
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.parseMediaType("application/x-ndjson") : MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + (ndjson ? "ndjson" : "csv") + "\"")
+                .body(body);
+    }
+
     /**
      * Получает заказ по его идентификатору.
      *
@@ -88,6 +170,46 @@ public class OrderController {
                 .orElseGet(() -> ResponseEntity.notFound().build()); // Если не найден, возвращаем 404
     }
 
+    /**
+     * Открывает SSE-поток уведомлений об изменении статуса заказа и результатах оплаты.
+     * Первое событие содержит текущий статус заказа.
+     *
+     * @param orderId Идентификатор заказа
+     * @return SSE-поток или статус 404 (Not Found), если заказ не найден
+     */
+    @Operation(summary = "Подписаться на изменения статуса заказа (SSE)")
+    @GetMapping(value = "/{orderId}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamOrderStatus(@PathVariable Long orderId) {
+        log.debug("Запрос на подписку на статус заказа ID: {}", orderId);
+        return orderStatusStreamService.subscribe(orderId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Ожидает изменения статуса заказа (длинный опрос).
+     *
+     * @param orderId        Идентификатор заказа
+     * @param since          Статус заказа, известный клиенту
+     * @param timeoutSeconds Время ожидания в секундах
+     * @return Новый статус заказа со статусом 200 (OK), статус 204 (No Content) по истечении времени ожидания
+     * или статус 404 (Not Found), если заказ не найден
+     */
+    @Operation(summary = "Дождаться изменения статуса заказа (длинный опрос)")
+    @GetMapping("/{orderId}/status/poll")
+    public DeferredResult<ResponseEntity<OrderStatusUpdateDTO>> pollOrderStatus(
+            @PathVariable Long orderId,
+            @RequestParam(required = false) Status since,
+            @RequestParam(defaultValue = "30") @Min(1) @Max(60) int timeoutSeconds) {
+        log.debug("Запрос на ожидание изменения статуса заказа ID: {} (известный статус: {})", orderId, since);
+        return orderStatusStreamService.awaitStatusChange(orderId, since, Duration.ofSeconds(timeoutSeconds))
+                .orElseGet(() -> {
+                    DeferredResult<ResponseEntity<OrderStatusUpdateDTO>> notFound = new DeferredResult<>();
+                    notFound.setResult(ResponseEntity.notFound().build());
+                    return notFound;
+                });
+    }
+
     /**
      * Обновляет статус заказа по его идентификатору.
      *
@@ -109,6 +231,21 @@ public class OrderController {
         }
     }
 
+    /**
+     * Массово переводит заказы в новый статус (например, при отгрузке или доставке партии заказов).
+     * При отмене остатки всех заказов возвращаются на склад.
+     *
+     * @param request Идентификаторы заказов и новый статус
+     * @return HTTP-ответ с результатом по каждому заказу и статусом 200 (OK),
+     * или статусом 400 (Bad Request), если перевод в указанный статус массово недопустим
+     */
+    @Operation(summary = "Массово обновить статус заказов")
+    @PostMapping("/status/bulk")
+    public ResponseEntity<BulkStatusUpdateResultDTO> updateOrderStatuses(@RequestBody @Valid BulkStatusUpdateRequestDTO request) {
+        log.debug("Request to move {} orders to status {}", request.getOrderIds().size(), request.getStatus());
+        return ResponseEntity.ok(orderBulkStatusService.updateStatuses(request.getOrderIds(), request.getStatus()));
+    }
+
     /**
      * Отменяет заказ.
      *
@@ -182,4 +319,16 @@ public class OrderController {
         List<OrderItemDTO> orderItems = orderItemService.getOrderItemsByOrderId(orderId);
         return ResponseEntity.ok(orderItems);
     }
-}
\ No newline at end of file
+
+    /**
+     * Обрабатывает некорректный курсор пагинации.
+     *
+     * @param ex Исключение с описанием ошибки
+     * @return HTTP-ответ с описанием ошибки и статусом 400 (Bad Request)
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
+        ErrorResponse error = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), "INVALID_REQUEST", ex.getMessage());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+}
@@ -5,6 +5,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -16,6 +17,7 @@ import ru.alexds.ccoshop.dto.PaymentResponseDTO;
 import ru.alexds.ccoshop.entity.Order;
 import ru.alexds.ccoshop.entity.Payment;
 import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.PaymentProcessedEvent;
 import ru.alexds.ccoshop.repository.OrderRepository;
 import ru.alexds.ccoshop.service.PaymentService;
 
@@ -34,6 +36,7 @@ public class PaymentController {
     private final PaymentService paymentService; // Сервис для управления платежами
     private final OrderRepository orderRepository; // Репозиторий для управления заказами
     private final OrderController orderService; // Сервис для управления статусом заказов
+    private final ApplicationEventPublisher eventPublisher; // Публикация событий о результате оплаты
 
     /**
      * Обрабатывает процесс оплаты заказа.
@@ -108,6 +111,7 @@ public class PaymentController {
         } else {
             log.error("Payment failed for order ID: {}", request.getOrderId());
         }
+        eventPublisher.publishEvent(new PaymentProcessedEvent(request.getOrderId(), payment.getStatus(), payment.getMessage(), payment.getAmount()));
 
         return ResponseEntity.ok(new PaymentResponseDTO(
                 request.getOrderId(),
@@ -6,18 +6,42 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.alexds.ccoshop.dto.CursorPageDTO;
 import ru.alexds.ccoshop.dto.ProductDTO;
+import ru.alexds.ccoshop.dto.ProductFacetResultDTO;
+import ru.alexds.ccoshop.dto.ProductFilterDTO;
+import ru.alexds.ccoshop.dto.ProductImportResultDTO;
+import ru.alexds.ccoshop.dto.ProductSearchResultDTO;
+import ru.alexds.ccoshop.dto.SuggestionDTO;
 import ru.alexds.ccoshop.entity.ErrorResponse;
+import ru.alexds.ccoshop.service.ProductAutocompleteService;
+import ru.alexds.ccoshop.service.ProductCacheService;
+import ru.alexds.ccoshop.service.ProductFacetService;
+import ru.alexds.ccoshop.service.ProductImportService;
+import ru.alexds.ccoshop.service.ProductSearchService;
 import ru.alexds.ccoshop.service.ProductService;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -33,18 +57,35 @@ import java.util.Optional;
 @Tag(name = "Product Controller", description = "API для работы с продуктами")
 public class ProductController {
     private final ProductService productService; // Сервис для управления продуктами
+    private final ProductCacheService productCacheService; // Кэш продуктов
+    private final ProductSearchService productSearchService; // Полнотекстовый поиск продуктов
+    private final ProductAutocompleteService productAutocompleteService; // Автодополнение поисковой строки
+    private final ProductFacetService productFacetService; // Фасетная фильтрация каталога
+    private final ProductImportService productImportService; // Массовый импорт продуктов
 
     /**
-     * Получает все продукты.
+     * Получает страницу каталога (по возрастанию идентификатора) с курсорной пагинацией.
+     * Ответ содержит ETag версии каталога; если он совпадает с заголовком If-None-Match,
+     * возвращается статус 304 (Not Modified) без чтения страницы.
      *
-     * @return HTTP-ответ со списком всех продуктов в формате DTO и статусом 200 (OK)
+     * @param cursor     Курсор из предыдущей страницы (не указывается для первой страницы)
+     * @param size       Размер страницы
+     * @param webRequest Текущий запрос (для проверки If-None-Match)
+     * @return HTTP-ответ со страницей продуктов и курсором следующей страницы,
+     *         или статусом 304 (Not Modified), если каталог не изменился
      */
-    @Operation(summary = "Получение всех продуктов")
+    @Operation(summary = "Получение страницы продуктов (курсорная пагинация, ETag)")
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        log.debug("Request to get all products");
-        List<ProductDTO> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<CursorPageDTO<ProductDTO>> getProductsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int size,
+            WebRequest webRequest) {
+        log.debug("Request to get products page, cursor: {}, size: {}", cursor, size);
+        String eTag = productService.getCatalogueETag();
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(productService.getProductsPage(cursor, size));
     }
 
     /**
@@ -172,6 +213,40 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Полнотекстовый поиск продуктов по названию, характеристикам и описанию с ранжированием.
+     *
+     * @param query Поисковый запрос (слова могут совпадать частично)
+     * @param page  Номер страницы (с нуля)
+     * @param size  Размер страницы
+     * @return HTTP-ответ со страницей найденных продуктов по убыванию релевантности и статусом 200 (OK)
+     */
+    @Operation(summary = "Полнотекстовый поиск продуктов")
+    @GetMapping("/search/full-text")
+    public ResponseEntity<ProductSearchResultDTO> fullTextSearch(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(200) int size) {
+        log.debug("Request to full-text search products: '{}', page {}, size {}", query, page, size);
+        return ResponseEntity.ok(productSearchService.search(query, page, size));
+    }
+
+    /**
+     * Получает подсказки автодополнения для введенного префикса (без обращения к БД).
+     *
+     * @param prefix Введенный текст
+     * @param limit  Максимальное количество подсказок
+     * @return HTTP-ответ со списком подсказок по убыванию популярности и статусом 200 (OK)
+     */
+    @Operation(summary = "Автодополнение поисковой строки")
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<SuggestionDTO>> autocomplete(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(50) int limit) {
+        log.debug("Request to autocomplete prefix: '{}'", prefix);
+        return ResponseEntity.ok(productAutocompleteService.suggest(prefix, limit));
+    }
+
     /**
      * Получает продукты по категории.
      *
@@ -197,10 +272,90 @@ public class ProductController {
     @Operation(summary = "Получение продуктов по цене min?max")
     @GetMapping("/price")
     public ResponseEntity<List<ProductDTO>> getProductsByPriceRange(
-            @RequestParam("min") BigDecimal minPrice,
-            @RequestParam("max") BigDecimal maxPrice) {
+            @RequestParam(name = "min", required = false) BigDecimal minPrice,
+            @RequestParam(name = "max", required = false) BigDecimal maxPrice) {
         log.debug("Request to get products in price range from {} to {}", minPrice, maxPrice);
         List<ProductDTO> products = productService.getProductsByPriceRange(minPrice, maxPrice);
         return ResponseEntity.ok(products);
     }
-}
\ No newline at end of file
+
+    /**
+     * Фильтрует каталог по категориям, характеристикам и цене одновременно.
+     *
+     * @param categoryIds     Категории (продукт должен принадлежать любой из них)
+     * @param characteristics Характеристики (продукт должен иметь все)
+     * @param minPrice        Минимальная цена (включительно)
+     * @param maxPrice        Максимальная цена (включительно)
+     * @param sort            Порядок результатов
+     * @param page            Номер страницы (с нуля)
+     * @param size            Размер страницы
+     * @return HTTP-ответ со страницей продуктов, количествами по фасетам и статусом 200 (OK)
+     */
+    @Operation(summary = "Фасетная фильтрация каталога")
+    @GetMapping("/filter")
+    public ResponseEntity<ProductFacetResultDTO> filterProducts(
+            @RequestParam(name = "categoryId", required = false) List<Long> categoryIds,
+            @RequestParam(name = "characteristic", required = false) List<String> characteristics,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "POPULARITY") ProductFilterDTO.Sort sort,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(200) int size) {
+        ProductFilterDTO filter = ProductFilterDTO.builder()
+                .categoryIds(categoryIds)
+                .characteristics(characteristics)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .sort(sort)
+                .build();
+        log.debug("Request to filter products: {}, page {}, size {}", filter, page, size);
+        return ResponseEntity.ok(productFacetService.filter(filter, page, size));
+    }
+
+    /**
+     * Импортирует продукты из CSV (text/csv) или JSON (массив или NDJSON).
+     * Тело запроса читается потоком, продукты вставляются пакетами; строки с ошибками пропускаются и попадают в отчет.
+     *
+     * @param contentType Тип содержимого запроса
+     * @param body        Поток тела запроса
+     * @return HTTP-ответ с итогом импорта и статусом 200 (OK)
+     * @throws IOException если не удалось прочитать тело запроса
+     */
+    @Operation(summary = "Массовый импорт продуктов из CSV или JSON")
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ProductImportResultDTO> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                 InputStream body) throws IOException {
+        log.debug("Request to import products, content type: {}", contentType);
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        try (Reader reader = new BufferedReader(new InputStreamReader(body, charset), 64 * 1024)) {
+            ProductImportResultDTO result = contentType.isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                    ? productImportService.importCsv(reader)
+                    : productImportService.importJson(reader);
+            return ResponseEntity.ok(result);
+        }
+    }
+
+    /**
+     * Получает показатели кэша продуктов.
+     *
+     * @return HTTP-ответ с размером кэша, количеством попаданий и промахов, долей попаданий и статусом 200 (OK)
+     */
+    @Operation(summary = "Статистика кэша продуктов")
+    @GetMapping("/cache/statistics")
+    public ResponseEntity<Map<String, Number>> getCacheStatistics() {
+        log.debug("Request to get product cache statistics");
+        return ResponseEntity.ok(productCacheService.getStatistics());
+    }
+
+    /**
+     * Обрабатывает ошибки в параметрах запроса (например, неверный диапазон цен).
+     *
+     * @param ex Исключение с описанием ошибки
+     * @return HTTP-ответ с сообщением об ошибке и статусом 400 (Bad Request)
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
+        ErrorResponse error = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), "INVALID_REQUEST", ex.getMessage());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.alexds.ccoshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.alexds.ccoshop.dto.QueryStatsDTO;
+import ru.alexds.ccoshop.service.QueryMetricsService;
+
+import java.util.List;
+
+/**
+ * Контроллер статистики SQL-запросов для административной панели.
+ * Показывает самые частые и самые медленные запросы с местом вызова и гистограммой времени выполнения.
+ */
+@RestController
+@RequestMapping("/api/admin/queries")
+@RequiredArgsConstructor
+@Validated
+@Slf4j
+@Tag(name = "Query Metrics Controller", description = "API для статистики SQL-запросов")
+public class QueryMetricsController {
+    private final QueryMetricsService queryMetricsService; // Сервис статистики SQL-запросов
+
+    /**
+     * Получает самые частые запросы.
+     *
+     * @param limit Максимальное количество запросов
+     * @return HTTP-ответ со списком статистики по убыванию количества выполнений
+     */
+    @Operation(summary = "Самые частые запросы")
+    @GetMapping("/hot")
+    public ResponseEntity<List<QueryStatsDTO>> getHotQueries(@RequestParam(defaultValue = "20") @Min(1) @Max(500) int limit) {
+        log.debug("Request to get top {} hot queries", limit);
+        return ResponseEntity.ok(queryMetricsService.getHotQueries(limit));
+    }
+
+    /**
+     * Получает самые медленные запросы.
+     *
+     * @param limit Максимальное количество запросов
+     * @return HTTP-ответ со списком статистики по убыванию 95-го перцентиля времени выполнения
+     */
+    @Operation(summary = "Самые медленные запросы")
+    @GetMapping("/slow")
+    public ResponseEntity<List<QueryStatsDTO>> getSlowQueries(@RequestParam(defaultValue = "20") @Min(1) @Max(500) int limit) {
+        log.debug("Request to get top {} slow queries", limit);
+        return ResponseEntity.ok(queryMetricsService.getSlowQueries(limit));
+    }
+
+    /**
+     * Сбрасывает накопленную статистику.
+     *
+     * @return HTTP-ответ без содержимого со статусом 204 (No Content)
+     */
+    @Operation(summary = "Сбросить статистику запросов")
+    @DeleteMapping
+    public ResponseEntity<Void> reset() {
+        log.debug("Request to reset query statistics");
+        queryMetricsService.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
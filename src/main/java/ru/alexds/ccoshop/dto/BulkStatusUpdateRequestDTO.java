@@ -0,0 +1,30 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.alexds.ccoshop.entity.Status;
+
+import java.util.List;
+
+/**
+ * Класс BulkStatusUpdateRequestDTO представляет собой запрос на массовую смену статуса заказов.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class BulkStatusUpdateRequestDTO {
+
+    @NotEmpty(message = "Список заказов не должен быть пустым")
+    @Size(max = 10000, message = "За один запрос можно изменить не более 10000 заказов")
+    private List<@NotNull Long> orderIds; // Идентификаторы заказов
+
+    @NotNull(message = "Новый статус обязателен")
+    private Status status; // Новый статус заказов
+}
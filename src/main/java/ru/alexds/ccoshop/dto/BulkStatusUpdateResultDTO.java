@@ -0,0 +1,25 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.alexds.ccoshop.entity.Status;
+
+import java.util.List;
+
+/**
+ * Класс BulkStatusUpdateResultDTO представляет собой итог массовой смены статуса заказов
+ * с результатом по каждому заказу в порядке запроса.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class BulkStatusUpdateResultDTO {
+    private Status status; // Новый статус
+    private int updated; // Количество измененных заказов
+    private int rejected; // Количество не измененных заказов
+    private List<OrderStatusOutcomeDTO> results; // Результаты по заказам
+}
@@ -0,0 +1,28 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Класс CartBatchRequestDTO представляет собой запрос на пакетное изменение корзины.
+ * Операции применяются по порядку в одной транзакции: либо все, либо ни одной.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class CartBatchRequestDTO {
+
+    @NotEmpty(message = "Список операций не должен быть пустым")
+    @Size(max = 500, message = "За один запрос можно выполнить не более 500 операций")
+    private List<@Valid @NotNull CartOperationDTO> operations; // Операции над корзиной
+}
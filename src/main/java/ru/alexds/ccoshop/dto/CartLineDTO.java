@@ -0,0 +1,51 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Класс CartLineDTO представляет собой строку представления корзины: элемент корзины вместе с названием,
+ * текущей ценой и остатком продукта. Сумма строки считается по цене, зафиксированной при добавлении в корзину
+ * (по ней же оформляется заказ), а если она не задана - по текущей цене продукта.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@Builder // Генерирует билдер
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class CartLineDTO {
+    private Long id; // Идентификатор элемента корзины
+    private Long productId; // Идентификатор продукта
+    private String productName; // Название продукта
+    private Integer quantity; // Количество
+    private BigDecimal price; // Цена на момент добавления в корзину
+    private BigDecimal currentPrice; // Текущая цена продукта
+    private Integer stockQuantity; // Текущий остаток продукта на складе
+    private BigDecimal lineTotal; // Сумма строки
+    private boolean priceChanged; // Текущая цена отличается от цены на момент добавления
+    private boolean inStock; // Остатка достаточно для количества в корзине
+
+    /**
+     * Конструктор для проекции запроса: вычисляет сумму строки и признаки изменения цены и наличия.
+     */
+    public CartLineDTO(Long id, Long productId, String productName, Integer quantity,
+                       BigDecimal price, BigDecimal currentPrice, Integer stockQuantity) {
+        this.id = id;
+        this.productId = productId;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.price = price;
+        this.currentPrice = currentPrice;
+        this.stockQuantity = stockQuantity;
+        BigDecimal unitPrice = price != null ? price : currentPrice;
+        this.lineTotal = unitPrice != null ? unitPrice.multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO;
+        this.priceChanged = price != null && currentPrice != null && price.compareTo(currentPrice) != 0;
+        this.inStock = stockQuantity != null && stockQuantity >= quantity;
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Класс CartOperationDTO представляет собой одну операцию пакетного изменения корзины.
+ * Операции адресуют строки корзины по идентификатору продукта.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@Builder // Генерирует билдер
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class CartOperationDTO {
+
+    /**
+     * Тип операции над корзиной.
+     */
+    public enum Type {
+        ADD,    // Добавить количество к продукту в корзине (или добавить продукт)
+        UPDATE, // Установить количество продукта, уже находящегося в корзине (0 - удалить)
+        REMOVE  // Удалить продукт из корзины, если он там есть
+    }
+
+    @NotNull(message = "Тип операции обязателен")
+    private Type type; // Тип операции
+
+    @NotNull(message = "Идентификатор продукта обязателен")
+    private Long productId; // Идентификатор продукта
+
+    @Min(value = 0, message = "Количество не может быть отрицательным")
+    private Integer quantity; // Количество (для ADD и UPDATE)
+}
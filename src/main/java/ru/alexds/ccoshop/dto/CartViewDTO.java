@@ -0,0 +1,29 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Класс CartViewDTO представляет собой корзину пользователя для отображения: строки с данными продуктов и итоги,
+ * посчитанные на сервере.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@Builder // Генерирует билдер
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class CartViewDTO {
+    private Long userId; // Идентификатор пользователя
+    private List<CartLineDTO> lines; // Строки корзины в порядке добавления
+    private int totalQuantity; // Общее количество единиц товара
+    private BigDecimal total; // Сумма корзины
+    private boolean priceChanged; // Цена хотя бы одного продукта изменилась после добавления в корзину
+    private boolean inStock; // Остатка достаточно для всех строк корзины
+}
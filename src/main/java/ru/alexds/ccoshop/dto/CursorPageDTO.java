@@ -0,0 +1,24 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Класс CursorPageDTO представляет собой страницу выборки с курсорной (keyset) пагинацией.
+ * Для получения следующей страницы клиент передает значение nextCursor; если оно равно null, страница последняя.
+ *
+ * @param <T> Тип элементов страницы
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@NoArgsConstructor // Генерирует пустой конструктор
+public class CursorPageDTO<T> {
+    private List<T> items; // Элементы страницы
+    private String nextCursor; // Курсор следующей страницы (null, если страница последняя)
+}
@@ -0,0 +1,23 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Класс DailySalesDTO представляет собой продажи магазина за один день (без отмененных заказов).
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@NoArgsConstructor // Генерирует пустой конструктор
+public class DailySalesDTO {
+    private LocalDate day; // День оформления заказов
+    private Long orders; // Количество заказов
+    private BigDecimal revenue; // Выручка
+}
@@ -12,6 +12,7 @@ import ru.alexds.ccoshop.entity.OrderItem;
 import ru.alexds.ccoshop.entity.Status;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -63,6 +64,25 @@ public class OrderDTO {
      */
     private BigDecimal totalPrice;
 
+    /**
+     * Конструктор для создания объекта OrderDTO из проекции запроса (без загрузки сущности заказа).
+     * Позиции заказа заполняются отдельным запросом.
+     *
+     * @param id         Уникальный идентификатор заказа.
+     * @param userId     Идентификатор пользователя.
+     * @param orderDate  Дата и время оформления заказа.
+     * @param status     Статус заказа.
+     * @param totalPrice Общая стоимость заказа.
+     */
+    public OrderDTO(Long id, Long userId, LocalDateTime orderDate, Status status, BigDecimal totalPrice) {
+        this.id = id;
+        this.userId = userId;
+        this.items = new ArrayList<>();
+        this.orderDate = orderDate;
+        this.status = status;
+        this.totalPrice = totalPrice;
+    }
+
     /**
      * Конструктор для создания объекта OrderDTO на основе существующего объекта Order.
      *
@@ -74,7 +94,7 @@ public class OrderDTO {
         this.items = convertToOrderItemDTOList(order.getItems());
         this.orderDate = order.getOrderDate();
         this.status = order.getStatus();
-        this.totalPrice = order.calculateTotalPrice();
+        this.totalPrice = order.getTotalPrice() != null ? order.getTotalPrice() : order.calculateTotalPrice(); // Сумма хранится в заказе
     }
 
     /**
@@ -0,0 +1,31 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.alexds.ccoshop.entity.Status;
+
+/**
+ * Класс OrderStatusOutcomeDTO представляет собой результат смены статуса одного заказа в массовой операции.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class OrderStatusOutcomeDTO {
+
+    /**
+     * Результат смены статуса заказа.
+     */
+    public enum Outcome {
+        UPDATED, // Статус изменен
+        NOT_FOUND, // Заказ не найден
+        INVALID_TRANSITION // Переход из текущего статуса недопустим
+    }
+
+    private Long orderId; // Идентификатор заказа
+    private Outcome outcome; // Результат
+    private Status previousStatus; // Статус заказа до операции (null, если заказ не найден)
+}
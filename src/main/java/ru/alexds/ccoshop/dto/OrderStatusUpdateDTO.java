@@ -0,0 +1,28 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.alexds.ccoshop.entity.Status;
+
+import java.time.LocalDateTime;
+
+/**
+ * Класс OrderStatusUpdateDTO представляет собой уведомление подписчику об изменении статуса заказа или о результате оплаты.
+ * Передается клиенту через SSE-поток или в ответе на длинный опрос вместо периодических запросов заказа целиком.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@Builder // Генерирует билдер
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@NoArgsConstructor // Генерирует пустой конструктор
+public class OrderStatusUpdateDTO {
+    private Long orderId; // Идентификатор заказа
+    private Status status; // Текущий статус заказа
+    private String paymentStatus; // Статус последней оплаты ("SUCCESS" или "FAILED"), если уведомление об оплате
+    private String message; // Сообщение о результате оплаты
+    private LocalDateTime updatedAt; // Время уведомления
+}
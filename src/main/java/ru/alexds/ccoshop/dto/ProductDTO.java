@@ -11,6 +11,7 @@ import lombok.NoArgsConstructor;
 import ru.alexds.ccoshop.entity.Product;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -95,6 +96,25 @@ public class ProductDTO {
 
 
 
+    /**
+     * Конструктор проекции продукта без характеристик (используется в JPQL-запросах постраничного чтения каталога).
+     * Характеристики добавляются в изменяемый список после загрузки страницы.
+     */
+    public ProductDTO(Long id, String name, String description, BigDecimal price, Integer stockQuantity, Double popularity,
+                      Long categoryId, String imagePath, LocalDateTime createAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+        this.popularity = popularity != null ? popularity : 0.0;
+        this.characteristic = new ArrayList<>();
+        this.categoryId = categoryId;
+        this.imagePath = imagePath;
+        this.createAt = createAt;
+        this.updatedAt = updatedAt;
+    }
+
     public ProductDTO(Long id, String name, double popularity) {
         this.id = id;
         this.name = name;
@@ -0,0 +1,33 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс ProductFacetResultDTO представляет собой страницу отфильтрованного каталога вместе с количествами по фасетам.
+ * Количество по категориям считается без учета фильтра по категориям (чтобы показать, сколько продуктов
+ * добавит выбор еще одной категории), количество по характеристикам - с учетом всех условий фильтра.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class ProductFacetResultDTO {
+    private int page; // Номер страницы (с нуля)
+    private int size; // Размер страницы
+    private long total; // Общее количество продуктов, прошедших фильтр
+    private List<ProductDTO> items; // Продукты страницы
+    private Map<Long, Integer> categoryCounts; // Количество продуктов по категориям
+    private Map<String, Integer> characteristicCounts; // Количество продуктов по характеристикам (самые частые)
+    private BigDecimal minPrice; // Минимальная цена среди найденных продуктов
+    private BigDecimal maxPrice; // Максимальная цена среди найденных продуктов
+}
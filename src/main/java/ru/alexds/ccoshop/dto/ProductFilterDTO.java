@@ -0,0 +1,39 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Класс ProductFilterDTO представляет собой комбинированный фильтр каталога.
+ * Продукт проходит фильтр, если принадлежит одной из категорий, имеет все указанные характеристики
+ * и его цена находится в диапазоне; пустые условия не ограничивают выборку.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class ProductFilterDTO {
+    private List<Long> categoryIds; // Категории (любая из)
+    private List<String> characteristics; // Характеристики (все сразу)
+    private BigDecimal minPrice; // Минимальная цена (включительно), null - без ограничения
+    private BigDecimal maxPrice; // Максимальная цена (включительно), null - без ограничения
+    @Builder.Default
+    private Sort sort = Sort.POPULARITY; // Порядок результатов
+
+    /**
+     * Порядок результатов фильтрации.
+     */
+    public enum Sort {
+        POPULARITY, // По убыванию популярности
+        PRICE_ASC, // По возрастанию цены
+        PRICE_DESC // По убыванию цены
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Класс ProductImportResultDTO представляет собой итог массового импорта продуктов:
+ * количество загруженных и отклоненных строк, скорость загрузки и описания первых ошибок.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class ProductImportResultDTO {
+    private long imported; // Количество загруженных продуктов
+    private long rejected; // Количество отклоненных строк
+    private long elapsedMs; // Длительность импорта в миллисекундах
+    private long rowsPerSecond; // Скорость загрузки (продуктов в секунду)
+    private List<String> errors; // Описания первых отклоненных строк
+}
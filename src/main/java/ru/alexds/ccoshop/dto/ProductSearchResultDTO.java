@@ -0,0 +1,25 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Класс ProductSearchResultDTO представляет собой страницу результатов полнотекстового поиска продуктов,
+ * упорядоченных по убыванию релевантности.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@NoArgsConstructor // Генерирует пустой конструктор
+public class ProductSearchResultDTO {
+    private String query; // Поисковый запрос
+    private int page; // Номер страницы (с нуля)
+    private int size; // Размер страницы
+    private long total; // Общее количество найденных продуктов
+    private List<ProductDTO> items; // Продукты страницы
+}
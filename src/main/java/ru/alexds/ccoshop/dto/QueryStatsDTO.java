@@ -0,0 +1,29 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Класс QueryStatsDTO представляет собой статистику выполнения одного нормализованного SQL-запроса
+ * из одного места вызова (метода сервиса и репозитория).
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class QueryStatsDTO {
+    private String sql; // Нормализованный текст запроса (литералы и списки IN заменены на ?)
+    private String callSite; // Место вызова: метод сервиса и метод репозитория
+    private long count; // Количество выполнений
+    private double totalMillis; // Суммарное время выполнения
+    private double meanMillis; // Среднее время выполнения
+    private double maxMillis; // Максимальное время выполнения
+    private double p50Millis; // Медиана (верхняя граница интервала гистограммы)
+    private double p95Millis; // 95-й перцентиль (верхняя граница интервала гистограммы)
+    private double p99Millis; // 99-й перцентиль (верхняя граница интервала гистограммы)
+}
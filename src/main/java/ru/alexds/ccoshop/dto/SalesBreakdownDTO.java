@@ -0,0 +1,23 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Класс SalesBreakdownDTO представляет собой продажи за период в разрезе продукта или категории.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@NoArgsConstructor // Генерирует пустой конструктор
+public class SalesBreakdownDTO {
+    private Long id; // Идентификатор продукта или категории
+    private Long orders; // Количество заказов
+    private Long units; // Количество проданных единиц
+    private BigDecimal revenue; // Выручка
+}
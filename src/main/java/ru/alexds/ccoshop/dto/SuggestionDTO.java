@@ -0,0 +1,32 @@
+/**
+ * Пакет для DTO (Data Transfer Objects) приложения.
+ */
+package ru.alexds.ccoshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Класс SuggestionDTO представляет собой подсказку автодополнения поисковой строки:
+ * название продукта или популярную характеристику.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+public class SuggestionDTO {
+    private String text; // Текст подсказки
+    private Type type; // Вид подсказки
+    private Long productId; // Идентификатор продукта (только для подсказок-продуктов)
+    private double weight; // Вес подсказки (популярность)
+
+    /**
+     * Вид подсказки.
+     */
+    public enum Type {
+        PRODUCT, // Название продукта
+        CHARACTERISTIC // Характеристика продуктов
+    }
+}
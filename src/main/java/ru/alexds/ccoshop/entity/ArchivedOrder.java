@@ -0,0 +1,65 @@
+/**
+ * Пакет для сущностей приложения.
+ */
+package ru.alexds.ccoshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Класс ArchivedOrder представляет собой заказ, перенесенный в архив (таблица orders_archive).
+ * В архив переносятся выполненные и отмененные заказы старше заданного срока; идентификатор заказа сохраняется.
+ * Связи с пользователем хранятся идентификатором, чтобы архив не зависел от внешних ключей рабочих таблиц.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@Entity // Аннотация для обозначения класса как JPA-сущности
+@Table(name = "orders_archive", indexes = {
+        @Index(name = "idx_orders_archive_user_date", columnList = "user_id, order_date"),
+        @Index(name = "idx_orders_archive_date", columnList = "order_date")})
+public class ArchivedOrder {
+
+    /**
+     * Идентификатор заказа (совпадает с идентификатором в таблице orders).
+     */
+    @Id
+    private Long id;
+
+    /**
+     * Идентификатор пользователя, оформившего заказ.
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * Дата оформления заказа.
+     */
+    @Column(name = "order_date")
+    private LocalDateTime orderDate;
+
+    /**
+     * Статус заказа на момент архивации.
+     */
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    /**
+     * Общая сумма заказа.
+     */
+    @Column(name = "total_price")
+    private BigDecimal totalPrice;
+
+    /**
+     * Дата переноса заказа в архив.
+     */
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,56 @@
+/**
+ * Пакет для сущностей приложения.
+ */
+package ru.alexds.ccoshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Класс ArchivedOrderItem представляет собой позицию заказа, перенесенную в архив (таблица order_items_archive).
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@Entity // Аннотация для обозначения класса как JPA-сущности
+@Table(name = "order_items_archive", indexes = {
+        @Index(name = "idx_order_items_archive_order", columnList = "order_id"),
+        @Index(name = "idx_order_items_archive_product", columnList = "product_id")})
+public class ArchivedOrderItem {
+
+    /**
+     * Идентификатор позиции (совпадает с идентификатором в таблице order_items).
+     */
+    @Id
+    private Long id;
+
+    /**
+     * Идентификатор архивного заказа.
+     */
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    /**
+     * Идентификатор продукта.
+     */
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    /**
+     * Количество товара.
+     */
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /**
+     * Цена за единицу товара.
+     */
+    @Column(nullable = false)
+    private BigDecimal price;
+}
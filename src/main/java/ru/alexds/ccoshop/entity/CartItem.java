@@ -7,13 +7,16 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 
 
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", indexes = @Index(name = "idx_cart_items_user_updated", columnList = "user_id, updated_at"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -59,6 +62,14 @@ public class CartItem {
      * Это поле используется для фиксации цены продукта во времени, чтобы избежать изменений в цене товара после добавления его в корзину.
      */
     private BigDecimal price; // Цена продукта на момент добавления в корзину
+    /**
+     * Время последнего изменения позиции в корзине.
+     * Аннотация @UpdateTimestamp устанавливает текущее время при вставке и обновлении записи через Hibernate;
+     * при записи корзины через JDBC время устанавливается явно. По этому полю очищаются брошенные корзины.
+     */
+    @Column(name = "updated_at")
+    @UpdateTimestamp
+    private LocalDateTime updatedAt; // Время последнего изменения позиции
 
 //    /**
 //     * Метод устанавливает обратную связь между продуктом и позицией в корзине.
@@ -24,7 +24,10 @@ import java.util.List;
 @AllArgsConstructor // Генерирует конструктор с аргументами
 @Builder // Генерирует builder-конструктор для удобного создания объектов
 @Entity // Аннотация для обозначения класса как JPA-сущности
-@Table(name = "orders") // Аннотация для указания имени таблицы в базе данных
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_status", columnList = "user_id, status"),
+        @Index(name = "idx_orders_date_id", columnList = "order_date, id"),
+        @Index(name = "idx_orders_status_date", columnList = "status, order_date")}) // Имя таблицы и индексы для выборок по пользователю, курсорной пагинации и фоновой обработки по статусу
 public class Order {
 
     /**
@@ -0,0 +1,21 @@
+package ru.alexds.ccoshop.entity;
+
+/**
+ * Тип события жизненного цикла заказа, записываемого в outbox.
+ */
+public enum OrderEventType {
+    /**
+     * Заказ создан.
+     */
+    CREATED,
+
+    /**
+     * Статус заказа изменен.
+     */
+    STATUS_CHANGED,
+
+    /**
+     * Заказ отменен.
+     */
+    CANCELLED
+}
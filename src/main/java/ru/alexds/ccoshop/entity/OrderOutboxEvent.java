@@ -0,0 +1,110 @@
+/**
+ * Пакет для сущностей приложения.
+ */
+package ru.alexds.ccoshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Класс OrderOutboxEvent представляет собой событие жизненного цикла заказа в таблице outbox.
+ * Запись вставляется в той же транзакции, что и изменение заказа, и доставляется подписчикам асинхронно,
+ * поэтому побочные эффекты заказа не удлиняют транзакцию оформления и не теряются при сбое.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@Entity // Аннотация для обозначения класса как JPA-сущности
+@Table(name = "order_outbox", indexes = @Index(name = "idx_order_outbox_status_next", columnList = "status, next_attempt_at, id"))
+public class OrderOutboxEvent {
+
+    /**
+     * Уникальный идентификатор события; задает порядок доставки.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Тип события.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 32)
+    private OrderEventType eventType;
+
+    /**
+     * Идентификатор заказа.
+     */
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    /**
+     * Идентификатор пользователя, оформившего заказ.
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * Статус заказа до изменения (null для созданного заказа).
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "previous_status", length = 32)
+    private Status previousStatus;
+
+    /**
+     * Статус заказа после изменения.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "new_status", nullable = false, length = 32)
+    private Status newStatus;
+
+    /**
+     * Общая сумма заказа на момент события.
+     */
+    @Column(name = "total_price")
+    private BigDecimal totalPrice;
+
+    /**
+     * Время возникновения события.
+     */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Состояние доставки.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxStatus status;
+
+    /**
+     * Количество неудачных попыток доставки.
+     */
+    @Column(nullable = false)
+    private int attempts;
+
+    /**
+     * Время, не раньше которого событие может быть доставлено (повтор с задержкой или аренда обработчиком).
+     */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * Время успешной доставки.
+     */
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    /**
+     * Текст последней ошибки доставки.
+     */
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
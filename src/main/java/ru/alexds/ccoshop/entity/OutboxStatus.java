@@ -0,0 +1,21 @@
+package ru.alexds.ccoshop.entity;
+
+/**
+ * Состояние записи outbox.
+ */
+public enum OutboxStatus {
+    /**
+     * Ожидает доставки подписчикам (в том числе повторной).
+     */
+    PENDING,
+
+    /**
+     * Доставлено всем подписчикам.
+     */
+    PROCESSED,
+
+    /**
+     * Исчерпаны попытки доставки; требуется разбор вручную.
+     */
+    FAILED
+}
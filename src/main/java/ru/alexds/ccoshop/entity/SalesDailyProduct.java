@@ -0,0 +1,72 @@
+/**
+ * Пакет для сущностей приложения.
+ */
+package ru.alexds.ccoshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Класс SalesDailyProduct представляет собой дневной агрегат продаж продукта.
+ * Учитываются все заказы дня, кроме отмененных. Категория продукта хранится денормализованно,
+ * чтобы агрегат по категориям строился без соединения с таблицей продуктов.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@Entity // Аннотация для обозначения класса как JPA-сущности
+@Table(name = "sales_daily_product",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_daily_product_day_product", columnNames = {"sales_day", "product_id"}),
+        indexes = @Index(name = "idx_sales_daily_product_day_category", columnList = "sales_day, category_id"))
+public class SalesDailyProduct {
+
+    /**
+     * Уникальный идентификатор записи.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * День оформления заказов.
+     */
+    @Column(name = "sales_day", nullable = false)
+    private LocalDate salesDay;
+
+    /**
+     * Идентификатор продукта.
+     */
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    /**
+     * Идентификатор категории продукта.
+     */
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    /**
+     * Количество заказов, содержащих продукт.
+     */
+    @Column(name = "orders_count", nullable = false)
+    private long ordersCount;
+
+    /**
+     * Количество проданных единиц.
+     */
+    @Column(nullable = false)
+    private long units;
+
+    /**
+     * Выручка по продукту.
+     */
+    @Column(nullable = false)
+    private BigDecimal revenue;
+}
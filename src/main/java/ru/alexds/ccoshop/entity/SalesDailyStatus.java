@@ -0,0 +1,59 @@
+/**
+ * Пакет для сущностей приложения.
+ */
+package ru.alexds.ccoshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Класс SalesDailyStatus представляет собой дневной агрегат заказов по статусам.
+ * Заказ учитывается в дне своего оформления и в своем текущем статусе.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@Entity // Аннотация для обозначения класса как JPA-сущности
+@Table(name = "sales_daily_status",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_daily_status_day_status", columnNames = {"sales_day", "status"}))
+public class SalesDailyStatus {
+
+    /**
+     * Уникальный идентификатор записи.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * День оформления заказов.
+     */
+    @Column(name = "sales_day", nullable = false)
+    private LocalDate salesDay;
+
+    /**
+     * Текущий статус заказов.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Status status;
+
+    /**
+     * Количество заказов.
+     */
+    @Column(name = "orders_count", nullable = false)
+    private long ordersCount;
+
+    /**
+     * Сумма заказов.
+     */
+    @Column(nullable = false)
+    private BigDecimal revenue;
+}
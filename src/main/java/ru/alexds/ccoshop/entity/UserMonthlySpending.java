@@ -0,0 +1,57 @@
+/**
+ * Пакет для сущностей приложения.
+ */
+package ru.alexds.ccoshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Класс UserMonthlySpending представляет собой сумму выполненных заказов пользователя за один месяц.
+ * Является частью сводки {@link UserOrderSummary} и обновляется вместе с ней.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@Entity // Аннотация для обозначения класса как JPA-сущности
+@Table(name = "user_monthly_spending",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_monthly_spending_user_period", columnNames = {"user_id", "period"}))
+public class UserMonthlySpending {
+
+    /**
+     * Уникальный идентификатор записи.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Идентификатор пользователя.
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * Месяц в формате "yyyy-MM" (например, "2025-02").
+     */
+    @Column(nullable = false, length = 7)
+    private String period;
+
+    /**
+     * Количество выполненных заказов за месяц.
+     */
+    @Column(nullable = false)
+    private long completedOrders;
+
+    /**
+     * Сумма выполненных заказов за месяц.
+     */
+    @Column(nullable = false)
+    private BigDecimal totalSpent;
+}
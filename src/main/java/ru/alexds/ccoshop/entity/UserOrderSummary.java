@@ -0,0 +1,55 @@
+/**
+ * Пакет для сущностей приложения.
+ */
+package ru.alexds.ccoshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Класс UserOrderSummary представляет собой сводку по выполненным заказам пользователя.
+ * Строка обновляется инкрементально при переходе заказа в статус COMPLETED и из него,
+ * поэтому статистика пользователя читается одним запросом по первичному ключу.
+ */
+@Data // Генерирует геттеры, сеттеры, equals, hashCode и toString
+@NoArgsConstructor // Генерирует пустой конструктор
+@AllArgsConstructor // Генерирует конструктор с аргументами
+@Builder // Генерирует builder-конструктор для удобного создания объектов
+@Entity // Аннотация для обозначения класса как JPA-сущности
+@Table(name = "user_order_summary") // Аннотация для указания имени таблицы в базе данных
+public class UserOrderSummary {
+
+    /**
+     * Идентификатор пользователя, которому принадлежит сводка. Является первичным ключом.
+     */
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * Количество выполненных заказов пользователя.
+     */
+    @Column(nullable = false)
+    private long completedOrders;
+
+    /**
+     * Общая сумма выполненных заказов пользователя.
+     */
+    @Column(nullable = false)
+    private BigDecimal totalSpent;
+
+    /**
+     * Минимальная сумма выполненного заказа.
+     */
+    private BigDecimal minOrderAmount;
+
+    /**
+     * Максимальная сумма выполненного заказа.
+     */
+    private BigDecimal maxOrderAmount;
+}
@@ -0,0 +1,19 @@
+package ru.alexds.ccoshop.event;
+
+import ru.alexds.ccoshop.entity.OrderOutboxEvent;
+
+/**
+ * Подписчик на события жизненного цикла заказа из outbox.
+ * Все подписчики получают событие в одной транзакции: если хотя бы один выбросит исключение,
+ * изменения всех подписчиков в БД откатываются и событие доставляется повторно. Побочные эффекты
+ * вне БД (письма, внешние вызовы) при повторе могут выполниться еще раз и должны быть идемпотентными.
+ */
+public interface OrderEventSubscriber {
+
+    /**
+     * Обрабатывает событие заказа.
+     *
+     * @param event Событие из outbox
+     */
+    void onOrderEvent(OrderOutboxEvent event);
+}
@@ -0,0 +1,46 @@
+package ru.alexds.ccoshop.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import ru.alexds.ccoshop.entity.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Событие изменения статуса заказа (в том числе создания заказа, когда предыдущий статус равен null).
+ * Публикуется синхронно внутри транзакции, изменившей заказ, поэтому слушатели
+ * обновляют производные данные атомарно вместе с самим заказом.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class OrderStatusChangedEvent {
+    private final Long orderId; // Идентификатор заказа
+    private final Long userId; // Идентификатор пользователя, оформившего заказ
+    private final Status previousStatus; // Статус до изменения (null для нового заказа)
+    private final Status newStatus; // Статус после изменения
+    private final BigDecimal totalPrice; // Общая сумма заказа
+    private final LocalDateTime orderDate; // Дата оформления заказа
+
+    /**
+     * Проверяет, перешел ли заказ в указанный статус в результате этого изменения.
+     *
+     * @param status Проверяемый статус
+     * @return true, если заказ вошел в статус
+     */
+    public boolean entered(Status status) {
+        return previousStatus != status && newStatus == status;
+    }
+
+    /**
+     * Проверяет, покинул ли заказ указанный статус в результате этого изменения.
+     *
+     * @param status Проверяемый статус
+     * @return true, если заказ вышел из статуса
+     */
+    public boolean left(Status status) {
+        return previousStatus == status && newStatus != status;
+    }
+}
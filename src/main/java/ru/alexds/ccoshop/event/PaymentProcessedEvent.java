@@ -0,0 +1,19 @@
+package ru.alexds.ccoshop.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Событие обработки платежа по заказу (как успешного, так и отклоненного).
+ * Публикуется контроллером платежей после сохранения платежа.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class PaymentProcessedEvent {
+    private final Long orderId; // Идентификатор заказа
+    private final String status; // Статус оплаты ("SUCCESS" или "FAILED")
+    private final String message; // Сообщение о результате оплаты
+    private final Double amount; // Сумма оплаты
+}
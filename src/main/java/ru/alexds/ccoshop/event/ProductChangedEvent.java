@@ -0,0 +1,54 @@
+package ru.alexds.ccoshop.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Событие изменения продуктов (создание, изменение, удаление, изменение остатков).
+ * Публикуется синхронно внутри транзакции, изменившей продукты, поэтому слушатели
+ * могут отложить свою реакцию до фиксации транзакции.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class ProductChangedEvent {
+    private final List<Long> productIds; // Идентификаторы измененных продуктов
+    private final Type type; // Тип изменения
+
+    /**
+     * Создает событие для одного продукта.
+     *
+     * @param productId Идентификатор продукта
+     * @param type      Тип изменения
+     * @return Событие изменения продукта
+     */
+    public static ProductChangedEvent of(Long productId, Type type) {
+        return new ProductChangedEvent(List.of(productId), type);
+    }
+
+    /**
+     * Создает событие для нескольких продуктов.
+     *
+     * @param productIds Идентификаторы продуктов
+     * @param type       Тип изменения
+     * @return Событие изменения продуктов
+     */
+    public static ProductChangedEvent of(Collection<Long> productIds, Type type) {
+        return new ProductChangedEvent(List.copyOf(productIds), type);
+    }
+
+    /**
+     * Тип изменения продукта.
+     */
+    public enum Type {
+        CREATED, // Продукт создан
+        IMPORTED, // Продукты созданы массовым импортом (одно событие на весь импорт, вне транзакции)
+        UPDATED, // Изменены атрибуты продукта
+        DELETED, // Продукт удален
+        STOCK // Изменен складской остаток
+    }
+}
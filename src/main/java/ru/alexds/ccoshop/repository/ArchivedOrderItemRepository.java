@@ -0,0 +1,31 @@
+/**
+ * Пакет для репозиториев приложения.
+ */
+package ru.alexds.ccoshop.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.alexds.ccoshop.dto.OrderItemDTO;
+import ru.alexds.ccoshop.entity.ArchivedOrderItem;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Интерфейс ArchivedOrderItemRepository представляет собой репозиторий для чтения позиций архивных заказов.
+ */
+public interface ArchivedOrderItemRepository extends JpaRepository<ArchivedOrderItem, Long> {
+
+    /**
+     * Метод для получения проекций позиций нескольких архивных заказов одним запросом.
+     * Продукт присоединяется внешним соединением, поэтому позиции удаленных продуктов не теряются.
+     *
+     * @param orderIds Идентификаторы заказов.
+     * @return Список проекций позиций, упорядоченный по заказу.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.OrderItemDTO(i.id, i.orderId, i.productId, p.name, i.quantity, i.price) " +
+            "FROM ArchivedOrderItem i LEFT JOIN Product p ON p.id = i.productId " +
+            "WHERE i.orderId IN :orderIds ORDER BY i.orderId, i.id")
+    List<OrderItemDTO> findViewsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+}
@@ -0,0 +1,94 @@
+/**
+ * Пакет для репозиториев приложения.
+ */
+package ru.alexds.ccoshop.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.alexds.ccoshop.dto.OrderDTO;
+import ru.alexds.ccoshop.entity.ArchivedOrder;
+import ru.alexds.ccoshop.entity.Status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Интерфейс ArchivedOrderRepository представляет собой репозиторий для чтения архивных заказов.
+ * Перенос заказов в архив выполняет {@link ru.alexds.ccoshop.service.OrderArchiveService} пакетными JDBC-запросами.
+ */
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    /**
+     * Метод для получения проекции архивного заказа по идентификатору.
+     *
+     * @param id Идентификатор заказа.
+     * @return Проекция заказа без позиций, если заказ находится в архиве.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.OrderDTO(a.id, a.userId, a.orderDate, a.status, a.totalPrice) " +
+            "FROM ArchivedOrder a WHERE a.id = :id")
+    Optional<OrderDTO> findViewById(@Param("id") Long id);
+
+    /**
+     * Метод для получения проекций архивных заказов пользователя, от новых к старым.
+     *
+     * @param userId Идентификатор пользователя.
+     * @return Список проекций заказов без позиций.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.OrderDTO(a.id, a.userId, a.orderDate, a.status, a.totalPrice) " +
+            "FROM ArchivedOrder a WHERE a.userId = :userId ORDER BY a.orderDate DESC, a.id DESC")
+    List<OrderDTO> findViewsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Метод для получения проекций архивных заказов, оформленных в заданном диапазоне дат.
+     *
+     * @param startDate Начальная дата диапазона.
+     * @param endDate   Конечная дата диапазона.
+     * @return Список проекций заказов без позиций.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.OrderDTO(a.id, a.userId, a.orderDate, a.status, a.totalPrice) " +
+            "FROM ArchivedOrder a WHERE a.orderDate BETWEEN :startDate AND :endDate ORDER BY a.orderDate, a.id")
+    List<OrderDTO> findViewsByOrderDateBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Метод для получения идентификаторов продуктов из архивных заказов пользователя с указанным статусом.
+     *
+     * @param userId Идентификатор пользователя.
+     * @param status Статус заказа.
+     * @return Список уникальных идентификаторов продуктов.
+     */
+    @Query("SELECT DISTINCT i.productId FROM ArchivedOrderItem i JOIN ArchivedOrder a ON a.id = i.orderId " +
+            "WHERE a.userId = :userId AND a.status = :status")
+    List<Long> findPurchasedProductIds(@Param("userId") Long userId, @Param("status") Status status);
+
+    /**
+     * Метод для получения минимальной и максимальной суммы архивных заказов пользователя с указанным статусом.
+     *
+     * @param userId Идентификатор пользователя.
+     * @param status Статус заказа.
+     * @return Список из одной строки [min, max]; значения равны null, если заказов нет.
+     */
+    @Query("SELECT MIN(a.totalPrice), MAX(a.totalPrice) FROM ArchivedOrder a WHERE a.userId = :userId AND a.status = :status")
+    List<Object[]> findTotalPriceRangeByUserIdAndStatus(@Param("userId") Long userId, @Param("status") Status status);
+
+    /**
+     * Метод для агрегации архивных заказов с указанным статусом по пользователям.
+     *
+     * @param status Статус заказа.
+     * @return Список строк [userId, count, sum, min, max].
+     */
+    @Query("SELECT a.userId, COUNT(a), SUM(a.totalPrice), MIN(a.totalPrice), MAX(a.totalPrice) " +
+            "FROM ArchivedOrder a WHERE a.status = :status GROUP BY a.userId")
+    List<Object[]> aggregateByUserAndStatus(@Param("status") Status status);
+
+    /**
+     * Метод для агрегации архивных заказов с указанным статусом по пользователям и месяцам.
+     *
+     * @param status Статус заказа.
+     * @return Список строк [userId, year, month, count, sum].
+     */
+    @Query("SELECT a.userId, YEAR(a.orderDate), MONTH(a.orderDate), COUNT(a), SUM(a.totalPrice) " +
+            "FROM ArchivedOrder a WHERE a.status = :status GROUP BY a.userId, YEAR(a.orderDate), MONTH(a.orderDate)")
+    List<Object[]> aggregateByUserMonthAndStatus(@Param("status") Status status);
+}
@@ -3,9 +3,18 @@
  */
 package ru.alexds.ccoshop.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.alexds.ccoshop.dto.CartItemDTO;
+import ru.alexds.ccoshop.dto.CartLineDTO;
 import ru.alexds.ccoshop.entity.CartItem;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +34,28 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
      */
     List<CartItem> findByUserId(Long userId);
 
+    /**
+     * Метод для получения элементов корзины пользователя сразу в виде DTO, без загрузки сущностей
+     * в контекст персистентности.
+     *
+     * @param userId Идентификатор пользователя, чьи элементы корзины необходимо найти.
+     * @return Список элементов корзины в порядке добавления.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.CartItemDTO(ci.id, ci.user.id, ci.product.id, ci.quantity, ci.price) " +
+            "FROM CartItem ci WHERE ci.user.id = :userId ORDER BY ci.id")
+    List<CartItemDTO> findItemsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Метод для получения строк корзины пользователя вместе с названием, текущей ценой и остатком продукта
+     * одним запросом с соединением, без загрузки сущностей.
+     *
+     * @param userId Идентификатор пользователя, чьи элементы корзины необходимо найти.
+     * @return Список строк корзины в порядке добавления.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.CartLineDTO(ci.id, p.id, p.name, ci.quantity, ci.price, p.price, p.stockQuantity) " +
+            "FROM CartItem ci JOIN ci.product p WHERE ci.user.id = :userId ORDER BY ci.id")
+    List<CartLineDTO> findLinesByUserId(@Param("userId") Long userId);
+
     /**
      * Метод для поиска элемента корзины по идентификатору пользователя и идентификатору продукта.
      *
@@ -58,4 +89,46 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
      * @return Количество элементов корзины, принадлежащих указанному пользователю.
      */
     int countByUserId(Long userId);
-}
\ No newline at end of file
+
+    /**
+     * Метод для удаления всех элементов корзины пользователя одним DELETE-запросом,
+     * без предварительной загрузки элементов в контекст персистентности.
+     *
+     * @param userId Идентификатор пользователя, чьи элементы корзины необходимо удалить.
+     * @return Количество удаленных элементов корзины.
+     */
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.user.id = :userId")
+    int deleteAllByUserIdInBulk(@Param("userId") Long userId);
+
+    /**
+     * Метод для поиска пользователей с брошенными корзинами: ни одна позиция корзины не изменялась после указанного
+     * времени (позиции без времени изменения, созданные до его учета, считаются давно не изменявшимися).
+     * Выборка идет порциями по возрастанию идентификатора пользователя по индексу (user_id, updated_at).
+     *
+     * @param afterUserId Идентификатор пользователя, после которого начинается порция
+     * @param cutoff      Граница времени последнего изменения
+     * @param pageable    Размер порции
+     * @return Идентификаторы пользователей по возрастанию
+     */
+    @Query("SELECT ci.user.id FROM CartItem ci WHERE ci.user.id > :afterUserId GROUP BY ci.user.id " +
+            "HAVING MAX(ci.updatedAt) IS NULL OR MAX(ci.updatedAt) < :cutoff ORDER BY ci.user.id")
+    List<Long> findAbandonedCartUserIds(@Param("afterUserId") Long afterUserId,
+                                        @Param("cutoff") LocalDateTime cutoff,
+                                        Pageable pageable);
+
+    /**
+     * Метод для удаления корзин указанных пользователей, ни одна позиция которых не изменялась после указанного времени.
+     * Устаревание проверяется заново в самом запросе: корзина, измененная после выборки пользователей, не удаляется целиком.
+     * Свежие корзины выбираются через производную таблицу - MySQL не разрешает подзапросу DELETE читать изменяемую таблицу напрямую.
+     *
+     * @param userIds Идентификаторы пользователей
+     * @param cutoff  Граница времени последнего изменения
+     * @return Количество удаленных позиций
+     */
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.user.id IN :userIds AND ci.user.id NOT IN (" +
+            "SELECT fresh.userId FROM (SELECT c2.user.id AS userId FROM CartItem c2 " +
+            "WHERE c2.user.id IN :userIds AND c2.updatedAt >= :cutoff) fresh)")
+    int deleteStaleByUserIds(@Param("userIds") Collection<Long> userIds, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -4,8 +4,13 @@
 package ru.alexds.ccoshop.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.alexds.ccoshop.dto.OrderItemDTO;
 import ru.alexds.ccoshop.entity.OrderItem;
+import ru.alexds.ccoshop.entity.Status;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -23,4 +28,52 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
      * @return Список всех элементов заказа, связанных с указанным заказом.
      */
     List<OrderItem> findByOrderId(Long orderId);
-}
\ No newline at end of file
+
+    /**
+     * Метод для агрегирования позиций заказа по продуктам.
+     *
+     * @param orderId Идентификатор заказа.
+     * @return Список строк [productId, categoryId, quantity, amount].
+     */
+    @Query("SELECT oi.product.id, oi.product.category.id, SUM(oi.quantity), SUM(oi.price * oi.quantity) " +
+            "FROM OrderItem oi WHERE oi.order.id = :orderId GROUP BY oi.product.id, oi.product.category.id")
+    List<Object[]> aggregateByProduct(@Param("orderId") Long orderId);
+
+    /**
+     * Метод для получения позиций нескольких заказов в виде проекций одним запросом.
+     *
+     * @param orderIds Идентификаторы заказов.
+     * @return Список проекций позиций, упорядоченный по заказу и позиции.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.OrderItemDTO(oi.id, oi.order.id, oi.product.id, oi.product.name, oi.quantity, oi.price) " +
+            "FROM OrderItem oi WHERE oi.order.id IN :orderIds ORDER BY oi.order.id, oi.id")
+    List<OrderItemDTO> findViewsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Метод для суммирования количества товара по продуктам в нескольких заказах.
+     *
+     * @param orderIds Идентификаторы заказов.
+     * @return Список строк [productId, quantity].
+     */
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi WHERE oi.order.id IN :orderIds GROUP BY oi.product.id")
+    List<Object[]> sumQuantityByProduct(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Метод для получения идентификаторов продуктов заказа.
+     *
+     * @param orderId Идентификатор заказа.
+     * @return Список уникальных идентификаторов продуктов.
+     */
+    @Query("SELECT DISTINCT oi.product.id FROM OrderItem oi WHERE oi.order.id = :orderId")
+    List<Long> findProductIdsByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * Метод для получения идентификаторов продуктов из заказов пользователя с указанным статусом.
+     *
+     * @param userId Идентификатор пользователя.
+     * @param status Статус заказа.
+     * @return Список уникальных идентификаторов продуктов.
+     */
+    @Query("SELECT DISTINCT oi.product.id FROM OrderItem oi WHERE oi.order.user.id = :userId AND oi.order.status = :status")
+    List<Long> findProductIdsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") Status status);
+}
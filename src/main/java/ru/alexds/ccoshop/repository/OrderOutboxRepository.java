@@ -0,0 +1,58 @@
+/**
+ * Пакет для репозиториев приложения.
+ */
+package ru.alexds.ccoshop.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.alexds.ccoshop.entity.OrderOutboxEvent;
+import ru.alexds.ccoshop.entity.OutboxStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Интерфейс OrderOutboxRepository представляет собой репозиторий для работы с таблицей outbox событий заказов.
+ */
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, Long> {
+
+    /**
+     * Метод для выборки пакета событий, готовых к доставке, с блокировкой строк.
+     * Строки, заблокированные другим экземпляром приложения, пропускаются (SKIP LOCKED).
+     *
+     * @param status   Состояние доставки (PENDING).
+     * @param now      Текущее время.
+     * @param pageable Размер пакета.
+     * @return Список событий в порядке возникновения.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OrderOutboxEvent e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<OrderOutboxEvent> findDueForUpdate(@Param("status") OutboxStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Метод для удаления доставленных событий старше указанного момента.
+     *
+     * @param status Состояние доставки (PROCESSED).
+     * @param before Граница хранения.
+     * @return Количество удаленных событий.
+     */
+    @Modifying
+    @Query("DELETE FROM OrderOutboxEvent e WHERE e.status = :status AND e.processedAt < :before")
+    int deleteProcessedBefore(@Param("status") OutboxStatus status, @Param("before") LocalDateTime before);
+
+    /**
+     * Метод для подсчета событий в указанном состоянии.
+     *
+     * @param status Состояние доставки.
+     * @return Количество событий.
+     */
+    long countByStatus(OutboxStatus status);
+}
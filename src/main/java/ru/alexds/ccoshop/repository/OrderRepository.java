@@ -3,12 +3,22 @@
  */
 package ru.alexds.ccoshop.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.alexds.ccoshop.dto.OrderDTO;
 import ru.alexds.ccoshop.entity.Order;
 import ru.alexds.ccoshop.entity.Status;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Интерфейс OrderRepository представляет собой репозиторий для работы с сущностью Order в базе данных.
@@ -120,4 +130,118 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserIdAndStatus(Long userId, Status status);
 
     long countByUserIdAndStatus(Long userId, Status completed);
-}
\ No newline at end of file
+
+    /**
+     * Метод для вычисления минимальной и максимальной суммы заказов пользователя с определенным статусом.
+     * Использует индекс (user_id, status).
+     *
+     * @param userId Идентификатор пользователя.
+     * @param status Статус заказа.
+     * @return Список из одной строки [min, max]; значения равны null, если заказов нет.
+     */
+    @Query("SELECT MIN(o.totalPrice), MAX(o.totalPrice) FROM Order o WHERE o.user.id = :userId AND o.status = :status")
+    List<Object[]> findTotalPriceRangeByUserIdAndStatus(@Param("userId") Long userId, @Param("status") Status status);
+
+    /**
+     * Метод для агрегирования заказов с определенным статусом по пользователям.
+     *
+     * @param status Статус заказа.
+     * @return Список строк [userId, count, sum, min, max].
+     */
+    @Query("SELECT o.user.id, COUNT(o), SUM(o.totalPrice), MIN(o.totalPrice), MAX(o.totalPrice) " +
+            "FROM Order o WHERE o.status = :status GROUP BY o.user.id")
+    List<Object[]> aggregateByUserAndStatus(@Param("status") Status status);
+
+    /**
+     * Метод для агрегирования заказов с определенным статусом по пользователям и месяцам.
+     *
+     * @param status Статус заказа.
+     * @return Список строк [userId, year, month, count, sum].
+     */
+    @Query("SELECT o.user.id, YEAR(o.orderDate), MONTH(o.orderDate), COUNT(o), SUM(o.totalPrice) " +
+            "FROM Order o WHERE o.status = :status GROUP BY o.user.id, YEAR(o.orderDate), MONTH(o.orderDate)")
+    List<Object[]> aggregateByUserMonthAndStatus(@Param("status") Status status);
+
+    /**
+     * Метод для постраничного получения заказов в виде проекций (без позиций и без загрузки сущностей).
+     *
+     * @param pageable Параметры пагинации.
+     * @return Страница проекций заказов.
+     */
+    @Query(value = "SELECT new ru.alexds.ccoshop.dto.OrderDTO(o.id, o.user.id, o.orderDate, o.status, o.totalPrice) FROM Order o",
+            countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<OrderDTO> findOrderViews(Pageable pageable);
+
+    /**
+     * Метод для получения первой страницы проекций заказов, упорядоченных от новых к старым.
+     * Использует индекс (order_date, id).
+     *
+     * @param pageable Ограничение размера страницы.
+     * @return Список проекций заказов.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.OrderDTO(o.id, o.user.id, o.orderDate, o.status, o.totalPrice) " +
+            "FROM Order o ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderDTO> findOrderViewsFirst(Pageable pageable);
+
+    /**
+     * Метод для получения следующей страницы проекций заказов после курсора (orderDate, id).
+     * Условие "строго после курсора" читает страницу по индексу без пропуска предыдущих строк.
+     *
+     * @param orderDate Дата последнего заказа предыдущей страницы.
+     * @param id        Идентификатор последнего заказа предыдущей страницы.
+     * @param pageable  Ограничение размера страницы.
+     * @return Список проекций заказов.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.OrderDTO(o.id, o.user.id, o.orderDate, o.status, o.totalPrice) " +
+            "FROM Order o WHERE o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderDTO> findOrderViewsAfter(@Param("orderDate") LocalDateTime orderDate, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Метод для получения только статуса заказа без загрузки самого заказа и его позиций.
+     *
+     * @param orderId Идентификатор заказа.
+     * @return Статус заказа, если заказ существует.
+     */
+    @Query("SELECT o.status FROM Order o WHERE o.id = :orderId")
+    Optional<Status> findStatusById(@Param("orderId") Long orderId);
+
+    /**
+     * Метод для получения следующей порции идентификаторов заказов в заданных статусах, оформленных раньше указанной даты
+     * (для архивации и фонового перевода зависших заказов).
+     * Порции читаются по возрастанию идентификатора после последнего обработанного.
+     *
+     * @param statuses Статусы заказов.
+     * @param cutoff   Граница даты оформления (выбираются более ранние заказы).
+     * @param afterId  Идентификатор последнего обработанного заказа.
+     * @param pageable Ограничение размера порции.
+     * @return Список идентификаторов заказов.
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.status IN :statuses AND o.orderDate < :cutoff AND o.id > :afterId ORDER BY o.id")
+    List<Long> findIdsByStatusBefore(@Param("statuses") Collection<Status> statuses, @Param("cutoff") LocalDateTime cutoff,
+                                 @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Метод для блокировки заказов перед массовой сменой статуса и чтения их состояния до изменения.
+     * Строки блокируются в порядке возрастания идентификатора, чтобы параллельные пакеты не взаимоблокировались.
+     *
+     * @param ids Идентификаторы заказов.
+     * @return Список строк [id, userId, status, totalPrice, orderDate] найденных заказов.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o.id, o.user.id, o.status, o.totalPrice, o.orderDate FROM Order o WHERE o.id IN :ids ORDER BY o.id")
+    List<Object[]> lockStatesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Метод для массовой смены статуса заказов одним UPDATE. Допустимость перехода проверяется условием
+     * на текущий статус, поэтому заказы в недопустимом статусе не изменяются.
+     *
+     * @param ids     Идентификаторы заказов.
+     * @param allowed Статусы, из которых допустим переход.
+     * @param target  Новый статус.
+     * @return Количество измененных заказов.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :target WHERE o.id IN :ids AND o.status IN :allowed")
+    int updateStatusByIdIn(@Param("ids") Collection<Long> ids, @Param("allowed") Collection<Status> allowed, @Param("target") Status target);
+}
@@ -5,11 +5,16 @@ package ru.alexds.ccoshop.repository;
 
 import aj.org.objectweb.asm.commons.Remapper;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.alexds.ccoshop.dto.ProductDTO;
 import ru.alexds.ccoshop.entity.Category;
 import ru.alexds.ccoshop.entity.Product;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -85,6 +90,104 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     List<Product> findAllByOrderByPopularityDescCreatedAtDesc(PageRequest of);
 
+    /**
+     * Метод для получения продуктов по идентификаторам вместе с характеристиками одним запросом.
+     *
+     * @param ids Идентификаторы продуктов.
+     * @return Список найденных продуктов с загруженными характеристиками.
+     */
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.characteristics WHERE p.id IN :ids")
+    List<Product> findAllWithCharacteristicsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Метод для получения идентификаторов всех продуктов по возрастанию.
+     *
+     * @return Список идентификаторов продуктов.
+     */
+    @Query("SELECT p.id FROM Product p ORDER BY p.id")
+    List<Long> findAllIds();
+
+    /**
+     * Метод для получения названий и популярности всех продуктов (для подсказок автодополнения).
+     *
+     * @return Список строк [идентификатор, название, популярность].
+     */
+    @Query("SELECT p.id, p.name, p.popularity FROM Product p")
+    List<Object[]> findNamesWithPopularity();
+
+    /**
+     * Метод для получения характеристик с количеством продуктов и суммарной популярностью (для подсказок автодополнения).
+     *
+     * @param minProducts Минимальное количество продуктов с характеристикой.
+     * @return Список строк [характеристика, количество продуктов, суммарная популярность].
+     */
+    @Query("SELECT c, COUNT(p), SUM(p.popularity) FROM Product p JOIN p.characteristics c GROUP BY c HAVING COUNT(p) >= :minProducts")
+    List<Object[]> findCharacteristicsWithPopularity(@Param("minProducts") long minProducts);
+
+    /**
+     * Метод для получения атрибутов всех продуктов, по которым выполняется фасетная фильтрация.
+     *
+     * @return Список строк [идентификатор, идентификатор категории, цена, популярность].
+     */
+    @Query("SELECT p.id, c.id, p.price, p.popularity FROM Product p LEFT JOIN p.category c")
+    List<Object[]> findFacetRows();
+
+    /**
+     * Метод для получения характеристик всех продуктов.
+     *
+     * @return Список строк [идентификатор продукта, характеристика].
+     */
+    @Query("SELECT p.id, ch FROM Product p JOIN p.characteristics ch")
+    List<Object[]> findCharacteristicRows();
+
+    /**
+     * Метод для получения первой страницы проекций продуктов, упорядоченных по идентификатору.
+     * Характеристики в проекцию не входят и загружаются для всей страницы отдельным запросом.
+     *
+     * @param pageable Ограничение размера страницы.
+     * @return Список проекций продуктов.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.ProductDTO(p.id, p.name, p.description, p.price, p.stockQuantity, " +
+            "p.popularity, p.category.id, p.imagePath, p.createdAt, p.updatedAt) FROM Product p ORDER BY p.id")
+    List<ProductDTO> findProductViewsFirst(Pageable pageable);
+
+    /**
+     * Метод для получения следующей страницы проекций продуктов после курсора (идентификатора).
+     *
+     * @param id       Идентификатор последнего продукта предыдущей страницы.
+     * @param pageable Ограничение размера страницы.
+     * @return Список проекций продуктов.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.ProductDTO(p.id, p.name, p.description, p.price, p.stockQuantity, " +
+            "p.popularity, p.category.id, p.imagePath, p.createdAt, p.updatedAt) FROM Product p WHERE p.id > :id ORDER BY p.id")
+    List<ProductDTO> findProductViewsAfter(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Метод для получения характеристик указанных продуктов одним запросом.
+     *
+     * @param ids Идентификаторы продуктов.
+     * @return Список строк [идентификатор продукта, характеристика].
+     */
+    @Query("SELECT p.id, ch FROM Product p JOIN p.characteristics ch WHERE p.id IN :ids")
+    List<Object[]> findCharacteristicRowsByProductIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Метод для получения версии каталога: момента последнего изменения продуктов и их количества
+     * (количество учитывает удаления, которые не меняют максимальный момент изменения).
+     *
+     * @return Список из одной строки [максимальный updatedAt, количество продуктов].
+     */
+    @Query("SELECT MAX(p.updatedAt), COUNT(p) FROM Product p")
+    List<Object[]> findCatalogueVersion();
+
+    /**
+     * Метод для поиска всех продуктов дороже заданной цены, отсортированных по возрастанию цены.
+     *
+     * @param minPrice Минимальная цена продукта.
+     * @return Список продуктов с ценой не меньше заданной, отсортированных по возрастанию цены.
+     */
+    List<Product> findByPriceGreaterThanEqualOrderByPriceAsc(BigDecimal minPrice);
+
     /**
      * Метод для поиска сущности по идентификатору (предположительно ошибка в типе возвращаемого значения).
      *
@@ -92,4 +195,4 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      * @return Объект Remapper, представляющий найденную сущность (предположительно ошибка в типе возвращаемого значения).
      */
     Remapper findEntityById(Long id);
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+/**
+ * Пакет для репозиториев приложения.
+ */
+package ru.alexds.ccoshop.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.alexds.ccoshop.dto.SalesBreakdownDTO;
+import ru.alexds.ccoshop.entity.SalesDailyProduct;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Интерфейс SalesDailyProductRepository представляет собой репозиторий для чтения дневных агрегатов продаж продуктов.
+ * Запись агрегатов выполняет {@link ru.alexds.ccoshop.service.SalesAnalyticsService} пакетными JDBC-запросами.
+ */
+public interface SalesDailyProductRepository extends JpaRepository<SalesDailyProduct, Long> {
+
+    /**
+     * Метод для получения продаж продуктов за период, упорядоченных по выручке.
+     *
+     * @param from     Первый день периода (включительно).
+     * @param to       Последний день периода (включительно).
+     * @param pageable Ограничение количества продуктов.
+     * @return Список продаж по продуктам.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.SalesBreakdownDTO(p.productId, SUM(p.ordersCount), SUM(p.units), SUM(p.revenue)) " +
+            "FROM SalesDailyProduct p WHERE p.salesDay BETWEEN :from AND :to " +
+            "GROUP BY p.productId ORDER BY SUM(p.revenue) DESC")
+    List<SalesBreakdownDTO> findTopProducts(@Param("from") LocalDate from, @Param("to") LocalDate to, Pageable pageable);
+
+    /**
+     * Метод для получения продаж по категориям за период, упорядоченных по выручке.
+     *
+     * @param from Первый день периода (включительно).
+     * @param to   Последний день периода (включительно).
+     * @return Список продаж по категориям.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.SalesBreakdownDTO(p.categoryId, SUM(p.ordersCount), SUM(p.units), SUM(p.revenue)) " +
+            "FROM SalesDailyProduct p WHERE p.salesDay BETWEEN :from AND :to " +
+            "GROUP BY p.categoryId ORDER BY SUM(p.revenue) DESC")
+    List<SalesBreakdownDTO> findCategorySales(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,46 @@
+/**
+ * Пакет для репозиториев приложения.
+ */
+package ru.alexds.ccoshop.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.alexds.ccoshop.dto.DailySalesDTO;
+import ru.alexds.ccoshop.entity.SalesDailyStatus;
+import ru.alexds.ccoshop.entity.Status;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Интерфейс SalesDailyStatusRepository представляет собой репозиторий для чтения дневных агрегатов заказов по статусам.
+ * Запись агрегатов выполняет {@link ru.alexds.ccoshop.service.SalesAnalyticsService} пакетными JDBC-запросами.
+ */
+public interface SalesDailyStatusRepository extends JpaRepository<SalesDailyStatus, Long> {
+
+    /**
+     * Метод для получения дневных продаж за период без учета заказов с указанным статусом.
+     *
+     * @param from     Первый день периода (включительно).
+     * @param to       Последний день периода (включительно).
+     * @param excluded Статус, заказы в котором не учитываются (обычно CANCELLED).
+     * @return Список дневных продаж, отсортированный по дню.
+     */
+    @Query("SELECT new ru.alexds.ccoshop.dto.DailySalesDTO(s.salesDay, SUM(s.ordersCount), SUM(s.revenue)) " +
+            "FROM SalesDailyStatus s WHERE s.salesDay BETWEEN :from AND :to AND s.status <> :excluded " +
+            "GROUP BY s.salesDay ORDER BY s.salesDay")
+    List<DailySalesDTO> findDailySales(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                       @Param("excluded") Status excluded);
+
+    /**
+     * Метод для подсчета заказов за период по статусам.
+     *
+     * @param from Первый день периода (включительно).
+     * @param to   Последний день периода (включительно).
+     * @return Список строк [status, count].
+     */
+    @Query("SELECT s.status, SUM(s.ordersCount) FROM SalesDailyStatus s " +
+            "WHERE s.salesDay BETWEEN :from AND :to GROUP BY s.status")
+    List<Object[]> countByStatus(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
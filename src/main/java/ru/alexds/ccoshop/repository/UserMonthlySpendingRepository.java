@@ -0,0 +1,54 @@
+/**
+ * Пакет для репозиториев приложения.
+ */
+package ru.alexds.ccoshop.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.alexds.ccoshop.entity.UserMonthlySpending;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Интерфейс UserMonthlySpendingRepository представляет собой репозиторий для работы с помесячными суммами
+ * выполненных заказов пользователя.
+ */
+public interface UserMonthlySpendingRepository extends JpaRepository<UserMonthlySpending, Long> {
+
+    /**
+     * Метод для поиска всех помесячных сумм пользователя по индексу (user_id, period).
+     *
+     * @param userId Идентификатор пользователя.
+     * @return Список помесячных сумм, отсортированный по месяцу.
+     */
+    List<UserMonthlySpending> findByUserIdOrderByPeriod(Long userId);
+
+    /**
+     * Изменяет сумму и количество выполненных заказов пользователя за месяц.
+     *
+     * @param userId     Идентификатор пользователя.
+     * @param period     Месяц в формате "yyyy-MM".
+     * @param orderDelta Изменение количества заказов (+1 или -1).
+     * @param amount     Изменение суммы (со знаком).
+     * @return Количество обновленных строк (0, если записи за месяц еще нет).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserMonthlySpending m SET m.completedOrders = m.completedOrders + :orderDelta, " +
+            "m.totalSpent = m.totalSpent + :amount WHERE m.userId = :userId AND m.period = :period")
+    int applyDelta(@Param("userId") Long userId, @Param("period") String period,
+                   @Param("orderDelta") long orderDelta, @Param("amount") BigDecimal amount);
+
+    /**
+     * Удаляет запись за месяц, в котором не осталось выполненных заказов.
+     *
+     * @param userId Идентификатор пользователя.
+     * @param period Месяц в формате "yyyy-MM".
+     * @return Количество удаленных строк.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM UserMonthlySpending m WHERE m.userId = :userId AND m.period = :period AND m.completedOrders <= 0")
+    int deleteIfEmpty(@Param("userId") Long userId, @Param("period") String period);
+}
@@ -0,0 +1,51 @@
+/**
+ * Пакет для репозиториев приложения.
+ */
+package ru.alexds.ccoshop.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.alexds.ccoshop.entity.UserOrderSummary;
+
+import java.math.BigDecimal;
+
+/**
+ * Интерфейс UserOrderSummaryRepository представляет собой репозиторий для работы со сводкой заказов пользователя.
+ * Изменения выполняются атомарными UPDATE-запросами, чтобы параллельные переходы заказов одного
+ * пользователя не теряли обновления.
+ */
+public interface UserOrderSummaryRepository extends JpaRepository<UserOrderSummary, Long> {
+
+    /**
+     * Добавляет в сводку один выполненный заказ.
+     *
+     * @param userId Идентификатор пользователя.
+     * @param amount Сумма заказа.
+     * @return Количество обновленных строк (0, если сводки пользователя еще нет).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserOrderSummary s SET s.completedOrders = s.completedOrders + 1, " +
+            "s.totalSpent = s.totalSpent + :amount, " +
+            "s.minOrderAmount = CASE WHEN s.minOrderAmount IS NULL OR s.minOrderAmount > :amount THEN :amount ELSE s.minOrderAmount END, " +
+            "s.maxOrderAmount = CASE WHEN s.maxOrderAmount IS NULL OR s.maxOrderAmount < :amount THEN :amount ELSE s.maxOrderAmount END " +
+            "WHERE s.userId = :userId")
+    int addCompletedOrder(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Исключает из сводки один выполненный заказ и устанавливает пересчитанные границы сумм.
+     *
+     * @param userId Идентификатор пользователя.
+     * @param amount Сумма заказа.
+     * @param min    Новая минимальная сумма заказа (null, если выполненных заказов не осталось).
+     * @param max    Новая максимальная сумма заказа (null, если выполненных заказов не осталось).
+     * @return Количество обновленных строк.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserOrderSummary s SET s.completedOrders = s.completedOrders - 1, " +
+            "s.totalSpent = s.totalSpent - :amount, s.minOrderAmount = :min, s.maxOrderAmount = :max " +
+            "WHERE s.userId = :userId")
+    int removeCompletedOrder(@Param("userId") Long userId, @Param("amount") BigDecimal amount,
+                             @Param("min") BigDecimal min, @Param("max") BigDecimal max);
+}
@@ -0,0 +1,110 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.alexds.ccoshop.repository.CartItemRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Фоновая очистка брошенных корзин.
+ * Корзина считается брошенной, если ни одна ее позиция не изменялась дольше заданного срока (по полю updated_at).
+ * Пользователи с брошенными корзинами выбираются порциями по индексу (user_id, updated_at) с курсором
+ * по идентификатору пользователя, позиции каждой порции удаляются в собственной короткой транзакции,
+ * а между порциями выдерживается пауза, поэтому очистка не удерживает долгих блокировок cart_items.
+ * <p>
+ * Корзины в памяти ({@link InMemoryCartStore}) не выгружаются: измененная корзина будет снова записана
+ * при отложенной записи, а неизменявшаяся выгрузится сама по истечении времени бездействия.
+ */
+@Slf4j
+@Service
+public class CartPurgeService {
+    private final CartItemRepository cartItemRepository; // Репозиторий элементов корзины
+    private final TransactionTemplate transactionTemplate; // Отдельная транзакция на каждую порцию
+    private final Duration maxAge; // Срок без изменений, после которого корзина удаляется
+    private final int chunkSize; // Количество корзин в порции
+    private final Duration chunkPause; // Пауза между порциями
+    private final int maxCartsPerRun; // Максимальное количество корзин за один запуск
+
+    public CartPurgeService(CartItemRepository cartItemRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${shop.cart.purge.max-age:P30D}") Duration maxAge,
+                            @Value("${shop.cart.purge.chunk-size:200}") int chunkSize,
+                            @Value("${shop.cart.purge.chunk-pause:PT0.2S}") Duration chunkPause,
+                            @Value("${shop.cart.purge.max-carts-per-run:20000}") int maxCartsPerRun) {
+        this.cartItemRepository = cartItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAge = maxAge;
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+        this.maxCartsPerRun = maxCartsPerRun;
+    }
+
+    /**
+     * Удаляет брошенные корзины (по расписанию).
+     */
+    @Scheduled(cron = "${shop.cart.purge.cron:0 15 4 * * *}")
+    public void purgeAbandonedCarts() {
+        purgeCartsUntouchedSince(LocalDateTime.now().minus(maxAge));
+    }
+
+    /**
+     * Удаляет корзины, ни одна позиция которых не изменялась после указанного времени.
+     *
+     * @param cutoff Граница времени последнего изменения
+     * @return Количество удаленных позиций корзин
+     */
+    public int purgeCartsUntouchedSince(LocalDateTime cutoff) {
+        long startedAt = System.nanoTime();
+        int carts = 0;
+        int rows = 0;
+        int chunks = 0;
+        long afterUserId = 0;
+
+        while (carts < maxCartsPerRun) {
+            int limit = Math.min(chunkSize, maxCartsPerRun - carts);
+            long after = afterUserId;
+            List<Long> userIds = cartItemRepository.findAbandonedCartUserIds(after, cutoff, PageRequest.of(0, limit));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            Integer deleted = transactionTemplate.execute(status -> cartItemRepository.deleteStaleByUserIds(userIds, cutoff));
+            rows += deleted != null ? deleted : 0;
+            carts += userIds.size();
+            chunks++;
+            afterUserId = userIds.get(userIds.size() - 1);
+
+            if (userIds.size() < limit || !pause()) {
+                break;
+            }
+        }
+
+        log.info("Cart purge removed {} rows from {} carts untouched since {} in {} chunks ({} ms)",
+                rows, carts, cutoff, chunks, (System.nanoTime() - startedAt) / 1_000_000);
+        return rows;
+    }
+
+    /**
+     * Вспомогательный метод: выдерживает паузу между порциями.
+     *
+     * @return false, если поток прерван и очистку нужно прекратить
+     */
+    private boolean pause() {
+        if (!chunkPause.isZero()) {
+            try {
+                Thread.sleep(chunkPause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
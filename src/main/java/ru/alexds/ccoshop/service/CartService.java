@@ -4,32 +4,37 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.alexds.ccoshop.dto.CartItemDTO;
-import ru.alexds.ccoshop.entity.CartItem;
+import ru.alexds.ccoshop.dto.CartLineDTO;
+import ru.alexds.ccoshop.dto.CartOperationDTO;
+import ru.alexds.ccoshop.dto.CartViewDTO;
 import ru.alexds.ccoshop.entity.Product;
-import ru.alexds.ccoshop.entity.User;
 import ru.alexds.ccoshop.exeption.CartItemNotFoundException;
 import ru.alexds.ccoshop.exeption.InsufficientStockException;
 import ru.alexds.ccoshop.exeption.ProductNotFoundException;
-import ru.alexds.ccoshop.repository.CartItemRepository;
-import ru.alexds.ccoshop.repository.UserRepository;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Сервис для управления корзинами пользователей.
  * Обеспечивает API для получения, удаления, обновления и добавления товаров в корзины пользователей.
+ * Содержимое корзин хранится в {@link CartStore}; сервис проверяет продукты и остатки и управляет резервами горячих товаров.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CartService {
 
-    private final CartItemRepository cartItemRepository; // Репозиторий для работы с элементами корзины
+    private final CartStore cartStore; // Хранилище корзин
     private final ProductService productService; // Сервис для работы с продуктами
-    private final UserRepository userRepository; // Репозиторий для работы с пользователями (необходимо добавить)
+    private final HotSkuInventoryService hotSkuInventoryService; // Резервы горячих товаров в памяти
 
     /**
      * Получает все товары в корзине для указанного пользователя.
@@ -39,10 +44,27 @@ public class CartService {
      */
     public List<CartItemDTO> getCartItemsForUser(Long userId) {
         log.debug("Request to get all cart items for user ID: {}", userId);
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId); // Получаем все элементы корзины для пользователя
-        return cartItems.stream()
-                .map(this::convertToDTO) // Преобразуем каждый элемент корзины в DTO
-                .collect(Collectors.toList()); // Возвращаем список DTO
+        return cartStore.getItems(userId);
+    }
+
+    /**
+     * Получает корзину пользователя для отображения: строки с названием, текущей ценой и остатком продуктов
+     * (одним запросом) и итоги корзины. Строки, цена которых изменилась после добавления в корзину, отмечаются.
+     *
+     * @param userId Идентификатор пользователя, чья корзина должна быть получена
+     * @return Представление корзины с итогами
+     */
+    public CartViewDTO getCartView(Long userId) {
+        log.debug("Request to get cart view for user ID: {}", userId);
+        List<CartLineDTO> lines = cartStore.getLines(userId);
+        return CartViewDTO.builder()
+                .userId(userId)
+                .lines(lines)
+                .totalQuantity(lines.stream().mapToInt(CartLineDTO::getQuantity).sum())
+                .total(lines.stream().map(CartLineDTO::getLineTotal).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .priceChanged(lines.stream().anyMatch(CartLineDTO::isPriceChanged))
+                .inStock(lines.stream().allMatch(CartLineDTO::isInStock))
+                .build();
     }
 
     /**
@@ -52,7 +74,8 @@ public class CartService {
      */
     public void clearCartForUser(Long userId) {
         log.debug("Request to clear cart for user ID: {}", userId);
-        cartItemRepository.deleteByUserId(userId); // Удаляем все элементы корзины для пользователя
+        cartStore.clear(userId); // Удаляем все элементы корзины для пользователя
+        hotSkuInventoryService.releaseAll(userId); // Возвращаем резервы горячих товаров
     }
 
     /**
@@ -65,11 +88,12 @@ public class CartService {
     @Transactional
     public void removeCartItem(Long id) {
         log.debug("Request to remove cart item with ID: {}", id);
-        CartItem cartItem = cartItemRepository.findById(id)
+        CartItemDTO cartItem = cartStore.findItem(id)
                 .orElseThrow(() -> new CartItemNotFoundException("Cart item not found with id: " + id)); // Проверяем наличие элемента корзины
 
         try {
-            cartItemRepository.deleteById(id); // Удаляем элемент корзины
+            cartStore.removeItem(id); // Удаляем элемент корзины
+            hotSkuInventoryService.release(cartItem.getUserId(), cartItem.getProductId());
             log.debug("Successfully removed cart item with ID: {}", id);
         } catch (Exception e) {
             log.error("Error removing cart item with ID: {}", id, e);
@@ -91,24 +115,27 @@ public class CartService {
         log.debug("Request to update cart item: {}", cartItemDTO);
 
         // Проверяем существование товара в корзине
-        CartItem existingItem = cartItemRepository.findById(cartItemDTO.getId())
+        CartItemDTO existingItem = cartStore.findItem(cartItemDTO.getId())
                 .orElseThrow(() -> new CartItemNotFoundException("Cart item not found"));
 
-        // Проверяем наличие товара на складе
-        Product product = productService.getProductEntityById(cartItemDTO.getProductId())
-                .orElseThrow(() -> new ProductNotFoundException("Product not found"));
+        Long productId = existingItem.getProductId();
+        if (hotSkuInventoryService.isHot(productId)) {
+            // Горячий товар: остаток проверяется и резервируется в памяти, без чтения строки продукта
+            hotSkuInventoryService.resize(existingItem.getUserId(), productId, cartItemDTO.getQuantity());
+        } else {
+            // Проверяем наличие товара на складе
+            Product product = productService.getProductEntityById(productId)
+                    .orElseThrow(() -> new ProductNotFoundException("Product not found"));
 
-        if (product.getStockQuantity() < cartItemDTO.getQuantity()) {
-            throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+            if (product.getStockQuantity() < cartItemDTO.getQuantity()) {
+                throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+            }
         }
 
-        // Обновляем данные существующего товара
-        existingItem.setQuantity(cartItemDTO.getQuantity());
-
-        // Сохраняем обновленный товар
-        CartItem savedItem = cartItemRepository.save(existingItem);
+        // Обновляем количество существующего товара
+        CartItemDTO savedItem = cartStore.updateQuantity(existingItem.getId(), cartItemDTO.getQuantity());
         log.debug("Successfully updated cart item with ID: {}", savedItem.getId());
-        return convertToDTO(savedItem); // Преобразуем обновленный элемент корзины в DTO и возвращаем
+        return savedItem;
     }
 
     /**
@@ -116,66 +143,173 @@ public class CartService {
      *
      * @param cartItemDTO DTO объект с информацией о товаре, который необходимо добавить (идентификатор пользователя, идентификатор продукта, количество)
      * @return DTO объект добавленного или обновленного элемента корзины
-     * @throws RuntimeException если продукт не найден
+     * @throws RuntimeException если продукт или пользователь не найден
      */
     @Transactional
     public CartItemDTO addCartItem(CartItemDTO cartItemDTO) {
         log.debug("Request to add cart item: {}", cartItemDTO);
 
+        // Горячий товар резервируется в памяти до обращения к БД: при нехватке запрос отклоняется сразу
+        // (если дальнейшая операция с БД упадет, резерв вернется на склад по истечении TTL)
+        if (hotSkuInventoryService.isHot(cartItemDTO.getProductId())) {
+            hotSkuInventoryService.reserve(cartItemDTO.getUserId(), cartItemDTO.getProductId(), cartItemDTO.getQuantity());
+        }
+
         // Проверка существования продукта
         Product product = productService.getProductEntityById(cartItemDTO.getProductId())
                 .orElseThrow(() -> new RuntimeException("Product not found: " + cartItemDTO.getProductId()));
 
-        // Проверяем существование элемента в корзине
-        Optional<CartItem> existingCartItem = cartItemRepository.findByUserIdAndProductId(
-                cartItemDTO.getUserId(),
-                cartItemDTO.getProductId()
-        );
-
-        CartItem cartItem;
-        if (existingCartItem.isPresent()) {
-            // Если элемент уже существует, обновляем количество
-            cartItem = existingCartItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + cartItemDTO.getQuantity());
-            log.debug("Updating existing cart item quantity for user ID {} and product ID {}: new quantity is {}",
-                    cartItemDTO.getUserId(), cartItemDTO.getProductId(), cartItem.getQuantity());
-        } else {
-            // Создаем новый элемент корзины
-            User user = userRepository.findById(cartItemDTO.getUserId())
-                    .orElseThrow(() -> new RuntimeException("User not found: " + cartItemDTO.getUserId()));
-            cartItem = CartItem.builder()
-                    .user(user) // Привязываем пользователя к новому элементу корзины
-                    .product(product) // Привязываем продукт к новому элементу корзины
-                    .quantity(cartItemDTO.getQuantity()) // Устанавливаем количество товара
-                    .price(product.getPrice()) // Устанавливаем цену продукта
-                    .build();
-
-            log.debug("Creating new cart item for user ID {} and product ID {}: quantity is {}",
-                    cartItemDTO.getUserId(), cartItemDTO.getProductId(), cartItemDTO.getQuantity());
+        // Добавляем элемент в корзину или увеличиваем количество существующего
+        CartItemDTO savedCartItem = cartStore.addItem(cartItemDTO.getUserId(), cartItemDTO.getProductId(),
+                cartItemDTO.getQuantity(), product.getPrice());
+        log.debug("Saved cart item with ID: {} for user ID {} and product ID {}: quantity is {}",
+                savedCartItem.getId(), savedCartItem.getUserId(), savedCartItem.getProductId(), savedCartItem.getQuantity());
+        return savedCartItem;
+    }
+
+    /**
+     * Применяет к корзине пользователя список операций добавления, изменения и удаления в одной транзакции.
+     * Корзина и все упомянутые продукты читаются одним запросом каждый, остатки проверяются в памяти,
+     * а итоговые изменения записываются пакетами: одной записью на каждый вид изменений, а не на каждую операцию.
+     * Операции применяются по порядку; при ошибке в любой из них корзина не изменяется.
+     *
+     * @param userId     Идентификатор пользователя
+     * @param operations Операции над корзиной
+     * @return Содержимое корзины после изменений
+     * @throws IllegalArgumentException   если количество в операции не задано или недопустимо
+     * @throws CartItemNotFoundException  если изменяемого продукта нет в корзине
+     * @throws ProductNotFoundException   если продукт не найден
+     * @throws InsufficientStockException если на складе недостаточно запасов продукта
+     */
+    @Transactional
+    public List<CartItemDTO> applyBatch(Long userId, List<CartOperationDTO> operations) {
+        log.debug("Request to apply {} cart operations for user ID: {}", operations.size(), userId);
+
+        List<CartItemDTO> current = cartStore.getItems(userId);
+        Map<Long, Integer> initial = new HashMap<>();
+        current.forEach(item -> initial.put(item.getProductId(), item.getQuantity()));
+
+        // Сворачиваем операции в итоговое количество по каждому продукту
+        Map<Long, Integer> resulting = new LinkedHashMap<>(initial);
+        for (CartOperationDTO operation : operations) {
+            Long productId = operation.getProductId();
+            switch (operation.getType()) {
+                case ADD -> resulting.merge(productId, requireQuantity(operation, 1), Integer::sum);
+                case UPDATE -> {
+                    if (resulting.getOrDefault(productId, 0) == 0) {
+                        throw new CartItemNotFoundException("Product is not in the cart: " + productId);
+                    }
+                    resulting.put(productId, requireQuantity(operation, 0));
+                }
+                case REMOVE -> resulting.computeIfPresent(productId, (id, quantity) -> 0);
+            }
         }
 
-        // Сохраняем или обновляем элемент корзины
-        CartItem savedCartItem = cartItemRepository.save(cartItem);
-        log.debug("Saved cart item with ID: {}", savedCartItem.getId());
+        Map<Long, Integer> changes = new LinkedHashMap<>();
+        resulting.forEach((productId, quantity) -> {
+            if (quantity.intValue() != initial.getOrDefault(productId, 0)) {
+                changes.put(productId, quantity);
+            }
+        });
+        if (changes.isEmpty()) {
+            return current;
+        }
+
+        // Все продукты с ненулевым итоговым количеством - одним запросом; остатки проверяются в памяти
+        List<Long> kept = changes.entrySet().stream().filter(e -> e.getValue() > 0).map(Map.Entry::getKey).toList();
+        Map<Long, Product> products = kept.isEmpty() ? Map.of() : productService.getProductEntitiesByIds(kept);
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        for (Long productId : kept) {
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new ProductNotFoundException("Product not found: " + productId);
+            }
+            if (!hotSkuInventoryService.isHot(productId) && product.getStockQuantity() < changes.get(productId)) {
+                throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+            }
+            prices.put(productId, product.getPrice());
+        }
+        resizeHotReservations(userId, changes, initial);
 
-        // Конвертируем в DTO и возвращаем
-        return convertToDTO(savedCartItem);
+        List<CartItemDTO> items = cartStore.applyChanges(userId, current, changes, prices);
+        log.debug("Applied {} cart changes for user ID: {}", changes.size(), userId);
+        return items;
     }
 
     /**
-     * Вспомогательный метод для преобразования элемента корзины в DTO.
-     *
-     * @param cartItem Элемент корзины, который необходимо преобразовать
-     * @return DTO объект элемента корзины
+     * Вспомогательный метод: приводит резервы горячих товаров к итоговому количеству в корзине.
+     * Увеличения применяются сразу, чтобы нехватка отклонила операции до записи в БД (при нехватке уже увеличенные
+     * резервы возвращаются к исходному количеству); при откате транзакции они также возвращаются.
+     * Уменьшения и снятия резервов применяются только после фиксации транзакции.
      */
-    private CartItemDTO convertToDTO(CartItem cartItem) {
-        log.debug("Converting cart item with ID {} to DTO", cartItem.getId());
-        return new CartItemDTO(
-                cartItem.getId(),
-                cartItem.getUser().getId(),
-                cartItem.getProduct().getId(),
-                cartItem.getQuantity(),
-                cartItem.getPrice()
-        );
+    private void resizeHotReservations(Long userId, Map<Long, Integer> changes, Map<Long, Integer> initial) {
+        List<Long> increased = new ArrayList<>();
+        try {
+            for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+                Long productId = change.getKey();
+                if (change.getValue() > initial.getOrDefault(productId, 0) && hotSkuInventoryService.isHot(productId)) {
+                    hotSkuInventoryService.resize(userId, productId, change.getValue());
+                    increased.add(productId);
+                }
+            }
+        } catch (InsufficientStockException e) {
+            restoreHotReservations(userId, increased, initial);
+            throw e;
+        }
+
+        Map<Long, Integer> decreased = new LinkedHashMap<>();
+        changes.forEach((productId, quantity) -> {
+            if (quantity < initial.getOrDefault(productId, 0) && hotSkuInventoryService.isHot(productId)) {
+                decreased.put(productId, quantity);
+            }
+        });
+        afterCompletion(() -> decreased.forEach((productId, quantity) -> {
+            if (quantity == 0) {
+                hotSkuInventoryService.release(userId, productId);
+            } else {
+                hotSkuInventoryService.resize(userId, productId, quantity);
+            }
+        }), () -> restoreHotReservations(userId, increased, initial));
+    }
+
+    // Возвращает увеличенные резервы к исходному количеству (или снимает резервы продуктов, которых не было в корзине)
+    private void restoreHotReservations(Long userId, List<Long> increased, Map<Long, Integer> initial) {
+        increased.forEach(productId -> {
+            if (initial.containsKey(productId)) {
+                hotSkuInventoryService.resize(userId, productId, initial.get(productId));
+            } else {
+                hotSkuInventoryService.release(userId, productId);
+            }
+        });
+    }
+
+    /**
+     * Вспомогательный метод: выполняет действие после фиксации текущей транзакции или другое действие при ее откате,
+     * либо первое действие сразу, если транзакции нет.
+     */
+    private static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommit.run();
+                } else {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+
+    private static int requireQuantity(CartOperationDTO operation, int min) {
+        Integer quantity = operation.getQuantity();
+        if (quantity == null || quantity < min) {
+            throw new IllegalArgumentException("Quantity must be at least " + min + " for " + operation.getType()
+                    + " of product " + operation.getProductId());
+        }
+        return quantity;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package ru.alexds.ccoshop.service;
+
+import ru.alexds.ccoshop.dto.CartItemDTO;
+import ru.alexds.ccoshop.dto.CartLineDTO;
+import ru.alexds.ccoshop.exeption.CartItemNotFoundException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранилище корзин пользователей.
+ * Реализация выбирается свойством {@code shop.cart.store}: {@link JpaCartStore} (jpa, по умолчанию) работает
+ * напрямую с таблицей cart_items, {@link InMemoryCartStore} (memory) держит корзины в памяти и записывает
+ * изменения в БД отложенно - по расписанию и при оформлении заказа.
+ * Проверки остатков и резервы горячих товаров выполняет {@link CartService}.
+ */
+public interface CartStore {
+
+    /**
+     * Получает товары в корзине пользователя.
+     *
+     * @param userId Идентификатор пользователя
+     * @return Список товаров корзины
+     */
+    List<CartItemDTO> getItems(Long userId);
+
+    /**
+     * Получает строки корзины пользователя вместе с названием, текущей ценой и остатком продуктов.
+     *
+     * @param userId Идентификатор пользователя
+     * @return Список строк корзины
+     */
+    List<CartLineDTO> getLines(Long userId);
+
+    /**
+     * Получает товар корзины по идентификатору.
+     *
+     * @param cartItemId Идентификатор элемента корзины
+     * @return Элемент корзины, если он существует
+     */
+    Optional<CartItemDTO> findItem(Long cartItemId);
+
+    /**
+     * Добавляет продукт в корзину пользователя или увеличивает количество, если продукт уже в корзине.
+     *
+     * @param userId    Идентификатор пользователя
+     * @param productId Идентификатор продукта
+     * @param quantity  Добавляемое количество
+     * @param price     Цена продукта на момент добавления (используется для нового элемента)
+     * @return Добавленный или обновленный элемент корзины
+     * @throws RuntimeException если пользователь не найден
+     */
+    CartItemDTO addItem(Long userId, Long productId, int quantity, BigDecimal price);
+
+    /**
+     * Устанавливает количество товара в корзине.
+     *
+     * @param cartItemId Идентификатор элемента корзины
+     * @param quantity   Новое количество
+     * @return Обновленный элемент корзины
+     * @throws CartItemNotFoundException если элемент корзины не найден
+     */
+    CartItemDTO updateQuantity(Long cartItemId, int quantity);
+
+    /**
+     * Удаляет товар из корзины.
+     *
+     * @param cartItemId Идентификатор элемента корзины
+     * @return Удаленный элемент корзины, если он существовал
+     */
+    Optional<CartItemDTO> removeItem(Long cartItemId);
+
+    /**
+     * Применяет к корзине пользователя набор изменений количества продуктов за одну запись.
+     *
+     * @param userId     Идентификатор пользователя
+     * @param current    Содержимое корзины, прочитанное в текущей транзакции через {@link #getItems(Long)}
+     * @param quantities Новое количество по идентификатору продукта (0 - удалить продукт из корзины)
+     * @param prices     Цены продуктов для новых элементов корзины
+     * @return Содержимое корзины после изменений
+     * @throws RuntimeException если пользователь не найден
+     */
+    List<CartItemDTO> applyChanges(Long userId, List<CartItemDTO> current,
+                                   Map<Long, Integer> quantities, Map<Long, BigDecimal> prices);
+
+    /**
+     * Очищает корзину пользователя.
+     *
+     * @param userId Идентификатор пользователя
+     */
+    void clear(Long userId);
+
+    /**
+     * Записывает в БД несохраненные изменения корзины пользователя в текущей транзакции
+     * (перед оформлением заказа корзина читается из БД).
+     *
+     * @param userId Идентификатор пользователя
+     */
+    void flush(Long userId);
+
+    /**
+     * Отбрасывает корзину пользователя после фиксации текущей транзакции, не записывая ее в БД
+     * (после оформления заказа корзина уже удалена из БД).
+     *
+     * @param userId Идентификатор пользователя
+     */
+    void evict(Long userId);
+}
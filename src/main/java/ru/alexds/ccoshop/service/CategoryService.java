@@ -3,11 +3,13 @@ package ru.alexds.ccoshop.service;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.alexds.ccoshop.dto.CategoryDTO;
 import ru.alexds.ccoshop.entity.Category;
 import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
 import ru.alexds.ccoshop.repository.CategoryRepository;
 import ru.alexds.ccoshop.repository.ProductRepository;
 
@@ -27,6 +29,7 @@ import java.util.stream.Collectors;
 public class CategoryService {
     private final CategoryRepository categoryRepository; // Репозиторий для работы с категориями
     private final ProductRepository productRepository; // Репозиторий для работы с продуктами
+    private final ApplicationEventPublisher eventPublisher; // Публикация событий изменения продуктов
 
     /**
      * Создает новую категорию.
@@ -152,6 +155,7 @@ public class CategoryService {
         // Сохраняем изменения
         categoryRepository.save(category);
         log.info("Successfully added product with ID: {} to category with ID: {}", productId, categoryId);
+        eventPublisher.publishEvent(ProductChangedEvent.of(productId, ProductChangedEvent.Type.UPDATED));
 
         // Возвращаем обновленную категорию в виде DTO
         return convertToDTO(category);
@@ -189,6 +193,7 @@ public class CategoryService {
         // Сохраняем изменения
         categoryRepository.save(category);
         log.info("Successfully removed product with ID: {} from category with ID: {}", productId, categoryId);
+        eventPublisher.publishEvent(ProductChangedEvent.of(productId, ProductChangedEvent.Type.UPDATED));
 
         // Возвращаем обновленную категорию в виде DTO
         return convertToDTO(category);
@@ -0,0 +1,108 @@
+package ru.alexds.ccoshop.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.alexds.ccoshop.entity.*;
+import ru.alexds.ccoshop.exeption.InsufficientStockException;
+import ru.alexds.ccoshop.exeption.ProductNotFoundException;
+import ru.alexds.ccoshop.repository.CartItemRepository;
+import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.repository.ProductRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис оформления заказа из корзины пользователя.
+ * Загружает все товары корзины одним IN-запросом, проверяет остатки в памяти,
+ * списывает их пакетом условных UPDATE через {@link InventoryService} и вставляет заказ
+ * с позициями одним сбросом контекста персистентности. Перед чтением корзины несохраненные изменения
+ * из {@link CartStore} записываются в БД в той же транзакции.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CheckoutService {
+    private final CartItemRepository cartItemRepository; // Репозиторий для работы с элементами корзины
+    private final CartStore cartStore; // Хранилище корзин (может держать изменения в памяти)
+    private final ProductRepository productRepository; // Репозиторий для работы с продуктами
+    private final OrderRepository orderRepository; // Репозиторий для работы с заказами
+    private final InventoryService inventoryService; // Сервис атомарного списания остатков
+    private final HotSkuInventoryService hotSkuInventoryService; // Счетчики в памяти для горячих товаров
+    private final EntityManager entityManager; // Контекст персистентности для явного сброса изменений
+
+    /**
+     * Оформляет заказ из всех товаров в корзине пользователя и очищает корзину.
+     *
+     * @param userId Идентификатор пользователя, который оформляет заказ
+     * @return Сохраненный заказ с позициями
+     * @throws RuntimeException           если корзина пуста
+     * @throws ProductNotFoundException   если один из продуктов корзины не найден
+     * @throws InsufficientStockException если на складе недостаточно одного из продуктов
+     */
+    @Transactional
+    public Order checkout(Long userId) {
+        log.debug("Request to checkout cart for user ID: {}", userId);
+
+        cartStore.flush(userId);
+        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+        if (cartItems.isEmpty()) {
+            throw new RuntimeException("Cart is empty, cannot create order");
+        }
+
+        // Суммируем количество по продуктам; TreeMap задает единый порядок блокировки строк
+        Map<Long, Integer> requested = new TreeMap<>();
+        for (CartItem cartItem : cartItems) {
+            requested.merge(cartItem.getProduct().getId(), cartItem.getQuantity(), Integer::sum);
+        }
+
+        Map<Long, Product> products = productRepository.findAllById(requested.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // Быстрая проверка по прочитанным остаткам; окончательную проверку выполняет условный UPDATE
+        // (для горячих товаров остаток в БД отстает от счетчиков в памяти, их проверяет InventoryService)
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new ProductNotFoundException("Product not found: " + entry.getKey());
+            }
+            if (!hotSkuInventoryService.isHot(product.getId()) && product.getStockQuantity() < entry.getValue()) {
+                throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+            }
+        }
+
+        // Атомарно списываем остатки; при нехватке хотя бы одного товара транзакция откатывается
+        inventoryService.reserveForOrder(userId, requested);
+
+        Order order = new Order();
+        order.setUser(cartItems.get(0).getUser()); // Ссылка на пользователя уже есть в элементах корзины
+        order.setStatus(Status.NEW);
+        order.setOrderDate(LocalDateTime.now());
+
+        for (CartItem cartItem : cartItems) {
+            Product product = products.get(cartItem.getProduct().getId());
+            order.addItem(OrderItem.builder()
+                    .product(product)
+                    .quantity(cartItem.getQuantity())
+                    .price(cartItem.getPrice() != null ? cartItem.getPrice() : product.getPrice()) // Цена на момент добавления в корзину
+                    .build());
+        }
+        order.setTotalPrice(order.calculateTotalPrice());
+
+        Order savedOrder = orderRepository.save(order);
+        entityManager.flush(); // Один сброс: заказ и его позиции
+
+        int removed = cartItemRepository.deleteAllByUserIdInBulk(userId);
+        cartStore.evict(userId);
+        log.info("Checked out order ID: {} for user ID: {} ({} products, {} cart items removed)",
+                savedOrder.getId(), userId, requested.size(), removed);
+        return savedOrder;
+    }
+}
@@ -0,0 +1,456 @@
+package ru.alexds.ccoshop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.exeption.InsufficientStockException;
+import ru.alexds.ccoshop.exeption.ProductNotFoundException;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Сервис "горячих" товаров для распродаж.
+ * Остатки отмеченных товаров хранятся в памяти в полосатых (striped) счетчиках, поэтому резервирование
+ * не сериализуется на одной строке таблицы products. Резервы корзин живут ограниченное время (TTL)
+ * и возвращаются на склад, если заказ не оформлен. Проданное количество сбрасывается в
+ * {@code Product.stockQuantity} пакетами по расписанию.
+ * <p>
+ * Счетчики рассчитаны на один экземпляр приложения: отмечайте товары до начала распродажи.
+ */
+@Slf4j
+@Service
+public class HotSkuInventoryService {
+    // Время изменения передается из JVM (см. InventoryService): от него зависит версия каталога (ETag)
+    private static final String FLUSH_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate; // JDBC-шаблон для загрузки и сброса остатков
+    private final boolean enabled; // Включен ли режим горячих товаров
+    private final List<Long> configuredProductIds; // Товары, отмечаемые при старте приложения
+    private final Duration reservationTtl; // Время жизни резерва корзины
+    private final int stripes; // Количество полос в счетчике остатка
+    private final ApplicationEventPublisher eventPublisher; // Публикация событий изменения остатков
+
+    private final Map<Long, HotSku> skus = new ConcurrentHashMap<>(); // Горячие товары по идентификатору
+
+    public HotSkuInventoryService(JdbcTemplate jdbcTemplate,
+                                  @Value("${shop.inventory.hot-sku.enabled:false}") boolean enabled,
+                                  @Value("${shop.inventory.hot-sku.product-ids:}") List<Long> configuredProductIds,
+                                  @Value("${shop.inventory.hot-sku.reservation-ttl:PT15M}") Duration reservationTtl,
+                                  @Value("${shop.inventory.hot-sku.stripes:8}") int stripes,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.configuredProductIds = configuredProductIds;
+        this.reservationTtl = reservationTtl;
+        this.stripes = Math.max(1, stripes);
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Отмечает товары из конфигурации как горячие после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        configuredProductIds.forEach(this::flag);
+    }
+
+    /**
+     * Проверяет, обслуживается ли товар счетчиками в памяти.
+     *
+     * @param productId Идентификатор продукта
+     * @return true если товар отмечен как горячий
+     */
+    public boolean isHot(Long productId) {
+        return enabled && productId != null && skus.containsKey(productId);
+    }
+
+    /**
+     * Отмечает товар как горячий: текущий остаток из БД переносится в счетчики в памяти.
+     *
+     * @param productId Идентификатор продукта
+     * @throws IllegalStateException    если режим горячих товаров выключен
+     * @throws ProductNotFoundException если продукт не найден
+     */
+    public void flag(Long productId) {
+        if (!enabled) {
+            throw new IllegalStateException("Hot SKU mode is disabled");
+        }
+        skus.computeIfAbsent(productId, id -> {
+            List<Integer> stock = jdbcTemplate.queryForList("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, id);
+            if (stock.isEmpty()) {
+                throw new ProductNotFoundException("Product not found: " + id);
+            }
+            log.info("Product ID: {} flagged as hot SKU with stock {}", id, stock.get(0));
+            return new HotSku(stock.get(0), stripes);
+        });
+    }
+
+    /**
+     * Снимает отметку горячего товара: несброшенные продажи записываются в БД, резервы корзин отбрасываются.
+     *
+     * @param productId Идентификатор продукта
+     */
+    public void unflag(Long productId) {
+        HotSku sku = skus.remove(productId);
+        if (sku != null) {
+            // После отсоединения продажи, зафиксированные позже, записываются в БД напрямую (см. addPending),
+            // поэтому сброс ниже забирает все накопленное количество
+            synchronized (sku) {
+                sku.detached = true;
+            }
+            flush(Map.of(productId, sku));
+            log.info("Product ID: {} is no longer a hot SKU", productId);
+        }
+    }
+
+    /**
+     * Добавляет количество к резерву пользователя на горячий товар.
+     *
+     * @param userId    Идентификатор пользователя
+     * @param productId Идентификатор продукта
+     * @param quantity  Добавляемое количество
+     * @throws InsufficientStockException если свободного остатка недостаточно
+     */
+    public void reserve(Long userId, Long productId, int quantity) {
+        HotSku sku = requireHot(productId);
+        if (!sku.stock.tryAcquire(quantity)) {
+            throw new InsufficientStockException("Insufficient stock for product ID: " + productId);
+        }
+        sku.reservations.merge(userId, new Reservation(quantity, expiry()),
+                (current, added) -> new Reservation(current.quantity + added.quantity, added.expiresAt));
+    }
+
+    /**
+     * Устанавливает резерв пользователя на горячий товар равным указанному количеству.
+     *
+     * @param userId    Идентификатор пользователя
+     * @param productId Идентификатор продукта
+     * @param quantity  Новое количество в корзине
+     * @throws InsufficientStockException если свободного остатка недостаточно для увеличения резерва
+     */
+    public void resize(Long userId, Long productId, int quantity) {
+        HotSku sku = requireHot(productId);
+        while (true) {
+            Reservation current = sku.reservations.get(userId);
+            int held = current == null ? 0 : current.quantity;
+            int delta = quantity - held;
+            if (delta > 0 && !sku.stock.tryAcquire(delta)) {
+                throw new InsufficientStockException("Insufficient stock for product ID: " + productId);
+            }
+            Reservation updated = new Reservation(quantity, expiry());
+            boolean replaced = current == null
+                    ? sku.reservations.putIfAbsent(userId, updated) == null
+                    : sku.reservations.replace(userId, current, updated);
+            if (replaced) {
+                if (delta < 0) {
+                    sku.stock.release(-delta);
+                }
+                return;
+            }
+            // Резерв изменился параллельно: возвращаем взятое и повторяем
+            if (delta > 0) {
+                sku.stock.release(delta);
+            }
+        }
+    }
+
+    /**
+     * Снимает резерв пользователя на горячий товар.
+     *
+     * @param userId    Идентификатор пользователя
+     * @param productId Идентификатор продукта
+     */
+    public void release(Long userId, Long productId) {
+        HotSku sku = skus.get(productId);
+        if (sku == null) {
+            return;
+        }
+        Reservation removed = sku.reservations.remove(userId);
+        if (removed != null) {
+            sku.stock.release(removed.quantity);
+        }
+    }
+
+    /**
+     * Снимает все резервы пользователя на горячие товары (например, при очистке корзины).
+     *
+     * @param userId Идентификатор пользователя
+     */
+    public void releaseAll(Long userId) {
+        skus.keySet().forEach(productId -> release(userId, productId));
+    }
+
+    /**
+     * Превращает резерв пользователя в продажу при оформлении заказа.
+     * Недостающее количество добирается из свободного остатка, излишек возвращается.
+     * Продажа попадает в очередь сброса в БД только после фиксации текущей транзакции;
+     * при откате количество возвращается в свободный остаток.
+     *
+     * @param userId    Идентификатор пользователя
+     * @param productId Идентификатор продукта
+     * @param quantity  Заказанное количество
+     * @throws InsufficientStockException если свободного остатка недостаточно
+     */
+    public void commit(Long userId, Long productId, int quantity) {
+        HotSku sku = requireHot(productId);
+        Reservation reservation = sku.reservations.remove(userId);
+        int held = reservation == null ? 0 : reservation.quantity;
+        if (held > quantity) {
+            sku.stock.release(held - quantity);
+        } else if (held < quantity && !sku.stock.tryAcquire(quantity - held)) {
+            sku.stock.release(held);
+            throw new InsufficientStockException("Insufficient stock for product ID: " + productId);
+        }
+        afterCompletion(() -> addPending(productId, sku, quantity), () -> sku.stock.release(quantity));
+    }
+
+    /**
+     * Возвращает проданное количество горячего товара на склад (например, при отмене заказа).
+     *
+     * @param productId Идентификатор продукта
+     * @param quantity  Возвращаемое количество
+     */
+    public void restock(Long productId, int quantity) {
+        HotSku sku = requireHot(productId);
+        afterCompletion(() -> {
+            addPending(productId, sku, -quantity);
+            sku.stock.release(quantity);
+        }, () -> { });
+    }
+
+    /**
+     * Возвращает в свободный остаток резервы корзин с истекшим сроком жизни.
+     */
+    @Scheduled(fixedDelayString = "${shop.inventory.hot-sku.expiry-interval-ms:30000}")
+    public void expireReservations() {
+        long now = System.nanoTime();
+        skus.forEach((productId, sku) -> sku.reservations.forEach((userId, reservation) -> {
+            // Условное удаление не затронет резерв, продленный параллельно
+            if (now - reservation.expiresAt > 0 && sku.reservations.remove(userId, reservation)) {
+                sku.stock.release(reservation.quantity);
+                log.debug("Expired reservation of {} units of product ID: {} for user ID: {}", reservation.quantity, productId, userId);
+            }
+        }));
+    }
+
+    /**
+     * Сбрасывает накопленные продажи горячих товаров в таблицу products одним JDBC-пакетом.
+     */
+    @Scheduled(fixedDelayString = "${shop.inventory.hot-sku.flush-interval-ms:1000}")
+    public void flushPending() {
+        if (!skus.isEmpty()) {
+            flush(skus);
+        }
+    }
+
+    /**
+     * Сбрасывает накопленные продажи при остановке приложения, чтобы остаток в БД не расходился с проданным.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushPending();
+    }
+
+    /**
+     * Возвращает состояние горячих товаров: свободный остаток, резервы и несброшенные продажи.
+     *
+     * @return Карта "идентификатор продукта - показатели"
+     */
+    public Map<Long, Map<String, Integer>> getStatistics() {
+        Map<Long, Map<String, Integer>> statistics = new TreeMap<>();
+        skus.forEach((productId, sku) -> statistics.put(productId, Map.of(
+                "available", sku.stock.available(),
+                "reserved", sku.reservations.values().stream().mapToInt(r -> r.quantity).sum(),
+                "pendingFlush", sku.pending.get())));
+        return statistics;
+    }
+
+    /**
+     * Вспомогательный метод: сбрасывает продажи указанных товаров в БД.
+     * При ошибке количество возвращается в очередь сброса.
+     *
+     * @param batch Горячие товары для сброса
+     */
+    private void flush(Map<Long, HotSku> batch) {
+        List<Object[]> updates = new ArrayList<>();
+        Map<Long, Integer> taken = new HashMap<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        batch.forEach((productId, sku) -> {
+            int delta = sku.pending.getAndSet(0);
+            if (delta != 0) {
+                updates.add(new Object[]{delta, now, productId});
+                taken.put(productId, delta);
+            }
+        });
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, updates);
+            eventPublisher.publishEvent(ProductChangedEvent.of(taken.keySet(), ProductChangedEvent.Type.STOCK));
+            log.debug("Flushed hot SKU sales: {}", taken);
+        } catch (RuntimeException e) {
+            taken.forEach((productId, delta) -> batch.get(productId).pending.addAndGet(delta));
+            log.error("Failed to flush hot SKU sales {}: {}", taken, e.getMessage());
+        }
+    }
+
+    /**
+     * Вспомогательный метод: добавляет проданное количество в очередь сброса. Если отметка товара уже снята,
+     * количество сразу записывается в БД, иначе оно было бы потеряно вместе с отсоединенным счетчиком.
+     */
+    private void addPending(Long productId, HotSku sku, int delta) {
+        synchronized (sku) {
+            if (!sku.detached) {
+                sku.pending.addAndGet(delta);
+                return;
+            }
+        }
+        jdbcTemplate.update(FLUSH_SQL, delta, Timestamp.valueOf(LocalDateTime.now()), productId);
+        eventPublisher.publishEvent(ProductChangedEvent.of(productId, ProductChangedEvent.Type.STOCK));
+        log.debug("Wrote late hot SKU sale of {} units of product ID: {}", delta, productId);
+    }
+
+    /**
+     * Вспомогательный метод: выполняет действие после фиксации текущей транзакции,
+     * либо сразу, если транзакции нет.
+     */
+    private void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommit.run();
+                } else {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+
+    private HotSku requireHot(Long productId) {
+        HotSku sku = skus.get(productId);
+        if (sku == null) {
+            throw new IllegalStateException("Product ID: " + productId + " is not a hot SKU");
+        }
+        return sku;
+    }
+
+    private long expiry() {
+        return System.nanoTime() + reservationTtl.toNanos();
+    }
+
+    /**
+     * Состояние одного горячего товара.
+     */
+    private static final class HotSku {
+        private final StripedStock stock; // Свободный остаток
+        private final Map<Long, Reservation> reservations = new ConcurrentHashMap<>(); // Резервы корзин по пользователю
+        private final AtomicInteger pending = new AtomicInteger(); // Продано, но еще не сброшено в БД
+        private boolean detached; // Отметка снята, счетчик удален из карты (под блокировкой объекта)
+
+        private HotSku(int initialStock, int stripes) {
+            this.stock = new StripedStock(initialStock, stripes);
+        }
+    }
+
+    /**
+     * Резерв корзины: количество и момент истечения (System.nanoTime).
+     * Сравнивается по ссылке, чтобы условное удаление не затрагивало продленный резерв.
+     */
+    private static final class Reservation {
+        private final int quantity;
+        private final long expiresAt;
+
+        private Reservation(int quantity, long expiresAt) {
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Остаток, разделенный на полосы. Каждый поток начинает с "своей" полосы, поэтому параллельные
+     * резервы обычно меняют разные ячейки; списание выполняется CAS без блокировок.
+     */
+    static final class StripedStock {
+        private final AtomicIntegerArray cells;
+
+        StripedStock(int initialStock, int stripes) {
+            cells = new AtomicIntegerArray(stripes);
+            int share = initialStock / stripes;
+            for (int i = 0; i < stripes; i++) {
+                cells.set(i, share + (i < initialStock % stripes ? 1 : 0));
+            }
+        }
+
+        /**
+         * Пытается списать количество, собирая его по полосам.
+         * При нехватке взятое возвращается, и метод возвращает false.
+         */
+        boolean tryAcquire(int quantity) {
+            if (quantity <= 0) {
+                return true;
+            }
+            int length = cells.length();
+            int start = ThreadLocalRandom.current().nextInt(length);
+            int remaining = quantity;
+            for (int n = 0; n < length && remaining > 0; n++) {
+                int index = (start + n) % length;
+                while (true) {
+                    int current = cells.get(index);
+                    if (current == 0) {
+                        break;
+                    }
+                    int taken = Math.min(current, remaining);
+                    if (cells.compareAndSet(index, current, current - taken)) {
+                        remaining -= taken;
+                        break;
+                    }
+                }
+            }
+            if (remaining > 0) {
+                release(quantity - remaining);
+                return false;
+            }
+            return true;
+        }
+
+        void release(int quantity) {
+            if (quantity > 0) {
+                cells.addAndGet(ThreadLocalRandom.current().nextInt(cells.length()), quantity);
+            }
+        }
+
+        int available() {
+            int sum = 0;
+            for (int i = 0; i < cells.length(); i++) {
+                sum += cells.get(i);
+            }
+            return sum;
+        }
+    }
+}
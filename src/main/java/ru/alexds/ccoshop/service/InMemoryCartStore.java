@@ -0,0 +1,466 @@
+package ru.alexds.ccoshop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.alexds.ccoshop.dto.CartItemDTO;
+import ru.alexds.ccoshop.dto.CartLineDTO;
+import ru.alexds.ccoshop.exeption.CartItemNotFoundException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище корзин в памяти с отложенной записью в БД (write-behind).
+ * Корзина пользователя загружается из cart_items при первом обращении и дальше изменяется только в памяти
+ * под собственной блокировкой, поэтому корзины разных пользователей не конкурируют между собой.
+ * Изменения накапливаются и записываются одной заменой строк пользователя: по расписанию, при оформлении
+ * заказа ({@link #flush(Long)}) и при остановке приложения. Неизменявшиеся корзины выгружаются из памяти
+ * после периода бездействия.
+ * <p>
+ * Идентификаторы элементов корзины выдаются в памяти (продолжая максимальный идентификатор в cart_items),
+ * поэтому хранилище рассчитано на один экземпляр приложения.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "shop.cart.store", havingValue = "memory")
+public class InMemoryCartStore implements CartStore {
+    private static final String INSERT_SQL = "INSERT INTO cart_items (id, user_id, product_id, quantity, price, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate; // JDBC-шаблон для загрузки и записи корзин
+    private final TransactionTemplate transactionTemplate; // Транзакция записи корзины (или участие в текущей)
+    private final long idleTimeoutNanos; // Время бездействия, после которого сохраненная корзина выгружается
+
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>(); // Корзины по идентификатору пользователя
+    private final Map<Long, Long> owners = new ConcurrentHashMap<>(); // Владелец по идентификатору элемента корзины
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet(); // Пользователи с несохраненными изменениями
+    private final AtomicLong lastId = new AtomicLong(-1); // Последний выданный идентификатор элемента корзины
+
+    public InMemoryCartStore(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${shop.cart.memory.idle-timeout:PT30M}") Duration idleTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    @Override
+    public List<CartItemDTO> getItems(Long userId) {
+        return withCart(userId, cart -> cart.lines.values().stream().map(line -> line.toDTO(userId)).toList());
+    }
+
+    /**
+     * Строки корзины берутся из памяти, данные продуктов - одним запросом по идентификаторам продуктов корзины.
+     */
+    @Override
+    public List<CartLineDTO> getLines(Long userId) {
+        List<Line> lines = withCart(userId, cart -> List.copyOf(cart.lines.values()));
+        if (lines.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, ProductInfo> products = new HashMap<>();
+        String placeholders = lines.stream().map(line -> "?").collect(Collectors.joining(", "));
+        jdbcTemplate.query("SELECT id, name, price, stock_quantity FROM products WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    products.put(rs.getLong("id"), new ProductInfo(rs.getString("name"), rs.getBigDecimal("price"), rs.getInt("stock_quantity")));
+                },
+                lines.stream().map(Line::productId).toArray());
+
+        return lines.stream().map(line -> {
+            ProductInfo product = products.getOrDefault(line.productId(), new ProductInfo(null, null, null));
+            return new CartLineDTO(line.id(), line.productId(), product.name(), line.quantity(),
+                    line.price(), product.price(), product.stockQuantity());
+        }).toList();
+    }
+
+    @Override
+    public Optional<CartItemDTO> findItem(Long cartItemId) {
+        return findOwner(cartItemId).flatMap(userId -> withCart(userId, cart -> cart.line(cartItemId).map(line -> line.toDTO(userId))));
+    }
+
+    @Override
+    public CartItemDTO addItem(Long userId, Long productId, int quantity, BigDecimal price) {
+        return withCart(userId, cart -> {
+            verifyUser(cart);
+
+            Line existing = cart.lines.get(productId);
+            Line line = existing != null
+                    ? existing.withQuantity(existing.quantity() + quantity)
+                    : new Line(nextId(), productId, quantity, price, LocalDateTime.now());
+            cart.lines.put(productId, line);
+            owners.put(line.id(), userId);
+            changed(cart);
+            return line.toDTO(userId);
+        });
+    }
+
+    @Override
+    public CartItemDTO updateQuantity(Long cartItemId, int quantity) {
+        Long userId = findOwner(cartItemId).orElseThrow(() -> new CartItemNotFoundException("Cart item not found"));
+        return withCart(userId, cart -> {
+            Line line = cart.line(cartItemId)
+                    .orElseThrow(() -> new CartItemNotFoundException("Cart item not found"))
+                    .withQuantity(quantity);
+            cart.lines.put(line.productId(), line);
+            changed(cart);
+            return line.toDTO(userId);
+        });
+    }
+
+    @Override
+    public Optional<CartItemDTO> removeItem(Long cartItemId) {
+        return findOwner(cartItemId).flatMap(userId -> withCart(userId, cart -> {
+            Optional<Line> line = cart.line(cartItemId);
+            line.ifPresent(removed -> {
+                cart.lines.remove(removed.productId());
+                owners.remove(cartItemId);
+                changed(cart);
+            });
+            return line.map(removed -> removed.toDTO(userId));
+        }));
+    }
+
+    /**
+     * Применяет изменения к корзине в памяти под ее блокировкой; в БД корзина записывается одной заменой строк
+     * при следующей отложенной записи. Содержимое корзины берется из памяти, параметр current не используется.
+     */
+    @Override
+    public List<CartItemDTO> applyChanges(Long userId, List<CartItemDTO> current,
+                                          Map<Long, Integer> quantities, Map<Long, BigDecimal> prices) {
+        return withCart(userId, cart -> {
+            if (quantities.entrySet().stream().anyMatch(e -> e.getValue() > 0 && !cart.lines.containsKey(e.getKey()))) {
+                verifyUser(cart);
+            }
+
+            quantities.forEach((productId, quantity) -> {
+                Line existing = cart.lines.get(productId);
+                if (quantity <= 0) {
+                    if (existing != null) {
+                        cart.lines.remove(productId);
+                        owners.remove(existing.id());
+                    }
+                } else if (existing != null) {
+                    cart.lines.put(productId, existing.withQuantity(quantity));
+                } else {
+                    Line line = new Line(nextId(), productId, quantity, prices.get(productId), LocalDateTime.now());
+                    cart.lines.put(productId, line);
+                    owners.put(line.id(), userId);
+                }
+            });
+            changed(cart);
+            return cart.lines.values().stream().map(line -> line.toDTO(userId)).toList();
+        });
+    }
+
+    @Override
+    public void clear(Long userId) {
+        withCart(userId, cart -> {
+            cart.lines.values().forEach(line -> owners.remove(line.id()));
+            cart.lines.clear();
+            changed(cart);
+            return null;
+        });
+    }
+
+    /**
+     * Записывает корзину пользователя в текущей транзакции. Блокировка записи корзины удерживается
+     * до завершения транзакции, поэтому запись по расписанию не вернет в БД корзину, удаленную при оформлении заказа.
+     */
+    @Override
+    public void flush(Long userId) {
+        UserCart cart = carts.get(userId);
+        if (cart != null) {
+            write(cart, true);
+        }
+    }
+
+    @Override
+    public void evict(Long userId) {
+        afterCommit(() -> {
+            UserCart cart = carts.remove(userId);
+            if (cart != null) {
+                synchronized (cart) {
+                    cart.removed = true;
+                    cart.lines.values().forEach(line -> owners.remove(line.id()));
+                }
+            }
+            dirty.remove(userId);
+        });
+    }
+
+    /**
+     * Записывает в БД измененные корзины и выгружает из памяти давно не использовавшиеся (по расписанию).
+     *
+     * @return Количество записанных корзин
+     */
+    @Scheduled(fixedDelayString = "${shop.cart.memory.flush-interval-ms:5000}")
+    public int flushDirtyCarts() {
+        int written = 0;
+        for (Long userId : List.copyOf(dirty)) {
+            UserCart cart = carts.get(userId);
+            if (cart == null) {
+                dirty.remove(userId);
+                continue;
+            }
+            try {
+                if (write(cart, false)) {
+                    written++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to write cart for user ID: {}, will retry", userId, e);
+            }
+        }
+        evictIdleCarts();
+        if (written > 0) {
+            log.debug("Written {} carts to the database", written);
+        }
+        return written;
+    }
+
+    /**
+     * Записывает несохраненные изменения при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushDirtyCarts();
+    }
+
+    /**
+     * Получает количество корзин в памяти.
+     *
+     * @return Количество корзин
+     */
+    public int getCachedCartCount() {
+        return carts.size();
+    }
+
+    /**
+     * Вспомогательный метод: выполняет действие над корзиной пользователя под ее блокировкой,
+     * загружая корзину из БД при первом обращении. Если корзина была выгружена между получением
+     * и блокировкой, она загружается заново.
+     */
+    private <T> T withCart(Long userId, Function<UserCart, T> action) {
+        while (true) {
+            UserCart cart = carts.computeIfAbsent(userId, this::load);
+            synchronized (cart) {
+                if (!cart.removed) {
+                    cart.lastAccess = System.nanoTime();
+                    return action.apply(cart);
+                }
+            }
+        }
+    }
+
+    private UserCart load(Long userId) {
+        UserCart cart = new UserCart(userId);
+        jdbcTemplate.query("SELECT id, product_id, quantity, price, updated_at FROM cart_items WHERE user_id = ? ORDER BY id", rs -> {
+            Timestamp updatedAt = rs.getTimestamp("updated_at");
+            Line line = new Line(rs.getLong("id"), rs.getLong("product_id"), rs.getInt("quantity"), rs.getBigDecimal("price"),
+                    updatedAt != null ? updatedAt.toLocalDateTime() : null);
+            cart.lines.put(line.productId(), line);
+            owners.put(line.id(), userId);
+        }, userId);
+        cart.userVerified = !cart.lines.isEmpty(); // Строки корзины ссылаются на существующего пользователя
+        return cart;
+    }
+
+    private void verifyUser(UserCart cart) {
+        if (!cart.userVerified) {
+            Integer users = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, cart.userId);
+            if (users == null || users == 0) {
+                throw new RuntimeException("User not found: " + cart.userId);
+            }
+            cart.userVerified = true;
+        }
+    }
+
+    private Optional<Long> findOwner(Long cartItemId) {
+        Long userId = owners.get(cartItemId);
+        if (userId != null) {
+            return Optional.of(userId);
+        }
+        List<Long> stored = jdbcTemplate.queryForList("SELECT user_id FROM cart_items WHERE id = ?", Long.class, cartItemId);
+        return stored.stream().findFirst();
+    }
+
+    private void changed(UserCart cart) {
+        cart.version++;
+        dirty.add(cart.userId);
+    }
+
+    /**
+     * Вспомогательный метод: заменяет строки пользователя в cart_items содержимым корзины.
+     *
+     * @param cart                 Корзина
+     * @param holdUntilCompletion  Удерживать блокировку записи до завершения текущей транзакции
+     * @return true, если корзина была записана
+     */
+    private boolean write(UserCart cart, boolean holdUntilCompletion) {
+        cart.writeLock.lock();
+        boolean unlockNow = true;
+        try {
+            List<Line> snapshot;
+            long version;
+            synchronized (cart) {
+                version = cart.version;
+                snapshot = cart.removed || version == cart.flushedVersion ? null : new ArrayList<>(cart.lines.values());
+            }
+
+            if (snapshot != null) {
+                Long userId = cart.userId;
+                transactionTemplate.executeWithoutResult(tx -> {
+                    jdbcTemplate.update("DELETE FROM cart_items WHERE user_id = ?", userId);
+                    jdbcTemplate.batchUpdate(INSERT_SQL, snapshot, snapshot.size(), (ps, line) -> {
+                        ps.setLong(1, line.id());
+                        ps.setLong(2, userId);
+                        ps.setLong(3, line.productId());
+                        ps.setInt(4, line.quantity());
+                        ps.setBigDecimal(5, line.price());
+                        ps.setTimestamp(6, line.updatedAt() != null ? Timestamp.valueOf(line.updatedAt()) : null);
+                    });
+                    afterCommit(() -> flushed(cart, version));
+                });
+            }
+
+            if (holdUntilCompletion && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        cart.writeLock.unlock();
+                    }
+                });
+                unlockNow = false;
+            }
+            return snapshot != null;
+        } finally {
+            if (unlockNow) {
+                cart.writeLock.unlock();
+            }
+        }
+    }
+
+    private void flushed(UserCart cart, long version) {
+        synchronized (cart) {
+            cart.flushedVersion = Math.max(cart.flushedVersion, version);
+            if (cart.flushedVersion == cart.version) {
+                dirty.remove(cart.userId);
+            }
+        }
+    }
+
+    private void evictIdleCarts() {
+        long now = System.nanoTime();
+        for (Map.Entry<Long, UserCart> entry : carts.entrySet()) {
+            UserCart cart = entry.getValue();
+            if (now - cart.lastAccess < idleTimeoutNanos || !cart.writeLock.tryLock()) {
+                continue;
+            }
+            try {
+                synchronized (cart) {
+                    if (cart.version == cart.flushedVersion && now - cart.lastAccess >= idleTimeoutNanos) {
+                        cart.removed = true;
+                        carts.remove(entry.getKey(), cart);
+                        cart.lines.values().forEach(line -> owners.remove(line.id()));
+                    }
+                }
+            } finally {
+                cart.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Вспомогательный метод: выдает идентификатор нового элемента корзины, при первом вызове
+     * продолжая максимальный идентификатор в cart_items.
+     */
+    private long nextId() {
+        if (lastId.get() < 0) {
+            synchronized (lastId) {
+                if (lastId.get() < 0) {
+                    Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM cart_items", Long.class);
+                    lastId.set(max != null ? max : 0);
+                }
+            }
+        }
+        return lastId.incrementAndGet();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Строка корзины. Неизменяема: при изменении количества заменяется новой с текущим временем изменения,
+     * которое записывается в cart_items вместе со строкой.
+     */
+    private record Line(Long id, Long productId, int quantity, BigDecimal price, LocalDateTime updatedAt) {
+
+        Line withQuantity(int newQuantity) {
+            return new Line(id, productId, newQuantity, price, LocalDateTime.now());
+        }
+
+        CartItemDTO toDTO(Long userId) {
+            return new CartItemDTO(id, userId, productId, quantity, price);
+        }
+    }
+
+    /**
+     * Данные продукта для строки представления корзины.
+     */
+    private record ProductInfo(String name, BigDecimal price, Integer stockQuantity) {
+    }
+
+    /**
+     * Корзина пользователя. Содержимое изменяется под монитором корзины, запись в БД - под writeLock.
+     */
+    private static final class UserCart {
+        private final Long userId; // Владелец корзины
+        private final Map<Long, Line> lines = new LinkedHashMap<>(); // Строки по идентификатору продукта
+        private final ReentrantLock writeLock = new ReentrantLock(); // Упорядочивает записи корзины в БД
+        private long version; // Номер последнего изменения
+        private long flushedVersion; // Номер последнего изменения, записанного в БД
+        private long lastAccess = System.nanoTime(); // Время последнего обращения
+        private boolean removed; // Корзина выгружена из памяти
+        private boolean userVerified; // Существование пользователя проверено
+
+        UserCart(Long userId) {
+            this.userId = userId;
+        }
+
+        Optional<Line> line(Long cartItemId) {
+            return lines.values().stream().filter(line -> line.id().equals(cartItemId)).findFirst();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.exeption.InsufficientStockException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сервис управления складскими остатками.
+ * Резервирует и возвращает остатки условными UPDATE-выражениями, которые выполняются атомарно на стороне БД,
+ * поэтому параллельные оформления заказа одного и того же товара не могут продать больше, чем есть на складе.
+ * Все строки одного заказа изменяются одним JDBC-пакетом в порядке возрастания идентификатора продукта.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+    // Время изменения передается из JVM, как и у @UpdateTimestamp: CURRENT_TIMESTAMP в MySQL имеет точность до секунды
+    // и зависит от часового пояса сессии, из-за чего версия каталога (ETag) могла не измениться
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? WHERE id = ? AND stock_quantity >= ?";
+    private static final String RELEASE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate; // JDBC-шаблон, участвующий в текущей транзакции
+    private final HotSkuInventoryService hotSkuInventoryService; // Счетчики в памяти для горячих товаров
+    private final ApplicationEventPublisher eventPublisher; // Публикация событий изменения остатков
+
+    /**
+     * Резервирует остатки для заказа пользователя.
+     * Горячие товары списываются из счетчиков в памяти (с учетом резерва корзины пользователя),
+     * остальные - пакетом условных UPDATE в БД.
+     *
+     * @param userId     Идентификатор пользователя, оформляющего заказ
+     * @param quantities Карта "идентификатор продукта - количество"
+     * @throws InsufficientStockException если на складе недостаточно одного из продуктов
+     */
+    @Transactional
+    public void reserveForOrder(Long userId, Map<Long, Integer> quantities) {
+        Map<Long, Integer> coldLines = new TreeMap<>();
+        Map<Long, Integer> hotLines = new TreeMap<>();
+        quantities.forEach((productId, quantity) ->
+                (hotSkuInventoryService.isHot(productId) ? hotLines : coldLines).merge(productId, quantity, Integer::sum));
+
+        // Сначала БД: при нехватке исключение откатит транзакцию до изменения счетчиков в памяти
+        reserve(coldLines);
+        hotLines.forEach((productId, quantity) -> hotSkuInventoryService.commit(userId, productId, quantity));
+    }
+
+    /**
+     * Возвращает остатки отмененного заказа: горячие товары - в счетчики в памяти, остальные - в БД.
+     *
+     * @param quantities Карта "идентификатор продукта - количество"
+     */
+    @Transactional
+    public void releaseForOrder(Map<Long, Integer> quantities) {
+        Map<Long, Integer> coldLines = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (hotSkuInventoryService.isHot(productId)) {
+                hotSkuInventoryService.restock(productId, quantity);
+            } else {
+                coldLines.merge(productId, quantity, Integer::sum);
+            }
+        });
+        release(coldLines);
+    }
+
+    /**
+     * Резервирует (списывает) остатки для набора продуктов.
+     * Если хотя бы одно условное обновление не затронуло строк, транзакция откатывается целиком.
+     *
+     * @param quantities Карта "идентификатор продукта - количество"
+     * @throws InsufficientStockException если на складе недостаточно одного из продуктов или продукт не найден
+     */
+    @Transactional
+    public void reserve(Map<Long, Integer> quantities) {
+        log.debug("Request to reserve stock: {}", quantities);
+        List<Map.Entry<Long, Integer>> lines = sortedLines(quantities);
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] counts = jdbcTemplate.batchUpdate(RESERVE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> line = lines.get(i);
+                ps.setInt(1, line.getValue());
+                ps.setTimestamp(2, now);
+                ps.setLong(3, line.getKey());
+                ps.setInt(4, line.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("JDBC driver did not report update counts for stock reservation");
+            }
+            if (counts[i] == 0) {
+                // Исключение откатывает уже выполненные обновления пакета
+                throw new InsufficientStockException("Insufficient stock for product ID: " + lines.get(i).getKey());
+            }
+        }
+        eventPublisher.publishEvent(ProductChangedEvent.of(quantities.keySet(), ProductChangedEvent.Type.STOCK));
+        log.debug("Reserved stock for {} products", lines.size());
+    }
+
+    /**
+     * Возвращает остатки на склад (например, при отмене заказа).
+     *
+     * @param quantities Карта "идентификатор продукта - количество"
+     */
+    @Transactional
+    public void release(Map<Long, Integer> quantities) {
+        log.debug("Request to release stock: {}", quantities);
+        List<Map.Entry<Long, Integer>> lines = sortedLines(quantities);
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(RELEASE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> line = lines.get(i);
+                ps.setInt(1, line.getValue());
+                ps.setTimestamp(2, now);
+                ps.setLong(3, line.getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+        eventPublisher.publishEvent(ProductChangedEvent.of(quantities.keySet(), ProductChangedEvent.Type.STOCK));
+        log.debug("Released stock for {} products", lines.size());
+    }
+
+    /**
+     * Вспомогательный метод: отбрасывает пустые позиции и сортирует по идентификатору продукта,
+     * чтобы блокировки строк всегда брались в одном порядке.
+     *
+     * @param quantities Карта "идентификатор продукта - количество"
+     * @return Отсортированный список позиций
+     */
+    private List<Map.Entry<Long, Integer>> sortedLines(Map<Long, Integer> quantities) {
+        TreeMap<Long, Integer> sorted = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (quantity != null && quantity > 0) {
+                sorted.merge(productId, quantity, Integer::sum);
+            }
+        });
+        return new ArrayList<>(sorted.entrySet());
+    }
+}
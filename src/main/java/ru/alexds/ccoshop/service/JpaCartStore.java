@@ -0,0 +1,218 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.alexds.ccoshop.dto.CartItemDTO;
+import ru.alexds.ccoshop.dto.CartLineDTO;
+import ru.alexds.ccoshop.entity.CartItem;
+import ru.alexds.ccoshop.entity.User;
+import ru.alexds.ccoshop.exeption.CartItemNotFoundException;
+import ru.alexds.ccoshop.repository.CartItemRepository;
+import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранилище корзин в таблице cart_items: каждое изменение корзины сразу записывается в БД.
+ * Пакетные изменения записываются через JDBC пакетами операторов: сущности корзины читаются
+ * как DTO и не попадают в контекст персистентности, поэтому не устаревают после такой записи.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shop.cart.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+    private final CartItemRepository cartItemRepository; // Репозиторий для работы с элементами корзины
+    private final UserRepository userRepository; // Репозиторий для работы с пользователями
+    private final ProductRepository productRepository; // Репозиторий для получения ссылок на продукты
+    private final JdbcTemplate jdbcTemplate; // JDBC-шаблон для пакетной записи изменений корзины
+
+    private static final String INSERT_SQL = "INSERT INTO cart_items (user_id, product_id, quantity, price, updated_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE cart_items SET quantity = ?, updated_at = ? WHERE id = ?";
+
+    @Override
+    public List<CartItemDTO> getItems(Long userId) {
+        return cartItemRepository.findItemsByUserId(userId);
+    }
+
+    @Override
+    public List<CartLineDTO> getLines(Long userId) {
+        return cartItemRepository.findLinesByUserId(userId);
+    }
+
+    @Override
+    public Optional<CartItemDTO> findItem(Long cartItemId) {
+        return cartItemRepository.findById(cartItemId).map(this::convertToDTO);
+    }
+
+    @Override
+    @Transactional
+    public CartItemDTO addItem(Long userId, Long productId, int quantity, BigDecimal price) {
+        Optional<CartItem> existingCartItem = cartItemRepository.findByUserIdAndProductId(userId, productId);
+
+        CartItem cartItem;
+        if (existingCartItem.isPresent()) {
+            // Если элемент уже существует, обновляем количество
+            cartItem = existingCartItem.get();
+            cartItem.setQuantity(cartItem.getQuantity() + quantity);
+        } else {
+            // Создаем новый элемент корзины; продукт уже проверен, поэтому достаточно ссылки на него
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+            cartItem = CartItem.builder()
+                    .user(user)
+                    .product(productRepository.getReferenceById(productId))
+                    .quantity(quantity)
+                    .price(price)
+                    .build();
+        }
+        return convertToDTO(cartItemRepository.save(cartItem));
+    }
+
+    @Override
+    @Transactional
+    public CartItemDTO updateQuantity(Long cartItemId, int quantity) {
+        CartItem cartItem = cartItemRepository.findById(cartItemId)
+                .orElseThrow(() -> new CartItemNotFoundException("Cart item not found"));
+        cartItem.setQuantity(quantity);
+        return convertToDTO(cartItemRepository.save(cartItem));
+    }
+
+    @Override
+    @Transactional
+    public Optional<CartItemDTO> removeItem(Long cartItemId) {
+        Optional<CartItemDTO> cartItem = findItem(cartItemId);
+        cartItem.ifPresent(item -> cartItemRepository.deleteById(cartItemId));
+        return cartItem;
+    }
+
+    @Override
+    @Transactional
+    public List<CartItemDTO> applyChanges(Long userId, List<CartItemDTO> current,
+                                          Map<Long, Integer> quantities, Map<Long, BigDecimal> prices) {
+        Map<Long, CartItemDTO> lines = new LinkedHashMap<>();
+        current.forEach(item -> lines.put(item.getProductId(), item));
+
+        List<Long> removed = new ArrayList<>();
+        List<CartItemDTO> updated = new ArrayList<>();
+        List<CartItemDTO> inserted = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            CartItemDTO existing = lines.get(productId);
+            if (quantity <= 0) {
+                if (existing != null) {
+                    removed.add(existing.getId());
+                    lines.remove(productId);
+                }
+            } else if (existing != null) {
+                CartItemDTO line = new CartItemDTO(existing.getId(), userId, productId, quantity, existing.getPrice());
+                updated.add(line);
+                lines.put(productId, line);
+            } else {
+                CartItemDTO line = new CartItemDTO(null, userId, productId, quantity, prices.get(productId));
+                inserted.add(line);
+                lines.put(productId, line);
+            }
+        });
+
+        if (!inserted.isEmpty() && current.isEmpty() && !userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found: " + userId);
+        }
+
+        // Каждый вид изменений - один оператор или один пакет операторов, независимо от количества строк
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (!removed.isEmpty()) {
+            cartItemRepository.deleteAllByIdInBatch(removed);
+        }
+        if (!updated.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updated, updated.size(), (ps, line) -> {
+                ps.setInt(1, line.getQuantity());
+                ps.setTimestamp(2, now);
+                ps.setLong(3, line.getId());
+            });
+        }
+        if (!inserted.isEmpty()) {
+            insertLines(inserted, now);
+        }
+        return List.copyOf(lines.values());
+    }
+
+    @Override
+    @Transactional
+    public void clear(Long userId) {
+        cartItemRepository.deleteAllByUserIdInBulk(userId);
+    }
+
+    @Override
+    public void flush(Long userId) {
+        // Изменения уже записаны в БД
+    }
+
+    @Override
+    public void evict(Long userId) {
+        // Корзина не хранится в памяти
+    }
+
+    /**
+     * Вспомогательный метод: вставляет новые элементы корзины одним пакетом и проставляет им
+     * сгенерированные идентификаторы.
+     */
+    private void insertLines(List<CartItemDTO> lines, Timestamp updatedAt) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        CartItemDTO line = lines.get(i);
+                        ps.setLong(1, line.getUserId());
+                        ps.setLong(2, line.getProductId());
+                        ps.setInt(3, line.getQuantity());
+                        ps.setBigDecimal(4, line.getPrice());
+                        ps.setTimestamp(5, updatedAt);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return lines.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < lines.size(); i++) {
+            lines.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    /**
+     * Вспомогательный метод для преобразования элемента корзины в DTO.
+     * Идентификаторы пользователя и продукта берутся из ссылок без загрузки связанных сущностей.
+     */
+    private CartItemDTO convertToDTO(CartItem cartItem) {
+        return new CartItemDTO(
+                cartItem.getId(),
+                cartItem.getUser().getId(),
+                cartItem.getProduct().getId(),
+                cartItem.getQuantity(),
+                cartItem.getPrice()
+        );
+    }
+}
@@ -0,0 +1,200 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.alexds.ccoshop.dto.OrderDTO;
+import ru.alexds.ccoshop.dto.OrderItemDTO;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.repository.ArchivedOrderItemRepository;
+import ru.alexds.ccoshop.repository.ArchivedOrderRepository;
+import ru.alexds.ccoshop.repository.OrderRepository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис архивации заказов.
+ * Выполненные и отмененные заказы старше заданного срока переносятся вместе с позициями в таблицы
+ * orders_archive и order_items_archive порциями, каждая в собственной транзакции. Рабочие таблицы и их индексы
+ * остаются небольшими, а чтения истории заказов в {@link OrderService} дополняются данными архива.
+ */
+@Slf4j
+@Service
+public class OrderArchiveService {
+    private static final Set<Status> ARCHIVED_STATUSES = EnumSet.of(Status.COMPLETED, Status.CANCELLED);
+
+    private final JdbcTemplate jdbcTemplate; // JDBC-шаблон для переноса порций заказов
+    private final OrderRepository orderRepository; // Репозиторий рабочих заказов
+    private final ArchivedOrderRepository archivedOrderRepository; // Репозиторий архивных заказов
+    private final ArchivedOrderItemRepository archivedOrderItemRepository; // Репозиторий позиций архивных заказов
+    private final TransactionTemplate transactionTemplate; // Отдельная транзакция на каждую порцию
+    private final Duration archiveAge; // Возраст заказа, после которого он переносится в архив
+    private final int batchSize; // Размер порции переноса
+
+    public OrderArchiveService(JdbcTemplate jdbcTemplate,
+                               OrderRepository orderRepository,
+                               ArchivedOrderRepository archivedOrderRepository,
+                               ArchivedOrderItemRepository archivedOrderItemRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${shop.archive.age:P365D}") Duration archiveAge,
+                               @Value("${shop.archive.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveAge = archiveAge;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Переносит в архив заказы старше срока хранения в рабочих таблицах (по расписанию).
+     */
+    @Scheduled(cron = "${shop.archive.cron:0 30 3 * * *}")
+    public void archiveOldOrders() {
+        archiveOrdersBefore(LocalDateTime.now().minus(archiveAge));
+    }
+
+    /**
+     * Переносит в архив выполненные и отмененные заказы, оформленные раньше указанной даты.
+     * Заказы обрабатываются порциями по возрастанию идентификатора; каждая порция блокируется,
+     * копируется в архив и удаляется из рабочих таблиц в одной транзакции.
+     *
+     * @param cutoff Граница даты оформления
+     * @return Количество перенесенных заказов
+     */
+    public int archiveOrdersBefore(LocalDateTime cutoff) {
+        log.debug("Request to archive orders placed before {}", cutoff);
+        int archived = 0;
+        long afterId = 0;
+
+        while (true) {
+            List<Long> ids = orderRepository.findIdsByStatusBefore(ARCHIVED_STATUSES, cutoff, afterId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            Integer moved = transactionTemplate.execute(tx -> moveChunk(ids, cutoff));
+            archived += moved != null ? moved : 0;
+            afterId = ids.get(ids.size() - 1);
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (archived > 0) {
+            log.info("Archived {} orders placed before {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    /**
+     * Получает архивный заказ с позициями.
+     *
+     * @param orderId Идентификатор заказа
+     * @return Заказ в формате DTO, если он находится в архиве
+     */
+    @Transactional(readOnly = true)
+    public Optional<OrderDTO> findById(Long orderId) {
+        Optional<OrderDTO> order = archivedOrderRepository.findViewById(orderId);
+        order.ifPresent(dto -> attachItems(List.of(dto)));
+        return order;
+    }
+
+    /**
+     * Получает архивные заказы пользователя с позициями, от новых к старым.
+     *
+     * @param userId Идентификатор пользователя
+     * @return Список заказов в формате DTO
+     */
+    @Transactional(readOnly = true)
+    public List<OrderDTO> findByUserId(Long userId) {
+        return attachItems(archivedOrderRepository.findViewsByUserId(userId));
+    }
+
+    /**
+     * Получает архивные заказы с позициями, оформленные в заданном диапазоне дат.
+     *
+     * @param startDate Начальная дата диапазона
+     * @param endDate   Конечная дата диапазона
+     * @return Список заказов в формате DTO
+     */
+    @Transactional(readOnly = true)
+    public List<OrderDTO> findByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return attachItems(archivedOrderRepository.findViewsByOrderDateBetween(startDate, endDate));
+    }
+
+    /**
+     * Вспомогательный метод: переносит порцию заказов в архив.
+     * Условия отбора проверяются повторно под блокировкой, поэтому заказ, статус которого изменился
+     * после выборки порции, остается в рабочих таблицах.
+     *
+     * @param ids    Идентификаторы заказов порции
+     * @param cutoff Граница даты оформления
+     * @return Количество перенесенных заказов
+     */
+    private int moveChunk(List<Long> ids, LocalDateTime cutoff) {
+        List<Object> lockArgs = new ArrayList<>(ids);
+        ARCHIVED_STATUSES.forEach(status -> lockArgs.add(status.name()));
+        lockArgs.add(Timestamp.valueOf(cutoff));
+        List<Long> locked = jdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE id IN (" + placeholders(ids.size()) + ") " +
+                        "AND status IN (" + placeholders(ARCHIVED_STATUSES.size()) + ") AND order_date < ? FOR UPDATE",
+                Long.class, lockArgs.toArray());
+        if (locked.isEmpty()) {
+            return 0;
+        }
+
+        String in = placeholders(locked.size());
+        Object[] idArgs = locked.toArray();
+        List<Object> insertArgs = new ArrayList<>();
+        insertArgs.add(Timestamp.valueOf(LocalDateTime.now()));
+        insertArgs.addAll(locked);
+
+        jdbcTemplate.update("INSERT INTO orders_archive (id, user_id, order_date, status, total_price, archived_at) " +
+                "SELECT id, user_id, order_date, status, total_price, ? FROM orders WHERE id IN (" + in + ")", insertArgs.toArray());
+        jdbcTemplate.update("INSERT INTO order_items_archive (id, order_id, product_id, quantity, price) " +
+                "SELECT id, order_id, product_id, quantity, price FROM order_items WHERE order_id IN (" + in + ")", idArgs);
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (" + in + ")", idArgs);
+        jdbcTemplate.update("DELETE FROM orders WHERE id IN (" + in + ")", idArgs);
+        return locked.size();
+    }
+
+    /**
+     * Вспомогательный метод: заполняет позиции архивных заказов одним запросом проекций.
+     *
+     * @param orders Архивные заказы
+     * @return Те же заказы с заполненными позициями
+     */
+    private List<OrderDTO> attachItems(List<OrderDTO> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Map<Long, OrderDTO> byId = orders.stream()
+                .collect(Collectors.toMap(OrderDTO::getId, Function.identity()));
+        for (OrderItemDTO item : archivedOrderItemRepository.findViewsByOrderIdIn(byId.keySet())) {
+            byId.get(item.getOrderId()).getItems().add(item);
+        }
+        return orders;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
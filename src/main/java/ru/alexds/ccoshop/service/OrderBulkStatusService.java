@@ -0,0 +1,155 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.alexds.ccoshop.dto.BulkStatusUpdateResultDTO;
+import ru.alexds.ccoshop.dto.OrderStatusOutcomeDTO;
+import ru.alexds.ccoshop.dto.OrderStatusOutcomeDTO.Outcome;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.OrderItemRepository;
+import ru.alexds.ccoshop.repository.OrderRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Сервис массовой смены статуса заказов (отгрузка, доставка, завершение и отмена тысяч заказов за раз).
+ * Заказы обрабатываются порциями, каждая в собственной транзакции: строки порции блокируются одним запросом,
+ * статус меняется одним UPDATE с проверкой допустимости перехода в условии, а при отмене остатки
+ * возвращаются на склад одним обновлением на продукт. Для каждого измененного заказа публикуется
+ * {@link OrderStatusChangedEvent}, поэтому сводки, аналитика и outbox обновляются так же, как при смене статуса по одному.
+ */
+@Slf4j
+@Service
+public class OrderBulkStatusService {
+    private static final Map<Status, Set<Status>> ALLOWED_FROM = new EnumMap<>(Status.class);
+
+    static {
+        ALLOWED_FROM.put(Status.NEW, EnumSet.noneOf(Status.class));
+        ALLOWED_FROM.put(Status.PAID, EnumSet.of(Status.NEW));
+        ALLOWED_FROM.put(Status.SHIPPED, EnumSet.of(Status.PAID));
+        ALLOWED_FROM.put(Status.DELIVERED, EnumSet.of(Status.SHIPPED));
+        ALLOWED_FROM.put(Status.COMPLETED, EnumSet.of(Status.DELIVERED));
+        ALLOWED_FROM.put(Status.CANCELLED, EnumSet.of(Status.NEW, Status.PAID, Status.SHIPPED, Status.DELIVERED));
+    }
+
+    private final OrderRepository orderRepository; // Репозиторий заказов
+    private final OrderItemRepository orderItemRepository; // Репозиторий позиций заказов
+    private final InventoryService inventoryService; // Возврат остатков отмененных заказов
+    private final ApplicationEventPublisher eventPublisher; // Публикация событий изменения статуса заказа
+    private final TransactionTemplate transactionTemplate; // Отдельная транзакция на каждую порцию
+    private final int chunkSize; // Размер порции
+
+    public OrderBulkStatusService(OrderRepository orderRepository,
+                                  OrderItemRepository orderItemRepository,
+                                  InventoryService inventoryService,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${shop.orders.bulk-status.chunk-size:500}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.inventoryService = inventoryService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Переводит заказы в новый статус.
+     * Допустимые переходы: NEW → PAID → SHIPPED → DELIVERED → COMPLETED, а также отмена любого
+     * незавершенного и неотмененного заказа. Заказы в недопустимом статусе не изменяются.
+     *
+     * @param orderIds Идентификаторы заказов (повторы игнорируются)
+     * @param target   Новый статус
+     * @return Итог операции с результатом по каждому заказу в порядке запроса
+     * @throws IllegalArgumentException если перевод в указанный статус массово недопустим
+     */
+    public BulkStatusUpdateResultDTO updateStatuses(List<Long> orderIds, Status target) {
+        Set<Status> allowed = ALLOWED_FROM.getOrDefault(target, EnumSet.noneOf(Status.class));
+        if (allowed.isEmpty()) {
+            throw new IllegalArgumentException("Bulk transition to status " + target + " is not allowed");
+        }
+        log.debug("Request to move {} orders to status {}", orderIds.size(), target);
+
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        Map<Long, OrderStatusOutcomeDTO> outcomes = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            Map<Long, OrderStatusOutcomeDTO> chunkOutcomes = transactionTemplate.execute(tx -> applyChunk(chunk, target, allowed));
+            if (chunkOutcomes != null) {
+                outcomes.putAll(chunkOutcomes);
+            }
+        }
+
+        List<OrderStatusOutcomeDTO> results = new ArrayList<>(ids.size());
+        int updated = 0;
+        for (Long id : ids) {
+            OrderStatusOutcomeDTO outcome = outcomes.get(id);
+            results.add(outcome);
+            if (outcome.getOutcome() == Outcome.UPDATED) {
+                updated++;
+            }
+        }
+        log.info("Moved {} of {} orders to status {}", updated, ids.size(), target);
+        return new BulkStatusUpdateResultDTO(target, updated, ids.size() - updated, results);
+    }
+
+    /**
+     * Вспомогательный метод: меняет статус порции заказов в текущей транзакции.
+     *
+     * @param ids     Идентификаторы заказов порции
+     * @param target  Новый статус
+     * @param allowed Статусы, из которых допустим переход
+     * @return Результаты по заказам порции
+     */
+    private Map<Long, OrderStatusOutcomeDTO> applyChunk(List<Long> ids, Status target, Set<Status> allowed) {
+        Map<Long, OrderStatusOutcomeDTO> outcomes = new HashMap<>();
+        List<Object[]> eligible = new ArrayList<>();
+        for (Object[] row : orderRepository.lockStatesByIdIn(ids)) {
+            Long id = (Long) row[0];
+            Status current = (Status) row[2];
+            boolean transition = allowed.contains(current);
+            outcomes.put(id, new OrderStatusOutcomeDTO(id, transition ? Outcome.UPDATED : Outcome.INVALID_TRANSITION, current));
+            if (transition) {
+                eligible.add(row);
+            }
+        }
+        for (Long id : ids) {
+            outcomes.putIfAbsent(id, new OrderStatusOutcomeDTO(id, Outcome.NOT_FOUND, null));
+        }
+        if (eligible.isEmpty()) {
+            return outcomes;
+        }
+
+        // Строки заблокированы, поэтому UPDATE изменит ровно отобранные заказы
+        List<Long> eligibleIds = eligible.stream().map(row -> (Long) row[0]).toList();
+        orderRepository.updateStatusByIdIn(eligibleIds, allowed, target);
+
+        if (target == Status.CANCELLED) {
+            Map<Long, Integer> restock = new HashMap<>();
+            for (Object[] line : orderItemRepository.sumQuantityByProduct(eligibleIds)) {
+                restock.put((Long) line[0], ((Number) line[1]).intValue());
+            }
+            inventoryService.releaseForOrder(restock);
+        }
+
+        for (Object[] row : eligible) {
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(
+                    (Long) row[0], (Long) row[1], (Status) row[2], target, (BigDecimal) row[3], (LocalDateTime) row[4]));
+        }
+        return outcomes;
+    }
+}
@@ -0,0 +1,219 @@
+package ru.alexds.ccoshop.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Сервис потоковой выгрузки заказов для отчетности (CSV и NDJSON).
+ * Заказы и их позиции (включая перенесенные в архив) читаются одним запросом через курсор JDBC с фиксированным размером выборки
+ * и записываются в ответ по мере чтения, поэтому расход памяти не зависит от размера периода.
+ */
+@Slf4j
+@Service
+public class OrderExportService {
+    // Заказ находится либо в рабочих таблицах, либо в архивных (OrderArchiveService переносит его целиком)
+    private static final String EXPORT_SQL =
+            "SELECT o.id, o.user_id, o.order_date, o.status, o.total_price, oi.product_id, p.name, oi.quantity, oi.price, oi.id AS item_id " +
+            "FROM orders o " +
+            "LEFT JOIN order_items oi ON oi.order_id = o.id " +
+            "LEFT JOIN products p ON p.id = oi.product_id " +
+            "WHERE o.order_date >= ? AND o.order_date < ? " +
+            "UNION ALL " +
+            "SELECT a.id, a.user_id, a.order_date, a.status, a.total_price, ai.product_id, p.name, ai.quantity, ai.price, ai.id " +
+            "FROM orders_archive a " +
+            "LEFT JOIN order_items_archive ai ON ai.order_id = a.id " +
+            "LEFT JOIN products p ON p.id = ai.product_id " +
+            "WHERE a.order_date >= ? AND a.order_date < ? " +
+            "ORDER BY order_date, id, item_id";
+    private static final String CSV_HEADER =
+            "order_id,user_id,order_date,status,order_total,product_id,product_name,quantity,price\n";
+
+    private final JdbcTemplate jdbcTemplate; // JDBC-шаблон с курсорной выборкой для выгрузки
+
+    public OrderExportService(DataSource dataSource, @Value("${shop.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Выгружает заказы за период в формате CSV: одна строка на позицию заказа
+     * (заказ без позиций выгружается одной строкой с пустыми полями позиции).
+     *
+     * @param from   Начало периода (включительно)
+     * @param to     Конец периода (не включительно)
+     * @param writer Поток для записи
+     * @return Количество выгруженных строк
+     */
+    public long exportCsv(LocalDateTime from, LocalDateTime to, Writer writer) {
+        validateRange(from, to);
+        log.debug("Request to export orders as CSV between {} and {}", from, to);
+        write(writer, CSV_HEADER);
+
+        long[] rows = {0};
+        stream(from, to, rs -> {
+            StringBuilder line = new StringBuilder(128);
+            line.append(rs.getLong(1)).append(',')
+                    .append(rs.getLong(2)).append(',')
+                    .append(toLocalDateTime(rs.getTimestamp(3))).append(',')
+                    .append(nullToEmpty(rs.getString(4))).append(',')
+                    .append(nullToEmpty(rs.getBigDecimal(5))).append(',');
+            long productId = rs.getLong(6);
+            if (!rs.wasNull()) {
+                line.append(productId).append(',')
+                        .append(csvEscape(rs.getString(7))).append(',')
+                        .append(rs.getInt(8)).append(',')
+                        .append(nullToEmpty(rs.getBigDecimal(9)));
+            } else {
+                line.append(",,,");
+            }
+            line.append('\n');
+            write(writer, line);
+            rows[0]++;
+        });
+        flush(writer);
+        log.info("Exported {} CSV rows for orders between {} and {}", rows[0], from, to);
+        return rows[0];
+    }
+
+    /**
+     * Выгружает заказы за период в формате NDJSON: одна строка JSON на заказ с массивом позиций.
+     * Строки запроса упорядочены по заказу, поэтому в памяти находится только текущий заказ.
+     *
+     * @param from   Начало периода (включительно)
+     * @param to     Конец периода (не включительно)
+     * @param writer Поток для записи
+     * @return Количество выгруженных заказов
+     */
+    public long exportNdjson(LocalDateTime from, LocalDateTime to, Writer writer) {
+        validateRange(from, to);
+        log.debug("Request to export orders as NDJSON between {} and {}", from, to);
+
+        try (JsonGenerator json = new JsonFactory().createGenerator(writer)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);
+            long[] orders = {0};
+            long[] currentOrderId = {-1};
+
+            stream(from, to, rs -> {
+                try {
+                    long orderId = rs.getLong(1);
+                    if (orderId != currentOrderId[0]) {
+                        if (currentOrderId[0] != -1) {
+                            endOrder(json);
+                        }
+                        currentOrderId[0] = orderId;
+                        orders[0]++;
+                        json.writeStartObject();
+                        json.writeNumberField("id", orderId);
+                        json.writeNumberField("userId", rs.getLong(2));
+                        json.writeStringField("orderDate", String.valueOf(toLocalDateTime(rs.getTimestamp(3))));
+                        json.writeStringField("status", rs.getString(4));
+                        writeDecimal(json, "totalPrice", rs.getBigDecimal(5));
+                        json.writeArrayFieldStart("items");
+                    }
+                    long productId = rs.getLong(6);
+                    if (!rs.wasNull()) {
+                        json.writeStartObject();
+                        json.writeNumberField("productId", productId);
+                        json.writeStringField("productName", rs.getString(7));
+                        json.writeNumberField("quantity", rs.getInt(8));
+                        writeDecimal(json, "price", rs.getBigDecimal(9));
+                        json.writeEndObject();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (currentOrderId[0] != -1) {
+                endOrder(json);
+            }
+            json.flush();
+            log.info("Exported {} orders as NDJSON between {} and {}", orders[0], from, to);
+            return orders[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Вспомогательный метод: выполняет запрос выгрузки и передает строки обработчику по мере чтения.
+     */
+    private void stream(LocalDateTime from, LocalDateTime to, RowCallbackHandler handler) {
+        jdbcTemplate.query(EXPORT_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(from));
+            ps.setTimestamp(2, Timestamp.valueOf(to));
+            ps.setTimestamp(3, Timestamp.valueOf(from));
+            ps.setTimestamp(4, Timestamp.valueOf(to));
+        }, handler);
+    }
+
+    private static void endOrder(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void writeDecimal(JsonGenerator json, String field, BigDecimal value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeNumberField(field, value);
+        }
+    }
+
+    private static void write(Writer writer, CharSequence text) {
+        try {
+            writer.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Клиент закрыл соединение - прерываем чтение курсора
+        }
+    }
+
+    private static void flush(Writer writer) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static String nullToEmpty(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    /**
+     * Экранирует значение CSV: поля с запятыми, кавычками или переводами строк заключаются в кавычки.
+     */
+    private static String csvEscape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Invalid export range: " + from + " - " + to);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.alexds.ccoshop.entity.OrderEventType;
+import ru.alexds.ccoshop.entity.OrderOutboxEvent;
+import ru.alexds.ccoshop.entity.OutboxStatus;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderEventSubscriber;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.OrderOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сервис транзакционного outbox для событий жизненного цикла заказа.
+ * Событие записывается строкой в той же транзакции, что и изменение заказа, а затем пакетами
+ * доставляется подписчикам {@link OrderEventSubscriber} в отдельных транзакциях с повторами
+ * и экспоненциальной задержкой. Добавление новых подписчиков не увеличивает время оформления заказа.
+ */
+@Slf4j
+@Service
+public class OrderOutboxService {
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final OrderOutboxRepository outboxRepository; // Репозиторий outbox
+    private final List<OrderEventSubscriber> subscribers; // Подписчики на события заказов
+    private final TransactionTemplate transactionTemplate; // Отдельные транзакции выборки и доставки
+    private final int batchSize; // Размер пакета доставки
+    private final int maxAttempts; // Максимальное количество попыток доставки
+    private final Duration retryBackoff; // Начальная задержка повтора
+    private final Duration lease; // Время, на которое выбранное событие скрывается от других обработчиков
+    private final Duration retention; // Срок хранения доставленных событий
+
+    public OrderOutboxService(OrderOutboxRepository outboxRepository,
+                              List<OrderEventSubscriber> subscribers,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${shop.outbox.batch-size:100}") int batchSize,
+                              @Value("${shop.outbox.max-attempts:10}") int maxAttempts,
+                              @Value("${shop.outbox.retry-backoff:PT1S}") Duration retryBackoff,
+                              @Value("${shop.outbox.lease:PT1M}") Duration lease,
+                              @Value("${shop.outbox.retention:P7D}") Duration retention) {
+        this.outboxRepository = outboxRepository;
+        this.subscribers = subscribers;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.lease = lease;
+        this.retention = retention;
+    }
+
+    /**
+     * Записывает изменение заказа в outbox. Выполняется только внутри транзакции, изменившей заказ,
+     * поэтому событие фиксируется (или откатывается) вместе с заказом.
+     *
+     * @param event Событие изменения статуса заказа
+     */
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getPreviousStatus() == event.getNewStatus()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.save(OrderOutboxEvent.builder()
+                .eventType(typeOf(event))
+                .orderId(event.getOrderId())
+                .userId(event.getUserId())
+                .previousStatus(event.getPreviousStatus())
+                .newStatus(event.getNewStatus())
+                .totalPrice(event.getTotalPrice())
+                .createdAt(now)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .build());
+    }
+
+    /**
+     * Доставляет подписчикам пакет готовых событий.
+     * События выбираются с блокировкой SKIP LOCKED и арендуются, поэтому несколько экземпляров приложения
+     * не доставляют одно событие одновременно. Каждое событие доставляется в собственной транзакции.
+     *
+     * @return Количество успешно доставленных событий
+     */
+    @Scheduled(fixedDelayString = "${shop.outbox.poll-interval-ms:500}")
+    public int dispatchPending() {
+        List<Long> claimed = transactionTemplate.execute(tx -> claimBatch());
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        int delivered = 0;
+        for (Long eventId : claimed) {
+            if (dispatch(eventId)) {
+                delivered++;
+            }
+        }
+        log.debug("Dispatched {} of {} order outbox events", delivered, claimed.size());
+        return delivered;
+    }
+
+    /**
+     * Удаляет доставленные события старше срока хранения.
+     */
+    @Scheduled(fixedDelayString = "${shop.outbox.purge-interval-ms:3600000}")
+    public void purgeProcessed() {
+        Integer removed = transactionTemplate.execute(tx ->
+                outboxRepository.deleteProcessedBefore(OutboxStatus.PROCESSED, LocalDateTime.now().minus(retention)));
+        if (removed != null && removed > 0) {
+            log.info("Purged {} processed order outbox events", removed);
+        }
+    }
+
+    /**
+     * Получает количество событий outbox по состояниям.
+     *
+     * @return Карта "состояние - количество событий"
+     */
+    public Map<OutboxStatus, Long> getStatistics() {
+        Map<OutboxStatus, Long> statistics = new EnumMap<>(OutboxStatus.class);
+        for (OutboxStatus status : OutboxStatus.values()) {
+            statistics.put(status, outboxRepository.countByStatus(status));
+        }
+        return statistics;
+    }
+
+    /**
+     * Вспомогательный метод: выбирает пакет готовых событий и продлевает их аренду.
+     *
+     * @return Идентификаторы выбранных событий в порядке возникновения
+     */
+    private List<Long> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderOutboxEvent> due = outboxRepository.findDueForUpdate(OutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+        LocalDateTime leasedUntil = now.plus(lease);
+        due.forEach(event -> event.setNextAttemptAt(leasedUntil)); // Сохраняется при фиксации транзакции
+        return due.stream().map(OrderOutboxEvent::getId).toList();
+    }
+
+    /**
+     * Вспомогательный метод: доставляет одно событие всем подписчикам в одной транзакции.
+     * При ошибке изменения подписчиков откатываются, а попытка фиксируется отдельной транзакцией.
+     *
+     * @param eventId Идентификатор события
+     * @return true, если событие доставлено
+     */
+    private boolean dispatch(Long eventId) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> outboxRepository.findById(eventId)
+                    .filter(event -> event.getStatus() == OutboxStatus.PENDING)
+                    .ifPresent(event -> {
+                        for (OrderEventSubscriber subscriber : subscribers) {
+                            subscriber.onOrderEvent(event);
+                        }
+                        event.setStatus(OutboxStatus.PROCESSED);
+                        event.setProcessedAt(LocalDateTime.now());
+                        event.setLastError(null);
+                    }));
+            return true;
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(tx -> outboxRepository.findById(eventId)
+                    .ifPresent(event -> recordFailure(event, e)));
+            return false;
+        }
+    }
+
+    /**
+     * Вспомогательный метод: фиксирует неудачную попытку и планирует повтор с экспоненциальной задержкой.
+     *
+     * @param event Событие
+     * @param error Ошибка доставки
+     */
+    private void recordFailure(OrderOutboxEvent event, RuntimeException error) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(truncate(String.valueOf(error.getMessage())));
+
+        if (attempts >= maxAttempts) {
+            event.setStatus(OutboxStatus.FAILED);
+            log.error("Order outbox event ID: {} ({} for order ID: {}) failed permanently after {} attempts: {}",
+                    event.getId(), event.getEventType(), event.getOrderId(), attempts, error.getMessage());
+            return;
+        }
+
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (delay.compareTo(MAX_BACKOFF) > 0) {
+            delay = MAX_BACKOFF;
+        }
+        event.setNextAttemptAt(LocalDateTime.now().plus(delay));
+        log.warn("Order outbox event ID: {} delivery attempt {} failed, retry in {}: {}",
+                event.getId(), attempts, delay, error.getMessage());
+    }
+
+    private static OrderEventType typeOf(OrderStatusChangedEvent event) {
+        if (event.getPreviousStatus() == null) {
+            return OrderEventType.CREATED;
+        }
+        return event.getNewStatus() == Status.CANCELLED ? OrderEventType.CANCELLED : OrderEventType.STATUS_CHANGED;
+    }
+
+    private static String truncate(String message) {
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.alexds.ccoshop.dto.RatingDTO;
+import ru.alexds.ccoshop.entity.OrderEventType;
+import ru.alexds.ccoshop.entity.OrderItem;
+import ru.alexds.ccoshop.entity.OrderOutboxEvent;
+import ru.alexds.ccoshop.event.OrderEventSubscriber;
+import ru.alexds.ccoshop.repository.OrderItemRepository;
+
+/**
+ * Подписчик outbox, устанавливающий рейтинги товарам созданного заказа.
+ * Рейтинги используются рекомендательной системой и раньше сохранялись прямо в транзакции оформления заказа.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderRatingSubscriber implements OrderEventSubscriber {
+    private final OrderItemRepository orderItemRepository; // Репозиторий позиций заказа
+    private final RatingService ratingService; // Сервис для работы с рейтингами
+
+    /**
+     * Сохраняет рейтинги товаров созданного заказа.
+     *
+     * @param event Событие из outbox
+     */
+    @Override
+    public void onOrderEvent(OrderOutboxEvent event) {
+        if (event.getEventType() != OrderEventType.CREATED) {
+            return;
+        }
+        log.info("Saving ratings for order: {}", event.getOrderId());
+
+        for (OrderItem item : orderItemRepository.findByOrderId(event.getOrderId())) {
+            RatingDTO ratingDTO = RatingDTO.builder()
+                    .userId(event.getUserId())
+                    .itemId(item.getProduct().getId())
+                    .rating(item.getProduct().getPopularity()) // Можно использовать другие метрики для рейтинга
+                    .build();
+            ratingService.saveRating(ratingDTO); // Ошибка откатывает рейтинги заказа и приводит к повторной доставке
+        }
+    }
+}
@@ -2,18 +2,23 @@ package ru.alexds.ccoshop.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.alexds.ccoshop.dto.CartItemDTO;
+import ru.alexds.ccoshop.dto.CursorPageDTO;
 import ru.alexds.ccoshop.dto.OrderDTO;
 import ru.alexds.ccoshop.dto.OrderItemDTO;
-import ru.alexds.ccoshop.dto.RatingDTO;
 import ru.alexds.ccoshop.entity.*;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
 import ru.alexds.ccoshop.exeption.GlobalExceptionHandler;
+import ru.alexds.ccoshop.exeption.InsufficientStockException;
 import ru.alexds.ccoshop.exeption.OrderNotFoundException;
+import ru.alexds.ccoshop.repository.OrderItemRepository;
 import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.utilites.KeysetCursor;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
@@ -31,10 +36,16 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderService {
     private final OrderRepository orderRepository; // Репозиторий для работы с заказами
+    private final OrderItemRepository orderItemRepository; // Репозиторий для чтения позиций заказов
     private final UserService userService; // Сервис для работы с пользователями
     private final ProductService productService; // Сервис для работы с продуктами
-    private final CartService cartService; // Сервис для работы с корзинами
-    private final RatingService ratingService; // Сервис для работы с рейтингами
+    private final CheckoutService checkoutService; // Сервис оформления заказа из корзины
+    private final InventoryService inventoryService; // Сервис атомарного списания и возврата остатков
+    private final HotSkuInventoryService hotSkuInventoryService; // Счетчики в памяти для горячих товаров
+    private final OrderSummaryService orderSummaryService; // Сводная статистика выполненных заказов
+    private final OrderArchiveService orderArchiveService; // Чтение архивных заказов
+    private final PurchasedProductsService purchasedProductsService; // Купленные продукты пользователей в памяти
+    private final ApplicationEventPublisher eventPublisher; // Публикация событий изменения статуса заказа
 
     /**
      * Создает новый заказ на основе одного продукта.
@@ -44,6 +55,7 @@ public class OrderService {
      * @param quantity  Количество продуктов для заказа
      * @return DTO объект созданного заказа
      * @throws RuntimeException если пользователь или продукт не найдены, либо недостаточно запасов на складе
+     * @throws InsufficientStockException если остаток был исчерпан параллельным заказом
      */
     @Transactional
     public OrderDTO createOrder(Long userId, Long productId, int quantity) {
@@ -55,7 +67,7 @@ public class OrderService {
         Product product = productService.getProductEntityById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found")); // Проверяем наличие продукта
 
-        if (product.getStockQuantity() < quantity) {
+        if (!hotSkuInventoryService.isHot(productId) && product.getStockQuantity() < quantity) {
             throw new RuntimeException("Insufficient stock for product: " + product.getName()); // Проверяем количество на складе
         }
 
@@ -77,32 +89,34 @@ public class OrderService {
         BigDecimal totalPrice = order.calculateTotalPrice();
         order.setTotalPrice(totalPrice);
 
-        // Обновляем количество товара на складе
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        productService.updateProduct(product.getId(), productService.convertToDTO(product));
+        // Атомарно списываем количество товара на складе (условный UPDATE, без гонки чтение-запись)
+        inventoryService.reserveForOrder(userId, Map.of(product.getId(), quantity));
 
         Order savedOrder = orderRepository.save(order); // Сохраняем заказ в базе данных
+        publishStatusChange(savedOrder, null);
         log.info("Заказ успешно создан с ID: {}", savedOrder.getId());
 
         return new OrderDTO(savedOrder); // Преобразуем сохраненный заказ в DTO и возвращаем
     }
 
     /**
-     * Получает все заказы пользователя.
+     * Получает все заказы пользователя, включая архивные.
      *
      * @param userId Идентификатор пользователя, чьи заказы необходимо получить
-     * @return Список всех заказов пользователя в формате DTO
+     * @return Список всех заказов пользователя в формате DTO (архивные заказы следуют за рабочими)
      */
     public List<OrderDTO> getOrdersByUserId(Long userId) {
         log.debug("Запрос на получение всех заказов для пользователя ID: {}", userId);
 
-        return orderRepository.findByUserId(userId).stream()
+        List<OrderDTO> orders = orderRepository.findByUserId(userId).stream()
                 .map(OrderDTO::new) // Преобразуем каждый заказ в DTO
                 .collect(Collectors.toList());
+        orders.addAll(orderArchiveService.findByUserId(userId));
+        return orders;
     }
 
     /**
-     * Получает заказ по его идентификатору.
+     * Получает заказ по его идентификатору. Если заказа нет в рабочей таблице, он ищется в архиве.
      *
      * @param orderId Идентификатор заказа, который необходимо получить
      * @return Опциональный DTO объект заказа, если он найден
@@ -111,7 +125,8 @@ public class OrderService {
         log.debug("Запрос на получение заказа ID: {}", orderId);
 
         return orderRepository.findById(orderId)
-                .map(OrderDTO::new); // Преобразуем найденный заказ в DTO
+                .map(OrderDTO::new) // Преобразуем найденный заказ в DTO
+                .or(() -> orderArchiveService.findById(orderId));
     }
 
     /**
@@ -129,8 +144,10 @@ public class OrderService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Заказ не найден")); // Проверяем наличие заказа
 
+        Status previousStatus = order.getStatus();
         order.setStatus(status); // Обновляем статус заказа
         Order updatedOrder = orderRepository.save(order); // Сохраняем изменения в базе данных
+        publishStatusChange(updatedOrder, previousStatus);
 
         log.info("Статус заказа успешно обновлен с помощью ID: {} to {}", orderId, status);
         return new OrderDTO(updatedOrder); // Преобразуем обновленный заказ в DTO и возвращаем
@@ -154,15 +171,17 @@ public class OrderService {
             throw new RuntimeException("Невозможно отменить выполненный заказ"); // Проверяем возможность отмены заказа
         }
 
-        // Возвращаем товары на склад для каждого элемента заказа
+        // Возвращаем товары на склад одним пакетом атомарных UPDATE
+        Map<Long, Integer> restock = new HashMap<>();
         for (OrderItem orderItem : order.getItems()) {
-            Product product = orderItem.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + orderItem.getQuantity()); // Увеличиваем количество товара на складе
-            productService.updateProduct(product.getId(), productService.convertToDTO(product)); // Обновляем информацию о продукте
+            restock.merge(orderItem.getProduct().getId(), orderItem.getQuantity(), Integer::sum);
         }
+        inventoryService.releaseForOrder(restock);
 
+        Status previousStatus = order.getStatus();
         order.setStatus(Status.CANCELLED); // Устанавливаем статус заказа как отмененный
         Order savedOrder = orderRepository.save(order); // Сохраняем обновленный заказ в базе данных
+        publishStatusChange(savedOrder, previousStatus);
 
         log.info("Заказ успешно отменен с помощью ID: {}", orderId);
         return convertToDTO(savedOrder); // Преобразуем отмененный заказ в DTO и возвращаем
@@ -209,22 +228,11 @@ public class OrderService {
         }
 
         try {
-            // Получаем все завершенные заказы пользователя
-            List<Order> completedOrders = orderRepository.findCompletedOrdersByUserId(userId);
-            if (completedOrders.isEmpty()) {
+            List<Product> products = purchasedProductsService.getPurchasedProducts(userId); // Купленные продукты в памяти и один запрос продуктов
+            if (products.isEmpty()) {
                 log.warn("No completed orders found for user ID: {}", userId);
-                return Collections.emptyList(); // Возвращаем пустой список, если нет заказов
             }
-
-            // Преобразуем список заказов в список уникальных продуктов
-            return completedOrders.stream()
-                    .filter(order -> order.getItems() != null) // Проверяем, что у заказа есть элементы
-                    .flatMap(order -> order.getItems().stream()) // Получаем поток OrderItem
-                    .filter(Objects::nonNull) // Проверяем, что OrderItem не null
-                    .map(OrderItem::getProduct) // Получаем продукт из OrderItem
-                    .filter(Objects::nonNull) // Проверяем, что продукт не null
-                    .distinct() // Убираем дубликаты
-                    .collect(Collectors.toCollection(ArrayList::new)); // Собираем в ArrayList
+            return products;
         } catch (Exception e) {
             log.error("Error while getting purchased products for user {}: {}", userId, e.getMessage());
             throw new RuntimeException("Failed to get purchased products", e);
@@ -245,19 +253,58 @@ public class OrderService {
 
     /**
      * Получает пагинированный список всех заказов.
+     * Страница читается проекциями: запрос заказов, запрос количества и один запрос позиций всей страницы.
      *
      * @param pageable Параметры пагинации
      * @return Пагинированный список всех заказов в формате DTO
      */
+    @Transactional(readOnly = true)
     public Page<OrderDTO> getAllOrders(Pageable pageable) {
         log.debug("Запрос на получение всех заказов с пагинацией страниц");
 
-        Page<Order> ordersPage = orderRepository.findAll(pageable); // Получаем страницу заказов
-        return ordersPage.map(OrderDTO::new); // Преобразуем каждый заказ в OrderDTO
+        Page<OrderDTO> ordersPage = orderRepository.findOrderViews(pageable); // Получаем страницу проекций заказов
+        attachItems(ordersPage.getContent());
+        return ordersPage;
+    }
+
+    /**
+     * Получает страницу заказов (от новых к старым) с курсорной пагинацией по паре (orderDate, id).
+     * Каждая страница, в том числе глубокая, читается двумя запросами по индексу.
+     *
+     * @param cursor Курсор, полученный с предыдущей страницей (null для первой страницы)
+     * @param size   Размер страницы
+     * @return Страница заказов в формате DTO и курсор следующей страницы
+     * @throws IllegalArgumentException если курсор некорректен
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderDTO> getOrdersPage(String cursor, int size) {
+        log.debug("Запрос на получение страницы заказов после курсора: {}", cursor);
+
+        Pageable limit = PageRequest.of(0, size + 1); // Лишняя строка показывает, есть ли следующая страница
+        List<OrderDTO> orders;
+        if (cursor == null || cursor.isBlank()) {
+            orders = orderRepository.findOrderViewsFirst(limit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            if (position.getTimestamp() == null) {
+                // Курсор каталога продуктов (только идентификатор) не задает позицию в ленте заказов
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            orders = orderRepository.findOrderViewsAfter(position.getTimestamp(), position.getId(), limit);
+        }
+
+        String nextCursor = null;
+        if (orders.size() > size) {
+            orders = new ArrayList<>(orders.subList(0, size));
+            OrderDTO last = orders.get(size - 1);
+            nextCursor = new KeysetCursor(last.getOrderDate(), last.getId()).encode();
+        }
+        attachItems(orders);
+        return new CursorPageDTO<>(orders, nextCursor);
     }
 
     /**
-     * Получает список заказов за определенный период времени.
+     * Получает список заказов за определенный период времени, включая архивные.
      *
      * @param startDate Начальная дата диапазона
      * @param endDate   Конечная дата диапазона
@@ -266,9 +313,11 @@ public class OrderService {
     public List<OrderDTO> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         log.debug("Запрос на получение заказов между датами: {} and {}", startDate, endDate);
 
-        return orderRepository.findByOrderDateBetween(startDate, endDate).stream()
+        List<OrderDTO> orders = orderRepository.findByOrderDateBetween(startDate, endDate).stream()
                 .map(OrderDTO::new) // Преобразуем заказы в OrderDTO
                 .collect(Collectors.toList());
+        orders.addAll(orderArchiveService.findByOrderDateBetween(startDate, endDate));
+        return orders;
     }
 
     /**
@@ -281,7 +330,7 @@ public class OrderService {
     public boolean hasUserPurchasedProduct(Long userId, Long productId) {
         log.debug("Request to check if user with ID: {} has purchased product with ID: {}", userId, productId);
 
-        return orderRepository.existsByUser_IdAndItems_Product_IdAndStatus(userId, productId, Status.COMPLETED);
+        return purchasedProductsService.hasPurchased(userId, productId); // Двоичный поиск по купленным продуктам в памяти
     }
 
     /**
@@ -307,6 +356,7 @@ public class OrderService {
 
     /**
      * Рассчитывает общую сумму всех выполненных заказов пользователя.
+     * Значение читается из сводки пользователя без сканирования заказов.
      *
      * @param userId Идентификатор пользователя, для которого необходимо рассчитать сумму
      * @return Общая сумма всех выполненных заказов пользователя
@@ -314,9 +364,9 @@ public class OrderService {
     public BigDecimal calculateUserTotalSpent(Long userId) {
         log.debug("Request to calculate total spending for user ID: {}", userId);
 
-        return orderRepository.findByUserIdAndStatus(userId, Status.COMPLETED).stream()
-                .map(Order::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add); // Суммируем все стоимости заказов
+        return orderSummaryService.getSummary(userId)
+                .map(UserOrderSummary::getTotalSpent)
+                .orElse(BigDecimal.ZERO);
     }
 
     /**
@@ -328,17 +378,14 @@ public class OrderService {
     public BigDecimal calculateUserAverageOrderAmount(Long userId) {
         log.debug("Request to calculate average order amount for user ID: {}", userId);
 
-        List<Order> completedOrders = orderRepository.findByUserIdAndStatus(userId, Status.COMPLETED);
-        if (completedOrders.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal totalSpent = calculateUserTotalSpent(userId);
-        return totalSpent.divide(BigDecimal.valueOf(completedOrders.size()), 2, RoundingMode.HALF_UP); // Вычисляем среднее значение
+        return orderSummaryService.getSummary(userId)
+                .map(this::averageOrderAmount)
+                .orElse(BigDecimal.ZERO);
     }
 
     /**
      * Получает статистику заказов пользователя.
+     * Все показатели берутся из одной строки сводки user_order_summary.
      *
      * @param userId Идентификатор пользователя, для которого необходимо получить статистику
      * @return Карта со статистическими данными по заказам пользователя
@@ -346,25 +393,14 @@ public class OrderService {
     public Map<String, Object> getUserOrderStatistics(Long userId) {
         log.debug("Request to get order statistics for user ID: {}", userId);
 
-        Map<String, Object> statistics = new HashMap<>();
-        List<Order> completedOrders = orderRepository.findByUserIdAndStatus(userId, Status.COMPLETED);
-        BigDecimal totalSpent = calculateUserTotalSpent(userId);
-        BigDecimal averageOrderAmount = calculateUserAverageOrderAmount(userId);
-        long totalOrders = orderRepository.countByUserIdAndStatus(userId, Status.COMPLETED);
-
-        Optional<BigDecimal> maxOrderAmount = completedOrders.stream()
-                .map(Order::getTotalPrice)
-                .max(BigDecimal::compareTo);
+        Optional<UserOrderSummary> summary = orderSummaryService.getSummary(userId);
 
-        Optional<BigDecimal> minOrderAmount = completedOrders.stream()
-                .map(Order::getTotalPrice)
-                .min(BigDecimal::compareTo);
-
-        statistics.put("totalSpent", totalSpent);
-        statistics.put("averageOrderAmount", averageOrderAmount);
-        statistics.put("totalOrders", totalOrders);
-        statistics.put("maxOrderAmount", maxOrderAmount.orElse(BigDecimal.ZERO));
-        statistics.put("minOrderAmount", minOrderAmount.orElse(BigDecimal.ZERO));
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalSpent", summary.map(UserOrderSummary::getTotalSpent).orElse(BigDecimal.ZERO));
+        statistics.put("averageOrderAmount", summary.map(this::averageOrderAmount).orElse(BigDecimal.ZERO));
+        statistics.put("totalOrders", summary.map(UserOrderSummary::getCompletedOrders).orElse(0L));
+        statistics.put("maxOrderAmount", summary.map(UserOrderSummary::getMaxOrderAmount).orElse(BigDecimal.ZERO));
+        statistics.put("minOrderAmount", summary.map(UserOrderSummary::getMinOrderAmount).orElse(BigDecimal.ZERO));
 
         log.info("Retrieved order statistics for user ID: {}", userId);
         return statistics;
@@ -395,11 +431,7 @@ public class OrderService {
     public Map<YearMonth, BigDecimal> calculateMonthlySpending(Long userId) {
         log.debug("Request to calculate monthly spending for user ID: {}", userId);
 
-        return orderRepository.findByUserIdAndStatus(userId, Status.COMPLETED).stream()
-                .collect(Collectors.groupingBy(
-                        order -> YearMonth.from(order.getOrderDate()), // Группируем заказы по месяцам
-                        Collectors.reducing(BigDecimal.ZERO, Order::getTotalPrice, BigDecimal::add) // Суммируем стоимости заказов
-                ));
+        return orderSummaryService.getMonthlySpending(userId); // Один запрос по индексу (user_id, period)
     }
 
     /**
@@ -412,11 +444,13 @@ public class OrderService {
     public OrderDTO getOrderByIdOrThrow(Long orderId) {
         log.debug("Request to get order by ID: {}", orderId);
 
-        Order order = orderRepository.findById(orderId)
+        OrderDTO order = orderRepository.findById(orderId)
+                .map(OrderDTO::new) // Преобразуем Order в OrderDTO
+                .or(() -> orderArchiveService.findById(orderId)) // Заказ мог быть перенесен в архив
                 .orElseThrow(() -> new RuntimeException("Order not found with ID: " + orderId)); // Проверяем наличие заказа
 
         log.info("Successfully retrieved order with ID: {}", orderId);
-        return new OrderDTO(order); // Преобразуем Order в OrderDTO и возвращаем
+        return order;
     }
 
     /**
@@ -430,53 +464,11 @@ public class OrderService {
     public OrderDTO createOrderFromCart(Long userId) {
         log.debug("Request to create an order from the cart for user ID: {}", userId);
 
-        // Получаем все товары в корзине пользователя
-        List<CartItemDTO> cartItems = cartService.getCartItemsForUser(userId);
-        if (cartItems.isEmpty()) {
-            throw new RuntimeException("Cart is empty, cannot create order");
-        }
-
-        // Создаем новый заказ
-        Order order = new Order();
-        order.setUser(userService.getUserEntityById(userId).orElseThrow(() -> new RuntimeException("User not found"))); // Привязываем пользователя к заказу
-        order.setStatus(Status.NEW);
-        order.setOrderDate(LocalDateTime.now());
-
-        // Создаем и добавляем элементы заказа
-        for (CartItemDTO cartItem : cartItems) {
-            Product product = productService.getProductEntityById(cartItem.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + cartItem.getProductId())); // Проверяем наличие продукта
-
-            if (product.getStockQuantity() < cartItem.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName()); // Проверяем количество на складе
-            }
-
-            // Уменьшаем количество товара на складе
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productService.updateProduct(product.getId(), productService.convertToDTO(product)); // Обновляем информацию о продукте
-
-            // Создаем OrderItem и привязываем его к заказу
-            OrderItem orderItem = OrderItem.builder()
-                    .product(product)
-                    .quantity(cartItem.getQuantity())
-                    .price(cartItem.getPrice())
-                    .build();
-
-            order.addItem(orderItem); // Добавляем элемент заказа в заказ
-        }
-
-        // Рассчитываем общую стоимость заказа
-        order.setTotalPrice(order.calculateTotalPrice());
-
-        // Сохраняем заказ в базе данных
-        Order savedOrder = orderRepository.save(order);
+        // Списание остатков, сохранение заказа и очистка корзины выполняются одним проходом
+        Order savedOrder = checkoutService.checkout(userId);
+        publishStatusChange(savedOrder, null);
         log.info("Successfully created order with ID: {} from user's cart", savedOrder.getId());
-
-        // Очищаем корзину пользователя после успешного создания заказа
-        cartService.clearCartForUser(userId);
-
-        // Устанавливаем рейтинги товарам в заказе
-        saveRatingsForOrder(savedOrder);
+        // Рейтинги товарам заказа устанавливает подписчик outbox (OrderRatingSubscriber) после фиксации
 
         // Преобразуем заказ в DTO и возвращаем
         return convertOrderToDTO(savedOrder);
@@ -514,26 +506,48 @@ public class OrderService {
     }
 
     /**
-     * Устанавливает рейтинги товарам в заказе.
+     * Вспомогательный метод: заполняет позиции заказов страницы одним запросом проекций.
      *
-     * @param order Объект заказа, для которого необходимо установить рейтинги
+     * @param orders Заказы страницы
      */
-    private void saveRatingsForOrder(Order order) {
-        log.info("Saving ratings for order: {}", order.getId());
-
-        for (OrderItem item : order.getItems()) {
-            RatingDTO ratingDTO = RatingDTO.builder()
-                    .userId(order.getUser().getId())
-                    .itemId(item.getProduct().getId())
-                    .rating(item.getProduct().getPopularity()) // Можно использовать другие метрики для рейтинга
-                    .build();
-
-            try {
-                Rating savedRating = ratingService.saveRating(ratingDTO);
-                log.info("Saved rating: {}", savedRating);
-            } catch (Exception e) {
-                log.error("Error saving rating for product {} in order {}: {}", item.getProduct().getId(), order.getId(), e.getMessage());
-            }
+    private void attachItems(List<OrderDTO> orders) {
+        if (orders.isEmpty()) {
+            return;
         }
+        Map<Long, OrderDTO> byId = orders.stream()
+                .collect(Collectors.toMap(OrderDTO::getId, order -> order));
+        for (OrderItemDTO item : orderItemRepository.findViewsByOrderIdIn(byId.keySet())) {
+            byId.get(item.getOrderId()).getItems().add(item);
+        }
+    }
+
+    /**
+     * Вспомогательный метод для вычисления средней суммы заказа по сводке.
+     *
+     * @param summary Сводка выполненных заказов пользователя
+     * @return Средняя сумма заказа
+     */
+    private BigDecimal averageOrderAmount(UserOrderSummary summary) {
+        if (summary.getCompletedOrders() == 0) {
+            return BigDecimal.ZERO;
+        }
+        return summary.getTotalSpent().divide(BigDecimal.valueOf(summary.getCompletedOrders()), 2, RoundingMode.HALF_UP); // Вычисляем среднее значение
+    }
+
+    /**
+     * Вспомогательный метод для публикации события изменения статуса заказа.
+     * Слушатели выполняются синхронно в текущей транзакции.
+     *
+     * @param order          Заказ после изменения
+     * @param previousStatus Статус до изменения (null для нового заказа)
+     */
+    private void publishStatusChange(Order order, Status previousStatus) {
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(
+                order.getId(),
+                order.getUser().getId(),
+                previousStatus,
+                order.getStatus(),
+                order.getTotalPrice(),
+                order.getOrderDate()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,233 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.alexds.ccoshop.dto.OrderStatusUpdateDTO;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.event.PaymentProcessedEvent;
+import ru.alexds.ccoshop.repository.OrderRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис подписок на изменения статуса заказа и результаты оплаты.
+ * Клиент после оформления или оплаты заказа получает уведомления через SSE-поток или длинный опрос
+ * вместо ежесекундных запросов заказа. Подписки обслуживаются асинхронными запросами сервлета
+ * и не занимают потоки обработки запросов, пока ожидают события.
+ */
+@Slf4j
+@Service
+public class OrderStatusStreamService {
+    private static final String STATUS_EVENT = "order-status"; // Имя SSE-события изменения статуса
+    private static final String PAYMENT_EVENT = "payment"; // Имя SSE-события результата оплаты
+
+    private final OrderRepository orderRepository; // Репозиторий заказов (для чтения текущего статуса)
+    private final Duration streamTimeout; // Максимальная длительность SSE-подписки
+    private final Map<Long, Set<SseEmitter>> emitters = new ConcurrentHashMap<>(); // SSE-подписчики по заказам
+    private final Map<Long, Set<DeferredResult<ResponseEntity<OrderStatusUpdateDTO>>>> waiters = new ConcurrentHashMap<>(); // Длинные опросы по заказам
+
+    public OrderStatusStreamService(OrderRepository orderRepository,
+                                    @Value("${shop.order-status.stream-timeout:PT10M}") Duration streamTimeout) {
+        this.orderRepository = orderRepository;
+        this.streamTimeout = streamTimeout;
+    }
+
+    /**
+     * Открывает SSE-поток уведомлений по заказу. Первым событием отправляется текущий статус заказа,
+     * поэтому изменение, произошедшее до подписки, не теряется. Поток закрывается после перехода
+     * заказа в конечный статус (COMPLETED или CANCELLED).
+     *
+     * @param orderId Идентификатор заказа
+     * @return SSE-поток или пустое значение, если заказ не найден
+     */
+    public Optional<SseEmitter> subscribe(Long orderId) {
+        log.debug("Request to subscribe to status updates of order ID: {}", orderId);
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        register(emitters, orderId, emitter);
+        emitter.onCompletion(() -> unregister(emitters, orderId, emitter));
+        emitter.onTimeout(() -> unregister(emitters, orderId, emitter));
+        emitter.onError(e -> unregister(emitters, orderId, emitter));
+
+        // Статус читается после регистрации: изменение между чтением и регистрацией не будет пропущено
+        Optional<Status> status = orderRepository.findStatusById(orderId);
+        if (status.isEmpty()) {
+            unregister(emitters, orderId, emitter);
+            return Optional.empty();
+        }
+        OrderStatusUpdateDTO update = statusUpdate(orderId, status.get());
+        send(orderId, emitter, STATUS_EVENT, update);
+        if (isFinal(update.getStatus())) {
+            emitter.complete();
+        }
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Ожидает изменения статуса заказа (длинный опрос). Если текущий статус уже отличается от известного клиенту,
+     * ответ возвращается сразу; иначе запрос удерживается до изменения статуса, результата оплаты или истечения времени.
+     * По истечении времени возвращается ответ 204 (No Content), и клиент повторяет запрос.
+     *
+     * @param orderId Идентификатор заказа
+     * @param since   Статус, известный клиенту (null - вернуть текущий статус сразу)
+     * @param timeout Время ожидания
+     * @return Отложенный ответ или пустое значение, если заказ не найден
+     */
+    public Optional<DeferredResult<ResponseEntity<OrderStatusUpdateDTO>>> awaitStatusChange(Long orderId, Status since, Duration timeout) {
+        log.debug("Request to wait for status change of order ID: {} since status: {}", orderId, since);
+        DeferredResult<ResponseEntity<OrderStatusUpdateDTO>> result =
+                new DeferredResult<>(timeout.toMillis(), ResponseEntity.noContent().build());
+        register(waiters, orderId, result);
+        result.onCompletion(() -> unregister(waiters, orderId, result));
+
+        Optional<Status> status = orderRepository.findStatusById(orderId);
+        if (status.isEmpty()) {
+            unregister(waiters, orderId, result);
+            return Optional.empty();
+        }
+        if (status.get() != since) {
+            result.setResult(ResponseEntity.ok(statusUpdate(orderId, status.get())));
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * Уведомляет подписчиков об изменении статуса заказа после фиксации транзакции.
+     *
+     * @param event Событие изменения статуса заказа
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getPreviousStatus() == event.getNewStatus() || !hasSubscribers(event.getOrderId())) {
+            return;
+        }
+        notifySubscribers(event.getOrderId(), STATUS_EVENT, statusUpdate(event.getOrderId(), event.getNewStatus()));
+    }
+
+    /**
+     * Уведомляет подписчиков о результате оплаты заказа. Отклоненная оплата не меняет статус заказа,
+     * но завершает ожидание клиента, чтобы он мог показать ошибку без ожидания таймаута.
+     *
+     * @param event Событие обработки платежа
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentProcessed(PaymentProcessedEvent event) {
+        if (!hasSubscribers(event.getOrderId())) {
+            return;
+        }
+        Optional<Status> status = orderRepository.findStatusById(event.getOrderId());
+        if (status.isEmpty()) {
+            return;
+        }
+        OrderStatusUpdateDTO update = OrderStatusUpdateDTO.builder()
+                .orderId(event.getOrderId())
+                .status(status.get())
+                .paymentStatus(event.getStatus())
+                .message(event.getMessage())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        notifySubscribers(event.getOrderId(), PAYMENT_EVENT, update);
+    }
+
+    /**
+     * Периодически отправляет SSE-комментарий, чтобы промежуточные прокси не закрывали простаивающие соединения,
+     * а оборванные клиентом соединения своевременно освобождались.
+     */
+    @Scheduled(fixedDelayString = "${shop.order-status.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        emitters.forEach((orderId, orderEmitters) -> {
+            for (SseEmitter emitter : orderEmitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                } catch (IOException | IllegalStateException e) {
+                    unregister(emitters, orderId, emitter);
+                }
+            }
+        });
+    }
+
+    /**
+     * Получает количество активных подписок (SSE-потоков и длинных опросов).
+     *
+     * @return Количество подписок
+     */
+    public int getSubscriberCount() {
+        return emitters.values().stream().mapToInt(Set::size).sum()
+                + waiters.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Вспомогательный метод: отправляет уведомление всем подписчикам заказа.
+     * Вызывается после фиксации транзакции, поэтому ошибки отправки не распространяются на вызывающий код.
+     */
+    private void notifySubscribers(Long orderId, String eventName, OrderStatusUpdateDTO update) {
+        Set<SseEmitter> orderEmitters = emitters.get(orderId);
+        if (orderEmitters != null) {
+            for (SseEmitter emitter : orderEmitters) {
+                send(orderId, emitter, eventName, update);
+                if (isFinal(update.getStatus())) {
+                    emitter.complete();
+                }
+            }
+        }
+
+        Set<DeferredResult<ResponseEntity<OrderStatusUpdateDTO>>> orderWaiters = waiters.remove(orderId);
+        if (orderWaiters != null) {
+            orderWaiters.forEach(result -> result.setResult(ResponseEntity.ok(update)));
+        }
+        log.debug("Notified subscribers of order ID: {} about {}: {}", orderId, eventName, update.getStatus());
+    }
+
+    private void send(Long orderId, SseEmitter emitter, String eventName, OrderStatusUpdateDTO update) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(update, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился или поток уже завершен - контейнер сервлетов завершит асинхронный запрос сам
+            unregister(emitters, orderId, emitter);
+        }
+    }
+
+    private boolean hasSubscribers(Long orderId) {
+        return emitters.containsKey(orderId) || waiters.containsKey(orderId);
+    }
+
+    private static <T> void register(Map<Long, Set<T>> subscriptions, Long orderId, T subscriber) {
+        subscriptions.compute(orderId, (id, set) -> {
+            Set<T> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            result.add(subscriber);
+            return result;
+        });
+    }
+
+    private static <T> void unregister(Map<Long, Set<T>> subscriptions, Long orderId, T subscriber) {
+        subscriptions.computeIfPresent(orderId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static OrderStatusUpdateDTO statusUpdate(Long orderId, Status status) {
+        return OrderStatusUpdateDTO.builder()
+                .orderId(orderId)
+                .status(status)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static boolean isFinal(Status status) {
+        return status == Status.COMPLETED || status == Status.CANCELLED;
+    }
+}
@@ -0,0 +1,240 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.entity.UserMonthlySpending;
+import ru.alexds.ccoshop.entity.UserOrderSummary;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.ArchivedOrderRepository;
+import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.repository.UserMonthlySpendingRepository;
+import ru.alexds.ccoshop.repository.UserOrderSummaryRepository;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Сервис сводной статистики выполненных заказов пользователя.
+ * Поддерживает таблицы user_order_summary и user_monthly_spending в актуальном состоянии,
+ * обрабатывая переходы заказов в статус COMPLETED и из него в той же транзакции, что и сам переход.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderSummaryService {
+    private static final String INSERT_SUMMARY_SQL =
+            "INSERT INTO user_order_summary (user_id, completed_orders, total_spent, min_order_amount, max_order_amount) VALUES (?, 1, ?, ?, ?)";
+    private static final String INSERT_MONTH_SQL =
+            "INSERT INTO user_monthly_spending (user_id, period, completed_orders, total_spent) VALUES (?, ?, 1, ?)";
+
+    private final UserOrderSummaryRepository summaryRepository; // Репозиторий сводок пользователей
+    private final UserMonthlySpendingRepository monthlySpendingRepository; // Репозиторий помесячных сумм
+    private final OrderRepository orderRepository; // Репозиторий заказов (для пересчета границ и начального заполнения)
+    private final ArchivedOrderRepository archivedOrderRepository; // Репозиторий архивных заказов (учитываются наравне с рабочими)
+    private final JdbcTemplate jdbcTemplate; // Вставка первой строки сводки без отметки JPA-транзакции к откату при конфликте ключа
+
+    /**
+     * Обрабатывает изменение статуса заказа: учитывает заказ, вошедший в статус COMPLETED,
+     * и исключает заказ, покинувший его.
+     *
+     * @param event Событие изменения статуса заказа
+     */
+    @EventListener
+    @Transactional
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.entered(Status.COMPLETED)) {
+            addCompletedOrder(event);
+        } else if (event.left(Status.COMPLETED)) {
+            removeCompletedOrder(event);
+        }
+    }
+
+    /**
+     * Получает сводку выполненных заказов пользователя.
+     *
+     * @param userId Идентификатор пользователя
+     * @return Сводка, если у пользователя есть выполненные заказы
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserOrderSummary> getSummary(Long userId) {
+        return summaryRepository.findById(userId);
+    }
+
+    /**
+     * Получает суммы выполненных заказов пользователя по месяцам.
+     *
+     * @param userId Идентификатор пользователя
+     * @return Карта с ключами-месяцами (в хронологическом порядке) и значениями-суммами
+     */
+    @Transactional(readOnly = true)
+    public Map<YearMonth, BigDecimal> getMonthlySpending(Long userId) {
+        Map<YearMonth, BigDecimal> result = new LinkedHashMap<>();
+        for (UserMonthlySpending month : monthlySpendingRepository.findByUserIdOrderByPeriod(userId)) {
+            result.put(YearMonth.parse(month.getPeriod()), month.getTotalSpent());
+        }
+        return result;
+    }
+
+    /**
+     * Заполняет сводки по уже существующим заказам при первом запуске (когда таблица сводок пуста).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (summaryRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Полностью пересчитывает сводки всех пользователей агрегирующими запросами по рабочей и архивной таблицам заказов.
+     *
+     * @return Количество пользователей, для которых построена сводка
+     */
+    @Transactional
+    public int rebuild() {
+        monthlySpendingRepository.deleteAllInBatch();
+        summaryRepository.deleteAllInBatch();
+
+        // Агрегаты рабочих и архивных заказов одного пользователя (месяца) объединяются
+        Map<Long, UserOrderSummary> summaries = new LinkedHashMap<>();
+        List<Object[]> summaryRows = new ArrayList<>(orderRepository.aggregateByUserAndStatus(Status.COMPLETED));
+        summaryRows.addAll(archivedOrderRepository.aggregateByUserAndStatus(Status.COMPLETED));
+        for (Object[] row : summaryRows) {
+            UserOrderSummary summary = UserOrderSummary.builder()
+                    .userId((Long) row[0])
+                    .completedOrders((Long) row[1])
+                    .totalSpent((BigDecimal) row[2])
+                    .minOrderAmount((BigDecimal) row[3])
+                    .maxOrderAmount((BigDecimal) row[4])
+                    .build();
+            summaries.merge(summary.getUserId(), summary, OrderSummaryService::combine);
+        }
+        summaryRepository.saveAll(summaries.values());
+
+        Map<String, UserMonthlySpending> months = new LinkedHashMap<>();
+        List<Object[]> monthRows = new ArrayList<>(orderRepository.aggregateByUserMonthAndStatus(Status.COMPLETED));
+        monthRows.addAll(archivedOrderRepository.aggregateByUserMonthAndStatus(Status.COMPLETED));
+        for (Object[] row : monthRows) {
+            UserMonthlySpending month = UserMonthlySpending.builder()
+                    .userId((Long) row[0])
+                    .period(YearMonth.of(((Number) row[1]).intValue(), ((Number) row[2]).intValue()).toString())
+                    .completedOrders((Long) row[3])
+                    .totalSpent((BigDecimal) row[4])
+                    .build();
+            months.merge(month.getUserId() + "/" + month.getPeriod(), month, (left, right) -> {
+                left.setCompletedOrders(left.getCompletedOrders() + right.getCompletedOrders());
+                left.setTotalSpent(left.getTotalSpent().add(right.getTotalSpent()));
+                return left;
+            });
+        }
+        monthlySpendingRepository.saveAll(months.values());
+
+        log.info("Rebuilt order summaries for {} users ({} monthly rows)", summaries.size(), months.size());
+        return summaries.size();
+    }
+
+    /**
+     * Вспомогательный метод: учитывает выполненный заказ в сводке и в сумме за месяц.
+     * Если строки еще нет, она вставляется; если ее одновременно вставила транзакция другого заказа
+     * (конфликт ключа), заказ учитывается повторным атомарным обновлением уже существующей строки.
+     *
+     * @param event Событие перехода заказа в статус COMPLETED
+     */
+    private void addCompletedOrder(OrderStatusChangedEvent event) {
+        BigDecimal amount = amountOf(event);
+        Long userId = event.getUserId();
+
+        if (summaryRepository.addCompletedOrder(userId, amount) == 0
+                && !insertIfAbsent(INSERT_SUMMARY_SQL, userId, amount, amount, amount)) {
+            summaryRepository.addCompletedOrder(userId, amount);
+        }
+
+        String period = periodOf(event);
+        if (monthlySpendingRepository.applyDelta(userId, period, 1, amount) == 0
+                && !insertIfAbsent(INSERT_MONTH_SQL, userId, period, amount)) {
+            monthlySpendingRepository.applyDelta(userId, period, 1, amount);
+        }
+        log.debug("Order ID: {} added to summary of user ID: {}", event.getOrderId(), event.getUserId());
+    }
+
+    /**
+     * Вспомогательный метод: исключает заказ из сводки и пересчитывает границы сумм
+     * одним агрегирующим запросом по индексу (user_id, status).
+     *
+     * @param event Событие выхода заказа из статуса COMPLETED
+     */
+    private void removeCompletedOrder(OrderStatusChangedEvent event) {
+        BigDecimal amount = amountOf(event);
+
+        // Новый статус заказа уже сброшен в БД, поэтому агрегат не учитывает этот заказ
+        List<Object[]> range = orderRepository.findTotalPriceRangeByUserIdAndStatus(event.getUserId(), Status.COMPLETED);
+        List<Object[]> archivedRange = archivedOrderRepository.findTotalPriceRangeByUserIdAndStatus(event.getUserId(), Status.COMPLETED);
+        BigDecimal min = min(bound(range, 0), bound(archivedRange, 0));
+        BigDecimal max = max(bound(range, 1), bound(archivedRange, 1));
+        summaryRepository.removeCompletedOrder(event.getUserId(), amount, min, max);
+
+        String period = periodOf(event);
+        monthlySpendingRepository.applyDelta(event.getUserId(), period, -1, amount.negate());
+        monthlySpendingRepository.deleteIfEmpty(event.getUserId(), period);
+        log.debug("Order ID: {} removed from summary of user ID: {}", event.getOrderId(), event.getUserId());
+    }
+
+    /**
+     * Вспомогательный метод: вставляет первую строку сводки.
+     *
+     * @return false, если строку с тем же ключом уже вставила другая транзакция
+     */
+    private boolean insertIfAbsent(String sql, Object... args) {
+        try {
+            jdbcTemplate.update(sql, args);
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("Summary row already inserted concurrently: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Вспомогательный метод: объединяет сводки выполненных заказов одного пользователя.
+     */
+    private static UserOrderSummary combine(UserOrderSummary left, UserOrderSummary right) {
+        left.setCompletedOrders(left.getCompletedOrders() + right.getCompletedOrders());
+        left.setTotalSpent(left.getTotalSpent().add(right.getTotalSpent()));
+        left.setMinOrderAmount(min(left.getMinOrderAmount(), right.getMinOrderAmount()));
+        left.setMaxOrderAmount(max(left.getMaxOrderAmount(), right.getMaxOrderAmount()));
+        return left;
+    }
+
+    private static BigDecimal bound(List<Object[]> range, int index) {
+        return range.isEmpty() ? null : (BigDecimal) range.get(0)[index];
+    }
+
+    private static BigDecimal min(BigDecimal left, BigDecimal right) {
+        return left == null ? right : right == null ? left : left.min(right);
+    }
+
+    private static BigDecimal max(BigDecimal left, BigDecimal right) {
+        return left == null ? right : right == null ? left : left.max(right);
+    }
+
+    private static BigDecimal amountOf(OrderStatusChangedEvent event) {
+        return event.getTotalPrice() != null ? event.getTotalPrice() : BigDecimal.ZERO;
+    }
+
+    private static String periodOf(OrderStatusChangedEvent event) {
+        return YearMonth.from(event.getOrderDate()).toString();
+    }
+}
@@ -0,0 +1,173 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.alexds.ccoshop.dto.BulkStatusUpdateResultDTO;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.repository.OrderRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Фоновый обработчик зависших заказов.
+ * Неоплаченные заказы (NEW) старше заданного срока отменяются с возвратом остатков на склад,
+ * доставленные заказы (DELIVERED) старше заданного срока завершаются. Заказы выбираются порциями
+ * по индексу (status, order_date) с курсором по идентификатору и переводятся через {@link OrderBulkStatusService}.
+ * Обработка ограничена размером порции, паузой между порциями и количеством заказов за запуск
+ * и не выполняется в часы пиковой нагрузки.
+ */
+@Slf4j
+@Service
+public class OrderSweeperService {
+    private final OrderRepository orderRepository; // Репозиторий заказов
+    private final OrderBulkStatusService bulkStatusService; // Массовая смена статуса с возвратом остатков
+    private final Duration unpaidTimeout; // Срок, после которого неоплаченный заказ отменяется
+    private final Duration completeAfter; // Срок, после которого доставленный заказ завершается
+    private final int chunkSize; // Размер порции
+    private final Duration chunkPause; // Пауза между порциями
+    private final int maxOrdersPerRun; // Максимальное количество заказов за один запуск (на каждый переход)
+    private final LocalTime peakStart; // Начало часов пиковой нагрузки (null - ограничение отключено)
+    private final LocalTime peakEnd; // Окончание часов пиковой нагрузки
+
+    public OrderSweeperService(OrderRepository orderRepository,
+                               OrderBulkStatusService bulkStatusService,
+                               @Value("${shop.orders.sweeper.unpaid-timeout:PT24H}") Duration unpaidTimeout,
+                               @Value("${shop.orders.sweeper.complete-after:P14D}") Duration completeAfter,
+                               @Value("${shop.orders.sweeper.chunk-size:100}") int chunkSize,
+                               @Value("${shop.orders.sweeper.chunk-pause:PT0.5S}") Duration chunkPause,
+                               @Value("${shop.orders.sweeper.max-orders-per-run:5000}") int maxOrdersPerRun,
+                               @Value("${shop.orders.sweeper.peak-hours:}") String peakHours) {
+        this.orderRepository = orderRepository;
+        this.bulkStatusService = bulkStatusService;
+        this.unpaidTimeout = unpaidTimeout;
+        this.completeAfter = completeAfter;
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+        this.maxOrdersPerRun = maxOrdersPerRun;
+
+        if (peakHours == null || peakHours.isBlank()) {
+            this.peakStart = null;
+            this.peakEnd = null;
+        } else {
+            String[] bounds = peakHours.trim().split("-");
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("Peak hours must be in format HH:mm-HH:mm: " + peakHours);
+            }
+            this.peakStart = LocalTime.parse(bounds[0].trim());
+            this.peakEnd = LocalTime.parse(bounds[1].trim());
+        }
+    }
+
+    /**
+     * Обрабатывает зависшие заказы (по расписанию).
+     */
+    @Scheduled(fixedDelayString = "${shop.orders.sweeper.interval-ms:300000}",
+            initialDelayString = "${shop.orders.sweeper.initial-delay-ms:60000}")
+    public void sweep() {
+        if (isPeakHours(LocalTime.now())) {
+            log.debug("Order sweeper skipped during peak hours");
+            return;
+        }
+        cancelUnpaidOrders();
+        completeDeliveredOrders();
+    }
+
+    /**
+     * Отменяет неоплаченные заказы старше срока ожидания оплаты и возвращает их остатки на склад.
+     *
+     * @return Количество отмененных заказов
+     */
+    public int cancelUnpaidOrders() {
+        int cancelled = sweep(Status.NEW, Status.CANCELLED, LocalDateTime.now().minus(unpaidTimeout));
+        if (cancelled > 0) {
+            log.info("Order sweeper cancelled {} unpaid orders", cancelled);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Завершает доставленные заказы старше заданного срока.
+     * Возраст заказа определяется по дате оформления, так как время доставки не хранится.
+     *
+     * @return Количество завершенных заказов
+     */
+    public int completeDeliveredOrders() {
+        int completed = sweep(Status.DELIVERED, Status.COMPLETED, LocalDateTime.now().minus(completeAfter));
+        if (completed > 0) {
+            log.info("Order sweeper completed {} delivered orders", completed);
+        }
+        return completed;
+    }
+
+    /**
+     * Проверяет, попадает ли время в часы пиковой нагрузки (интервал может переходить через полночь).
+     *
+     * @param time Проверяемое время
+     * @return true, если обработка в это время не выполняется
+     */
+    public boolean isPeakHours(LocalTime time) {
+        if (peakStart == null || peakStart.equals(peakEnd)) {
+            return false;
+        }
+        if (peakStart.isBefore(peakEnd)) {
+            return !time.isBefore(peakStart) && time.isBefore(peakEnd);
+        }
+        return !time.isBefore(peakStart) || time.isBefore(peakEnd);
+    }
+
+    /**
+     * Вспомогательный метод: переводит порциями заказы из одного статуса в другой.
+     * Заказ, статус которого изменился между выборкой и переводом, не изменяется (переход проверяется в UPDATE).
+     *
+     * @param from   Исходный статус
+     * @param to     Новый статус
+     * @param cutoff Граница даты оформления
+     * @return Количество переведенных заказов
+     */
+    private int sweep(Status from, Status to, LocalDateTime cutoff) {
+        int updated = 0;
+        int budget = maxOrdersPerRun;
+        long afterId = 0;
+
+        while (budget > 0) {
+            int limit = Math.min(chunkSize, budget);
+            List<Long> ids = orderRepository.findIdsByStatusBefore(EnumSet.of(from), cutoff, afterId, PageRequest.of(0, limit));
+            if (ids.isEmpty()) {
+                break;
+            }
+            BulkStatusUpdateResultDTO result = bulkStatusService.updateStatuses(ids, to);
+            updated += result.getUpdated();
+            budget -= ids.size();
+            afterId = ids.get(ids.size() - 1);
+
+            if (ids.size() < limit || !pause()) {
+                break;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Вспомогательный метод: выдерживает паузу между порциями.
+     *
+     * @return false, если обработку нужно прервать (наступили часы пиковой нагрузки или поток прерван)
+     */
+    private boolean pause() {
+        if (!chunkPause.isZero()) {
+            try {
+                Thread.sleep(chunkPause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return !isPeakHours(LocalTime.now());
+    }
+}
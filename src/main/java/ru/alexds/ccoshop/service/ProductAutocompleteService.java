@@ -0,0 +1,260 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.alexds.ccoshop.dto.SuggestionDTO;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.ProductRepository;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Автодополнение поисковой строки по префиксу без обращения к БД.
+ * Подсказки (названия продуктов и популярные характеристики) хранятся в неизменяемом префиксном дереве,
+ * каждый узел которого заранее содержит K подсказок с наибольшим весом (популярностью), поэтому ответ
+ * на нажатие клавиши - это проход по символам префикса и копирование готового списка.
+ * Подсказка находится по началу любого своего слова ("gal" находит "Смартфон Galaxy").
+ * <p>
+ * Дерево строится после старта приложения и перестраивается целиком по расписанию, если продукты изменились
+ * ({@link ProductChangedEvent}); до перестроения выдаются подсказки предыдущего дерева.
+ */
+@Slf4j
+@Service
+public class ProductAutocompleteService {
+    private static final int MAX_DEPTH = 24; // Максимальная длина индексируемого префикса
+
+    private final ProductRepository productRepository; // Репозиторий продуктов
+    private final int topK; // Количество подсказок в узле дерева
+    private final long minCharacteristicProducts; // Минимальное количество продуктов у характеристики-подсказки
+
+    private final AtomicBoolean changed = new AtomicBoolean(); // Изменились ли продукты после построения
+    private volatile Node root = Node.EMPTY; // Текущее дерево подсказок
+
+    public ProductAutocompleteService(ProductRepository productRepository,
+                                      @Value("${shop.search.autocomplete.top-k:10}") int topK,
+                                      @Value("${shop.search.autocomplete.min-characteristic-products:2}") long minCharacteristicProducts) {
+        this.productRepository = productRepository;
+        this.topK = Math.max(1, topK);
+        this.minCharacteristicProducts = Math.max(1, minCharacteristicProducts);
+    }
+
+    /**
+     * Строит дерево подсказок после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Получает подсказки для префикса.
+     *
+     * @param prefix Введенный текст
+     * @param limit  Максимальное количество подсказок (не больше K)
+     * @return Список подсказок по убыванию веса
+     */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        Node node = root;
+        int depth = Math.min(key.length(), MAX_DEPTH);
+        for (int i = 0; i < depth && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+
+        List<SuggestionDTO> result = new ArrayList<>(Math.min(limit, node.top.length));
+        for (Suggestion suggestion : node.top) {
+            if (result.size() >= limit) {
+                break;
+            }
+            // Префиксы длиннее индексируемой глубины проверяются по тексту подсказки
+            if (key.length() <= MAX_DEPTH || suggestion.matches(key)) {
+                result.add(suggestion.toDTO());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Отмечает, что дерево нужно перестроить после фиксации транзакции, изменившей продукты.
+     * Изменение остатков на подсказки не влияет и игнорируется.
+     *
+     * @param event Событие изменения продуктов
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.Type.STOCK) {
+            afterCommit(() -> changed.set(true));
+        }
+    }
+
+    /**
+     * Перестраивает дерево, если продукты изменились (по расписанию).
+     */
+    @Scheduled(fixedDelayString = "${shop.search.autocomplete.refresh-interval-ms:10000}")
+    public void refreshIfChanged() {
+        if (changed.compareAndSet(true, false)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Строит дерево подсказок заново по текущим продуктам и характеристикам.
+     *
+     * @return Количество подсказок в дереве
+     */
+    public synchronized int rebuild() {
+        long startedAt = System.nanoTime();
+        List<Suggestion> suggestions = new ArrayList<>();
+        for (Object[] row : productRepository.findNamesWithPopularity()) {
+            String name = (String) row[1];
+            if (name != null && !normalize(name).isEmpty()) {
+                suggestions.add(new Suggestion(name, normalize(name), SuggestionDTO.Type.PRODUCT, (Long) row[0], weight(row[2])));
+            }
+        }
+        for (Object[] row : productRepository.findCharacteristicsWithPopularity(minCharacteristicProducts)) {
+            String characteristic = (String) row[0];
+            if (characteristic != null && !normalize(characteristic).isEmpty()) {
+                suggestions.add(new Suggestion(characteristic, normalize(characteristic), SuggestionDTO.Type.CHARACTERISTIC, null, weight(row[2])));
+            }
+        }
+
+        Builder builder = new Builder();
+        for (Suggestion suggestion : suggestions) {
+            String text = suggestion.key();
+            for (int start = 0; start < text.length(); start++) {
+                if (start == 0 || text.charAt(start - 1) == ' ') {
+                    builder.insert(text, start, suggestion, topK);
+                }
+            }
+        }
+        root = builder.freeze();
+        log.info("Built autocomplete tree: {} suggestions ({} ms)", suggestions.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        return suggestions.size();
+    }
+
+    /**
+     * Приводит текст к виду для сравнения: нижний регистр, "ё" -> "е", разделители заменяются одним пробелом.
+     *
+     * @param text Исходный текст
+     * @return Нормализованный текст
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е').replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private static double weight(Object value) {
+        return value instanceof Number number ? number.doubleValue() : 0.0;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Подсказка: исходный текст, нормализованный текст и вес.
+     */
+    private record Suggestion(String text, String key, SuggestionDTO.Type type, Long productId, double weight) {
+        private static final Comparator<Suggestion> BY_WEIGHT =
+                Comparator.comparingDouble(Suggestion::weight).reversed().thenComparing(Suggestion::key);
+
+        private boolean matches(String prefix) {
+            return key.startsWith(prefix) || key.contains(" " + prefix);
+        }
+
+        private SuggestionDTO toDTO() {
+            return new SuggestionDTO(text, type, productId, weight);
+        }
+    }
+
+    /**
+     * Узел неизменяемого дерева: отсортированные символы переходов, дочерние узлы и лучшие подсказки поддерева.
+     */
+    private static final class Node {
+        private static final Node EMPTY = new Node(new char[0], new Node[0], new Suggestion[0]);
+
+        private final char[] keys;
+        private final Node[] children;
+        private final Suggestion[] top;
+
+        private Node(char[] keys, Node[] children, Suggestion[] top) {
+            this.keys = keys;
+            this.children = children;
+            this.top = top;
+        }
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    /**
+     * Изменяемый узел, используемый только при построении дерева.
+     */
+    private static final class Builder {
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private final List<Suggestion> top = new ArrayList<>();
+
+        private void insert(String text, int start, Suggestion suggestion, int topK) {
+            Builder node = this;
+            int end = Math.min(text.length(), start + MAX_DEPTH);
+            for (int i = start; i < end; i++) {
+                node = node.children.computeIfAbsent(text.charAt(i), key -> new Builder());
+                node.offer(suggestion, topK);
+            }
+        }
+
+        // Одна подсказка может попасть в узел несколько раз (с начала разных слов)
+        private void offer(Suggestion suggestion, int topK) {
+            if (top.contains(suggestion)) {
+                return;
+            }
+            if (top.size() == topK && Suggestion.BY_WEIGHT.compare(suggestion, top.get(topK - 1)) >= 0) {
+                return;
+            }
+            int index = Collections.binarySearch(top, suggestion, Suggestion.BY_WEIGHT);
+            top.add(index < 0 ? -index - 1 : index, suggestion);
+            if (top.size() > topK) {
+                top.remove(topK);
+            }
+        }
+
+        private Node freeze() {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().freeze();
+                i++;
+            }
+            return new Node(keys, nodes, top.toArray(new Suggestion[0]));
+        }
+    }
+}
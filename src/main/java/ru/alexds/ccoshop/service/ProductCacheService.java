@@ -0,0 +1,229 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.alexds.ccoshop.dto.ProductDTO;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.ProductRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный кэш продуктов в памяти для горячих путей чтения (например, рекомендаций),
+ * где продукты запрашиваются в циклах. Промахи загружаются одним запросом на пакет идентификаторов.
+ * <p>
+ * Каждая запись хранит версию полосы (stripe) своего идентификатора на момент начала загрузки.
+ * {@link ProductChangedEvent} увеличивает версию полос измененных продуктов сразу и повторно после фиксации
+ * транзакции, поэтому запись, загруженная до фиксации изменения (в том числе параллельно с ним), больше не
+ * выдается. Изменения, сделанные другими экземплярами приложения, становятся видны по истечении времени жизни записи.
+ */
+@Slf4j
+@Service
+public class ProductCacheService {
+    private static final int VERSION_STRIPES = 1024; // Количество полос версий (степень двойки)
+
+    private final ProductRepository productRepository; // Репозиторий продуктов
+    private final ProductService productService; // Преобразование продуктов в DTO
+    private final int maxEntries; // Максимальное количество продуктов в кэше
+    private final long ttlNanos; // Время жизни записи
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>(); // Записи кэша по идентификатору продукта
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES); // Версии полос идентификаторов
+
+    private final LongAdder hits = new LongAdder(); // Попадания
+    private final LongAdder misses = new LongAdder(); // Промахи
+    private final LongAdder loads = new LongAdder(); // Запросы загрузки в БД
+    private final LongAdder invalidations = new LongAdder(); // Инвалидированные продукты
+    private final LongAdder evictions = new LongAdder(); // Вытесненные записи
+
+    public ProductCacheService(ProductRepository productRepository,
+                               ProductService productService,
+                               @Value("${shop.products.cache.max-entries:10000}") int maxEntries,
+                               @Value("${shop.products.cache.ttl:PT5M}") Duration ttl) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Получает продукт по идентификатору.
+     *
+     * @param id Идентификатор продукта
+     * @return Опциональный DTO продукта, если он найден
+     */
+    public Optional<ProductDTO> getProduct(Long id) {
+        return Optional.ofNullable(getProductsByIds(List.of(id)).get(id));
+    }
+
+    /**
+     * Получает продукты по идентификаторам. Отсутствующие в кэше продукты загружаются одним запросом.
+     *
+     * @param ids Идентификаторы продуктов
+     * @return Найденные продукты по идентификатору в порядке запроса (отсутствующие идентификаторы пропускаются)
+     */
+    public Map<Long, ProductDTO> getProductsByIds(Collection<Long> ids) {
+        Map<Long, ProductDTO> result = new LinkedHashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        long now = System.nanoTime();
+        for (Long id : ids) {
+            if (id == null || result.containsKey(id) || missing.contains(id)) {
+                continue;
+            }
+            Entry entry = entries.get(id);
+            if (entry != null && isValid(entry, id, now)) {
+                hits.increment();
+                result.put(id, copy(entry.product()));
+            } else {
+                misses.increment();
+                result.put(id, null); // Резервируем позицию, чтобы сохранить порядок запроса
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            load(missing).forEach((id, product) -> result.put(id, copy(product)));
+        }
+        result.values().removeIf(product -> product == null);
+        return result;
+    }
+
+    /**
+     * Инвалидирует измененные продукты.
+     * Версии увеличиваются сразу (чтобы текущая транзакция не читала старые данные из кэша)
+     * и повторно после фиксации (чтобы отбросить записи, загруженные до фиксации изменения).
+     *
+     * @param event Событие изменения продуктов
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        List<Long> productIds = event.getProductIds();
+        invalidate(productIds);
+        afterCommit(() -> invalidate(productIds));
+    }
+
+    /**
+     * Получает показатели работы кэша.
+     *
+     * @return Карта "показатель - значение" (размер, попадания, промахи, доля попаданий и т.д.)
+     */
+    public Map<String, Number> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+
+        Map<String, Number> statistics = new LinkedHashMap<>();
+        statistics.put("size", entries.size());
+        statistics.put("maxEntries", maxEntries);
+        statistics.put("hits", hitCount);
+        statistics.put("misses", missCount);
+        statistics.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        statistics.put("loads", loads.sum());
+        statistics.put("invalidations", invalidations.sum());
+        statistics.put("evictions", evictions.sum());
+        return statistics;
+    }
+
+    /**
+     * Вспомогательный метод: загружает продукты одним запросом и помещает их в кэш
+     * с версиями полос, снятыми до запроса.
+     */
+    private Map<Long, ProductDTO> load(Set<Long> ids) {
+        Map<Long, Long> startVersions = new LinkedHashMap<>();
+        ids.forEach(id -> startVersions.put(id, versions.get(stripe(id))));
+
+        loads.increment();
+        List<Product> products = productRepository.findAllWithCharacteristicsByIdIn(ids);
+        long loadedAt = System.nanoTime();
+
+        Map<Long, ProductDTO> loaded = new LinkedHashMap<>();
+        for (Product product : products) {
+            ProductDTO dto = productService.convertToDTO(product);
+            dto.setCharacteristic(dto.getCharacteristic() != null ? List.copyOf(dto.getCharacteristic()) : null);
+            loaded.put(product.getId(), dto);
+            evictIfFull();
+            entries.put(product.getId(), new Entry(dto, startVersions.get(product.getId()), loadedAt));
+        }
+        log.debug("Loaded {} of {} products into cache", loaded.size(), ids.size());
+        return loaded;
+    }
+
+    private boolean isValid(Entry entry, Long id, long now) {
+        return entry.version() == versions.get(stripe(id)) && now - entry.loadedAt() < ttlNanos;
+    }
+
+    private void invalidate(List<Long> productIds) {
+        for (Long id : productIds) {
+            versions.incrementAndGet(stripe(id));
+            entries.remove(id);
+            invalidations.increment();
+        }
+    }
+
+    private void evictIfFull() {
+        Iterator<Long> ids = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && ids.hasNext()) {
+            ids.next();
+            ids.remove();
+            evictions.increment();
+        }
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (VERSION_STRIPES - 1);
+    }
+
+    // DTO изменяемый, поэтому вызывающий код получает копию, а не запись кэша
+    private static ProductDTO copy(ProductDTO product) {
+        if (product == null) {
+            return null;
+        }
+        return ProductDTO.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .stockQuantity(product.getStockQuantity())
+                .imagePath(product.getImagePath())
+                .categoryId(product.getCategoryId())
+                .popularity(product.getPopularity())
+                .characteristic(product.getCharacteristic() != null ? new ArrayList<>(product.getCharacteristic()) : null)
+                .createAt(product.getCreateAt())
+                .updatedAt(product.getUpdatedAt())
+                .build();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Запись кэша: DTO продукта, версия полосы на момент начала загрузки и время загрузки.
+     */
+    private record Entry(ProductDTO product, long version, long loadedAt) {
+    }
+}
@@ -0,0 +1,443 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.alexds.ccoshop.dto.ProductDTO;
+import ru.alexds.ccoshop.dto.ProductFacetResultDTO;
+import ru.alexds.ccoshop.dto.ProductFilterDTO;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Фасетная фильтрация каталога в памяти.
+ * Каждому продукту присваивается порядковый номер; для каждой категории и характеристики хранится битовая карта
+ * номеров продуктов, а номера продуктов с ценой дополнительно упорядочены по цене. Комбинированный фильтр
+ * вычисляется пересечением битовых карт (категории объединяются, характеристики пересекаются, диапазон цен
+ * находится бинарным поиском), количества по фасетам считаются проходом по найденным продуктам.
+ * <p>
+ * Индекс строится после старта приложения и обновляется после фиксации транзакций, изменивших продукты
+ * ({@link ProductChangedEvent}); продукты массового импорта добавляются в индекс в фоне по расписанию.
+ * Номера удаленных продуктов не переиспользуются до перестроения.
+ */
+@Slf4j
+@Service
+public class ProductFacetService {
+    private static final int LOAD_CHUNK_SIZE = 500; // Количество продуктов, загружаемых одним запросом при обновлении
+
+    private final ProductRepository productRepository; // Репозиторий продуктов
+    private final ProductCacheService productCacheService; // Загрузка найденных продуктов
+    private final int maxCharacteristicFacets; // Максимальное количество характеристик в ответе
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // Защищает поля индекса ниже
+    private final Map<Long, Integer> ordinals = new HashMap<>(); // Идентификатор продукта -> порядковый номер
+    private final List<Item> items = new ArrayList<>(); // Порядковый номер -> продукт (null для удаленных)
+    private final BitSet alive = new BitSet(); // Номера существующих продуктов
+    private final Map<Long, BitSet> byCategory = new HashMap<>(); // Категория -> номера продуктов
+    private final Map<String, BitSet> byCharacteristic = new HashMap<>(); // Характеристика -> номера продуктов
+    private int[] byPrice = new int[0]; // Номера продуктов с ценой по возрастанию цены
+    private int pricedCount; // Количество заполненных элементов byPrice
+    private final Set<Long> pendingIds = new HashSet<>(); // Продукты, измененные во время построения
+    private final Set<Long> importedIds = ConcurrentHashMap.newKeySet(); // Импортированные продукты, ожидающие индексации
+    private boolean ready; // Построен ли индекс
+
+    public ProductFacetService(ProductRepository productRepository,
+                               ProductCacheService productCacheService,
+                               @Value("${shop.search.facets.max-characteristics:20}") int maxCharacteristicFacets) {
+        this.productRepository = productRepository;
+        this.productCacheService = productCacheService;
+        this.maxCharacteristicFacets = Math.max(0, maxCharacteristicFacets);
+    }
+
+    /**
+     * Строит индекс после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Строит индекс заново двумя запросами (атрибуты продуктов и их характеристики).
+     *
+     * @return Количество проиндексированных продуктов
+     */
+    public int rebuild() {
+        long startedAt = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            pendingIds.clear(); // Изменения, зафиксированные до начала построения, попадут в индекс из БД
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Long, List<String>> characteristics = new HashMap<>();
+        for (Object[] row : productRepository.findCharacteristicRows()) {
+            characteristics.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        List<Item> loaded = new ArrayList<>();
+        for (Object[] row : productRepository.findFacetRows()) {
+            Long id = (Long) row[0];
+            loaded.add(new Item(id, (Long) row[1], (BigDecimal) row[2], row[3] != null ? ((Number) row[3]).doubleValue() : 0.0,
+                    distinct(characteristics.get(id))));
+        }
+
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            items.clear();
+            alive.clear();
+            byCategory.clear();
+            byCharacteristic.clear();
+            byPrice = new int[loaded.size()];
+            pricedCount = 0;
+            loaded.forEach(this::put);
+            ready = true;
+            if (!pendingIds.isEmpty()) {
+                List<Long> productIds = new ArrayList<>(pendingIds);
+                pendingIds.clear();
+                apply(productIds, load(productIds));
+            }
+            log.info("Built product facet index: {} products, {} categories, {} characteristics ({} ms)",
+                    alive.cardinality(), byCategory.size(), byCharacteristic.size(), (System.nanoTime() - startedAt) / 1_000_000);
+            return alive.cardinality();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Фильтрует каталог и считает количества по фасетам.
+     *
+     * @param filter Условия фильтра
+     * @param page   Номер страницы (с нуля)
+     * @param size   Размер страницы
+     * @return Страница найденных продуктов и количества по фасетам
+     * @throws IllegalArgumentException если минимальная цена больше максимальной
+     */
+    public ProductFacetResultDTO filter(ProductFilterDTO filter, int page, int size) {
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+
+        List<Long> pageIds;
+        ProductFacetResultDTO.ProductFacetResultDTOBuilder result = ProductFacetResultDTO.builder().page(page).size(size);
+        lock.readLock().lock();
+        try {
+            BitSet withoutCategories = (BitSet) alive.clone();
+            if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+                withoutCategories.and(priceRange(filter.getMinPrice(), filter.getMaxPrice()));
+            }
+            if (filter.getCharacteristics() != null) {
+                for (String characteristic : filter.getCharacteristics()) {
+                    withoutCategories.and(byCharacteristic.getOrDefault(characteristic, new BitSet()));
+                }
+            }
+            BitSet matched = withoutCategories;
+            if (filter.getCategoryIds() != null && !filter.getCategoryIds().isEmpty()) {
+                BitSet categories = new BitSet();
+                filter.getCategoryIds().forEach(categoryId -> categories.or(byCategory.getOrDefault(categoryId, new BitSet())));
+                matched = (BitSet) withoutCategories.clone();
+                matched.and(categories);
+            }
+
+            result.categoryCounts(categoryCounts(withoutCategories))
+                    .characteristicCounts(characteristicCounts(matched))
+                    .total(matched.cardinality());
+            priceBounds(matched, result);
+            pageIds = page(matched, filter.getSort() != null ? filter.getSort() : ProductFilterDTO.Sort.POPULARITY, page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<Long, ProductDTO> products = productCacheService.getProductsByIds(pageIds);
+        return result.items(pageIds.stream().map(products::get).filter(Objects::nonNull).toList()).build();
+    }
+
+    /**
+     * Обновляет индекс после фиксации транзакции, изменившей продукты.
+     * Изменение остатков на фасеты не влияет и игнорируется, импортированные продукты индексируются в фоне.
+     *
+     * @param event Событие изменения продуктов
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK) {
+            return;
+        }
+        List<Long> productIds = event.getProductIds();
+        if (event.getType() == ProductChangedEvent.Type.IMPORTED) {
+            afterCommit(() -> importedIds.addAll(productIds));
+        } else {
+            afterCommit(() -> refresh(productIds));
+        }
+    }
+
+    /**
+     * Индексирует импортированные продукты (по расписанию).
+     */
+    @Scheduled(fixedDelayString = "${shop.search.index.import-refresh-interval-ms:5000}")
+    public void indexImported() {
+        if (importedIds.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>(importedIds);
+        importedIds.removeAll(productIds);
+        refresh(productIds);
+    }
+
+    /**
+     * Вспомогательный метод: переиндексирует продукты по текущему состоянию БД (удаленные продукты убираются из индекса).
+     */
+    private synchronized void refresh(List<Long> productIds) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                pendingIds.addAll(productIds); // Индекс строится - загрузим после построения
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Long, Item> loaded = load(productIds);
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                apply(productIds, loaded);
+            } else {
+                pendingIds.addAll(productIds);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<Long, Item> load(Collection<Long> productIds) {
+        Map<Long, Item> loaded = new HashMap<>();
+        List<Long> ids = new ArrayList<>(productIds);
+        for (int from = 0; from < ids.size(); from += LOAD_CHUNK_SIZE) {
+            loadChunk(new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + LOAD_CHUNK_SIZE))), loaded);
+        }
+        return loaded;
+    }
+
+    // Продукты загружаются порциями, чтобы размер списка IN не зависел от числа изменений
+    private void loadChunk(List<Long> productIds, Map<Long, Item> loaded) {
+        for (Product product : productRepository.findAllWithCharacteristicsByIdIn(productIds)) {
+            loaded.put(product.getId(), new Item(product.getId(),
+                    product.getCategory() != null ? product.getCategory().getId() : null,
+                    product.getPrice(),
+                    product.getPopularity() != null ? product.getPopularity() : 0.0,
+                    distinct(product.getCharacteristics())));
+        }
+    }
+
+    // Вызывается под блокировкой записи
+    private void apply(List<Long> productIds, Map<Long, Item> loaded) {
+        for (Long id : productIds) {
+            remove(id);
+            Item item = loaded.get(id);
+            if (item != null) {
+                put(item);
+            }
+        }
+        log.debug("Reindexed facets of products {}", productIds);
+    }
+
+    private void put(Item item) {
+        Integer existing = ordinals.get(item.id());
+        int ordinal;
+        if (existing != null) {
+            ordinal = existing;
+            items.set(ordinal, item);
+        } else {
+            ordinal = items.size();
+            ordinals.put(item.id(), ordinal);
+            items.add(item);
+        }
+        alive.set(ordinal);
+        if (item.categoryId() != null) {
+            byCategory.computeIfAbsent(item.categoryId(), id -> new BitSet()).set(ordinal);
+        }
+        for (String characteristic : item.characteristics()) {
+            byCharacteristic.computeIfAbsent(characteristic, key -> new BitSet()).set(ordinal);
+        }
+        if (item.price() != null) {
+            int position = pricePosition(item.price(), ordinal);
+            if (pricedCount == byPrice.length) {
+                byPrice = Arrays.copyOf(byPrice, Math.max(16, byPrice.length * 2));
+            }
+            System.arraycopy(byPrice, position, byPrice, position + 1, pricedCount - position);
+            byPrice[position] = ordinal;
+            pricedCount++;
+        }
+    }
+
+    private void remove(Long productId) {
+        Integer ordinal = ordinals.get(productId);
+        if (ordinal == null || !alive.get(ordinal)) {
+            return;
+        }
+        Item item = items.get(ordinal);
+        alive.clear(ordinal);
+        if (item.categoryId() != null) {
+            clear(byCategory, item.categoryId(), ordinal);
+        }
+        for (String characteristic : item.characteristics()) {
+            clear(byCharacteristic, characteristic, ordinal);
+        }
+        if (item.price() != null) {
+            int position = pricePosition(item.price(), ordinal);
+            System.arraycopy(byPrice, position + 1, byPrice, position, pricedCount - position - 1);
+            pricedCount--;
+        }
+        items.set(ordinal, null);
+    }
+
+    private static List<String> distinct(Collection<String> characteristics) {
+        return characteristics != null ? List.copyOf(new LinkedHashSet<>(characteristics)) : List.of();
+    }
+
+    private static <K> void clear(Map<K, BitSet> bitmaps, K key, int ordinal) {
+        BitSet bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.clear(ordinal);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Вспомогательный метод: позиция продукта в byPrice (порядок по цене, затем по номеру).
+     */
+    private int pricePosition(BigDecimal price, int ordinal) {
+        int low = 0;
+        int high = pricedCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int other = byPrice[middle];
+            int compare = items.get(other).price().compareTo(price);
+            if (compare < 0 || (compare == 0 && other < ordinal)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Вспомогательный метод: битовая карта продуктов с ценой в диапазоне (границы включительно, null - без границы).
+     */
+    private BitSet priceRange(BigDecimal min, BigDecimal max) {
+        int from = min != null ? pricePosition(min, -1) : 0;
+        int to = max != null ? pricePosition(max, Integer.MAX_VALUE) : pricedCount;
+        BitSet range = new BitSet();
+        for (int i = from; i < to; i++) {
+            range.set(byPrice[i]);
+        }
+        return range;
+    }
+
+    private Map<Long, Integer> categoryCounts(BitSet products) {
+        Map<Long, Integer> counts = new TreeMap<>();
+        for (int i = products.nextSetBit(0); i >= 0; i = products.nextSetBit(i + 1)) {
+            Long categoryId = items.get(i).categoryId();
+            if (categoryId != null) {
+                counts.merge(categoryId, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private Map<String, Integer> characteristicCounts(BitSet products) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = products.nextSetBit(0); i >= 0; i = products.nextSetBit(i + 1)) {
+            for (String characteristic : items.get(i).characteristics()) {
+                counts.merge(characteristic, 1, Integer::sum);
+            }
+        }
+        Map<String, Integer> top = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxCharacteristicFacets)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    private void priceBounds(BitSet products, ProductFacetResultDTO.ProductFacetResultDTOBuilder result) {
+        for (int i = 0; i < pricedCount; i++) {
+            if (products.get(byPrice[i])) {
+                result.minPrice(items.get(byPrice[i]).price());
+                break;
+            }
+        }
+        for (int i = pricedCount - 1; i >= 0; i--) {
+            if (products.get(byPrice[i])) {
+                result.maxPrice(items.get(byPrice[i]).price());
+                break;
+            }
+        }
+    }
+
+    private List<Long> page(BitSet products, ProductFilterDTO.Sort sort, int page, int size) {
+        List<Integer> ordered = new ArrayList<>(products.cardinality());
+        if (sort == ProductFilterDTO.Sort.POPULARITY) {
+            products.stream().forEach(ordered::add);
+            ordered.sort(Comparator.<Integer>comparingDouble(i -> items.get(i).popularity()).reversed()
+                    .thenComparingLong(i -> items.get(i).id()));
+        } else {
+            // Порядок по цене уже есть в byPrice; продукты без цены идут в конце
+            BitSet unpriced = (BitSet) products.clone();
+            for (int i = 0; i < pricedCount; i++) {
+                int ordinal = byPrice[sort == ProductFilterDTO.Sort.PRICE_ASC ? i : pricedCount - 1 - i];
+                if (products.get(ordinal)) {
+                    ordered.add(ordinal);
+                    unpriced.clear(ordinal);
+                }
+            }
+            unpriced.stream().forEach(ordered::add);
+        }
+
+        long from = (long) page * size;
+        if (from >= ordered.size()) {
+            return List.of();
+        }
+        return ordered.subList((int) from, (int) Math.min(ordered.size(), from + size)).stream()
+                .map(ordinal -> items.get(ordinal).id())
+                .toList();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Проиндексированный продукт: атрибуты, по которым выполняется фильтрация и сортировка.
+     */
+    private record Item(Long id, Long categoryId, BigDecimal price, double popularity, List<String> characteristics) {
+    }
+}
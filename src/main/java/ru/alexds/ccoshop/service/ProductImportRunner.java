@@ -0,0 +1,46 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.alexds.ccoshop.dto.ProductImportResultDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Импорт продуктов из файла при запуске приложения (вместо SQL-дампов в src/main/resources/data), например:
+ * {@code java -jar ccoshop.jar --shop.products.import.file=/data/products.csv}.
+ * Формат определяется по расширению: .csv - CSV, остальные - JSON (массив или NDJSON).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shop.products.import.file")
+public class ProductImportRunner implements ApplicationRunner {
+    private final ProductImportService productImportService; // Сервис массового импорта продуктов
+
+    @Value("${shop.products.import.file}")
+    private Path file; // Файл импорта
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        log.info("Importing products from {}", file);
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            ProductImportResultDTO result = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")
+                    ? productImportService.importCsv(reader)
+                    : productImportService.importJson(reader);
+            result.getErrors().forEach(error -> log.warn("Rejected product row: {}", error));
+            log.info("Product import from {} finished: {} imported, {} rejected, {} rows/s",
+                    file, result.getImported(), result.getRejected(), result.getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package ru.alexds.ccoshop.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.alexds.ccoshop.dto.ProductDTO;
+import ru.alexds.ccoshop.dto.ProductImportResultDTO;
+import ru.alexds.ccoshop.entity.Category;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.CategoryRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Сервис массового импорта продуктов из CSV или JSON.
+ * Входные данные читаются потоком, категории определяются по заранее загруженному справочнику (без запроса на строку),
+ * а продукты и их характеристики вставляются пакетами JDBC по {@code chunkSize} строк, каждая порция в собственной
+ * транзакции. Строки с ошибками пропускаются и попадают в отчет, уже загруженные порции при этом не откатываются;
+ * порция, отклоненная БД (например, из-за ограничения колонки), повторяется построчно.
+ * После импорта публикуется одно событие {@link ProductChangedEvent.Type#IMPORTED} со всеми созданными продуктами:
+ * индексы поиска и фасетов загружают их в фоне, а не перечитывают каждую порцию в потоке импорта.
+ * <p>
+ * Формат CSV: первая строка - заголовок; обязательные колонки name, price и category (идентификатор или название
+ * категории), необязательные - description, stock_quantity, popularity, image_path и characteristics
+ * (характеристики через ";"). Формат JSON: массив или последовательность (NDJSON) объектов в формате
+ * {@link ProductDTO}, как в запросе создания продукта.
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+    private static final String PRODUCT_INSERT_SQL =
+            "INSERT INTO products (name, description, price, stock_quantity, popularity, category_id, image_path, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String CHARACTERISTIC_INSERT_SQL =
+            "INSERT INTO product_characteristics (product_id, characteristic) VALUES (?, ?)";
+    private static final int MAX_REPORTED_ERRORS = 100; // Максимальное количество ошибок в отчете
+
+    private final JdbcTemplate jdbcTemplate; // JDBC-шаблон для пакетных вставок
+    private final CategoryRepository categoryRepository; // Репозиторий категорий (справочник для импорта)
+    private final TransactionTemplate transactionTemplate; // Отдельная транзакция на каждую порцию
+    private final ApplicationEventPublisher eventPublisher; // Публикация событий изменения продуктов
+    private final ObjectMapper objectMapper; // Разбор JSON
+    private final int chunkSize; // Размер порции вставки
+
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                CategoryRepository categoryRepository,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectMapper objectMapper,
+                                @Value("${shop.products.import.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.categoryRepository = categoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Импортирует продукты из CSV.
+     *
+     * @param reader Поток CSV с заголовком
+     * @return Итог импорта
+     * @throws IllegalArgumentException если отсутствует заголовок или обязательные колонки
+     */
+    public ProductImportResultDTO importCsv(Reader reader) {
+        log.debug("Request to import products from CSV");
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("name", "price", "category")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV column is missing: " + required);
+            }
+        }
+
+        Importer importer = new Importer();
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue; // Пустая строка
+            }
+            String location = "line " + csv.getRecordLine();
+            try {
+                importer.accept(location, toRow(record, columns, importer.categories));
+            } catch (IllegalArgumentException e) {
+                importer.reject(location, e.getMessage());
+            }
+        }
+        return importer.finish();
+    }
+
+    /**
+     * Импортирует продукты из JSON: массива объектов или последовательности объектов (NDJSON).
+     *
+     * @param reader Поток JSON
+     * @return Итог импорта
+     * @throws IllegalArgumentException если JSON некорректен (строки, прочитанные до ошибки, сохраняются)
+     */
+    public ProductImportResultDTO importJson(Reader reader) {
+        log.debug("Request to import products from JSON");
+        Importer importer = new Importer();
+        long record = 0;
+        try (MappingIterator<ProductDTO> rows = objectMapper.readerFor(ProductDTO.class).readValues(reader)) {
+            while (rows.hasNextValue()) {
+                ProductDTO product = rows.nextValue();
+                record++;
+                try {
+                    importer.accept("record " + record, toRow(product, importer.categories));
+                } catch (IllegalArgumentException e) {
+                    importer.reject("record " + record, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            importer.finish();
+            throw new IllegalArgumentException("Malformed JSON after record " + record + ": " + e.getMessage(), e);
+        }
+        return importer.finish();
+    }
+
+    /**
+     * Вспомогательный метод: загружает справочник категорий (идентификаторы и названия в нижнем регистре).
+     */
+    private CategoryIndex loadCategories() {
+        Map<Long, Long> byId = new HashMap<>();
+        Map<String, Long> byName = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            byId.put(category.getId(), category.getId());
+            if (category.getName() != null) {
+                byName.putIfAbsent(category.getName().trim().toLowerCase(Locale.ROOT), category.getId());
+            }
+        }
+        return new CategoryIndex(byId, byName);
+    }
+
+    private static ImportRow toRow(List<String> record, Map<String, Integer> columns, CategoryIndex categories) {
+        String category = column(record, columns, "category");
+        Long categoryId = categories.resolve(category);
+        if (categoryId == null) {
+            throw new IllegalArgumentException("unknown category: " + category);
+        }
+        String stock = column(record, columns, "stock_quantity");
+        String popularity = column(record, columns, "popularity");
+        String characteristics = column(record, columns, "characteristics");
+
+        List<String> values = new ArrayList<>();
+        if (characteristics != null) {
+            for (String value : characteristics.split(";")) {
+                if (!value.isBlank()) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return validate(column(record, columns, "name"), column(record, columns, "description"),
+                parse(column(record, columns, "price"), "price", BigDecimal::new),
+                stock != null ? parse(stock, "stock_quantity", Integer::valueOf) : null,
+                popularity != null ? parse(popularity, "popularity", Double::valueOf) : null,
+                categoryId, column(record, columns, "image_path"), values);
+    }
+
+    private static ImportRow toRow(ProductDTO product, CategoryIndex categories) {
+        if (product.getCategoryId() == null || !categories.byId().containsKey(product.getCategoryId())) {
+            throw new IllegalArgumentException("unknown category: " + product.getCategoryId());
+        }
+        List<String> values = new ArrayList<>();
+        if (product.getCharacteristic() != null) {
+            for (String value : product.getCharacteristic()) {
+                if (value != null && !value.isBlank()) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return validate(product.getName(), product.getDescription(), product.getPrice(), product.getStockQuantity(),
+                product.getPopularity(), product.getCategoryId(), product.getImagePath(), values);
+    }
+
+    private static ImportRow validate(String name, String description, BigDecimal price, Integer stockQuantity,
+                                      Double popularity, Long categoryId, String imagePath, List<String> characteristics) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (description == null || description.isBlank()) {
+            throw new IllegalArgumentException("description is required");
+        }
+        if (price == null || price.signum() < 0) {
+            throw new IllegalArgumentException("price must be a non-negative number");
+        }
+        if (stockQuantity != null && stockQuantity < 0) {
+            throw new IllegalArgumentException("stock_quantity must not be negative");
+        }
+        return new ImportRow(name.trim(), description, price, stockQuantity != null ? stockQuantity : 0,
+                popularity != null ? popularity : 0.0, categoryId, imagePath, characteristics);
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size() || record.get(index).isBlank()) {
+            return null;
+        }
+        return record.get(index).trim();
+    }
+
+    private static <T> T parse(String value, String column, Function<String, T> parser) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + column + ": " + value);
+        }
+    }
+
+    /**
+     * Вспомогательный метод: вставляет порцию продуктов и их характеристики пакетами в одной транзакции.
+     *
+     * @return Идентификаторы вставленных продуктов
+     */
+    private List<Long> insertChunk(List<ImportRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(PRODUCT_INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ImportRow row = rows.get(i);
+                        ps.setString(1, row.name());
+                        ps.setString(2, row.description());
+                        ps.setBigDecimal(3, row.price());
+                        ps.setInt(4, row.stockQuantity());
+                        ps.setDouble(5, row.popularity());
+                        ps.setLong(6, row.categoryId());
+                        ps.setString(7, row.imagePath());
+                        ps.setTimestamp(8, now);
+                        ps.setTimestamp(9, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<Long> ids = new ArrayList<>(rows.size());
+        List<Object[]> characteristics = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            long id = ((Number) keys.get(i).values().iterator().next()).longValue();
+            ids.add(id);
+            for (String characteristic : rows.get(i).characteristics()) {
+                characteristics.add(new Object[]{id, characteristic});
+            }
+        }
+        if (!characteristics.isEmpty()) {
+            jdbcTemplate.batchUpdate(CHARACTERISTIC_INSERT_SQL, characteristics);
+        }
+        return ids;
+    }
+
+    /**
+     * Состояние одного импорта: справочник категорий, текущая порция и счетчики.
+     */
+    private final class Importer {
+        private final CategoryIndex categories = loadCategories();
+        private final List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        private final List<String> locations = new ArrayList<>(chunkSize); // Строки или записи источника для строк порции
+        private final List<String> errors = new ArrayList<>();
+        private final List<Long> importedIds = new ArrayList<>(); // Идентификаторы созданных продуктов
+        private final long startedAt = System.nanoTime();
+        private long imported;
+        private long rejected;
+
+        private void accept(String location, ImportRow row) {
+            chunk.add(row);
+            locations.add(location);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void reject(String location, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(location + ": " + message);
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<ImportRow> rows = List.copyOf(chunk);
+            List<String> rowLocations = List.copyOf(locations);
+            chunk.clear();
+            locations.clear();
+            try {
+                importedIds.addAll(transactionTemplate.execute(tx -> insertChunk(rows)));
+                imported += rows.size();
+            } catch (DataAccessException e) {
+                // Порция отклонена БД (например, слишком длинное значение) - вставляем построчно, чтобы найти ошибочные строки
+                log.debug("Chunk insert failed, retrying row by row: {}", e.getMostSpecificCause().getMessage());
+                for (int i = 0; i < rows.size(); i++) {
+                    List<ImportRow> single = List.of(rows.get(i));
+                    try {
+                        importedIds.addAll(transactionTemplate.execute(tx -> insertChunk(single)));
+                        imported++;
+                    } catch (DataAccessException rowError) {
+                        reject(rowLocations.get(i), rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+
+        private ProductImportResultDTO finish() {
+            flush();
+            if (!importedIds.isEmpty()) {
+                eventPublisher.publishEvent(ProductChangedEvent.of(importedIds, ProductChangedEvent.Type.IMPORTED));
+                importedIds.clear(); // finish() может быть вызван повторно при ошибке разбора JSON
+            }
+            long elapsedMs = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+            long rowsPerSecond = imported * 1000 / elapsedMs;
+            log.info("Imported {} products ({} rejected) in {} ms, {} rows/s", imported, rejected, elapsedMs, rowsPerSecond);
+            return new ProductImportResultDTO(imported, rejected, elapsedMs, rowsPerSecond, List.copyOf(errors));
+        }
+    }
+
+    /**
+     * Проверенная строка импорта.
+     */
+    private record ImportRow(String name, String description, BigDecimal price, int stockQuantity, double popularity,
+                             long categoryId, String imagePath, List<String> characteristics) {
+    }
+
+    /**
+     * Справочник категорий: по идентификатору и по названию (в нижнем регистре).
+     */
+    private record CategoryIndex(Map<Long, Long> byId, Map<String, Long> byName) {
+        private Long resolve(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                Long id = byId.get(Long.valueOf(value));
+                if (id != null) {
+                    return id;
+                }
+            } catch (NumberFormatException e) {
+                // Не идентификатор - ищем по названию
+            }
+            return byName.get(value.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Потоковый разбор CSV (RFC 4180): поля в кавычках могут содержать запятые, кавычки ("") и переводы строк.
+     */
+    private static final class CsvReader {
+        private final BufferedReader reader;
+        private long line = 1; // Номер текущей строки входного потока
+        private long recordLine; // Номер строки, с которой начинается последняя прочитанная запись
+
+        private CsvReader(Reader reader) {
+            this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 64 * 1024);
+        }
+
+        private long getRecordLine() {
+            return recordLine;
+        }
+
+        /**
+         * Читает следующую запись.
+         *
+         * @return Поля записи или null в конце потока
+         */
+        private List<String> next() {
+            try {
+                int c = reader.read();
+                if (c < 0) {
+                    return null;
+                }
+                recordLine = line;
+                List<String> fields = new ArrayList<>();
+                StringBuilder field = new StringBuilder();
+                boolean quoted = false;
+                while (c >= 0) {
+                    if (quoted) {
+                        if (c == '"') {
+                            reader.mark(1);
+                            int following = reader.read();
+                            if (following == '"') {
+                                field.append('"');
+                            } else {
+                                quoted = false;
+                                reader.reset();
+                            }
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            field.append((char) c);
+                        }
+                    } else if (c == '"' && field.isEmpty()) {
+                        quoted = true;
+                    } else if (c == ',') {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    } else if (c == '\n' || c == '\r') {
+                        if (c == '\r') {
+                            reader.mark(1);
+                            if (reader.read() != '\n') {
+                                reader.reset();
+                            }
+                        }
+                        line++;
+                        break;
+                    } else {
+                        field.append((char) c);
+                    }
+                    c = reader.read();
+                }
+                fields.add(field.toString());
+                return fields;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
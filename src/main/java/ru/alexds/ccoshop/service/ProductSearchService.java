@@ -0,0 +1,456 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.alexds.ccoshop.dto.ProductDTO;
+import ru.alexds.ccoshop.dto.ProductSearchResultDTO;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.ProductRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Полнотекстовый поиск продуктов по инвертированному индексу в памяти.
+ * Индексируются название, характеристики и описание: текст разбивается на слова в нижнем регистре,
+ * для каждого слова дополнительно индексируются триграммы, по которым находятся частичные совпадения
+ * (например, "фон" в "смартфон"). Все слова запроса должны встретиться в продукте; результаты
+ * ранжируются по весу поля (название важнее характеристик, характеристики важнее описания) и редкости слова,
+ * при равенстве - по популярности.
+ * <p>
+ * Индекс строится после старта приложения параллельно порциями и обновляется после фиксации транзакций,
+ * изменивших продукты ({@link ProductChangedEvent}). Продукты массового импорта добавляются в индекс в фоне
+ * по расписанию. Пока индекс строится, поиск выполняется запросом к БД.
+ * Изменения, сделанные другими экземплярами приложения, в индекс не попадают до перестроения.
+ */
+@Slf4j
+@Service
+public class ProductSearchService {
+    private static final float NAME_WEIGHT = 3.0f; // Вес совпадения в названии
+    private static final float CHARACTERISTIC_WEIGHT = 2.0f; // Вес совпадения в характеристиках
+    private static final float DESCRIPTION_WEIGHT = 1.0f; // Вес совпадения в описании
+    private static final double PARTIAL_MATCH_FACTOR = 0.5; // Множитель веса частичного совпадения
+    private static final int GRAM_SIZE = 3; // Длина n-граммы для частичных совпадений
+
+    private final ProductRepository productRepository; // Репозиторий продуктов
+    private final ProductService productService; // Поиск в БД, пока индекс не построен
+    private final ProductCacheService productCacheService; // Загрузка найденных продуктов
+    private final int buildThreads; // Количество потоков построения индекса
+    private final int buildChunkSize; // Количество продуктов в порции построения
+
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>(); // Проиндексированные продукты
+    private final Map<String, Set<Long>> terms = new ConcurrentHashMap<>(); // Слово -> продукты
+    private final Map<String, Set<Long>> grams = new ConcurrentHashMap<>(); // Триграмма -> продукты
+    private final Set<Long> pendingIds = new HashSet<>(); // Продукты, измененные во время построения (под блокировкой)
+    private final Set<Long> importedIds = ConcurrentHashMap.newKeySet(); // Импортированные продукты, ожидающие индексации
+    private volatile boolean ready; // Построен ли индекс
+
+    public ProductSearchService(ProductRepository productRepository,
+                                ProductService productService,
+                                ProductCacheService productCacheService,
+                                @Value("${shop.search.index.build-threads:4}") int buildThreads,
+                                @Value("${shop.search.index.build-chunk-size:500}") int buildChunkSize) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.productCacheService = productCacheService;
+        this.buildThreads = Math.max(1, buildThreads);
+        this.buildChunkSize = Math.max(1, buildChunkSize);
+    }
+
+    /**
+     * Строит индекс после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Строит индекс заново: идентификаторы продуктов делятся на порции, которые загружаются
+     * и разбираются на слова параллельно. Продукты, измененные во время построения, переиндексируются в конце.
+     *
+     * @return Количество проиндексированных продуктов
+     */
+    public int rebuild() {
+        long startedAt = System.nanoTime();
+        synchronized (this) {
+            ready = false;
+            pendingIds.clear(); // Изменения, зафиксированные до начала построения, попадут в индекс из БД
+            documents.clear();
+            terms.clear();
+            grams.clear();
+        }
+
+        List<Long> ids = productRepository.findAllIds();
+        ExecutorService executor = Executors.newFixedThreadPool(buildThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += buildChunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + buildChunkSize));
+                futures.add(executor.submit(() -> productRepository.findAllWithCharacteristicsByIdIn(chunk).forEach(this::add)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Product search index build was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Product search index build failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        synchronized (this) {
+            ready = true;
+            refreshPending();
+        }
+        log.info("Built product search index: {} products, {} terms, {} grams ({} ms)",
+                documents.size(), terms.size(), grams.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        return documents.size();
+    }
+
+    /**
+     * Ищет продукты по словам запроса.
+     *
+     * @param query Поисковый запрос
+     * @param page  Номер страницы (с нуля)
+     * @param size  Размер страницы
+     * @return Страница найденных продуктов по убыванию релевантности и общее количество найденных
+     */
+    public ProductSearchResultDTO search(String query, int page, int size) {
+        if (!ready) {
+            List<ProductDTO> found = productService.searchProductsByName(query);
+            return new ProductSearchResultDTO(query, page, size, found.size(), slice(found, page, size));
+        }
+
+        List<Long> ranked = rank(query);
+        List<Long> pageIds = slice(ranked, page, size);
+        Map<Long, ProductDTO> products = productCacheService.getProductsByIds(pageIds);
+        List<ProductDTO> items = pageIds.stream().map(products::get).filter(Objects::nonNull).toList();
+        return new ProductSearchResultDTO(query, page, size, ranked.size(), items);
+    }
+
+    /**
+     * Ранжирует продукты по запросу без загрузки данных продуктов.
+     *
+     * @param query Поисковый запрос
+     * @return Идентификаторы найденных продуктов по убыванию релевантности
+     */
+    public List<Long> rank(String query) {
+        List<String> queryTerms = tokenize(query).stream().distinct().toList();
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Double> scores = null;
+        for (String term : queryTerms) {
+            Map<Long, Double> termScores = score(term);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                // Все слова запроса должны встретиться в продукте
+                Map<Long, Double> merged = new HashMap<>();
+                Map<Long, Double> smaller = scores.size() <= termScores.size() ? scores : termScores;
+                Map<Long, Double> larger = smaller == scores ? termScores : scores;
+                smaller.forEach((id, score) -> {
+                    Double other = larger.get(id);
+                    if (other != null) {
+                        merged.put(id, score + other);
+                    }
+                });
+                scores = merged;
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        Map<Long, Double> result = scores;
+        return result.keySet().stream()
+                .sorted(Comparator.<Long>comparingDouble(result::get).reversed()
+                        .thenComparing(Comparator.comparingDouble(this::popularity).reversed())
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+    }
+
+    /**
+     * Обновляет индекс после фиксации транзакции, изменившей продукты.
+     * Изменение остатков на поиск не влияет и игнорируется, импортированные продукты индексируются в фоне.
+     *
+     * @param event Событие изменения продуктов
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK) {
+            return;
+        }
+        List<Long> productIds = event.getProductIds();
+        if (event.getType() == ProductChangedEvent.Type.IMPORTED) {
+            afterCommit(() -> importedIds.addAll(productIds));
+        } else {
+            afterCommit(() -> apply(productIds));
+        }
+    }
+
+    /**
+     * Индексирует импортированные продукты (по расписанию).
+     */
+    @Scheduled(fixedDelayString = "${shop.search.index.import-refresh-interval-ms:5000}")
+    public void indexImported() {
+        if (importedIds.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>(importedIds);
+        importedIds.removeAll(productIds);
+        apply(productIds);
+    }
+
+    /**
+     * Проверяет, построен ли индекс.
+     *
+     * @return true, если поиск выполняется по индексу
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Получает количество проиндексированных продуктов.
+     *
+     * @return Количество продуктов в индексе
+     */
+    public int getIndexedProductCount() {
+        return documents.size();
+    }
+
+    /**
+     * Вспомогательный метод: переиндексирует продукты сразу или, если индекс строится, после построения.
+     */
+    private synchronized void apply(List<Long> productIds) {
+        if (ready) {
+            refresh(productIds);
+        } else {
+            pendingIds.addAll(productIds);
+        }
+    }
+
+    /**
+     * Вспомогательный метод: переиндексирует продукты по текущему состоянию БД (удаленные продукты убираются из индекса).
+     * Продукты загружаются порциями по {@code buildChunkSize}, чтобы размер списка IN не зависел от числа изменений.
+     */
+    private synchronized void refresh(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        for (int from = 0; from < ids.size(); from += buildChunkSize) {
+            List<Long> chunk = new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + buildChunkSize)));
+            Map<Long, Product> products = new HashMap<>();
+            productRepository.findAllWithCharacteristicsByIdIn(chunk).forEach(product -> products.put(product.getId(), product));
+            for (Long id : chunk) {
+                remove(id);
+                Product product = products.get(id);
+                if (product != null) {
+                    add(product);
+                }
+            }
+        }
+        log.debug("Reindexed {} products", ids.size());
+    }
+
+    private void refreshPending() {
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>(pendingIds);
+        pendingIds.clear();
+        refresh(productIds);
+    }
+
+    private void add(Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        addTerms(weights, product.getName(), NAME_WEIGHT);
+        if (product.getCharacteristics() != null) {
+            product.getCharacteristics().forEach(characteristic -> addTerms(weights, characteristic, CHARACTERISTIC_WEIGHT));
+        }
+        addTerms(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        Document document = new Document(Map.copyOf(weights),
+                product.getPopularity() != null ? product.getPopularity() : 0.0);
+        documents.put(product.getId(), document);
+        for (String term : weights.keySet()) {
+            terms.computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(product.getId());
+            for (String gram : grams(term)) {
+                grams.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(product.getId());
+            }
+        }
+    }
+
+    private void remove(Long productId) {
+        Document document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.weights().keySet()) {
+            removePosting(terms, term, productId);
+            for (String gram : grams(term)) {
+                removePosting(grams, gram, productId);
+            }
+        }
+    }
+
+    private static void removePosting(Map<String, Set<Long>> postings, String key, Long productId) {
+        postings.computeIfPresent(key, (k, ids) -> {
+            ids.remove(productId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Вспомогательный метод: оценки продуктов по одному слову запроса.
+     * Точное совпадение слова оценивается по весу поля, частичное (запрос является частью слова продукта) -
+     * с понижающим множителем; в обоих случаях вес умножается на редкость совпадения (IDF).
+     */
+    private Map<Long, Double> score(String term) {
+        Map<Long, Double> scores = new HashMap<>();
+        int total = Math.max(1, documents.size());
+
+        Set<Long> exact = terms.getOrDefault(term, Set.of());
+        double exactIdf = idf(total, exact.size());
+        for (Long id : exact) {
+            Document document = documents.get(id);
+            Float weight = document != null ? document.weights().get(term) : null;
+            if (weight != null) {
+                scores.put(id, weight * exactIdf);
+            }
+        }
+
+        List<Long> partial = new ArrayList<>();
+        for (Long id : candidates(term)) {
+            if (!scores.containsKey(id)) {
+                partial.add(id);
+            }
+        }
+        double partialIdf = idf(total, exact.size() + partial.size());
+        for (Long id : partial) {
+            Document document = documents.get(id);
+            if (document == null) {
+                continue;
+            }
+            float weight = 0;
+            for (Map.Entry<String, Float> entry : document.weights().entrySet()) {
+                if (entry.getValue() > weight && entry.getKey().contains(term)) {
+                    weight = entry.getValue();
+                }
+            }
+            if (weight > 0) {
+                scores.put(id, weight * partialIdf * PARTIAL_MATCH_FACTOR);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Вспомогательный метод: продукты, содержащие все триграммы слова (кандидаты на частичное совпадение).
+     */
+    private Set<Long> candidates(String term) {
+        if (term.length() < GRAM_SIZE) {
+            return Set.of();
+        }
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String gram : grams(term)) {
+            Set<Long> ids = grams.get(gram);
+            if (ids == null) {
+                return Set.of();
+            }
+            postings.add(ids);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(postings.get(0));
+        for (int i = 1; i < postings.size() && !result.isEmpty(); i++) {
+            result.retainAll(postings.get(i));
+        }
+        return result;
+    }
+
+    private double popularity(Long productId) {
+        Document document = documents.get(productId);
+        return document != null ? document.popularity() : 0.0;
+    }
+
+    private static double idf(int total, int matches) {
+        return Math.log(1.0 + (double) total / Math.max(1, matches));
+    }
+
+    private static void addTerms(Map<String, Float> weights, String text, float weight) {
+        for (String term : tokenize(text)) {
+            weights.merge(term, weight, Math::max);
+        }
+    }
+
+    /**
+     * Разбивает текст на слова в нижнем регистре (буква "ё" приводится к "е").
+     *
+     * @param text Текст
+     * @return Список слов в порядке следования
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).replace('ё', 'е').split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> grams(String term) {
+        if (term.length() < GRAM_SIZE) {
+            return Set.of();
+        }
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= term.length(); i++) {
+            result.add(term.substring(i, i + GRAM_SIZE));
+        }
+        return result;
+    }
+
+    private static <T> List<T> slice(List<T> items, int page, int size) {
+        long from = (long) page * size;
+        if (from >= items.size()) {
+            return List.of();
+        }
+        return items.subList((int) from, (int) Math.min(items.size(), from + size));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Проиндексированный продукт: слова с наибольшим весом поля, в котором они встретились, и популярность.
+     */
+    private record Document(Map<String, Float> weights, double popularity) {
+    }
+}
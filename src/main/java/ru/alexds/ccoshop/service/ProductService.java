@@ -106,7 +106,7 @@
 //                .price(product.getPrice())
 //                .stockQuantity(product.getStockQuantity())
 //                .imagePath(product.getImagePath())
-//                .categoryId(product.getCategory().getId())
+//                .categoryId(product.getCategory() != null ? product.getCategory().getId() : null)
 //                .popularity(product.getPopularity())
 //                .createAt(product.getCreatedAt())
 //                .updatedAt(product.getUpdatedAt())
@@ -202,19 +202,35 @@ import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.alexds.ccoshop.dto.CursorPageDTO;
 import ru.alexds.ccoshop.dto.ProductDTO;
 import ru.alexds.ccoshop.entity.Category;
 import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
 import ru.alexds.ccoshop.repository.CategoryRepository;
 import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.utilites.KeysetCursor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -230,8 +246,13 @@ import java.util.stream.Collectors;
 public class ProductService {
     private final ProductRepository productRepository; // Репозиторий для работы с продуктами
     private final CategoryRepository categoryRepository; // Репозиторий для работы с категориями
+    private final ApplicationEventPublisher eventPublisher; // Публикация событий изменения продуктов
 
     private static final int POPULAR_PRODUCTS_LIMIT = 5; // Лимит для популярных продуктов
+    private static final long CATALOGUE_ETAG_TTL_NANOS = TimeUnit.SECONDS.toNanos(5); // Время жизни ETag каталога в памяти
+
+    private final AtomicLong catalogueGeneration = new AtomicLong(); // Увеличивается при каждом изменении продуктов
+    private volatile CatalogueETag catalogueETag; // Последний вычисленный ETag каталога
 
     /**
      * Получает все продукты.
@@ -245,6 +266,93 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Получает страницу каталога (по возрастанию идентификатора) с курсорной пагинацией.
+     * Страница читается проекцией без загрузки сущностей, характеристики всей страницы - одним запросом.
+     *
+     * @param cursor Курсор из предыдущей страницы (null для первой страницы)
+     * @param size   Размер страницы
+     * @return Страница продуктов и курсор следующей страницы
+     * @throws IllegalArgumentException если курсор некорректен
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> getProductsPage(String cursor, int size) {
+        log.debug("Request to get products page after cursor: {}", cursor);
+
+        Pageable limit = PageRequest.of(0, size + 1); // Лишняя строка показывает, есть ли следующая страница
+        List<ProductDTO> products;
+        if (cursor == null || cursor.isBlank()) {
+            products = productRepository.findProductViewsFirst(limit);
+        } else {
+            products = productRepository.findProductViewsAfter(KeysetCursor.decode(cursor).getId(), limit);
+        }
+
+        String nextCursor = null;
+        if (products.size() > size) {
+            products = new ArrayList<>(products.subList(0, size));
+            nextCursor = KeysetCursor.ofId(products.get(size - 1).getId()).encode();
+        }
+        attachCharacteristics(products);
+        return new CursorPageDTO<>(products, nextCursor);
+    }
+
+    /**
+     * Вычисляет ETag каталога по моменту последнего изменения продуктов и их количеству.
+     * Значение меняется при любом изменении, добавлении или удалении продукта (включая изменение остатков),
+     * поэтому неизменившиеся страницы можно отдавать ответом 304 без чтения и сериализации.
+     * Вычисленное значение хранится в памяти до изменения продуктов этим экземпляром ({@link ProductChangedEvent})
+     * и не дольше нескольких секунд, чтобы учесть изменения других экземпляров: запрос версии
+     * (полный проход по таблице) не выполняется на каждый запрос каталога.
+     *
+     * @return Значение ETag в кавычках
+     */
+    @Transactional(readOnly = true)
+    public String getCatalogueETag() {
+        long generation = catalogueGeneration.get();
+        CatalogueETag cached = catalogueETag;
+        if (cached != null && cached.generation() == generation && System.nanoTime() - cached.loadedAt() < CATALOGUE_ETAG_TTL_NANOS) {
+            return cached.value();
+        }
+
+        Object[] version = productRepository.findCatalogueVersion().get(0);
+        LocalDateTime updatedAt = (LocalDateTime) version[0];
+        long count = ((Number) version[1]).longValue();
+        long stamp = updatedAt != null ? updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + updatedAt.getNano() : 0;
+        String eTag = "\"" + Long.toHexString(stamp) + "-" + Long.toHexString(count) + "\"";
+        catalogueETag = new CatalogueETag(eTag, generation, System.nanoTime());
+        return eTag;
+    }
+
+    /**
+     * Сбрасывает ETag каталога при изменении продуктов.
+     * Поколение увеличивается сразу и повторно после фиксации, чтобы отбросить значение, вычисленное до фиксации изменения.
+     *
+     * @param event Событие изменения продуктов
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        catalogueGeneration.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    catalogueGeneration.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    private void attachCharacteristics(List<ProductDTO> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        Map<Long, ProductDTO> byId = products.stream()
+                .collect(Collectors.toMap(ProductDTO::getId, product -> product));
+        for (Object[] row : productRepository.findCharacteristicRowsByProductIdIn(byId.keySet())) {
+            byId.get((Long) row[0]).getCharacteristic().add((String) row[1]);
+        }
+    }
+
     /**
      * Получает продукт по его идентификатору.
      *
@@ -268,6 +376,18 @@ public class ProductService {
         return productRepository.findById(id);
     }
 
+    /**
+     * Получает сущности продуктов по идентификаторам одним запросом.
+     *
+     * @param ids Идентификаторы продуктов
+     * @return Найденные продукты по идентификатору (отсутствующие идентификаторы пропускаются)
+     */
+    public Map<Long, Product> getProductEntitiesByIds(Collection<Long> ids) {
+        log.debug("Request to get {} product entities", ids.size());
+        return productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
     /**
      * Создает новый продукт.
      *
@@ -297,6 +417,7 @@ public class ProductService {
         // Сохраняем продукт в базе данных
         Product savedProduct = productRepository.save(product);
         log.info("Successfully created product with ID: {}", savedProduct.getId());
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct.getId(), ProductChangedEvent.Type.CREATED));
 
         // Возвращаем DTO нового продукта
         return convertToDTO(savedProduct);
@@ -346,6 +467,7 @@ public class ProductService {
 
         Product updatedProduct = productRepository.save(product); // Сохраняем обновленный продукт в базе данных
         log.info("Successfully updated product with ID: {}", id);
+        eventPublisher.publishEvent(ProductChangedEvent.of(id, ProductChangedEvent.Type.UPDATED));
         return convertToDTO(updatedProduct); // Преобразуем обновленный продукт в DTO и возвращаем
     }
 
@@ -365,7 +487,7 @@ public class ProductService {
                 .price(product.getPrice())
                 .stockQuantity(product.getStockQuantity())
                 .imagePath(product.getImagePath())
-                .categoryId(product.getCategory().getId())
+                .categoryId(product.getCategory() != null ? product.getCategory().getId() : null)
                 .popularity(product.getPopularity())
                 .characteristic(product.getCharacteristics())
                 .createAt(product.getCreatedAt())
@@ -421,9 +543,11 @@ public class ProductService {
         }
 
         minPrice = minPrice != null ? minPrice : BigDecimal.ZERO; // Устанавливаем минимальную цену, если она не указана
-        maxPrice = maxPrice != null ? maxPrice : BigDecimal.valueOf(Double.MAX_VALUE); // Устанавливаем максимальную цену, если она не указана
+        List<Product> products = maxPrice != null
+                ? productRepository.findByPriceBetweenOrderByPriceAsc(minPrice, maxPrice)
+                : productRepository.findByPriceGreaterThanEqualOrderByPriceAsc(minPrice); // Верхняя граница не указана
 
-        return productRepository.findByPriceBetweenOrderByPriceAsc(minPrice, maxPrice).stream()
+        return products.stream()
                 .map(this::convertToDTO) // Преобразуем каждый продукт в DTO
                 .collect(Collectors.toList());
     }
@@ -486,6 +610,7 @@ public class ProductService {
 
         productRepository.delete(product); // Удаляем продукт из базы данных
         log.info("Successfully deleted product with ID: {}", id);
+        eventPublisher.publishEvent(ProductChangedEvent.of(id, ProductChangedEvent.Type.DELETED));
     }
 
     /**
@@ -517,4 +642,10 @@ public class ProductService {
             super(message);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * ETag каталога, поколение изменений на момент начала вычисления и время вычисления.
+     */
+    private record CatalogueETag(String value, long generation, long loadedAt) {
+    }
+}
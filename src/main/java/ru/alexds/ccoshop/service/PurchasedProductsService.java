@@ -0,0 +1,222 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.ArchivedOrderRepository;
+import ru.alexds.ccoshop.repository.OrderItemRepository;
+import ru.alexds.ccoshop.repository.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+/**
+ * Сервис купленных пользователем продуктов (продукты из выполненных заказов, включая архивные).
+ * Для каждого пользователя в памяти хранится отсортированный массив идентификаторов купленных продуктов: он строится
+ * при первом обращении двумя запросами и дополняется при переходе заказов в статус COMPLETED после фиксации транзакции.
+ * Проверка покупки и исключение купленных продуктов выполняются двоичным поиском без обращения к БД.
+ * Размер массива зависит только от количества купленных продуктов, а не от их идентификаторов,
+ * а кэш ограничен суммарным объемом массивов в байтах.
+ * Массив пользователя неизменяем после публикации и заменяется целиком при обновлении, поэтому читается без блокировок.
+ */
+@Slf4j
+@Service
+public class PurchasedProductsService {
+    private final OrderItemRepository orderItemRepository; // Репозиторий позиций заказов
+    private final ArchivedOrderRepository archivedOrderRepository; // Репозиторий архивных заказов
+    private final ProductRepository productRepository; // Репозиторий продуктов
+    private static final int ENTRY_OVERHEAD_BYTES = 80; // Узел карты, ключ и заголовок массива
+
+    private final long maxBytes; // Максимальный объем кэша в байтах
+    private final Map<Long, long[]> purchased = new ConcurrentHashMap<>(); // Отсортированные идентификаторы купленных продуктов по пользователям
+    private final AtomicLong cachedBytes = new AtomicLong(); // Текущий объем кэша в байтах
+
+    public PurchasedProductsService(OrderItemRepository orderItemRepository,
+                                    ArchivedOrderRepository archivedOrderRepository,
+                                    ProductRepository productRepository,
+                                    @Value("${shop.purchases.cache.max-bytes:67108864}") long maxBytes) {
+        this.orderItemRepository = orderItemRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.productRepository = productRepository;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Проверяет, покупал ли пользователь продукт.
+     *
+     * @param userId    Идентификатор пользователя
+     * @param productId Идентификатор продукта
+     * @return true, если продукт есть в выполненных заказах пользователя
+     */
+    public boolean hasPurchased(Long userId, Long productId) {
+        return contains(productIds(userId), productId);
+    }
+
+    /**
+     * Получает идентификаторы купленных пользователем продуктов.
+     *
+     * @param userId Идентификатор пользователя
+     * @return Список идентификаторов продуктов по возрастанию
+     */
+    public List<Long> getPurchasedProductIds(Long userId) {
+        return Arrays.stream(productIds(userId)).boxed().toList();
+    }
+
+    /**
+     * Получает купленные пользователем продукты.
+     *
+     * @param userId Идентификатор пользователя
+     * @return Список уникальных продуктов
+     */
+    public List<Product> getPurchasedProducts(Long userId) {
+        List<Long> productIds = getPurchasedProductIds(userId);
+        return productIds.isEmpty() ? List.of() : productRepository.findAllById(productIds);
+    }
+
+    /**
+     * Исключает из списка продукты, которые пользователь уже купил (например, из рекомендаций).
+     *
+     * @param userId     Идентификатор пользователя
+     * @param productIds Идентификаторы продуктов
+     * @return Идентификаторы некупленных продуктов в исходном порядке
+     */
+    public List<Long> excludePurchased(Long userId, Collection<Long> productIds) {
+        long[] bought = productIds(userId);
+        List<Long> result = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            if (!contains(bought, productId)) {
+                result.add(productId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Обновляет кэш пользователя при изменении статуса заказа.
+     * Продукты выполненного заказа читаются в транзакции перехода и добавляются в кэш после фиксации.
+     * Если заказ покинул статус COMPLETED, кэш пользователя сбрасывается и будет построен заново:
+     * продукт мог быть куплен и в другом заказе.
+     *
+     * @param event Событие изменения статуса заказа
+     */
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Long userId = event.getUserId();
+        if (event.entered(Status.COMPLETED)) {
+            List<Long> productIds = orderItemRepository.findProductIdsByOrderId(event.getOrderId());
+            afterCommit(() -> {
+                purchased.computeIfPresent(userId, (id, bought) -> {
+                    long[] merged = with(bought, productIds);
+                    cachedBytes.addAndGet(entryBytes(merged) - entryBytes(bought));
+                    return merged;
+                });
+                evictIfFull(userId);
+            });
+        } else if (event.left(Status.COMPLETED)) {
+            afterCommit(() -> evict(userId));
+        }
+    }
+
+    /**
+     * Получает количество пользователей, купленные продукты которых находятся в памяти.
+     *
+     * @return Количество пользователей
+     */
+    public int getCachedUserCount() {
+        return purchased.size();
+    }
+
+    /**
+     * Получает оценку объема кэша в байтах.
+     *
+     * @return Объем массивов, ключей и узлов карты
+     */
+    public long getCachedBytes() {
+        return cachedBytes.get();
+    }
+
+    /**
+     * Вспомогательный метод: возвращает купленные продукты пользователя, загружая их при первом обращении.
+     * Загрузка выполняется под блокировкой ключа, поэтому обновление после фиксации заказа,
+     * пришедшее во время загрузки, применяется к уже загруженному массиву и не теряется.
+     */
+    private long[] productIds(Long userId) {
+        long[] bought = purchased.get(userId);
+        if (bought != null) {
+            return bought;
+        }
+        bought = purchased.computeIfAbsent(userId, this::load);
+        evictIfFull(userId);
+        return bought;
+    }
+
+    private long[] load(Long userId) {
+        long[] bought = with(new long[0], orderItemRepository.findProductIdsByUserIdAndStatus(userId, Status.COMPLETED),
+                archivedOrderRepository.findPurchasedProductIds(userId, Status.COMPLETED));
+        cachedBytes.addAndGet(entryBytes(bought));
+        log.debug("Loaded {} purchased products for user ID: {}", bought.length, userId);
+        return bought;
+    }
+
+    // Вытесняет других пользователей, пока объем кэша превышает лимит; пользователь, к которому идет обращение, остается
+    private void evictIfFull(Long userId) {
+        Iterator<Long> users = purchased.keySet().iterator();
+        while (cachedBytes.get() > maxBytes && users.hasNext()) {
+            Long candidate = users.next();
+            if (!candidate.equals(userId)) {
+                evict(candidate);
+            }
+        }
+    }
+
+    private void evict(Long userId) {
+        long[] bought = purchased.remove(userId);
+        if (bought != null) {
+            cachedBytes.addAndGet(-entryBytes(bought));
+        }
+    }
+
+    @SafeVarargs
+    private static long[] with(long[] bought, List<Long>... productIds) {
+        LongStream added = Arrays.stream(productIds)
+                .flatMap(List::stream)
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue);
+        return LongStream.concat(Arrays.stream(bought), added).sorted().distinct().toArray();
+    }
+
+    private static boolean contains(long[] bought, Long productId) {
+        return productId != null && Arrays.binarySearch(bought, productId) >= 0;
+    }
+
+    private static long entryBytes(long[] bought) {
+        return ENTRY_OVERHEAD_BYTES + (long) Long.BYTES * bought.length;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,271 @@
+package ru.alexds.ccoshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.alexds.ccoshop.dto.QueryStatsDTO;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Сервис статистики SQL-запросов.
+ * Время выполнения каждого запроса, перехваченного на уровне источника данных, накапливается в гистограмме,
+ * ключом которой служат нормализованный текст запроса и место вызова (метод сервиса и метод репозитория Spring Data).
+ * Запросы дольше порога записываются в лог с заданной долей выборки, а самые частые и самые медленные запросы
+ * доступны через административный эндпоинт. Учитывается время выполнения запроса, без чтения результата.
+ */
+@Slf4j
+@Service
+public class QueryMetricsService {
+    private static final String APP_PACKAGE = "ru.alexds.ccoshop.";
+    private static final String CONFIG_PACKAGE = APP_PACKAGE + "config.";
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+    private static final QueryKey OVERFLOW = new QueryKey("<other>", "<other>");
+
+    private static final int MAX_SQL_LENGTH = 20_000; // Максимальная длина нормализуемого текста запроса
+    // Повторения в шаблонах притяжательные (*+, ++): java.util.regex обходит жадные повторения групп рекурсивно,
+    // и длинный список IN или литерал переполнял бы стек потока, выполняющего запрос
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']++|'')*+'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d++(?:\\.\\d++)?+\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*+\\(\\s*+\\?(?:\\s*+,\\s*+\\?)*+\\s*+\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long slowThresholdNanos; // Порог времени, после которого запрос записывается в лог
+    private final double slowLogSampleRate; // Доля медленных запросов, записываемых в лог (0..1)
+    private final int maxEntries; // Максимальное количество отслеживаемых пар "запрос - место вызова"
+    private final Map<QueryKey, QueryStats> stats = new ConcurrentHashMap<>(); // Статистика по запросам
+    private final Map<String, String> normalized = new ConcurrentHashMap<>(); // Кэш нормализованных текстов запросов
+    private final ThreadLocal<String> repositoryMethod = new ThreadLocal<>(); // Выполняемый в потоке метод репозитория
+    private final StackWalker stackWalker = StackWalker.getInstance();
+
+    public QueryMetricsService(@Value("${shop.query-metrics.slow-threshold:PT0.5S}") Duration slowThreshold,
+                               @Value("${shop.query-metrics.slow-log-sample-rate:1.0}") double slowLogSampleRate,
+                               @Value("${shop.query-metrics.max-entries:1000}") int maxEntries) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.slowLogSampleRate = slowLogSampleRate;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Учитывает выполнение SQL-запроса. Место вызова определяется по стеку текущего потока.
+     *
+     * @param sql          Текст запроса
+     * @param elapsedNanos Время выполнения в наносекундах
+     */
+    public void record(String sql, long elapsedNanos) {
+        String normalizedSql = normalizeCached(sql);
+        String callSite = callSite();
+        QueryKey key = new QueryKey(normalizedSql, callSite);
+
+        QueryStats queryStats = stats.get(key);
+        if (queryStats == null) {
+            queryStats = stats.size() < maxEntries
+                    ? stats.computeIfAbsent(key, k -> new QueryStats())
+                    : stats.computeIfAbsent(OVERFLOW, k -> new QueryStats());
+        }
+        queryStats.record(elapsedNanos);
+
+        if (elapsedNanos >= slowThresholdNanos && ThreadLocalRandom.current().nextDouble() < slowLogSampleRate) {
+            log.warn("Slow query ({} ms) at {}: {}", elapsedNanos / 1_000_000, callSite, normalizedSql);
+        }
+    }
+
+    /**
+     * Отмечает начало вызова метода репозитория в текущем потоке.
+     *
+     * @param method Метод репозитория в формате "Репозиторий.метод"
+     * @return Метод репозитория, выполнявшийся до вызова (для восстановления в {@link #exitRepository(String)})
+     */
+    public String enterRepository(String method) {
+        String previous = repositoryMethod.get();
+        repositoryMethod.set(method);
+        return previous;
+    }
+
+    /**
+     * Отмечает окончание вызова метода репозитория в текущем потоке.
+     *
+     * @param previous Значение, возвращенное {@link #enterRepository(String)}
+     */
+    public void exitRepository(String previous) {
+        if (previous == null) {
+            repositoryMethod.remove();
+        } else {
+            repositoryMethod.set(previous);
+        }
+    }
+
+    /**
+     * Получает самые частые запросы.
+     *
+     * @param limit Максимальное количество запросов
+     * @return Список статистики по убыванию количества выполнений
+     */
+    public List<QueryStatsDTO> getHotQueries(int limit) {
+        return top(limit, Comparator.comparingLong(QueryStatsDTO::getCount)
+                .thenComparingDouble(QueryStatsDTO::getTotalMillis));
+    }
+
+    /**
+     * Получает самые медленные запросы.
+     *
+     * @param limit Максимальное количество запросов
+     * @return Список статистики по убыванию 95-го перцентиля времени выполнения
+     */
+    public List<QueryStatsDTO> getSlowQueries(int limit) {
+        return top(limit, Comparator.comparingDouble(QueryStatsDTO::getP95Millis)
+                .thenComparingDouble(QueryStatsDTO::getMaxMillis));
+    }
+
+    /**
+     * Сбрасывает накопленную статистику.
+     */
+    public void reset() {
+        stats.clear();
+        log.info("Query statistics reset");
+    }
+
+    /**
+     * Нормализует текст запроса: строковые и числовые литералы заменяются на ?, списки параметров IN
+     * сворачиваются в один параметр, пробельные символы схлопываются. Текст длиннее {@code MAX_SQL_LENGTH}
+     * обрезается перед нормализацией.
+     *
+     * @param sql Текст запроса
+     * @return Нормализованный текст запроса
+     */
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "<unknown>";
+        }
+        String result = sql.length() > MAX_SQL_LENGTH ? sql.substring(0, MAX_SQL_LENGTH) + " ..." : sql;
+        result = STRING_LITERAL.matcher(result).replaceAll("?");
+        result = NUMERIC_LITERAL.matcher(result).replaceAll("?");
+        result = IN_LIST.matcher(result).replaceAll("in (?)");
+        return WHITESPACE.matcher(result).replaceAll(" ").trim();
+    }
+
+    private String normalizeCached(String sql) {
+        if (sql == null) {
+            return normalize(null);
+        }
+        String result = normalized.get(sql);
+        if (result == null) {
+            result = normalize(sql);
+            if (normalized.size() < maxEntries * 4 && sql.length() <= MAX_SQL_LENGTH) {
+                normalized.put(sql, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Вспомогательный метод: определяет место вызова запроса.
+     * Метод сервиса - ближайший по стеку метод класса приложения (без конфигурации, прокси и лямбд),
+     * метод репозитория - отмеченный в потоке через {@link #enterRepository(String)}.
+     */
+    private String callSite() {
+        String method = stackWalker.walk(frames -> frames
+                .filter(frame -> isApplicationClass(frame.getClassName()) && !frame.getMethodName().startsWith("lambda$"))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .orElse(null));
+
+        String repository = repositoryMethod.get();
+        if (method == null) {
+            return repository != null ? repository : "<unknown>";
+        }
+        return repository != null ? method + " > " + repository : method;
+    }
+
+    private static boolean isApplicationClass(String className) {
+        return className.startsWith(APP_PACKAGE)
+                && !className.startsWith(CONFIG_PACKAGE)
+                && !className.contains("$$")
+                && !className.equals(QueryMetricsService.class.getName());
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private List<QueryStatsDTO> top(int limit, Comparator<QueryStatsDTO> order) {
+        return stats.entrySet().stream()
+                .map(entry -> entry.getValue().toDTO(entry.getKey()))
+                .sorted(order.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private record QueryKey(String sql, String callSite) {
+    }
+
+    /**
+     * Гистограмма времени выполнения запроса с фиксированными границами интервалов.
+     */
+    private static final class QueryStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+
+        QueryStats() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets[bucket(nanos)].increment();
+        }
+
+        QueryStatsDTO toDTO(QueryKey key) {
+            long total = count.sum();
+            double totalMillis = totalNanos.sum() / 1_000_000.0;
+            double maxMillis = maxNanos.get() / 1_000_000.0;
+            return QueryStatsDTO.builder()
+                    .sql(key.sql())
+                    .callSite(key.callSite())
+                    .count(total)
+                    .totalMillis(totalMillis)
+                    .meanMillis(total > 0 ? totalMillis / total : 0)
+                    .maxMillis(maxMillis)
+                    .p50Millis(percentile(total, 0.50, maxMillis))
+                    .p95Millis(percentile(total, 0.95, maxMillis))
+                    .p99Millis(percentile(total, 0.99, maxMillis))
+                    .build();
+        }
+
+        private double percentile(long total, double quantile, double maxMillis) {
+            long rank = (long) Math.ceil(total * quantile);
+            long cumulative = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                cumulative += buckets[i].sum();
+                if (cumulative >= rank) {
+                    return Math.min(BUCKET_BOUNDS_MILLIS[i], maxMillis);
+                }
+            }
+            return maxMillis;
+        }
+
+        private static int bucket(long nanos) {
+            long millis = nanos / 1_000_000;
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                if (millis < BUCKET_BOUNDS_MILLIS[i]) {
+                    return i;
+                }
+            }
+            return BUCKET_BOUNDS_MILLIS.length;
+        }
+    }
+}
@@ -43,7 +43,7 @@ public class RecommendationService {
     public final RatingRepository ratingRepository; // Репозиторий для хранения рейтингов
     private final ARTClusterService artClusterService; // Сервис для управления ART-кластерами
 
-    public final ProductService productService;
+    private final ProductCacheService productCacheService; // Кэш продуктов для чтения в циклах
 
     public DataModel dataModel; // Модель данных Mahout
     private List<ARTClusterEntity> artClusters = new ArrayList<>(); // Список ART-кластеров
@@ -208,11 +208,14 @@ public class RecommendationService {
                 .map(Rating::getItemId)
                 .collect(Collectors.toList());
 
+        // Загружаем информацию о товарах одним пакетом
+        Map<Long, ProductDTO> products = productCacheService.getProductsByIds(productIds);
+
         // Преобразуем в список `RecommendationDTO` с расчетом рейтинга похожести
         return productIds.stream()
                 .map(productId -> {
                     // Получаем информацию о товаре
-                    ProductDTO product = productService.getProductById(productId)
+                    ProductDTO product = Optional.ofNullable(products.get(productId))
                             .orElseThrow(() -> new RuntimeException("Product not found"));
 
                     // Рассчитываем рейтинг похожести с текущим пользователем
@@ -239,7 +242,7 @@ public class RecommendationService {
         // Находим рейтинг других пользователей для данного товара
         List<Rating> itemRatings = ratingRepository.findByItemId(productId);
         // Получаем метаданные товара
-        ProductDTO product = productService.getProductById(productId)
+        ProductDTO product = productCacheService.getProduct(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
         // Вычисляем сумму отклонений рейтингов от среднего рейтинга
@@ -263,7 +266,7 @@ public class RecommendationService {
 //                }
 
                 // Учитываем метаданные
-                ProductDTO otherProduct = productService.getProductById(rating.getItemId())
+                ProductDTO otherProduct = productCacheService.getProduct(rating.getItemId())
                         .orElseThrow(() -> new RuntimeException("Продукт не найден"));
 
 
@@ -518,9 +521,11 @@ public class RecommendationService {
      */
     private List<RecommendationDTO> mapRecommendationsToDTO(List<RecommendedItem> recommendedItems) {
         System.out.println(recommendedItems);
+        Map<Long, ProductDTO> products = productCacheService.getProductsByIds(
+                recommendedItems.stream().map(RecommendedItem::getItemID).toList());
         return recommendedItems.stream().map(item -> new RecommendationDTO(
                 item.getItemID(),
-                productService.getProductById(item.getItemID()).get().getName(),
+                Optional.ofNullable(products.get(item.getItemID())).orElseThrow().getName(),
                 item.getValue())).collect(Collectors.toList());
     }
 }
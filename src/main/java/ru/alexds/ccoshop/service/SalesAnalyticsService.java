@@ -0,0 +1,430 @@
+package ru.alexds.ccoshop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.alexds.ccoshop.dto.DailySalesDTO;
+import ru.alexds.ccoshop.dto.SalesBreakdownDTO;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.OrderItemRepository;
+import ru.alexds.ccoshop.repository.SalesDailyProductRepository;
+import ru.alexds.ccoshop.repository.SalesDailyStatusRepository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Сервис аналитики продаж магазина.
+ * Поддерживает дневные агрегаты (заказы и выручка по статусам, продажи по продуктам и категориям)
+ * инкрементально: изменения заказов накапливаются в памяти после фиксации транзакции и периодически
+ * сбрасываются в БД пакетом. Поэтому оформление заказа не конкурирует за строки агрегатов одного дня.
+ * Отчеты за любой период строятся по агрегатам, а не по заказам.
+ */
+@Slf4j
+@Service
+public class SalesAnalyticsService {
+    private static final String STATUS_UPDATE_SQL =
+            "UPDATE sales_daily_status SET orders_count = orders_count + ?, revenue = revenue + ? WHERE sales_day = ? AND status = ?";
+    private static final String STATUS_INSERT_SQL =
+            "INSERT INTO sales_daily_status (sales_day, status, orders_count, revenue) VALUES (?, ?, ?, ?)";
+    private static final String PRODUCT_UPDATE_SQL =
+            "UPDATE sales_daily_product SET orders_count = orders_count + ?, units = units + ?, revenue = revenue + ? WHERE sales_day = ? AND product_id = ?";
+    private static final String PRODUCT_INSERT_SQL =
+            "INSERT INTO sales_daily_product (sales_day, product_id, category_id, orders_count, units, revenue) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String BACKFILL_LOCK_SQL = "SELECT id FROM orders WHERE order_date >= ? AND order_date < ? FOR UPDATE";
+    private static final String BACKFILL_DELETE_STATUS_SQL = "DELETE FROM sales_daily_status WHERE sales_day = ?";
+    private static final String BACKFILL_DELETE_PRODUCT_SQL = "DELETE FROM sales_daily_product WHERE sales_day = ?";
+    // Заказы дня читаются из рабочей и архивной таблиц: OrderArchiveService переносит старые заказы целиком
+    private static final String BACKFILL_STATUS_SQL =
+            "INSERT INTO sales_daily_status (sales_day, status, orders_count, revenue) " +
+            "SELECT ?, o.status, COUNT(*), COALESCE(SUM(o.total_price), 0) FROM (" +
+            "SELECT status, total_price FROM orders WHERE order_date >= ? AND order_date < ? " +
+            "UNION ALL " +
+            "SELECT status, total_price FROM orders_archive WHERE order_date >= ? AND order_date < ?" +
+            ") o GROUP BY o.status";
+    private static final String BACKFILL_PRODUCT_SQL =
+            "INSERT INTO sales_daily_product (sales_day, product_id, category_id, orders_count, units, revenue) " +
+            "SELECT ?, oi.product_id, p.category_id, COUNT(DISTINCT oi.order_id), SUM(oi.quantity), SUM(oi.price * oi.quantity) FROM (" +
+            "SELECT i.order_id, i.product_id, i.quantity, i.price FROM order_items i JOIN orders o ON o.id = i.order_id " +
+            "WHERE o.order_date >= ? AND o.order_date < ? AND o.status <> 'CANCELLED' " +
+            "UNION ALL " +
+            "SELECT i.order_id, i.product_id, i.quantity, i.price FROM order_items_archive i JOIN orders_archive o ON o.id = i.order_id " +
+            "WHERE o.order_date >= ? AND o.order_date < ? AND o.status <> 'CANCELLED'" +
+            ") oi JOIN products p ON p.id = oi.product_id GROUP BY oi.product_id, p.category_id";
+
+    private final JdbcTemplate jdbcTemplate; // JDBC-шаблон для пакетной записи агрегатов
+    private final OrderItemRepository orderItemRepository; // Репозиторий позиций заказа
+    private final SalesDailyStatusRepository statusRepository; // Чтение агрегатов по статусам
+    private final SalesDailyProductRepository productRepository; // Чтение агрегатов по продуктам
+    private final TransactionTemplate transactionTemplate; // Транзакции сброса и заполнения агрегатов
+    private final int backfillThreads; // Количество потоков заполнения агрегатов
+
+    private final ConcurrentMap<StatusKey, Delta> pendingStatus = new ConcurrentHashMap<>(); // Несброшенные изменения по статусам
+    private final ConcurrentMap<ProductKey, Delta> pendingProducts = new ConcurrentHashMap<>(); // Несброшенные изменения по продуктам
+    private final Set<LocalDate> backfillingDays = new HashSet<>(); // Дни, агрегаты которых сейчас пересчитываются
+    private final ReadWriteLock backfillLock = new ReentrantReadWriteLock(); // Защищает backfillingDays и постановку изменений в очередь
+
+    public SalesAnalyticsService(JdbcTemplate jdbcTemplate,
+                                 OrderItemRepository orderItemRepository,
+                                 SalesDailyStatusRepository statusRepository,
+                                 SalesDailyProductRepository productRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${shop.analytics.backfill-threads:4}") int backfillThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderItemRepository = orderItemRepository;
+        this.statusRepository = statusRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backfillThreads = backfillThreads;
+    }
+
+    /**
+     * Учитывает изменение статуса заказа в дневных агрегатах.
+     * Изменения попадают в очередь сброса только после фиксации транзакции заказа.
+     *
+     * @param event Событие изменения статуса заказа
+     */
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getPreviousStatus() == event.getNewStatus() || event.getOrderDate() == null) {
+            return;
+        }
+        LocalDate day = event.getOrderDate().toLocalDate();
+        BigDecimal amount = event.getTotalPrice() != null ? event.getTotalPrice() : BigDecimal.ZERO;
+
+        Map<StatusKey, Delta> statusDeltas = new HashMap<>();
+        if (event.getPreviousStatus() != null) {
+            statusDeltas.put(new StatusKey(day, event.getPreviousStatus()), new Delta(-1, 0, amount.negate()));
+        }
+        statusDeltas.put(new StatusKey(day, event.getNewStatus()), new Delta(1, 0, amount));
+
+        // Продажи продуктов меняются только при создании заказа и при входе в статус CANCELLED или выходе из него
+        Map<ProductKey, Delta> productDeltas = new HashMap<>();
+        int sign = productSign(event);
+        if (sign != 0) {
+            for (Object[] row : orderItemRepository.aggregateByProduct(event.getOrderId())) {
+                BigDecimal revenue = (BigDecimal) row[3];
+                productDeltas.put(new ProductKey(day, (Long) row[0], (Long) row[1]),
+                        new Delta(sign, sign * ((Number) row[2]).longValue(), sign > 0 ? revenue : revenue.negate()));
+            }
+        }
+
+        afterCommit(() -> enqueue(day, statusDeltas, productDeltas));
+    }
+
+    /**
+     * Сбрасывает накопленные изменения при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushPending();
+    }
+
+    /**
+     * Сбрасывает накопленные изменения в таблицы агрегатов одной транзакцией.
+     * При ошибке изменения возвращаются в очередь.
+     */
+    @Scheduled(fixedDelayString = "${shop.analytics.flush-interval-ms:5000}")
+    public synchronized void flushPending() {
+        Map<StatusKey, Delta> statusBatch = drain(pendingStatus);
+        Map<ProductKey, Delta> productBatch = drain(pendingProducts);
+        if (statusBatch.isEmpty() && productBatch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                flushStatus(statusBatch);
+                flushProducts(productBatch);
+            });
+            log.debug("Flushed sales rollups: {} status rows, {} product rows", statusBatch.size(), productBatch.size());
+        } catch (RuntimeException e) {
+            statusBatch.forEach((key, delta) -> pendingStatus.merge(key, delta, Delta::plus));
+            productBatch.forEach((key, delta) -> pendingProducts.merge(key, delta, Delta::plus));
+            log.error("Failed to flush sales rollups: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Пересчитывает агрегаты за период по таблицам заказов (рабочей и архивной). Дни обрабатываются параллельно,
+     * каждый день - отдельной транзакцией (удаление и вставка агрегата одним INSERT ... SELECT).
+     * Изменения, накопленные до запуска, предварительно сбрасываются; запускать желательно в период низкой нагрузки.
+     * Пока день не пересчитан, изменения его заказов не ставятся в очередь: заказы, зафиксированные до пересчета,
+     * уже учтены в нем, а остальные ждут его окончания на блокировке строк (см. {@link #backfillDay(LocalDate)}).
+     *
+     * @param from Первый день периода (включительно)
+     * @param to   Последний день периода (включительно)
+     * @return Количество пересчитанных дней
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        log.info("Backfilling sales rollups from {} to {} with {} threads", from, to, backfillThreads);
+        List<LocalDate> days = from.datesUntil(to.plusDays(1)).toList();
+        // Сначала закрываем дни для новых изменений, затем сбрасываем уже накопленные:
+        // после этого очередь не содержит изменений пересчитываемых дней
+        backfillLock.writeLock().lock();
+        try {
+            backfillingDays.addAll(days);
+        } finally {
+            backfillLock.writeLock().unlock();
+        }
+        flushPending();
+
+        ExecutorService executor = Executors.newFixedThreadPool(backfillThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (LocalDate current : days) {
+                futures.add(executor.submit(() -> transactionTemplate.executeWithoutResult(tx -> backfillDay(current))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            log.info("Backfilled sales rollups for {} days", futures.size());
+            return futures.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sales rollup backfill was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sales rollup backfill failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+            releaseDays(days);
+        }
+    }
+
+    /**
+     * Получает продажи магазина по дням за период (без отмененных заказов).
+     *
+     * @param from Первый день периода (включительно)
+     * @param to   Последний день периода (включительно)
+     * @return Список продаж по дням
+     */
+    public List<DailySalesDTO> getDailySales(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        return statusRepository.findDailySales(from, to, Status.CANCELLED);
+    }
+
+    /**
+     * Получает количество заказов за период по текущим статусам.
+     *
+     * @param from Первый день периода (включительно)
+     * @param to   Последний день периода (включительно)
+     * @return Карта "статус - количество заказов"
+     */
+    public Map<Status, Long> getStatusCounts(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        Map<Status, Long> counts = new EnumMap<>(Status.class);
+        for (Object[] row : statusRepository.countByStatus(from, to)) {
+            counts.put((Status) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Получает самые продаваемые продукты за период.
+     *
+     * @param from  Первый день периода (включительно)
+     * @param to    Последний день периода (включительно)
+     * @param limit Максимальное количество продуктов
+     * @return Список продаж по продуктам, упорядоченный по выручке
+     */
+    public List<SalesBreakdownDTO> getTopProducts(LocalDate from, LocalDate to, int limit) {
+        validateRange(from, to);
+        return productRepository.findTopProducts(from, to, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Получает продажи по категориям за период.
+     *
+     * @param from Первый день периода (включительно)
+     * @param to   Последний день периода (включительно)
+     * @return Список продаж по категориям, упорядоченный по выручке
+     */
+    public List<SalesBreakdownDTO> getCategorySales(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        return productRepository.findCategorySales(from, to);
+    }
+
+    /**
+     * Вспомогательный метод: пересчитывает агрегаты одного дня.
+     * Заказы дня блокируются (в InnoDB - вместе с промежутками индекса по order_date), поэтому транзакции,
+     * меняющие или создающие заказы этого дня, фиксируются только после пересчета. День открывается
+     * для изменений последним действием транзакции, до ее фиксации, чтобы изменения ожидавших транзакций не потерялись.
+     *
+     * @param day День оформления заказов
+     */
+    private void backfillDay(LocalDate day) {
+        Date salesDay = Date.valueOf(day);
+        Timestamp start = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+
+        jdbcTemplate.queryForList(BACKFILL_LOCK_SQL, Long.class, start, end);
+        jdbcTemplate.update(BACKFILL_DELETE_STATUS_SQL, salesDay);
+        jdbcTemplate.update(BACKFILL_STATUS_SQL, salesDay, start, end, start, end);
+        jdbcTemplate.update(BACKFILL_DELETE_PRODUCT_SQL, salesDay);
+        jdbcTemplate.update(BACKFILL_PRODUCT_SQL, salesDay, start, end, start, end);
+        releaseDays(List.of(day));
+    }
+
+    /**
+     * Вспомогательный метод: ставит изменения заказа в очередь сброса.
+     * Изменения дня, который сейчас пересчитывается, отбрасываются - заказ уже учтен пересчетом.
+     *
+     * @param day           День оформления заказа
+     * @param statusDeltas  Изменения агрегатов по статусам
+     * @param productDeltas Изменения агрегатов по продуктам
+     */
+    private void enqueue(LocalDate day, Map<StatusKey, Delta> statusDeltas, Map<ProductKey, Delta> productDeltas) {
+        backfillLock.readLock().lock();
+        try {
+            if (backfillingDays.contains(day)) {
+                log.debug("Skipping sales rollup delta for {}: the day is being backfilled", day);
+                return;
+            }
+            statusDeltas.forEach((key, delta) -> pendingStatus.merge(key, delta, Delta::plus));
+            productDeltas.forEach((key, delta) -> pendingProducts.merge(key, delta, Delta::plus));
+        } finally {
+            backfillLock.readLock().unlock();
+        }
+    }
+
+    private void releaseDays(Collection<LocalDate> days) {
+        backfillLock.writeLock().lock();
+        try {
+            days.forEach(backfillingDays::remove);
+        } finally {
+            backfillLock.writeLock().unlock();
+        }
+    }
+
+    private void flushStatus(Map<StatusKey, Delta> batch) {
+        List<Map.Entry<StatusKey, Delta>> entries = new ArrayList<>(batch.entrySet());
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<StatusKey, Delta> entry : entries) {
+            updates.add(new Object[]{entry.getValue().orders(), entry.getValue().revenue(),
+                    Date.valueOf(entry.getKey().day()), entry.getKey().status().name()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(STATUS_UPDATE_SQL, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                Map.Entry<StatusKey, Delta> entry = entries.get(i);
+                inserts.add(new Object[]{Date.valueOf(entry.getKey().day()), entry.getKey().status().name(),
+                        entry.getValue().orders(), entry.getValue().revenue()});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(STATUS_INSERT_SQL, inserts);
+        }
+    }
+
+    private void flushProducts(Map<ProductKey, Delta> batch) {
+        List<Map.Entry<ProductKey, Delta>> entries = new ArrayList<>(batch.entrySet());
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<ProductKey, Delta> entry : entries) {
+            updates.add(new Object[]{entry.getValue().orders(), entry.getValue().units(), entry.getValue().revenue(),
+                    Date.valueOf(entry.getKey().day()), entry.getKey().productId()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(PRODUCT_UPDATE_SQL, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                Map.Entry<ProductKey, Delta> entry = entries.get(i);
+                inserts.add(new Object[]{Date.valueOf(entry.getKey().day()), entry.getKey().productId(), entry.getKey().categoryId(),
+                        entry.getValue().orders(), entry.getValue().units(), entry.getValue().revenue()});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(PRODUCT_INSERT_SQL, inserts);
+        }
+    }
+
+    /**
+     * Вспомогательный метод: знак изменения продаж продуктов для перехода заказа.
+     *
+     * @param event Событие изменения статуса заказа
+     * @return 1 - учесть позиции, -1 - исключить позиции, 0 - продажи не меняются
+     */
+    private static int productSign(OrderStatusChangedEvent event) {
+        if (event.getPreviousStatus() == null) {
+            return event.getNewStatus() == Status.CANCELLED ? 0 : 1;
+        }
+        if (event.entered(Status.CANCELLED)) {
+            return -1;
+        }
+        return event.left(Status.CANCELLED) ? 1 : 0;
+    }
+
+    /**
+     * Вспомогательный метод: атомарно извлекает все накопленные изменения.
+     * Изменения, добавленные во время извлечения, остаются для следующего сброса.
+     */
+    private static <K> Map<K, Delta> drain(ConcurrentMap<K, Delta> pending) {
+        Map<K, Delta> batch = new HashMap<>();
+        for (K key : new ArrayList<>(pending.keySet())) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                batch.put(key, delta);
+            }
+        }
+        return batch;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void validateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Invalid date range: " + from + " - " + to);
+        }
+    }
+
+    /**
+     * Ключ агрегата по статусам: день и статус.
+     */
+    private record StatusKey(LocalDate day, Status status) {
+    }
+
+    /**
+     * Ключ агрегата по продуктам: день, продукт и его категория.
+     */
+    private record ProductKey(LocalDate day, Long productId, Long categoryId) {
+    }
+
+    /**
+     * Изменение агрегата: количество заказов, единиц товара и выручка.
+     */
+    private record Delta(long orders, long units, BigDecimal revenue) {
+        private Delta plus(Delta other) {
+            return new Delta(orders + other.orders, units + other.units, revenue.add(other.revenue));
+        }
+    }
+}
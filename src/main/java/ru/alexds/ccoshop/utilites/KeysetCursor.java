@@ -0,0 +1,66 @@
+/**
+ * Пакет для утилитных классов приложения.
+ */
+package ru.alexds.ccoshop.utilites;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Класс KeysetCursor представляет собой позицию в выборке, упорядоченной по паре (момент времени, идентификатор).
+ * Курсор передается клиенту в виде непрозрачной строки и позволяет запрашивать следующую страницу условием
+ * "строго после последней записи", поэтому глубокие страницы читаются так же быстро, как первая.
+ * Для выборок, упорядоченных только по идентификатору, момент времени не указывается (null).
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+    private final LocalDateTime timestamp; // Значение сортируемого момента времени последней записи страницы (может быть null)
+    private final Long id; // Идентификатор последней записи страницы (разрешает равенство моментов времени)
+
+    /**
+     * Создает курсор выборки, упорядоченной только по идентификатору.
+     *
+     * @param id Идентификатор последней записи страницы
+     * @return Курсор
+     */
+    public static KeysetCursor ofId(Long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    /**
+     * Кодирует курсор в непрозрачную строку.
+     *
+     * @return Строка курсора в формате Base64 (URL-safe)
+     */
+    public String encode() {
+        String raw = (timestamp != null ? timestamp.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирует курсор из строки, полученной от клиента.
+     *
+     * @param cursor Строка курсора
+     * @return Курсор
+     * @throws IllegalArgumentException если строка не является корректным курсором
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            LocalDateTime timestamp = separator > 0 ? LocalDateTime.parse(raw.substring(0, separator)) : null;
+            return new KeysetCursor(timestamp, Long.valueOf(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
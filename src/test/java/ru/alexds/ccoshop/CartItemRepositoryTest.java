@@ -0,0 +1,130 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.alexds.ccoshop.entity.CartItem;
+import ru.alexds.ccoshop.entity.Category;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.entity.Role;
+import ru.alexds.ccoshop.entity.User;
+import ru.alexds.ccoshop.repository.CartItemRepository;
+import ru.alexds.ccoshop.repository.CategoryRepository;
+import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка запросов очистки брошенных корзин на H2.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartitems;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@Transactional
+public class CartItemRepositoryTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        Category category = categoryRepository.save(Category.builder().name("Category").products(new ArrayList<>()).build());
+        for (int i = 0; i < 2; i++) {
+            products.add(productRepository.save(Product.builder()
+                    .name("Product " + i)
+                    .description("Description " + i)
+                    .price(BigDecimal.TEN)
+                    .stockQuantity(10)
+                    .popularity(1.0)
+                    .characteristics(new ArrayList<>())
+                    .category(category)
+                    .build()));
+        }
+    }
+
+    @Test
+    public void testStaleCartIsDeleted() {
+        User user = givenUser("stale@example.com");
+        givenItem(user, products.get(0), CUTOFF.minusDays(10));
+        givenItem(user, products.get(1), CUTOFF.minusDays(1));
+
+        assertEquals(List.of(user.getId()), cartItemRepository.findAbandonedCartUserIds(0L, CUTOFF, PageRequest.of(0, 10)));
+        assertEquals(2, cartItemRepository.deleteStaleByUserIds(List.of(user.getId()), CUTOFF));
+        assertEquals(0L, countItems(user));
+    }
+
+    @Test
+    public void testCartTouchedAfterSelectionIsKeptWhole() {
+        User stale = givenUser("stale@example.com");
+        givenItem(stale, products.get(0), CUTOFF.minusDays(3));
+        User touched = givenUser("touched@example.com");
+        givenItem(touched, products.get(0), CUTOFF.minusDays(5));
+
+        List<Long> userIds = cartItemRepository.findAbandonedCartUserIds(0L, CUTOFF, PageRequest.of(0, 10));
+        assertEquals(List.of(stale.getId(), touched.getId()), userIds);
+
+        // Пользователь изменил корзину между выборкой и удалением
+        givenItem(touched, products.get(1), CUTOFF.plusHours(1));
+
+        assertEquals(1, cartItemRepository.deleteStaleByUserIds(userIds, CUTOFF));
+        assertEquals(0L, countItems(stale));
+        assertEquals(2L, countItems(touched));
+    }
+
+    private User givenUser(String email) {
+        User user = new User();
+        user.setFirstName("Ivan");
+        user.setLastName("Petrov");
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setRole(Role.USER);
+        return userRepository.save(user);
+    }
+
+    /**
+     * Вспомогательный метод: создает позицию корзины с заданным временем изменения
+     * (@UpdateTimestamp перезаписывает его при сохранении через Hibernate, поэтому время выставляется через JDBC).
+     */
+    private void givenItem(User user, Product product, LocalDateTime updatedAt) {
+        CartItem item = cartItemRepository.saveAndFlush(CartItem.builder().user(user).product(product).quantity(1).price(product.getPrice()).build());
+        jdbcTemplate.update("UPDATE cart_items SET updated_at = ? WHERE id = ?", updatedAt, item.getId());
+    }
+
+    private long countItems(User user) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items WHERE user_id = ?", Long.class, user.getId());
+    }
+}
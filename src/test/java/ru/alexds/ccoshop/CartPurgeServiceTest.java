@@ -0,0 +1,70 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.alexds.ccoshop.repository.CartItemRepository;
+import ru.alexds.ccoshop.service.CartPurgeService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CartPurgeServiceTest {
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CartPurgeService purgeService(int chunkSize, int maxCartsPerRun) {
+        return new CartPurgeService(cartItemRepository, transactionManager, Duration.ofDays(30),
+                chunkSize, Duration.ZERO, maxCartsPerRun);
+    }
+
+    @Test
+    public void testCartsArePurgedInKeysetChunks() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        when(cartItemRepository.findAbandonedCartUserIds(0L, cutoff, PageRequest.of(0, 2))).thenReturn(List.of(3L, 7L));
+        when(cartItemRepository.findAbandonedCartUserIds(7L, cutoff, PageRequest.of(0, 2))).thenReturn(List.of(9L));
+        when(cartItemRepository.deleteStaleByUserIds(List.of(3L, 7L), cutoff)).thenReturn(5);
+        when(cartItemRepository.deleteStaleByUserIds(List.of(9L), cutoff)).thenReturn(1);
+
+        int removed = purgeService(2, 100).purgeCartsUntouchedSince(cutoff);
+
+        assertEquals(6, removed);
+        verify(cartItemRepository, times(2)).findAbandonedCartUserIds(any(), any(), any());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    public void testRunIsLimitedByBudget() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        when(cartItemRepository.findAbandonedCartUserIds(0L, cutoff, PageRequest.of(0, 2))).thenReturn(List.of(1L, 2L));
+        when(cartItemRepository.findAbandonedCartUserIds(2L, cutoff, PageRequest.of(0, 1))).thenReturn(List.of(4L));
+        when(cartItemRepository.deleteStaleByUserIds(any(), eq(cutoff))).thenReturn(2, 1);
+
+        int removed = purgeService(2, 3).purgeCartsUntouchedSince(cutoff);
+
+        assertEquals(3, removed);
+        verify(cartItemRepository, times(2)).findAbandonedCartUserIds(any(), any(), any());
+    }
+
+    @Test
+    public void testNothingToPurge() {
+        when(cartItemRepository.findAbandonedCartUserIds(any(), any(), any())).thenReturn(List.of());
+
+        assertEquals(0, purgeService(100, 1000).purgeCartsUntouchedSince(LocalDateTime.now()));
+        verify(cartItemRepository, never()).deleteStaleByUserIds(any(), any());
+    }
+}
@@ -0,0 +1,211 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.alexds.ccoshop.dto.CartItemDTO;
+import ru.alexds.ccoshop.dto.CartLineDTO;
+import ru.alexds.ccoshop.dto.CartOperationDTO;
+import ru.alexds.ccoshop.dto.CartViewDTO;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.exeption.CartItemNotFoundException;
+import ru.alexds.ccoshop.exeption.InsufficientStockException;
+import ru.alexds.ccoshop.exeption.ProductNotFoundException;
+import ru.alexds.ccoshop.service.CartService;
+import ru.alexds.ccoshop.service.CartStore;
+import ru.alexds.ccoshop.service.HotSkuInventoryService;
+import ru.alexds.ccoshop.service.ProductService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CartServiceTest {
+
+    @Mock
+    private CartStore cartStore;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    @InjectMocks
+    private CartService cartService;
+
+    private List<CartItemDTO> cart;
+
+    @BeforeEach
+    public void setUp() {
+        cart = List.of(
+                new CartItemDTO(11L, 1L, 1L, 2, new BigDecimal("100.00")),
+                new CartItemDTO(12L, 1L, 2L, 1, new BigDecimal("50.00")));
+        lenient().when(cartStore.getItems(1L)).thenReturn(cart);
+    }
+
+    private Product product(long id, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(stock);
+        return product;
+    }
+
+    private static CartOperationDTO operation(CartOperationDTO.Type type, long productId, Integer quantity) {
+        return new CartOperationDTO(type, productId, quantity);
+    }
+
+    @Test
+    public void testBatchIsFoldedIntoSingleWrite() {
+        when(productService.getProductEntitiesByIds(List.of(1L, 3L)))
+                .thenReturn(Map.of(1L, product(1L, 10), 3L, product(3L, 10)));
+
+        cartService.applyBatch(1L, List.of(
+                operation(CartOperationDTO.Type.ADD, 3L, 1),
+                operation(CartOperationDTO.Type.ADD, 1L, 3),
+                operation(CartOperationDTO.Type.ADD, 3L, 2),
+                operation(CartOperationDTO.Type.REMOVE, 2L, null),
+                operation(CartOperationDTO.Type.REMOVE, 4L, null)));
+
+        verify(productService, times(1)).getProductEntitiesByIds(any());
+        verify(cartStore).applyChanges(1L, cart, Map.of(1L, 5, 2L, 0, 3L, 3), Map.of(1L, new BigDecimal("10.00"), 3L, new BigDecimal("10.00")));
+    }
+
+    @Test
+    public void testUpdateChecksStockOfProductInCart() {
+        when(cartStore.findItem(11L)).thenReturn(Optional.of(cart.get(0)));
+        when(productService.getProductEntityById(1L)).thenReturn(Optional.of(product(1L, 4)));
+
+        // Клиент прислал идентификатор другого продукта: остаток проверяется по продукту позиции корзины
+        assertThrows(InsufficientStockException.class, () ->
+                cartService.updateCartItem(new CartItemDTO(11L, 1L, 2L, 5, new BigDecimal("100.00"))));
+
+        verify(productService, never()).getProductEntityById(2L);
+        verify(cartStore, never()).updateQuantity(anyLong(), anyInt());
+    }
+
+    @Test
+    public void testUnchangedLargeQuantityIsNotWritten() {
+        List<CartItemDTO> large = List.of(new CartItemDTO(13L, 2L, 1L, 1000, new BigDecimal("100.00")));
+        when(cartStore.getItems(2L)).thenReturn(large);
+
+        // Количество вне кэша Integer сравнивается по значению
+        assertEquals(large, cartService.applyBatch(2L, List.of(operation(CartOperationDTO.Type.UPDATE, 1L, 1000))));
+
+        verify(cartStore, never()).applyChanges(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    public void testInsufficientStockLeavesCartUntouched() {
+        when(productService.getProductEntitiesByIds(List.of(1L))).thenReturn(Map.of(1L, product(1L, 4)));
+
+        assertThrows(InsufficientStockException.class, () -> cartService.applyBatch(1L, List.of(
+                operation(CartOperationDTO.Type.REMOVE, 2L, null),
+                operation(CartOperationDTO.Type.UPDATE, 1L, 5))));
+
+        verify(cartStore, never()).applyChanges(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    public void testInvalidOperations() {
+        assertThrows(CartItemNotFoundException.class, () -> cartService.applyBatch(1L, List.of(
+                operation(CartOperationDTO.Type.UPDATE, 3L, 1))));
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyBatch(1L, List.of(
+                operation(CartOperationDTO.Type.ADD, 3L, 0))));
+
+        when(productService.getProductEntitiesByIds(List.of(3L))).thenReturn(Map.of());
+        assertThrows(ProductNotFoundException.class, () -> cartService.applyBatch(1L, List.of(
+                operation(CartOperationDTO.Type.ADD, 3L, 1))));
+
+        verify(cartStore, never()).applyChanges(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    public void testHotReservationsAreRolledBackOnShortage() {
+        when(productService.getProductEntitiesByIds(List.of(1L, 3L)))
+                .thenReturn(Map.of(1L, product(1L, 0), 3L, product(3L, 0)));
+        when(hotSkuInventoryService.isHot(anyLong())).thenAnswer(invocation -> Set.of(1L, 3L).contains(invocation.<Long>getArgument(0)));
+        lenient().doThrow(new InsufficientStockException("Insufficient stock for product ID: 3"))
+                .when(hotSkuInventoryService).resize(1L, 3L, 1);
+
+        assertThrows(InsufficientStockException.class, () -> cartService.applyBatch(1L, List.of(
+                operation(CartOperationDTO.Type.UPDATE, 1L, 4),
+                operation(CartOperationDTO.Type.ADD, 3L, 1))));
+
+        verify(hotSkuInventoryService).resize(1L, 1L, 4);
+        verify(hotSkuInventoryService).resize(1L, 1L, 2);
+        verify(hotSkuInventoryService, never()).release(anyLong(), anyLong());
+        verify(cartStore, never()).applyChanges(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    public void testHotReservationsFollowTransactionOutcome() {
+        when(productService.getProductEntitiesByIds(List.of(1L, 3L)))
+                .thenReturn(Map.of(1L, product(1L, 0), 3L, product(3L, 0)));
+        when(hotSkuInventoryService.isHot(anyLong())).thenAnswer(invocation -> Set.of(1L, 3L).contains(invocation.<Long>getArgument(0)));
+        List<CartOperationDTO> operations = List.of(
+                operation(CartOperationDTO.Type.UPDATE, 1L, 1),
+                operation(CartOperationDTO.Type.ADD, 3L, 2));
+
+        // Откат: увеличенный резерв снимается, уменьшение не применяется
+        completeTransaction(operations, TransactionSynchronization.STATUS_ROLLED_BACK);
+        verify(hotSkuInventoryService).resize(1L, 3L, 2);
+        verify(hotSkuInventoryService).release(1L, 3L);
+        verify(hotSkuInventoryService, never()).resize(1L, 1L, 1);
+
+        // Фиксация: уменьшение применяется после фиксации, увеличение остается
+        clearInvocations(hotSkuInventoryService);
+        completeTransaction(operations, TransactionSynchronization.STATUS_COMMITTED);
+        verify(hotSkuInventoryService).resize(1L, 3L, 2);
+        verify(hotSkuInventoryService).resize(1L, 1L, 1);
+        verify(hotSkuInventoryService, never()).release(anyLong(), anyLong());
+    }
+
+    /**
+     * Вспомогательный метод: применяет операции в имитации транзакции и завершает ее с указанным статусом.
+     * До завершения транзакции уменьшение резерва не применяется.
+     */
+    private void completeTransaction(List<CartOperationDTO> operations, int status) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cartService.applyBatch(1L, operations);
+            verify(hotSkuInventoryService, never()).resize(1L, 1L, 1);
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testCartViewTotalsUseSnapshotPrices() {
+        when(cartStore.getLines(1L)).thenReturn(List.of(
+                new CartLineDTO(11L, 1L, "First", 2, new BigDecimal("100.00"), new BigDecimal("120.00"), 5),
+                new CartLineDTO(12L, 2L, "Second", 3, null, new BigDecimal("50.00"), 2)));
+
+        CartViewDTO view = cartService.getCartView(1L);
+
+        assertEquals(5, view.getTotalQuantity());
+        assertEquals(new BigDecimal("350.00"), view.getTotal());
+        assertTrue(view.isPriceChanged());
+        assertFalse(view.isInStock());
+        assertTrue(view.getLines().get(0).isPriceChanged());
+        assertFalse(view.getLines().get(1).isPriceChanged());
+        assertFalse(view.getLines().get(1).isInStock());
+    }
+}
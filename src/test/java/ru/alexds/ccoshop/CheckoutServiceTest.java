@@ -0,0 +1,143 @@
+package ru.alexds.ccoshop;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.alexds.ccoshop.entity.*;
+import ru.alexds.ccoshop.exeption.InsufficientStockException;
+import ru.alexds.ccoshop.repository.CartItemRepository;
+import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.service.CartStore;
+import ru.alexds.ccoshop.service.CheckoutService;
+import ru.alexds.ccoshop.service.HotSkuInventoryService;
+import ru.alexds.ccoshop.service.InventoryService;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CheckoutServiceTest {
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private CartStore cartStore;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private CheckoutService checkoutService;
+
+    private User testUser;
+    private Product firstProduct;
+    private Product secondProduct;
+
+    @BeforeEach
+    public void setUp() {
+        testUser = new User();
+        testUser.setId(1L);
+
+        firstProduct = new Product();
+        firstProduct.setId(1L);
+        firstProduct.setName("First");
+        firstProduct.setPrice(new BigDecimal("100.00"));
+        firstProduct.setStockQuantity(10);
+
+        secondProduct = new Product();
+        secondProduct.setId(2L);
+        secondProduct.setName("Second");
+        secondProduct.setPrice(new BigDecimal("50.00"));
+        secondProduct.setStockQuantity(3);
+    }
+
+    private CartItem cartItem(Product product, int quantity) {
+        return CartItem.builder().user(testUser).product(product).quantity(quantity).price(product.getPrice()).build();
+    }
+
+    @Test
+    public void testCheckout_LoadsProductsOnceAndReservesStockInOneBatch() {
+        when(cartItemRepository.findByUserId(1L)).thenReturn(Arrays.asList(cartItem(secondProduct, 3), cartItem(firstProduct, 2)));
+        when(productRepository.findAllById(any())).thenReturn(Arrays.asList(firstProduct, secondProduct));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(1L);
+            return order;
+        });
+
+        Order order = checkoutService.checkout(1L);
+
+        assertEquals(2, order.getItems().size());
+        assertEquals(new BigDecimal("350.00"), order.getTotalPrice());
+        assertEquals(Status.NEW, order.getStatus());
+        verify(productRepository, times(1)).findAllById(argThat(ids -> ids.equals(Set.of(1L, 2L))
+                && ids.iterator().next().equals(1L)));
+        verify(productRepository, never()).findById(any());
+        verify(inventoryService, times(1)).reserveForOrder(1L, Map.of(1L, 2, 2L, 3));
+        verify(entityManager, times(1)).flush();
+        verify(cartStore, times(1)).flush(1L);
+        verify(cartItemRepository, times(1)).deleteAllByUserIdInBulk(1L);
+        verify(cartStore, times(1)).evict(1L);
+    }
+
+    @Test
+    public void testCheckout_InsufficientStock() {
+        when(cartItemRepository.findByUserId(1L)).thenReturn(Arrays.asList(cartItem(firstProduct, 2), cartItem(secondProduct, 4)));
+        when(productRepository.findAllById(any())).thenReturn(Arrays.asList(firstProduct, secondProduct));
+
+        assertThrows(InsufficientStockException.class, () -> checkoutService.checkout(1L));
+
+        verify(inventoryService, never()).reserveForOrder(any(), any());
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(cartItemRepository, never()).deleteAllByUserIdInBulk(any());
+        verify(cartStore, never()).evict(any());
+    }
+
+    @Test
+    public void testCheckout_StockTakenConcurrently() {
+        when(cartItemRepository.findByUserId(1L)).thenReturn(Collections.singletonList(cartItem(secondProduct, 3)));
+        when(productRepository.findAllById(any())).thenReturn(Collections.singletonList(secondProduct));
+        doThrow(new InsufficientStockException("Insufficient stock for product ID: 2")).when(inventoryService).reserveForOrder(any(), any());
+
+        assertThrows(InsufficientStockException.class, () -> checkoutService.checkout(1L));
+
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(cartItemRepository, never()).deleteAllByUserIdInBulk(any());
+    }
+
+    @Test
+    public void testCheckout_CartEmpty() {
+        when(cartItemRepository.findByUserId(1L)).thenReturn(Collections.emptyList());
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> checkoutService.checkout(1L));
+
+        assertEquals("Cart is empty, cannot create order", exception.getMessage());
+        verify(productRepository, never()).findAllById(any());
+    }
+}
@@ -0,0 +1,147 @@
+package ru.alexds.ccoshop;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.alexds.ccoshop.exeption.InsufficientStockException;
+import ru.alexds.ccoshop.service.HotSkuInventoryService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotSkuInventoryServiceTest {
+
+    private static final long HOT_PRODUCT_ID = 1L;
+    private static final int HOT_STOCK = 1000;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:hotsku" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, stock_quantity INT NOT NULL, updated_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO products (id, stock_quantity) VALUES (?, ?)", HOT_PRODUCT_ID, HOT_STOCK);
+    }
+
+    private HotSkuInventoryService service(Duration ttl) {
+        HotSkuInventoryService service = new HotSkuInventoryService(jdbcTemplate, true, List.of(HOT_PRODUCT_ID), ttl, 8, event -> { });
+        service.init();
+        return service;
+    }
+
+    private int stockInDb() {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, HOT_PRODUCT_ID);
+    }
+
+    @Test
+    public void testConcurrentReserveAndCommitNeverOversell() throws Exception {
+        HotSkuInventoryService service = service(Duration.ofMinutes(15));
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            long userBase = t * 10_000L;
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 500; i++) {
+                    long userId = userBase + i;
+                    int quantity = 1 + random.nextInt(3);
+                    try {
+                        service.reserve(userId, HOT_PRODUCT_ID, quantity);
+                        service.commit(userId, HOT_PRODUCT_ID, quantity);
+                        sold.addAndGet(quantity);
+                    } catch (InsufficientStockException e) {
+                        // Остаток исчерпан - ожидаемо при превышении спроса
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertTrue(sold.get() <= HOT_STOCK);
+        assertEquals(HOT_STOCK - sold.get(), service.getStatistics().get(HOT_PRODUCT_ID).get("available"));
+        assertEquals(HOT_STOCK, stockInDb()); // До сброса БД не трогается
+
+        service.flushPending();
+
+        assertEquals(HOT_STOCK - sold.get(), stockInDb());
+        assertEquals(0, service.getStatistics().get(HOT_PRODUCT_ID).get("pendingFlush"));
+    }
+
+    @Test
+    public void testExpiredReservationReturnsToStock() throws Exception {
+        HotSkuInventoryService service = service(Duration.ofMillis(1));
+        service.reserve(42L, HOT_PRODUCT_ID, HOT_STOCK);
+
+        assertThrows(InsufficientStockException.class, () -> service.reserve(43L, HOT_PRODUCT_ID, 1));
+
+        Thread.sleep(5);
+        service.expireReservations();
+
+        service.reserve(43L, HOT_PRODUCT_ID, 1);
+        assertEquals(HOT_STOCK - 1, service.getStatistics().get(HOT_PRODUCT_ID).get("available"));
+    }
+
+    @Test
+    public void testResizeAndReleaseAdjustReservation() {
+        HotSkuInventoryService service = service(Duration.ofMinutes(15));
+        service.reserve(1L, HOT_PRODUCT_ID, 5);
+        service.resize(1L, HOT_PRODUCT_ID, 2);
+
+        assertEquals(HOT_STOCK - 2, service.getStatistics().get(HOT_PRODUCT_ID).get("available"));
+
+        service.release(1L, HOT_PRODUCT_ID);
+
+        assertEquals(HOT_STOCK, service.getStatistics().get(HOT_PRODUCT_ID).get("available"));
+    }
+
+    @Test
+    public void testPendingSalesAreFlushedOnShutdown() {
+        HotSkuInventoryService service = service(Duration.ofMinutes(15));
+        service.reserve(7L, HOT_PRODUCT_ID, 5);
+        service.commit(7L, HOT_PRODUCT_ID, 5);
+
+        service.shutdown();
+
+        assertEquals(HOT_STOCK - 5, stockInDb());
+    }
+
+    @Test
+    public void testSaleCommittedAfterUnflagIsNotLost() {
+        HotSkuInventoryService service = service(Duration.ofMinutes(15));
+        service.reserve(7L, HOT_PRODUCT_ID, 3);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.commit(7L, HOT_PRODUCT_ID, 3);
+            service.unflag(HOT_PRODUCT_ID);
+            // Транзакция заказа фиксируется после снятия отметки
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(HOT_STOCK - 3, stockInDb());
+        assertFalse(service.isHot(HOT_PRODUCT_ID));
+    }
+}
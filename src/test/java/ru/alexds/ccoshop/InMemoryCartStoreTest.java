@@ -0,0 +1,145 @@
+package ru.alexds.ccoshop;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.alexds.ccoshop.dto.CartItemDTO;
+import ru.alexds.ccoshop.dto.CartLineDTO;
+import ru.alexds.ccoshop.exeption.CartItemNotFoundException;
+import ru.alexds.ccoshop.service.InMemoryCartStore;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryCartStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private InMemoryCartStore store;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:carts" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE cart_items (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "user_id BIGINT NOT NULL REFERENCES users (id), product_id BIGINT NOT NULL, quantity INT NOT NULL, price DECIMAL(19, 2), " +
+                "updated_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (1), (2)");
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(255), price DECIMAL(19, 2), stock_quantity INT)");
+        jdbcTemplate.update("INSERT INTO products (id, name, price, stock_quantity) VALUES (10, 'Ten', 6.00, 5), (20, 'Twenty', 7.00, 1)");
+
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        store = new InMemoryCartStore(jdbcTemplate, transactionManager, Duration.ofMinutes(30));
+    }
+
+    private long storedQuantity(long userId, long productId) {
+        List<Long> quantity = jdbcTemplate.queryForList(
+                "SELECT quantity FROM cart_items WHERE user_id = ? AND product_id = ?", Long.class, userId, productId);
+        return quantity.isEmpty() ? 0 : quantity.get(0);
+    }
+
+    private long storedRows(long userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items WHERE user_id = ?", Long.class, userId);
+    }
+
+    @Test
+    public void testMutationsAreCoalescedUntilFlush() {
+        CartItemDTO first = store.addItem(1L, 10L, 1, new BigDecimal("5.00"));
+        store.addItem(1L, 10L, 2, new BigDecimal("5.00"));
+        CartItemDTO second = store.addItem(1L, 20L, 1, new BigDecimal("7.00"));
+        store.updateQuantity(second.getId(), 4);
+
+        assertEquals(0, storedRows(1L));
+        assertEquals(3, store.getItems(1L).get(0).getQuantity());
+
+        assertEquals(1, store.flushDirtyCarts());
+        assertEquals(3, storedQuantity(1L, 10L));
+        assertEquals(4, storedQuantity(1L, 20L));
+        assertEquals(first.getId(), jdbcTemplate.queryForObject(
+                "SELECT id FROM cart_items WHERE product_id = 10", Long.class));
+
+        assertEquals(0, store.flushDirtyCarts());
+    }
+
+    @Test
+    public void testStoredCartIsLoadedOnFirstAccess() {
+        jdbcTemplate.update("INSERT INTO cart_items (id, user_id, product_id, quantity, price) VALUES (41, 2, 10, 2, 5.00)");
+
+        assertEquals(2, store.findItem(41L).orElseThrow().getUserId());
+
+        CartItemDTO added = store.addItem(2L, 20L, 1, new BigDecimal("7.00"));
+        assertEquals(42L, added.getId());
+
+        assertTrue(store.removeItem(41L).isPresent());
+        assertTrue(store.findItem(41L).isEmpty());
+        assertThrows(CartItemNotFoundException.class, () -> store.updateQuantity(41L, 3));
+
+        store.flushDirtyCarts();
+        assertEquals(0, storedQuantity(2L, 10L));
+        assertEquals(1, storedQuantity(2L, 20L));
+    }
+
+    @Test
+    public void testAddItemForUnknownUser() {
+        assertThrows(RuntimeException.class, () -> store.addItem(99L, 10L, 1, BigDecimal.ONE));
+        assertEquals(0, store.flushDirtyCarts());
+    }
+
+    @Test
+    public void testFlushAndEvictAtCheckout() {
+        store.addItem(1L, 10L, 2, new BigDecimal("5.00"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            store.flush(1L);
+            assertEquals(2, storedQuantity(1L, 10L));
+            jdbcTemplate.update("DELETE FROM cart_items WHERE user_id = ?", 1L);
+            store.evict(1L);
+        });
+
+        assertEquals(0, store.getCachedCartCount());
+        assertEquals(0, store.flushDirtyCarts());
+        assertTrue(store.getItems(1L).isEmpty());
+        assertEquals(0, storedRows(1L));
+    }
+
+    @Test
+    public void testRolledBackFlushIsRetried() {
+        store.addItem(1L, 10L, 2, new BigDecimal("5.00"));
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(tx -> {
+            store.flush(1L);
+            tx.setRollbackOnly();
+        });
+        assertEquals(0, storedRows(1L));
+
+        assertEquals(1, store.flushDirtyCarts());
+        assertEquals(2, storedQuantity(1L, 10L));
+    }
+
+    @Test
+    public void testLinesJoinProductData() {
+        store.addItem(1L, 10L, 2, new BigDecimal("5.00"));
+        store.addItem(1L, 20L, 2, new BigDecimal("7.00"));
+
+        List<CartLineDTO> lines = store.getLines(1L);
+
+        assertEquals(2, lines.size());
+        assertEquals("Ten", lines.get(0).getProductName());
+        assertEquals(new BigDecimal("10.00"), lines.get(0).getLineTotal());
+        assertTrue(lines.get(0).isPriceChanged());
+        assertFalse(lines.get(1).isPriceChanged());
+        assertFalse(lines.get(1).isInStock());
+        assertTrue(store.getLines(2L).isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package ru.alexds.ccoshop;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.alexds.ccoshop.exeption.InsufficientStockException;
+import ru.alexds.ccoshop.service.HotSkuInventoryService;
+import ru.alexds.ccoshop.service.InventoryService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочный тест атомарного списания остатков: множество потоков одновременно оформляют заказы
+ * на одни и те же товары, и суммарно проданное количество не должно превышать начальный остаток.
+ */
+public class InventoryServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 200;
+    private static final int HOT_STOCK = 500;
+    private static final int SECOND_STOCK = 300;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:inventory" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000");
+        dataSource.setUser("sa");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, stock_quantity INT NOT NULL, updated_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO products (id, stock_quantity) VALUES (1, ?), (2, ?)", HOT_STOCK, SECOND_STOCK);
+
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        inventoryService = new InventoryService(jdbcTemplate,
+                new HotSkuInventoryService(jdbcTemplate, false, List.of(), Duration.ofMinutes(15), 8, event -> { }),
+                event -> { });
+    }
+
+    private int stockOf(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    @Test
+    public void testConcurrentReservationsNeverOversell() throws Exception {
+        AtomicInteger soldHot = new AtomicInteger();
+        AtomicInteger soldSecond = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    int hotQuantity = 1 + random.nextInt(3);
+                    int secondQuantity = random.nextBoolean() ? 1 + random.nextInt(2) : 0;
+                    try {
+                        // Порядок ключей в карте намеренно произвольный: сервис сам сортирует строки
+                        transactionTemplate.executeWithoutResult(status ->
+                                inventoryService.reserve(secondQuantity > 0
+                                        ? Map.of(2L, secondQuantity, 1L, hotQuantity)
+                                        : Map.of(1L, hotQuantity)));
+                        soldHot.addAndGet(hotQuantity);
+                        soldSecond.addAndGet(secondQuantity);
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertTrue(rejected.get() > 0, "Спрос должен превышать остаток, иначе тест ничего не проверяет");
+        assertTrue(stockOf(1L) >= 0);
+        assertTrue(stockOf(2L) >= 0);
+        assertEquals(HOT_STOCK, soldHot.get() + stockOf(1L));
+        assertEquals(SECOND_STOCK, soldSecond.get() + stockOf(2L));
+    }
+
+    @Test
+    public void testFailedReservationRollsBackWholeBatch() {
+        assertThrows(InsufficientStockException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                inventoryService.reserve(Map.of(1L, 10, 2L, SECOND_STOCK + 1))));
+
+        assertEquals(HOT_STOCK, stockOf(1L));
+        assertEquals(SECOND_STOCK, stockOf(2L));
+    }
+
+    @Test
+    public void testReleaseReturnsStock() {
+        transactionTemplate.executeWithoutResult(status -> inventoryService.reserve(Map.of(1L, 5)));
+        transactionTemplate.executeWithoutResult(status -> inventoryService.release(Map.of(1L, 5)));
+
+        assertEquals(HOT_STOCK, stockOf(1L));
+    }
+}
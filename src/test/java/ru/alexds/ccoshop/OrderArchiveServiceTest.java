@@ -0,0 +1,96 @@
+package ru.alexds.ccoshop;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.repository.ArchivedOrderItemRepository;
+import ru.alexds.ccoshop.repository.ArchivedOrderRepository;
+import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.service.OrderArchiveService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class OrderArchiveServiceTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private OrderRepository orderRepository;
+    private OrderArchiveService service;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:archive" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, user_id BIGINT, status VARCHAR(32), order_date TIMESTAMP, total_price DECIMAL(19, 2))");
+        jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT PRIMARY KEY, order_id BIGINT REFERENCES orders (id), product_id BIGINT, quantity INT, price DECIMAL(19, 2))");
+        jdbcTemplate.execute("CREATE TABLE orders_archive (id BIGINT PRIMARY KEY, user_id BIGINT, status VARCHAR(32), order_date TIMESTAMP, " +
+                "total_price DECIMAL(19, 2), archived_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE order_items_archive (id BIGINT PRIMARY KEY, order_id BIGINT, product_id BIGINT, quantity INT, price DECIMAL(19, 2))");
+
+        orderRepository = mock(OrderRepository.class);
+        service = new OrderArchiveService(jdbcTemplate, orderRepository, mock(ArchivedOrderRepository.class),
+                mock(ArchivedOrderItemRepository.class), new DataSourceTransactionManager(dataSource), Duration.ofDays(365), 2);
+    }
+
+    private void givenOrder(long orderId, Status status, LocalDateTime orderDate) {
+        jdbcTemplate.update("INSERT INTO orders (id, user_id, status, order_date, total_price) VALUES (?, 1, ?, ?, 10.00)",
+                orderId, status.name(), orderDate);
+        jdbcTemplate.update("INSERT INTO order_items (id, order_id, product_id, quantity, price) VALUES (?, ?, 7, 1, 10.00)",
+                orderId * 10, orderId);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    @Test
+    public void testOrdersAreMovedInChunks() {
+        givenOrder(1L, Status.COMPLETED, CUTOFF.minusDays(10));
+        givenOrder(2L, Status.CANCELLED, CUTOFF.minusDays(5));
+        givenOrder(3L, Status.COMPLETED, CUTOFF.minusDays(1));
+        givenOrder(4L, Status.COMPLETED, CUTOFF.plusDays(1));
+        when(orderRepository.findIdsByStatusBefore(any(), eq(CUTOFF), eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(orderRepository.findIdsByStatusBefore(any(), eq(CUTOFF), eq(2L), any())).thenReturn(List.of(3L));
+
+        int archived = service.archiveOrdersBefore(CUTOFF);
+
+        assertEquals(3, archived);
+        assertEquals(1L, count("orders"));
+        assertEquals(1L, count("order_items"));
+        assertEquals(3L, count("orders_archive"));
+        assertEquals(3L, count("order_items_archive"));
+        assertEquals(0, new BigDecimal("10.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT total_price FROM orders_archive WHERE id = 2", BigDecimal.class)));
+        assertEquals("CANCELLED", jdbcTemplate.queryForObject("SELECT status FROM orders_archive WHERE id = 2", String.class));
+    }
+
+    @Test
+    public void testOrderChangedAfterSelectionIsNotArchived() {
+        givenOrder(1L, Status.COMPLETED, CUTOFF.minusDays(10));
+        givenOrder(2L, Status.COMPLETED, CUTOFF.minusDays(10));
+        when(orderRepository.findIdsByStatusBefore(any(), eq(CUTOFF), anyLong(), any())).thenReturn(List.of(1L, 2L), List.of());
+        jdbcTemplate.update("UPDATE orders SET status = 'DELIVERED' WHERE id = 2");
+
+        int archived = service.archiveOrdersBefore(CUTOFF);
+
+        assertEquals(1, archived);
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT id FROM orders", Long.class));
+        assertEquals(1L, count("order_items_archive"));
+    }
+}
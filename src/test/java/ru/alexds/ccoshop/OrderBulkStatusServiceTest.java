@@ -0,0 +1,118 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.alexds.ccoshop.dto.BulkStatusUpdateResultDTO;
+import ru.alexds.ccoshop.dto.OrderStatusOutcomeDTO.Outcome;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.OrderItemRepository;
+import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.service.InventoryService;
+import ru.alexds.ccoshop.service.OrderBulkStatusService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderBulkStatusServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderBulkStatusService bulkStatusService;
+
+    @BeforeEach
+    public void setUp() {
+        bulkStatusService = new OrderBulkStatusService(orderRepository, orderItemRepository, inventoryService,
+                eventPublisher, transactionManager, 2);
+    }
+
+    private static Object[] state(long id, Status status) {
+        return new Object[]{id, 7L, status, new BigDecimal("10.00"), LocalDateTime.of(2025, 5, 1, 12, 0)};
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    @Test
+    public void testOutcomesAreReportedPerOrder() {
+        when(orderRepository.lockStatesByIdIn(List.of(1L, 2L))).thenReturn(rows(state(1L, Status.PAID), state(2L, Status.NEW)));
+        when(orderRepository.lockStatesByIdIn(List.of(3L))).thenReturn(rows());
+
+        BulkStatusUpdateResultDTO result = bulkStatusService.updateStatuses(List.of(1L, 2L, 1L, 3L), Status.SHIPPED);
+
+        assertEquals(1, result.getUpdated());
+        assertEquals(2, result.getRejected());
+        assertEquals(3, result.getResults().size());
+        assertEquals(Outcome.UPDATED, result.getResults().get(0).getOutcome());
+        assertEquals(Outcome.INVALID_TRANSITION, result.getResults().get(1).getOutcome());
+        assertEquals(Status.NEW, result.getResults().get(1).getPreviousStatus());
+        assertEquals(Outcome.NOT_FOUND, result.getResults().get(2).getOutcome());
+
+        verify(orderRepository).updateStatusByIdIn(List.of(1L), EnumSet.of(Status.PAID), Status.SHIPPED);
+        ArgumentCaptor<OrderStatusChangedEvent> event = ArgumentCaptor.forClass(OrderStatusChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(Status.PAID, event.getValue().getPreviousStatus());
+        assertEquals(Status.SHIPPED, event.getValue().getNewStatus());
+        verifyNoInteractions(inventoryService);
+    }
+
+    @Test
+    public void testBulkCancellationRestocksAggregatedQuantities() {
+        when(orderRepository.lockStatesByIdIn(List.of(1L, 2L))).thenReturn(rows(state(1L, Status.NEW), state(2L, Status.PAID)));
+        when(orderItemRepository.sumQuantityByProduct(List.of(1L, 2L)))
+                .thenReturn(rows(new Object[]{10L, 5L}, new Object[]{11L, 1L}));
+
+        BulkStatusUpdateResultDTO result = bulkStatusService.updateStatuses(List.of(1L, 2L), Status.CANCELLED);
+
+        assertEquals(2, result.getUpdated());
+        verify(inventoryService).releaseForOrder(Map.of(10L, 5, 11L, 1));
+        verify(eventPublisher, times(2)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void testCancelledOrdersAreNotRestockedTwice() {
+        when(orderRepository.lockStatesByIdIn(List.of(1L))).thenReturn(rows(state(1L, Status.CANCELLED)));
+
+        BulkStatusUpdateResultDTO result = bulkStatusService.updateStatuses(List.of(1L), Status.CANCELLED);
+
+        assertEquals(Outcome.INVALID_TRANSITION, result.getResults().get(0).getOutcome());
+        verify(orderRepository, never()).updateStatusByIdIn(anyCollection(), anyCollection(), any());
+        verifyNoInteractions(inventoryService, eventPublisher);
+    }
+
+    @Test
+    public void testTransitionToNewIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> bulkStatusService.updateStatuses(List.of(1L), Status.NEW));
+        verifyNoInteractions(orderRepository);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.alexds.ccoshop;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.alexds.ccoshop.service.OrderExportService;
+
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderExportServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2025, 4, 1, 0, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private OrderExportService service;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:export" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, user_id BIGINT, status VARCHAR(32), order_date TIMESTAMP, total_price DECIMAL(19, 2))");
+        jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT PRIMARY KEY, order_id BIGINT, product_id BIGINT, quantity INT, price DECIMAL(19, 2))");
+        jdbcTemplate.execute("CREATE TABLE orders_archive (id BIGINT PRIMARY KEY, user_id BIGINT, status VARCHAR(32), order_date TIMESTAMP, " +
+                "total_price DECIMAL(19, 2), archived_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE order_items_archive (id BIGINT PRIMARY KEY, order_id BIGINT, product_id BIGINT, quantity INT, price DECIMAL(19, 2))");
+
+        jdbcTemplate.update("INSERT INTO products VALUES (1, 'Chair, oak'), (2, 'Lamp \"Nova\"')");
+        jdbcTemplate.update("INSERT INTO orders VALUES (10, 7, 'PAID', ?, 250.00)", LocalDateTime.of(2025, 2, 1, 9, 0));
+        jdbcTemplate.update("INSERT INTO orders VALUES (11, 8, 'NEW', ?, 0.00)", LocalDateTime.of(2025, 2, 2, 9, 0));
+        jdbcTemplate.update("INSERT INTO orders VALUES (12, 7, 'PAID', ?, 99.00)", LocalDateTime.of(2025, 5, 1, 9, 0)); // Вне периода
+        jdbcTemplate.update("INSERT INTO order_items VALUES (100, 10, 1, 2, 100.00), (101, 10, 2, 1, 50.00), (102, 12, 1, 1, 99.00)");
+
+        service = new OrderExportService(dataSource, 2);
+    }
+
+    @Test
+    public void testExportCsvWritesOneRowPerItem() {
+        StringWriter writer = new StringWriter();
+
+        long rows = service.exportCsv(FROM, TO, writer);
+
+        String[] lines = writer.toString().split("\n");
+        assertEquals(3, rows);
+        assertEquals(4, lines.length);
+        assertEquals("order_id,user_id,order_date,status,order_total,product_id,product_name,quantity,price", lines[0]);
+        assertEquals("10,7,2025-02-01T09:00,PAID,250.00,1,\"Chair, oak\",2,100.00", lines[1]);
+        assertEquals("10,7,2025-02-01T09:00,PAID,250.00,2,\"Lamp \"\"Nova\"\"\",1,50.00", lines[2]);
+        assertEquals("11,8,2025-02-02T09:00,NEW,0.00,,,,", lines[3]);
+    }
+
+    @Test
+    public void testExportNdjsonGroupsItemsByOrder() throws Exception {
+        StringWriter writer = new StringWriter();
+
+        long orders = service.exportNdjson(FROM, TO, writer);
+
+        String[] lines = writer.toString().split("\n");
+        assertEquals(2, orders);
+        assertEquals(2, lines.length);
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode first = mapper.readTree(lines[0]);
+        assertEquals(10L, first.get("id").asLong());
+        assertEquals(2, first.get("items").size());
+        assertEquals("Lamp \"Nova\"", first.get("items").get(1).get("productName").asText());
+        assertTrue(lines[0].contains("\"totalPrice\":250.00"));
+
+        JsonNode second = mapper.readTree(lines[1]);
+        assertEquals(11L, second.get("id").asLong());
+        assertEquals(0, second.get("items").size());
+    }
+
+    @Test
+    public void testArchivedOrdersAreExported() {
+        jdbcTemplate.update("INSERT INTO orders_archive VALUES (5, 9, 'COMPLETED', ?, 40.00, ?)",
+                LocalDateTime.of(2025, 2, 1, 8, 0), LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO order_items_archive VALUES (50, 5, 2, 2, 20.00)");
+        StringWriter writer = new StringWriter();
+
+        long rows = service.exportCsv(FROM, TO, writer);
+
+        String[] lines = writer.toString().split("\n");
+        assertEquals(4, rows);
+        assertEquals("5,9,2025-02-01T08:00,COMPLETED,40.00,2,\"Lamp \"\"Nova\"\"\",2,20.00", lines[1]);
+        assertTrue(lines[2].startsWith("10,7,"));
+    }
+
+    @Test
+    public void testInvalidRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.exportCsv(TO, FROM, new StringWriter()));
+    }
+}
@@ -0,0 +1,125 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.alexds.ccoshop.entity.OrderEventType;
+import ru.alexds.ccoshop.entity.OrderOutboxEvent;
+import ru.alexds.ccoshop.entity.OutboxStatus;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderEventSubscriber;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.OrderOutboxRepository;
+import ru.alexds.ccoshop.service.OrderOutboxService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderOutboxServiceTest {
+
+    @Mock
+    private OrderOutboxRepository outboxRepository;
+
+    @Mock
+    private OrderEventSubscriber firstSubscriber;
+
+    @Mock
+    private OrderEventSubscriber secondSubscriber;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderOutboxService outboxService;
+
+    @BeforeEach
+    public void setUp() {
+        outboxService = new OrderOutboxService(outboxRepository, List.of(firstSubscriber, secondSubscriber), transactionManager,
+                100, 3, Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofDays(7));
+    }
+
+    private OrderOutboxEvent pendingEvent(int attempts) {
+        return OrderOutboxEvent.builder()
+                .id(5L)
+                .eventType(OrderEventType.CREATED)
+                .orderId(10L)
+                .userId(1L)
+                .newStatus(Status.NEW)
+                .status(OutboxStatus.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    public void testStatusChangeIsWrittenToOutbox() {
+        outboxService.onOrderStatusChanged(new OrderStatusChangedEvent(10L, 1L, Status.PAID, Status.CANCELLED,
+                new BigDecimal("50.00"), LocalDateTime.now()));
+
+        ArgumentCaptor<OrderOutboxEvent> captor = ArgumentCaptor.forClass(OrderOutboxEvent.class);
+        verify(outboxRepository).save(captor.capture());
+        assertEquals(OrderEventType.CANCELLED, captor.getValue().getEventType());
+        assertEquals(OutboxStatus.PENDING, captor.getValue().getStatus());
+        assertEquals(Status.PAID, captor.getValue().getPreviousStatus());
+    }
+
+    @Test
+    public void testDispatchDeliversToAllSubscribers() {
+        OrderOutboxEvent event = pendingEvent(0);
+        when(outboxRepository.findDueForUpdate(eq(OutboxStatus.PENDING), any(), eq(PageRequest.of(0, 100)))).thenReturn(List.of(event));
+        when(outboxRepository.findById(5L)).thenReturn(Optional.of(event));
+
+        int delivered = outboxService.dispatchPending();
+
+        assertEquals(1, delivered);
+        verify(firstSubscriber).onOrderEvent(event);
+        verify(secondSubscriber).onOrderEvent(event);
+        assertEquals(OutboxStatus.PROCESSED, event.getStatus());
+        assertNotNull(event.getProcessedAt());
+    }
+
+    @Test
+    public void testFailedDeliveryIsRetriedWithBackoff() {
+        OrderOutboxEvent event = pendingEvent(0);
+        when(outboxRepository.findDueForUpdate(eq(OutboxStatus.PENDING), any(), any())).thenReturn(List.of(event));
+        when(outboxRepository.findById(5L)).thenReturn(Optional.of(event));
+        doThrow(new IllegalStateException("recommendations unavailable")).when(secondSubscriber).onOrderEvent(event);
+
+        int delivered = outboxService.dispatchPending();
+
+        assertEquals(0, delivered);
+        assertEquals(OutboxStatus.PENDING, event.getStatus());
+        assertEquals(1, event.getAttempts());
+        assertEquals("recommendations unavailable", event.getLastError());
+        assertTrue(event.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        verify(transactionManager, atLeastOnce()).rollback(any());
+    }
+
+    @Test
+    public void testDeliveryFailsPermanentlyAfterMaxAttempts() {
+        OrderOutboxEvent event = pendingEvent(2);
+        when(outboxRepository.findDueForUpdate(eq(OutboxStatus.PENDING), any(), any())).thenReturn(List.of(event));
+        when(outboxRepository.findById(5L)).thenReturn(Optional.of(event));
+        doThrow(new IllegalStateException("boom")).when(firstSubscriber).onOrderEvent(event);
+
+        outboxService.dispatchPending();
+
+        assertEquals(OutboxStatus.FAILED, event.getStatus());
+        assertEquals(3, event.getAttempts());
+        verify(secondSubscriber, never()).onOrderEvent(any());
+    }
+}
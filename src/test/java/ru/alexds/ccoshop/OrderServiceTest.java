@@ -7,12 +7,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import ru.alexds.ccoshop.dto.CartItemDTO;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import ru.alexds.ccoshop.dto.CursorPageDTO;
 import ru.alexds.ccoshop.dto.OrderDTO;
-import ru.alexds.ccoshop.dto.RatingDTO;
+import ru.alexds.ccoshop.dto.OrderItemDTO;
 import ru.alexds.ccoshop.entity.*;
 import ru.alexds.ccoshop.exeption.OrderNotFoundException;
+import ru.alexds.ccoshop.repository.OrderItemRepository;
 import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.utilites.KeysetCursor;
 import ru.alexds.ccoshop.service.*;
 
 import java.math.BigDecimal;
@@ -30,6 +34,9 @@ public class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
     @Mock
     private UserService userService;
 
@@ -37,17 +44,31 @@ public class OrderServiceTest {
     private ProductService productService;
 
     @Mock
-    private CartService cartService;
+    private CheckoutService checkoutService;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    @Mock
+    private OrderSummaryService orderSummaryService;
 
     @Mock
-    private RatingService ratingService;
+    private OrderArchiveService orderArchiveService;
+
+    @Mock
+    private PurchasedProductsService purchasedProductsService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private OrderService orderService;
 
     private User testUser;
     private Product testProduct;
-    private List<CartItemDTO> testCartItems;
     private List<OrderItem> testOrderItems;
     private Order testOrder;
 
@@ -61,8 +82,6 @@ public class OrderServiceTest {
         testProduct.setPrice(new BigDecimal("100.00"));
         testProduct.setStockQuantity(10);
 
-        testCartItems = Arrays.asList(CartItemDTO.builder().productId(1L).quantity(2).price(new BigDecimal("100.00")).build());
-
         testOrderItems = Arrays.asList(OrderItem.builder().product(testProduct).quantity(2).price(new BigDecimal("100.00")).build());
 
         testOrder = new Order();
@@ -151,6 +170,18 @@ public class OrderServiceTest {
         verify(orderRepository, times(1)).findById(1L);
     }
 
+    @Test
+    public void testGetOrderById_FallsBackToArchive() {
+        OrderDTO archived = new OrderDTO(1L, 1L, LocalDateTime.now().minusYears(2), Status.COMPLETED, new BigDecimal("20.00"));
+        when(orderRepository.findById(1L)).thenReturn(Optional.empty());
+        when(orderArchiveService.findById(1L)).thenReturn(Optional.of(archived));
+
+        Optional<OrderDTO> orderOptional = orderService.getOrderById(1L);
+
+        assertTrue(orderOptional.isPresent());
+        assertEquals(Status.COMPLETED, orderOptional.get().getStatus());
+    }
+
     @Test
     public void testUpdateOrderStatus() {
         when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
@@ -194,46 +225,77 @@ public class OrderServiceTest {
 
     @Test
     public void testGetPurchasedProducts() {
-        when(orderRepository.findCompletedOrdersByUserId(1L)).thenReturn(Arrays.asList(testOrder));
+        when(purchasedProductsService.getPurchasedProducts(1L)).thenReturn(Arrays.asList(testProduct));
 
         List<Product> products = orderService.getPurchasedProducts(1L);
 
         assertNotNull(products);
         assertEquals(1, products.size());
-        verify(orderRepository, times(1)).findCompletedOrdersByUserId(1L);
+        verify(purchasedProductsService, times(1)).getPurchasedProducts(1L);
     }
 
     @Test
     public void testGetPurchasedProducts_NoOrders() {
-        when(orderRepository.findCompletedOrdersByUserId(1L)).thenReturn(Collections.emptyList());
+        when(purchasedProductsService.getPurchasedProducts(1L)).thenReturn(Collections.emptyList());
 
         List<Product> products = orderService.getPurchasedProducts(1L);
 
         assertNotNull(products);
         assertTrue(products.isEmpty());
-        verify(orderRepository, times(1)).findCompletedOrdersByUserId(1L);
+        verify(purchasedProductsService, times(1)).getPurchasedProducts(1L);
     }
 
     @Test
     public void testCalculateUserTotalSpent() {
-        when(orderRepository.findByUserIdAndStatus(1L, Status.COMPLETED)).thenReturn(Arrays.asList(testOrder));
+        when(orderSummaryService.getSummary(1L)).thenReturn(Optional.of(testSummary()));
 
         BigDecimal totalSpent = orderService.calculateUserTotalSpent(1L);
 
         assertNotNull(totalSpent);
         assertEquals(new BigDecimal("200.00"), totalSpent);
-        verify(orderRepository, times(1)).findByUserIdAndStatus(1L, Status.COMPLETED);
+        verify(orderRepository, never()).findByUserIdAndStatus(anyLong(), any());
     }
 
     @Test
     public void testCalculateUserAverageOrderAmount() {
-        when(orderRepository.findByUserIdAndStatus(1L, Status.COMPLETED)).thenReturn(Arrays.asList(testOrder));
+        when(orderSummaryService.getSummary(1L)).thenReturn(Optional.of(testSummary()));
 
         BigDecimal averageOrderAmount = orderService.calculateUserAverageOrderAmount(1L);
 
         assertNotNull(averageOrderAmount);
         assertEquals(new BigDecimal("200.00"), averageOrderAmount);
-        verify(orderRepository, times(1)).findByUserIdAndStatus(1L, Status.COMPLETED);
+        verify(orderRepository, never()).findByUserIdAndStatus(anyLong(), any());
+    }
+
+    @Test
+    public void testGetUserOrderStatistics() {
+        when(orderSummaryService.getSummary(1L)).thenReturn(Optional.of(UserOrderSummary.builder()
+                .userId(1L)
+                .completedOrders(3)
+                .totalSpent(new BigDecimal("600.00"))
+                .minOrderAmount(new BigDecimal("100.00"))
+                .maxOrderAmount(new BigDecimal("300.00"))
+                .build()));
+
+        Map<String, Object> statistics = orderService.getUserOrderStatistics(1L);
+
+        assertEquals(new BigDecimal("600.00"), statistics.get("totalSpent"));
+        assertEquals(new BigDecimal("200.00"), statistics.get("averageOrderAmount"));
+        assertEquals(3L, statistics.get("totalOrders"));
+        assertEquals(new BigDecimal("100.00"), statistics.get("minOrderAmount"));
+        assertEquals(new BigDecimal("300.00"), statistics.get("maxOrderAmount"));
+        verify(orderSummaryService, times(1)).getSummary(1L);
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    public void testGetUserOrderStatistics_NoCompletedOrders() {
+        when(orderSummaryService.getSummary(1L)).thenReturn(Optional.empty());
+
+        Map<String, Object> statistics = orderService.getUserOrderStatistics(1L);
+
+        assertEquals(BigDecimal.ZERO, statistics.get("totalSpent"));
+        assertEquals(0L, statistics.get("totalOrders"));
     }
 
     @Test
@@ -249,46 +311,91 @@ public class OrderServiceTest {
 
     @Test
     public void testCalculateMonthlySpending() {
-        when(orderRepository.findByUserIdAndStatus(1L, Status.COMPLETED)).thenReturn(Arrays.asList(testOrder));
+        YearMonth yearMonth = YearMonth.from(testOrder.getOrderDate());
+        when(orderSummaryService.getMonthlySpending(1L)).thenReturn(Map.of(yearMonth, new BigDecimal("200.00")));
 
         Map<YearMonth, BigDecimal> monthlySpending = orderService.calculateMonthlySpending(1L);
 
         assertNotNull(monthlySpending);
-        YearMonth yearMonth = YearMonth.from(testOrder.getOrderDate());
         assertTrue(monthlySpending.containsKey(yearMonth));
         assertEquals(new BigDecimal("200.00"), monthlySpending.get(yearMonth));
-        verify(orderRepository, times(1)).findByUserIdAndStatus(1L, Status.COMPLETED);
+        verify(orderRepository, never()).findByUserIdAndStatus(anyLong(), any());
+    }
+
+    @Test
+    public void testGetOrdersPage_FirstPage() {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 1, 10, 0);
+        when(orderRepository.findOrderViewsFirst(PageRequest.of(0, 3))).thenReturn(new ArrayList<>(List.of(
+                new OrderDTO(30L, 1L, date, Status.NEW, new BigDecimal("10.00")),
+                new OrderDTO(20L, 1L, date, Status.PAID, new BigDecimal("20.00")),
+                new OrderDTO(10L, 2L, date.minusDays(1), Status.NEW, new BigDecimal("30.00")))));
+        when(orderItemRepository.findViewsByOrderIdIn(any())).thenReturn(List.of(
+                new OrderItemDTO(1L, 30L, 5L, "Product", 2, new BigDecimal("5.00")),
+                new OrderItemDTO(2L, 20L, 5L, "Product", 4, new BigDecimal("5.00"))));
+
+        CursorPageDTO<OrderDTO> page = orderService.getOrdersPage(null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(1, page.getItems().get(0).getItems().size());
+        assertEquals(new BigDecimal("20.00"), page.getItems().get(1).getItems().get(0).getTotalPrice());
+        KeysetCursor next = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(date, next.getTimestamp());
+        assertEquals(20L, next.getId());
+        verify(orderItemRepository, times(1)).findViewsByOrderIdIn(Set.of(30L, 20L));
+    }
+
+    @Test
+    public void testGetOrdersPage_LastPageAfterCursor() {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 1, 10, 0);
+        when(orderRepository.findOrderViewsAfter(date, 20L, PageRequest.of(0, 3))).thenReturn(new ArrayList<>(List.of(
+                new OrderDTO(10L, 2L, date.minusDays(1), Status.NEW, new BigDecimal("30.00")))));
+
+        CursorPageDTO<OrderDTO> page = orderService.getOrdersPage(new KeysetCursor(date, 20L).encode(), 2);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testGetOrdersPage_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrdersPage("not-a-cursor", 10));
+        // Курсор без момента времени (как у каталога продуктов) не подходит для ленты заказов
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrdersPage(KeysetCursor.ofId(20L).encode(), 10));
+        verify(orderRepository, never()).findOrderViewsAfter(any(), any(), any());
+        verifyNoInteractions(orderItemRepository);
+    }
+
+    private UserOrderSummary testSummary() {
+        return UserOrderSummary.builder()
+                .userId(1L)
+                .completedOrders(1)
+                .totalSpent(new BigDecimal("200.00"))
+                .minOrderAmount(new BigDecimal("200.00"))
+                .maxOrderAmount(new BigDecimal("200.00"))
+                .build();
     }
 
     @Test
     public void testCreateOrderFromCart() {
-        when(cartService.getCartItemsForUser(1L)).thenReturn(testCartItems);
-        when(userService.getUserEntityById(1L)).thenReturn(Optional.of(testUser));
-        when(productService.getProductEntityById(1L)).thenReturn(Optional.of(testProduct));
-        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
-            Order order = invocation.getArgument(0);
-            order.setId(1L);
-            return order;
-        });
-        when(ratingService.saveRating(any(RatingDTO.class))).thenReturn(new Rating());
+        when(checkoutService.checkout(1L)).thenReturn(testOrder);
 
         OrderDTO result = orderService.createOrderFromCart(1L);
 
         assertNotNull(result);
         assertEquals(1L, result.getId());
-        verify(orderRepository, times(1)).save(any(Order.class));
-        verify(cartService, times(1)).clearCartForUser(1L);
-        verify(ratingService, times(1)).saveRating(any(RatingDTO.class));
+        verify(checkoutService, times(1)).checkout(1L);
+        verify(productService, never()).updateProduct(anyLong(), any());
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class)); // Рейтинги сохраняет подписчик outbox
     }
 
     @Test
     public void testCreateOrderFromCart_CartEmpty() {
-        when(cartService.getCartItemsForUser(1L)).thenReturn(Collections.emptyList());
+        when(checkoutService.checkout(1L)).thenThrow(new RuntimeException("Cart is empty, cannot create order"));
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> orderService.createOrderFromCart(1L));
 
         assertEquals("Cart is empty, cannot create order", exception.getMessage());
-        verify(orderRepository, never()).save(any(Order.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
@@ -0,0 +1,110 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.alexds.ccoshop.dto.OrderStatusUpdateDTO;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.event.PaymentProcessedEvent;
+import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.service.OrderStatusStreamService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderStatusStreamServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private OrderStatusStreamService streamService;
+
+    @BeforeEach
+    public void setUp() {
+        streamService = new OrderStatusStreamService(orderRepository, Duration.ofMinutes(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ResponseEntity<OrderStatusUpdateDTO> resultOf(DeferredResult<ResponseEntity<OrderStatusUpdateDTO>> result) {
+        return (ResponseEntity<OrderStatusUpdateDTO>) result.getResult();
+    }
+
+    @Test
+    public void testPollReturnsImmediatelyWhenStatusAlreadyChanged() {
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(Status.PAID));
+
+        DeferredResult<ResponseEntity<OrderStatusUpdateDTO>> result =
+                streamService.awaitStatusChange(1L, Status.NEW, Duration.ofSeconds(30)).orElseThrow();
+
+        assertTrue(result.hasResult());
+        assertEquals(Status.PAID, resultOf(result).getBody().getStatus());
+    }
+
+    @Test
+    public void testPollCompletesAfterStatusChange() {
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(Status.NEW));
+
+        DeferredResult<ResponseEntity<OrderStatusUpdateDTO>> result =
+                streamService.awaitStatusChange(1L, Status.NEW, Duration.ofSeconds(30)).orElseThrow();
+        assertFalse(result.hasResult());
+        assertEquals(1, streamService.getSubscriberCount());
+
+        streamService.onOrderStatusChanged(new OrderStatusChangedEvent(1L, 7L, Status.NEW, Status.PAID,
+                new BigDecimal("100.00"), LocalDateTime.now()));
+
+        assertEquals(HttpStatus.OK, resultOf(result).getStatusCode());
+        assertEquals(Status.PAID, resultOf(result).getBody().getStatus());
+        assertEquals(0, streamService.getSubscriberCount());
+    }
+
+    @Test
+    public void testFailedPaymentCompletesPoll() {
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(Status.NEW));
+
+        DeferredResult<ResponseEntity<OrderStatusUpdateDTO>> result =
+                streamService.awaitStatusChange(1L, Status.NEW, Duration.ofSeconds(30)).orElseThrow();
+        streamService.onPaymentProcessed(new PaymentProcessedEvent(1L, "FAILED", "Payment failed", 100.0));
+
+        OrderStatusUpdateDTO update = resultOf(result).getBody();
+        assertEquals(Status.NEW, update.getStatus());
+        assertEquals("FAILED", update.getPaymentStatus());
+    }
+
+    @Test
+    public void testUnknownOrderIsNotSubscribed() {
+        when(orderRepository.findStatusById(99L)).thenReturn(Optional.empty());
+
+        assertTrue(streamService.awaitStatusChange(99L, Status.NEW, Duration.ofSeconds(30)).isEmpty());
+        assertTrue(streamService.subscribe(99L).isEmpty());
+        assertEquals(0, streamService.getSubscriberCount());
+    }
+
+    @Test
+    public void testEventsWithoutSubscribersDoNotQueryOrders() {
+        streamService.onPaymentProcessed(new PaymentProcessedEvent(1L, "SUCCESS", "Payment was successful", 100.0));
+        streamService.onOrderStatusChanged(new OrderStatusChangedEvent(1L, 7L, Status.NEW, Status.PAID,
+                new BigDecimal("100.00"), LocalDateTime.now()));
+
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    public void testStreamSubscriptionIsRegistered() {
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(Status.NEW));
+
+        assertTrue(streamService.subscribe(1L).isPresent());
+        assertEquals(1, streamService.getSubscriberCount());
+    }
+}
@@ -0,0 +1,176 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.entity.UserMonthlySpending;
+import ru.alexds.ccoshop.entity.UserOrderSummary;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.ArchivedOrderRepository;
+import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.repository.UserMonthlySpendingRepository;
+import ru.alexds.ccoshop.repository.UserOrderSummaryRepository;
+import ru.alexds.ccoshop.service.OrderSummaryService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderSummaryServiceTest {
+
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2025, 2, 14, 12, 0);
+
+    @Mock
+    private UserOrderSummaryRepository summaryRepository;
+
+    @Mock
+    private UserMonthlySpendingRepository monthlySpendingRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private OrderSummaryService orderSummaryService;
+
+    private OrderStatusChangedEvent event(Status previous, Status next) {
+        return new OrderStatusChangedEvent(10L, 1L, previous, next, new BigDecimal("150.00"), ORDER_DATE);
+    }
+
+    @Test
+    public void testCompletedOrderUpdatesExistingSummary() {
+        when(summaryRepository.addCompletedOrder(1L, new BigDecimal("150.00"))).thenReturn(1);
+        when(monthlySpendingRepository.applyDelta(1L, "2025-02", 1, new BigDecimal("150.00"))).thenReturn(1);
+
+        orderSummaryService.onOrderStatusChanged(event(Status.DELIVERED, Status.COMPLETED));
+
+        verify(summaryRepository, never()).save(any());
+        verify(monthlySpendingRepository, never()).save(any());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    public void testFirstCompletedOrderCreatesSummary() {
+        when(summaryRepository.addCompletedOrder(1L, new BigDecimal("150.00"))).thenReturn(0);
+        when(monthlySpendingRepository.applyDelta(1L, "2025-02", 1, new BigDecimal("150.00"))).thenReturn(0);
+
+        orderSummaryService.onOrderStatusChanged(event(Status.DELIVERED, Status.COMPLETED));
+
+        BigDecimal amount = new BigDecimal("150.00");
+        verify(jdbcTemplate).update(startsWith("INSERT INTO user_order_summary"), eq(1L), eq(amount), eq(amount), eq(amount));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO user_monthly_spending"), eq(1L), eq("2025-02"), eq(amount));
+        verify(summaryRepository, times(1)).addCompletedOrder(1L, amount);
+    }
+
+    @Test
+    public void testConcurrentFirstCompletedOrderIsAddedToInsertedRow() {
+        BigDecimal amount = new BigDecimal("150.00");
+        // Строки еще нет, но ее вставляет параллельная транзакция другого заказа того же пользователя
+        when(summaryRepository.addCompletedOrder(1L, amount)).thenReturn(0, 1);
+        when(monthlySpendingRepository.applyDelta(1L, "2025-02", 1, amount)).thenReturn(0, 1);
+        when(jdbcTemplate.update(anyString(), any(), any(), any(), any())).thenThrow(new DuplicateKeyException("uk"));
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenThrow(new DuplicateKeyException("uk"));
+
+        orderSummaryService.onOrderStatusChanged(event(Status.DELIVERED, Status.COMPLETED));
+
+        verify(summaryRepository, times(2)).addCompletedOrder(1L, amount);
+        verify(monthlySpendingRepository, times(2)).applyDelta(1L, "2025-02", 1, amount);
+        verify(summaryRepository, never()).save(any());
+    }
+
+    @Test
+    public void testOrderLeavingCompletedRecomputesBounds() {
+        when(orderRepository.findTotalPriceRangeByUserIdAndStatus(1L, Status.COMPLETED))
+                .thenReturn(Collections.singletonList(new Object[]{new BigDecimal("20.00"), new BigDecimal("90.00")}));
+
+        orderSummaryService.onOrderStatusChanged(event(Status.COMPLETED, Status.CANCELLED));
+
+        verify(summaryRepository).removeCompletedOrder(1L, new BigDecimal("150.00"), new BigDecimal("20.00"), new BigDecimal("90.00"));
+        verify(monthlySpendingRepository).applyDelta(1L, "2025-02", -1, new BigDecimal("-150.00"));
+        verify(monthlySpendingRepository).deleteIfEmpty(1L, "2025-02");
+    }
+
+    @Test
+    public void testTransitionNotInvolvingCompletedIsIgnored() {
+        orderSummaryService.onOrderStatusChanged(event(Status.NEW, Status.PAID));
+        orderSummaryService.onOrderStatusChanged(event(null, Status.NEW));
+
+        verifyNoInteractions(summaryRepository, monthlySpendingRepository, orderRepository);
+    }
+
+    @Test
+    public void testOrderLeavingCompletedKeepsArchivedBounds() {
+        when(orderRepository.findTotalPriceRangeByUserIdAndStatus(1L, Status.COMPLETED))
+                .thenReturn(Collections.singletonList(new Object[]{new BigDecimal("20.00"), new BigDecimal("90.00")}));
+        when(archivedOrderRepository.findTotalPriceRangeByUserIdAndStatus(1L, Status.COMPLETED))
+                .thenReturn(Collections.singletonList(new Object[]{new BigDecimal("5.00"), new BigDecimal("60.00")}));
+
+        orderSummaryService.onOrderStatusChanged(event(Status.COMPLETED, Status.CANCELLED));
+
+        verify(summaryRepository).removeCompletedOrder(1L, new BigDecimal("150.00"), new BigDecimal("5.00"), new BigDecimal("90.00"));
+    }
+
+    @Test
+    public void testRebuildIncludesArchivedOrders() {
+        when(orderRepository.aggregateByUserAndStatus(Status.COMPLETED)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 2L, new BigDecimal("100.00"), new BigDecimal("40.00"), new BigDecimal("60.00")}));
+        when(archivedOrderRepository.aggregateByUserAndStatus(Status.COMPLETED)).thenReturn(List.of(
+                new Object[]{1L, 1L, new BigDecimal("10.00"), new BigDecimal("10.00"), new BigDecimal("10.00")},
+                new Object[]{2L, 1L, new BigDecimal("70.00"), new BigDecimal("70.00"), new BigDecimal("70.00")}));
+        when(orderRepository.aggregateByUserMonthAndStatus(Status.COMPLETED)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 2025, 2, 2L, new BigDecimal("100.00")}));
+        when(archivedOrderRepository.aggregateByUserMonthAndStatus(Status.COMPLETED)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 2025, 2, 1L, new BigDecimal("10.00")}));
+
+        assertEquals(2, orderSummaryService.rebuild());
+
+        ArgumentCaptor<Iterable<UserOrderSummary>> summaries = ArgumentCaptor.captor();
+        ArgumentCaptor<Iterable<UserMonthlySpending>> months = ArgumentCaptor.captor();
+        verify(summaryRepository).saveAll(summaries.capture());
+        verify(monthlySpendingRepository).saveAll(months.capture());
+        assertIterableEquals(List.of(
+                UserOrderSummary.builder().userId(1L).completedOrders(3).totalSpent(new BigDecimal("110.00"))
+                        .minOrderAmount(new BigDecimal("10.00")).maxOrderAmount(new BigDecimal("60.00")).build(),
+                UserOrderSummary.builder().userId(2L).completedOrders(1).totalSpent(new BigDecimal("70.00"))
+                        .minOrderAmount(new BigDecimal("70.00")).maxOrderAmount(new BigDecimal("70.00")).build()), summaries.getValue());
+        assertIterableEquals(List.of(
+                UserMonthlySpending.builder().userId(1L).period("2025-02").completedOrders(3).totalSpent(new BigDecimal("110.00")).build()),
+                months.getValue());
+    }
+
+    @Test
+    public void testGetMonthlySpending() {
+        when(monthlySpendingRepository.findByUserIdOrderByPeriod(1L)).thenReturn(List.of(
+                UserMonthlySpending.builder().userId(1L).period("2025-01").completedOrders(2).totalSpent(new BigDecimal("80.00")).build(),
+                UserMonthlySpending.builder().userId(1L).period("2025-02").completedOrders(1).totalSpent(new BigDecimal("150.00")).build()));
+
+        Map<YearMonth, BigDecimal> monthly = orderSummaryService.getMonthlySpending(1L);
+
+        assertEquals(2, monthly.size());
+        assertEquals(new BigDecimal("80.00"), monthly.get(YearMonth.of(2025, 1)));
+        assertEquals(new BigDecimal("150.00"), monthly.get(YearMonth.of(2025, 2)));
+    }
+}
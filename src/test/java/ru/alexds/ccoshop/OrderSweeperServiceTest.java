@@ -0,0 +1,85 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import ru.alexds.ccoshop.dto.BulkStatusUpdateResultDTO;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.service.OrderBulkStatusService;
+import ru.alexds.ccoshop.service.OrderSweeperService;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderSweeperServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderBulkStatusService bulkStatusService;
+
+    private OrderSweeperService sweeper(int chunkSize, int maxOrdersPerRun, String peakHours) {
+        return new OrderSweeperService(orderRepository, bulkStatusService, Duration.ofHours(24), Duration.ofDays(14),
+                chunkSize, Duration.ZERO, maxOrdersPerRun, peakHours);
+    }
+
+    private static BulkStatusUpdateResultDTO updated(Status status, int count) {
+        return new BulkStatusUpdateResultDTO(status, count, 0, List.of());
+    }
+
+    @Test
+    public void testUnpaidOrdersAreCancelledInKeysetChunks() {
+        when(orderRepository.findIdsByStatusBefore(eq(EnumSet.of(Status.NEW)), any(), eq(0L), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(1L, 2L));
+        when(orderRepository.findIdsByStatusBefore(eq(EnumSet.of(Status.NEW)), any(), eq(2L), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(5L));
+        when(bulkStatusService.updateStatuses(List.of(1L, 2L), Status.CANCELLED)).thenReturn(updated(Status.CANCELLED, 2));
+        when(bulkStatusService.updateStatuses(List.of(5L), Status.CANCELLED)).thenReturn(updated(Status.CANCELLED, 0));
+
+        int cancelled = sweeper(2, 100, "").cancelUnpaidOrders();
+
+        assertEquals(2, cancelled);
+        verify(orderRepository, times(2)).findIdsByStatusBefore(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testRunIsLimitedByBudget() {
+        when(orderRepository.findIdsByStatusBefore(eq(EnumSet.of(Status.DELIVERED)), any(), eq(0L), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(1L, 2L));
+        when(orderRepository.findIdsByStatusBefore(eq(EnumSet.of(Status.DELIVERED)), any(), eq(2L), eq(PageRequest.of(0, 1))))
+                .thenReturn(List.of(3L));
+        when(bulkStatusService.updateStatuses(any(), eq(Status.COMPLETED)))
+                .thenReturn(updated(Status.COMPLETED, 2), updated(Status.COMPLETED, 1));
+
+        int completed = sweeper(2, 3, "").completeDeliveredOrders();
+
+        assertEquals(3, completed);
+        verify(orderRepository, times(2)).findIdsByStatusBefore(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testPeakHoursWindow() {
+        OrderSweeperService daytime = sweeper(100, 100, "11:00-14:00");
+        assertTrue(daytime.isPeakHours(LocalTime.of(12, 30)));
+        assertFalse(daytime.isPeakHours(LocalTime.of(14, 0)));
+
+        OrderSweeperService overnight = sweeper(100, 100, "20:00-02:00");
+        assertTrue(overnight.isPeakHours(LocalTime.of(23, 0)));
+        assertTrue(overnight.isPeakHours(LocalTime.of(1, 0)));
+        assertFalse(overnight.isPeakHours(LocalTime.of(10, 0)));
+
+        assertFalse(sweeper(100, 100, "").isPeakHours(LocalTime.NOON));
+    }
+}
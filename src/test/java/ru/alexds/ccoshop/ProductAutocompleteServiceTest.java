@@ -0,0 +1,87 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.alexds.ccoshop.dto.SuggestionDTO;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.service.ProductAutocompleteService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductAutocompleteServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductAutocompleteService autocompleteService;
+
+    @BeforeEach
+    public void setUp() {
+        when(productRepository.findNamesWithPopularity()).thenReturn(rows(
+                new Object[]{1L, "Смартфон Galaxy S24", 90.0},
+                new Object[]{2L, "Смарт-часы Galaxy Watch", 40.0},
+                new Object[]{3L, "Смеситель для кухни", 70.0},
+                new Object[]{4L, "Чехол Galaxy", 10.0}));
+        when(productRepository.findCharacteristicsWithPopularity(2L)).thenReturn(rows(
+                new Object[]{"Черный", 3L, 140.0}));
+
+        autocompleteService = new ProductAutocompleteService(productRepository, 2, 2);
+        assertEquals(5, autocompleteService.rebuild());
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    private List<String> suggest(String prefix, int limit) {
+        return autocompleteService.suggest(prefix, limit).stream().map(SuggestionDTO::getText).toList();
+    }
+
+    @Test
+    public void testTopSuggestionsByPopularity() {
+        assertEquals(List.of("Смартфон Galaxy S24", "Смеситель для кухни"), suggest("с", 10));
+        assertEquals(List.of("Смартфон Galaxy S24", "Смарт-часы Galaxy Watch"), suggest("СМАРТ", 10));
+        assertEquals(List.of("Смарт-часы Galaxy Watch"), suggest("смарт час", 10));
+        assertEquals(List.of("Смартфон Galaxy S24"), suggest("см", 1));
+        assertTrue(suggest("планшет", 10).isEmpty());
+        assertTrue(suggest(" ", 10).isEmpty());
+    }
+
+    @Test
+    public void testSuggestionsMatchAnyWordAndCharacteristics() {
+        assertEquals(List.of("Смартфон Galaxy S24", "Смарт-часы Galaxy Watch"), suggest("gal", 10));
+        assertEquals(List.of("Черный", "Смарт-часы Galaxy Watch"), suggest("ч", 10));
+        assertEquals(List.of("Чехол Galaxy"), suggest("чех", 10));
+
+        SuggestionDTO characteristic = autocompleteService.suggest("черн", 10).get(0);
+        assertEquals(SuggestionDTO.Type.CHARACTERISTIC, characteristic.getType());
+        assertNull(characteristic.getProductId());
+        assertEquals(1L, autocompleteService.suggest("смартф", 10).get(0).getProductId());
+    }
+
+    @Test
+    public void testTreeIsRebuiltOnlyAfterProductChanges() {
+        autocompleteService.refreshIfChanged();
+        verify(productRepository, times(1)).findNamesWithPopularity();
+
+        autocompleteService.onProductChanged(ProductChangedEvent.of(1L, ProductChangedEvent.Type.STOCK));
+        autocompleteService.refreshIfChanged();
+        verify(productRepository, times(1)).findNamesWithPopularity();
+
+        when(productRepository.findNamesWithPopularity()).thenReturn(rows(new Object[]{5L, "Планшет", 5.0}));
+        autocompleteService.onProductChanged(ProductChangedEvent.of(5L, ProductChangedEvent.Type.CREATED));
+        autocompleteService.refreshIfChanged();
+
+        assertEquals(List.of("Планшет"), suggest("план", 10));
+        assertTrue(suggest("смарт", 10).isEmpty());
+    }
+}
@@ -0,0 +1,130 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import ru.alexds.ccoshop.dto.ProductDTO;
+import ru.alexds.ccoshop.entity.Category;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.CategoryRepository;
+import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.service.ProductCacheService;
+import ru.alexds.ccoshop.service.ProductService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductCacheServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ProductCacheService productCacheService;
+
+    @BeforeEach
+    public void setUp() {
+        productCacheService = cache(100);
+    }
+
+    private ProductCacheService cache(int maxEntries) {
+        ProductService productService = new ProductService(productRepository, categoryRepository, eventPublisher);
+        return new ProductCacheService(productRepository, productService, maxEntries, Duration.ofMinutes(5));
+    }
+
+    private static Product product(long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(5);
+        product.setPopularity(1.0);
+        product.setCategory(new Category(1L));
+        product.setCharacteristics(List.of("red"));
+        return product;
+    }
+
+    @Test
+    public void testMissesAreLoadedInOneQueryAndThenHit() {
+        when(productRepository.findAllWithCharacteristicsByIdIn(Set.of(1L, 2L, 3L)))
+                .thenReturn(List.of(product(1L, "First"), product(2L, "Second")));
+
+        Map<Long, ProductDTO> products = productCacheService.getProductsByIds(List.of(1L, 2L, 3L, 1L));
+        assertEquals(List.of(1L, 2L), List.copyOf(products.keySet()));
+        assertEquals("Second", productCacheService.getProduct(2L).orElseThrow().getName());
+
+        verify(productRepository, times(1)).findAllWithCharacteristicsByIdIn(any());
+        Map<String, Number> statistics = productCacheService.getStatistics();
+        assertEquals(1L, statistics.get("hits"));
+        assertEquals(3L, statistics.get("misses"));
+        assertEquals(0.25, statistics.get("hitRate"));
+    }
+
+    @Test
+    public void testChangedProductIsReloaded() {
+        when(productRepository.findAllWithCharacteristicsByIdIn(Set.of(1L)))
+                .thenReturn(List.of(product(1L, "Old")), List.of(product(1L, "New")));
+
+        assertEquals("Old", productCacheService.getProduct(1L).orElseThrow().getName());
+        productCacheService.onProductChanged(ProductChangedEvent.of(1L, ProductChangedEvent.Type.UPDATED));
+
+        assertEquals("New", productCacheService.getProduct(1L).orElseThrow().getName());
+        assertEquals("New", productCacheService.getProduct(1L).orElseThrow().getName());
+        verify(productRepository, times(2)).findAllWithCharacteristicsByIdIn(any());
+    }
+
+    @Test
+    public void testProductChangedDuringLoadIsNotServedFromCache() {
+        when(productRepository.findAllWithCharacteristicsByIdIn(Set.of(1L)))
+                .thenAnswer(invocation -> {
+                    productCacheService.onProductChanged(ProductChangedEvent.of(1L, ProductChangedEvent.Type.STOCK));
+                    return List.of(product(1L, "Stale"));
+                })
+                .thenReturn(List.of(product(1L, "Fresh")));
+
+        assertEquals("Stale", productCacheService.getProduct(1L).orElseThrow().getName());
+        assertEquals("Fresh", productCacheService.getProduct(1L).orElseThrow().getName());
+    }
+
+    @Test
+    public void testCallerCannotModifyCachedProduct() {
+        when(productRepository.findAllWithCharacteristicsByIdIn(Set.of(1L))).thenReturn(List.of(product(1L, "First")));
+
+        productCacheService.getProduct(1L).orElseThrow().setName("Changed");
+        productCacheService.getProduct(1L).orElseThrow().getCharacteristic().add("blue");
+
+        ProductDTO product = productCacheService.getProduct(1L).orElseThrow();
+        assertEquals("First", product.getName());
+        assertEquals(List.of("red"), product.getCharacteristic());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        ProductCacheService bounded = cache(2);
+        when(productRepository.findAllWithCharacteristicsByIdIn(Set.of(1L, 2L, 3L)))
+                .thenReturn(List.of(product(1L, "First"), product(2L, "Second"), product(3L, "Third")));
+
+        assertEquals(3, bounded.getProductsByIds(List.of(1L, 2L, 3L)).size());
+
+        Map<String, Number> statistics = bounded.getStatistics();
+        assertTrue(statistics.get("size").intValue() <= 2);
+        assertEquals(1L, statistics.get("evictions"));
+    }
+}
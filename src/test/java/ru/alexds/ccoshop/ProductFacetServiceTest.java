@@ -0,0 +1,177 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.alexds.ccoshop.dto.ProductDTO;
+import ru.alexds.ccoshop.dto.ProductFacetResultDTO;
+import ru.alexds.ccoshop.dto.ProductFilterDTO;
+import ru.alexds.ccoshop.entity.Category;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.service.ProductCacheService;
+import ru.alexds.ccoshop.service.ProductFacetService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductFacetServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductCacheService productCacheService;
+
+    private ProductFacetService facetService;
+
+    @BeforeEach
+    public void setUp() {
+        when(productRepository.findFacetRows()).thenReturn(rows(
+                new Object[]{1L, 1L, new BigDecimal("100.00"), 10.0},
+                new Object[]{2L, 1L, new BigDecimal("50.00"), 30.0},
+                new Object[]{3L, 2L, new BigDecimal("200.00"), 20.0},
+                new Object[]{4L, 2L, null, 5.0},
+                new Object[]{5L, null, new BigDecimal("75.00"), 1.0}));
+        when(productRepository.findCharacteristicRows()).thenReturn(rows(
+                new Object[]{1L, "red"},
+                new Object[]{1L, "cotton"},
+                new Object[]{2L, "blue"},
+                new Object[]{3L, "red"},
+                new Object[]{4L, "red"},
+                new Object[]{4L, "red"}));
+        lenient().when(productCacheService.getProductsByIds(any())).thenAnswer(invocation -> {
+            Map<Long, ProductDTO> products = new LinkedHashMap<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                products.put(id, ProductDTO.builder().id(id).build());
+            }
+            return products;
+        });
+
+        facetService = new ProductFacetService(productRepository, productCacheService, 10);
+        assertEquals(5, facetService.rebuild());
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    private static Product product(long id, long categoryId, String price, double popularity, String... characteristics) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategory(new Category(categoryId));
+        product.setPrice(new BigDecimal(price));
+        product.setPopularity(popularity);
+        product.setCharacteristics(List.of(characteristics));
+        return product;
+    }
+
+    private ProductFacetResultDTO filter(ProductFilterDTO filter) {
+        return facetService.filter(filter, 0, 20);
+    }
+
+    private static List<Long> ids(ProductFacetResultDTO result) {
+        return result.getItems().stream().map(ProductDTO::getId).toList();
+    }
+
+    @Test
+    public void testCombinedFilterWithFacetCounts() {
+        ProductFacetResultDTO result = filter(ProductFilterDTO.builder()
+                .categoryIds(List.of(1L))
+                .characteristics(List.of("red"))
+                .build());
+
+        assertEquals(List.of(1L), ids(result));
+        assertEquals(1, result.getTotal());
+        assertEquals(Map.of(1L, 1, 2L, 2), result.getCategoryCounts());
+        assertEquals(Map.of("red", 1, "cotton", 1), result.getCharacteristicCounts());
+
+        ProductFacetResultDTO red = filter(ProductFilterDTO.builder().characteristics(List.of("red")).build());
+        assertEquals(List.of(3L, 1L, 4L), ids(red));
+        assertEquals(3, red.getCharacteristicCounts().get("red"));
+        assertTrue(filter(ProductFilterDTO.builder().characteristics(List.of("red", "blue")).build()).getItems().isEmpty());
+    }
+
+    @Test
+    public void testPriceRangeWithOpenBounds() {
+        ProductFacetResultDTO range = filter(ProductFilterDTO.builder()
+                .minPrice(new BigDecimal("60")).maxPrice(new BigDecimal("200")).sort(ProductFilterDTO.Sort.PRICE_ASC).build());
+        assertEquals(List.of(5L, 1L, 3L), ids(range));
+        assertEquals(new BigDecimal("75.00"), range.getMinPrice());
+        assertEquals(new BigDecimal("200.00"), range.getMaxPrice());
+
+        assertEquals(List.of(1L, 3L), ids(filter(ProductFilterDTO.builder()
+                .minPrice(new BigDecimal("100")).sort(ProductFilterDTO.Sort.PRICE_ASC).build())));
+        assertEquals(List.of(2L, 5L), ids(filter(ProductFilterDTO.builder()
+                .maxPrice(new BigDecimal("75")).sort(ProductFilterDTO.Sort.PRICE_ASC).build())));
+        assertThrows(IllegalArgumentException.class, () -> filter(ProductFilterDTO.builder()
+                .minPrice(BigDecimal.TEN).maxPrice(BigDecimal.ONE).build()));
+    }
+
+    @Test
+    public void testSortingAndPagination() {
+        assertEquals(List.of(2L, 3L, 1L, 4L, 5L), ids(filter(new ProductFilterDTO())));
+        assertEquals(List.of(3L, 1L, 5L, 2L, 4L), ids(filter(ProductFilterDTO.builder().sort(ProductFilterDTO.Sort.PRICE_DESC).build())));
+
+        ProductFacetResultDTO second = facetService.filter(new ProductFilterDTO(), 1, 2);
+        assertEquals(List.of(1L, 4L), ids(second));
+        assertEquals(5, second.getTotal());
+    }
+
+    @Test
+    public void testIndexFollowsProductChanges() {
+        when(productRepository.findAllWithCharacteristicsByIdIn(List.of(2L)))
+                .thenReturn(List.of(product(2L, 2L, "300.00", 30.0, "red")));
+        facetService.onProductChanged(ProductChangedEvent.of(2L, ProductChangedEvent.Type.UPDATED));
+
+        ProductFacetResultDTO result = filter(ProductFilterDTO.builder()
+                .categoryIds(List.of(2L)).characteristics(List.of("red")).sort(ProductFilterDTO.Sort.PRICE_DESC).build());
+        assertEquals(List.of(2L, 3L, 4L), ids(result));
+        assertNull(filter(ProductFilterDTO.builder().build()).getCharacteristicCounts().get("blue"));
+
+        when(productRepository.findAllWithCharacteristicsByIdIn(List.of(3L))).thenReturn(List.of());
+        facetService.onProductChanged(ProductChangedEvent.of(3L, ProductChangedEvent.Type.DELETED));
+
+        assertEquals(List.of(2L, 1L, 5L), ids(filter(ProductFilterDTO.builder()
+                .minPrice(new BigDecimal("60")).sort(ProductFilterDTO.Sort.PRICE_DESC).build())));
+        assertEquals(4, filter(new ProductFilterDTO()).getTotal());
+    }
+
+    @Test
+    public void testImportedProductsAreIndexedInBackground() {
+        when(productRepository.findAllWithCharacteristicsByIdIn(List.of(6L)))
+                .thenReturn(List.of(product(6L, 1L, "10.00", 50.0, "green")));
+        facetService.onProductChanged(ProductChangedEvent.of(6L, ProductChangedEvent.Type.IMPORTED));
+
+        // Событие импорта не перечитывает продукты в потоке импорта
+        verify(productRepository, never()).findAllWithCharacteristicsByIdIn(any());
+        assertEquals(5, filter(new ProductFilterDTO()).getTotal());
+
+        facetService.indexImported();
+
+        assertEquals(List.of(6L), ids(filter(ProductFilterDTO.builder().characteristics(List.of("green")).build())));
+        facetService.indexImported();
+        verify(productRepository, times(1)).findAllWithCharacteristicsByIdIn(any());
+    }
+
+    @Test
+    public void testChangesBeforeFirstBuildAreCoveredByBuild() {
+        ProductFacetService notBuilt = new ProductFacetService(productRepository, productCacheService, 10);
+        notBuilt.onProductChanged(ProductChangedEvent.of(List.of(1L, 2L, 3L), ProductChangedEvent.Type.CREATED));
+
+        assertEquals(5, notBuilt.rebuild());
+        verify(productRepository, never()).findAllWithCharacteristicsByIdIn(any());
+    }
+}
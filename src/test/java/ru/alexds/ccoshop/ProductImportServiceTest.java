@@ -0,0 +1,133 @@
+package ru.alexds.ccoshop;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import ru.alexds.ccoshop.dto.ProductImportResultDTO;
+import ru.alexds.ccoshop.entity.Category;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.CategoryRepository;
+import ru.alexds.ccoshop.service.ProductImportService;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ProductImportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CategoryRepository categoryRepository;
+    private List<ProductChangedEvent> events;
+    private ProductImportService service;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:import" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), description VARCHAR(255), " +
+                "price DECIMAL(19, 2) NOT NULL, stock_quantity INT NOT NULL, popularity DOUBLE NOT NULL, category_id BIGINT NOT NULL, " +
+                "image_path VARCHAR(255), created_at TIMESTAMP, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE product_characteristics (product_id BIGINT REFERENCES products (id), characteristic VARCHAR(255))");
+
+        categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(List.of(new Category(1L, "Phones", List.of()), new Category(2L, "Audio", List.of())));
+        events = new ArrayList<>();
+        ApplicationEventPublisher publisher = event -> events.add((ProductChangedEvent) event);
+        service = new ProductImportService(jdbcTemplate, categoryRepository, new DataSourceTransactionManager(dataSource),
+                publisher, new ObjectMapper(), 2);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    @Test
+    public void testCsvImportInChunks() {
+        String csv = "name,description,price,stock_quantity,popularity,category,characteristics\n"
+                + "Phone,\"Screen 6\"\", black\",100.50,5,4.5,1,black;6 inch\r\n"
+                + "Headphones,Wireless,20,,,audio,\n"
+                + "\n"
+                + "Unknown,Desc,10,1,1,Garden,\n"
+                + "Cheap,Desc,abc,1,1,1,\n"
+                + "Cable,\"Two\nlines\",5,100,1,2,usb\n";
+
+        ProductImportResultDTO result = service.importCsv(new StringReader(csv));
+
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals(List.of("line 5: unknown category: Garden", "line 6: invalid price: abc"), result.getErrors());
+        assertEquals(3L, count("products"));
+        assertEquals(3L, count("product_characteristics"));
+        assertEquals("Screen 6\", black", jdbcTemplate.queryForObject("SELECT description FROM products WHERE name = 'Phone'", String.class));
+        assertEquals("Two\nlines", jdbcTemplate.queryForObject("SELECT description FROM products WHERE name = 'Cable'", String.class));
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT category_id FROM products WHERE name = 'Headphones'", Long.class));
+        assertEquals(List.of("black", "6 inch"), jdbcTemplate.queryForList("SELECT c.characteristic FROM product_characteristics c " +
+                "JOIN products p ON p.id = c.product_id WHERE p.name = 'Phone' ORDER BY c.characteristic DESC", String.class));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT updated_at FROM products WHERE name = 'Cable'", Object.class));
+        // Две порции (2 + 1 продукт), но одно событие на весь импорт
+        assertEquals(1, events.size());
+        assertEquals(ProductChangedEvent.Type.IMPORTED, events.get(0).getType());
+        assertEquals(jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id", Long.class), events.get(0).getProductIds());
+        verify(categoryRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void testJsonArrayAndNdjsonImport() {
+        String array = "[{\"name\":\"Phone\",\"description\":\"Screen\",\"price\":100,\"stockQuantity\":3,\"categoryId\":1,"
+                + "\"characteristic\":[\"black\"]},"
+                + "{\"name\":\"\",\"description\":\"Empty\",\"price\":1,\"categoryId\":1}]";
+        ProductImportResultDTO fromArray = service.importJson(new StringReader(array));
+
+        assertEquals(1, fromArray.getImported());
+        assertEquals(List.of("record 2: name is required"), fromArray.getErrors());
+
+        String ndjson = "{\"name\":\"A\",\"description\":\"a\",\"price\":1,\"categoryId\":2}\n"
+                + "{\"name\":\"B\",\"description\":\"b\",\"price\":2,\"categoryId\":9}\n"
+                + "{\"name\":\"C\",\"description\":\"c\",\"price\":3,\"categoryId\":2}\n";
+        ProductImportResultDTO fromNdjson = service.importJson(new StringReader(ndjson));
+
+        assertEquals(2, fromNdjson.getImported());
+        assertEquals(List.of("record 2: unknown category: 9"), fromNdjson.getErrors());
+        assertEquals(3L, count("products"));
+        assertEquals(0, new BigDecimal("3.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT price FROM products WHERE name = 'C'", BigDecimal.class)));
+    }
+
+    @Test
+    public void testRowsRejectedByDatabaseAreReported() {
+        String csv = "name,description,price,category\n"
+                + "A,a,1,1\n"
+                + "x".repeat(300) + ",too long,1,1\n"
+                + "C,c,3,1\n";
+
+        ProductImportResultDTO result = service.importCsv(new StringReader(csv));
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertTrue(result.getErrors().get(0).startsWith("line 3: "));
+        assertEquals(List.of("A", "C"), jdbcTemplate.queryForList("SELECT name FROM products ORDER BY id", String.class));
+        assertEquals(List.of(2), events.stream().map(event -> event.getProductIds().size()).toList());
+    }
+
+    @Test
+    public void testInvalidInputIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.importCsv(new StringReader("name,description\nA,a\n")));
+        assertThrows(IllegalArgumentException.class, () -> service.importCsv(new StringReader("")));
+
+        String truncated = "{\"name\":\"A\",\"description\":\"a\",\"price\":1,\"categoryId\":1}\n{\"name\":";
+        assertThrows(IllegalArgumentException.class, () -> service.importJson(new StringReader(truncated)));
+        // Строки, прочитанные до ошибки, сохраняются
+        assertEquals(1L, count("products"));
+    }
+}
@@ -0,0 +1,147 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.alexds.ccoshop.dto.ProductDTO;
+import ru.alexds.ccoshop.dto.ProductSearchResultDTO;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
+import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.service.ProductCacheService;
+import ru.alexds.ccoshop.service.ProductSearchService;
+import ru.alexds.ccoshop.service.ProductService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductSearchServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private ProductCacheService productCacheService;
+
+    private ProductSearchService searchService;
+
+    @BeforeEach
+    public void setUp() {
+        List<Product> products = List.of(
+                product(1L, "Смартфон Galaxy", "Экран 6 дюймов", 10.0, "черный"),
+                product(2L, "Чехол для телефона", "Подходит для смартфон Galaxy", 50.0, "кожа"),
+                product(3L, "Телефон стационарный", "Проводной", 5.0, "белый"),
+                product(4L, "Наушники", "Беспроводные, ёмкий аккумулятор", 20.0, "черный"));
+        when(productRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(productRepository.findAllWithCharacteristicsByIdIn(any())).thenAnswer(invocation -> {
+            List<Long> ids = List.copyOf(invocation.getArgument(0));
+            return products.stream().filter(product -> ids.contains(product.getId())).toList();
+        });
+
+        searchService = new ProductSearchService(productRepository, productService, productCacheService, 2, 2);
+        assertEquals(4, searchService.rebuild());
+    }
+
+    private static Product product(long id, String name, String description, double popularity, String characteristic) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setPopularity(popularity);
+        product.setCharacteristics(List.of(characteristic));
+        return product;
+    }
+
+    @Test
+    public void testNameMatchesRankAboveDescriptionMatches() {
+        assertEquals(List.of(1L, 2L), searchService.rank("galaxy"));
+        assertEquals(List.of(1L, 2L), searchService.rank("Смартфон GALAXY"));
+        assertEquals(List.of(4L, 1L), searchService.rank("черный"));
+        assertEquals(List.of(4L), searchService.rank("емкий"));
+        assertTrue(searchService.rank("galaxy кожа белый").isEmpty());
+        assertTrue(searchService.rank("  ").isEmpty());
+    }
+
+    @Test
+    public void testPartialMatchesUseGrams() {
+        // Точное совпадение в названии выше частичного ("телефона")
+        assertEquals(List.of(3L, 2L), searchService.rank("телефон"));
+        assertEquals(List.of(1L, 2L), searchService.rank("смарт"));
+        assertEquals(List.of(4L), searchService.rank("проводные"));
+    }
+
+    @Test
+    public void testResultsArePaginatedAndLoadedFromCache() {
+        when(productCacheService.getProductsByIds(List.of(2L))).thenReturn(Map.of(2L, ProductDTO.builder().id(2L).build()));
+
+        ProductSearchResultDTO result = searchService.search("galaxy", 1, 1);
+
+        assertEquals(2, result.getTotal());
+        assertEquals(List.of(2L), result.getItems().stream().map(ProductDTO::getId).toList());
+        verify(productService, never()).searchProductsByName(any());
+    }
+
+    @Test
+    public void testIndexFollowsProductChanges() {
+        Product renamed = product(3L, "Радиотелефон Galaxy", "Беспроводной", 5.0, "белый");
+        when(productRepository.findAllWithCharacteristicsByIdIn(List.of(3L))).thenReturn(List.of(renamed));
+        searchService.onProductChanged(ProductChangedEvent.of(3L, ProductChangedEvent.Type.UPDATED));
+
+        assertEquals(List.of(1L, 3L, 2L), searchService.rank("galaxy"));
+        assertEquals(List.of(2L), searchService.rank("телефона"));
+        assertTrue(searchService.rank("стационарный").isEmpty());
+
+        when(productRepository.findAllWithCharacteristicsByIdIn(List.of(1L))).thenReturn(List.of());
+        searchService.onProductChanged(ProductChangedEvent.of(1L, ProductChangedEvent.Type.DELETED));
+
+        assertEquals(List.of(3L, 2L), searchService.rank("galaxy"));
+        assertEquals(3, searchService.getIndexedProductCount());
+    }
+
+    @Test
+    public void testImportedProductsAreIndexedInBackground() {
+        Product imported = product(5L, "Планшет Galaxy", "Экран 11 дюймов", 1.0, "серый");
+        when(productRepository.findAllWithCharacteristicsByIdIn(List.of(5L))).thenReturn(List.of(imported));
+        clearInvocations(productRepository);
+        searchService.onProductChanged(ProductChangedEvent.of(5L, ProductChangedEvent.Type.IMPORTED));
+
+        // Событие импорта не перечитывает продукты в потоке импорта
+        verify(productRepository, never()).findAllWithCharacteristicsByIdIn(any());
+        assertTrue(searchService.rank("планшет").isEmpty());
+
+        searchService.indexImported();
+
+        assertEquals(List.of(5L), searchService.rank("планшет"));
+        searchService.indexImported();
+        verify(productRepository, times(1)).findAllWithCharacteristicsByIdIn(any());
+    }
+
+    @Test
+    public void testChangesDuringBuildAreReplayedInChunks() {
+        searchService.onProductChanged(ProductChangedEvent.of(List.of(1L, 2L, 3L, 4L), ProductChangedEvent.Type.UPDATED));
+
+        ArgumentCaptor<Collection<Long>> chunks = ArgumentCaptor.forClass(Collection.class);
+        verify(productRepository, atLeastOnce()).findAllWithCharacteristicsByIdIn(chunks.capture());
+        assertTrue(chunks.getAllValues().stream().allMatch(chunk -> chunk.size() <= 2));
+        assertEquals(List.of(1L, 2L), searchService.rank("galaxy"));
+
+        ProductSearchService notBuilt = new ProductSearchService(productRepository, productService, productCacheService, 2, 2);
+        clearInvocations(productRepository);
+        notBuilt.onProductChanged(ProductChangedEvent.of(List.of(1L, 2L, 3L, 4L), ProductChangedEvent.Type.CREATED));
+        assertEquals(4, notBuilt.rebuild());
+        // Изменения до начала построения не загружаются повторно: построение читает их из БД
+        verify(productRepository, times(2)).findAllWithCharacteristicsByIdIn(any());
+    }
+}
@@ -7,10 +7,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
+import ru.alexds.ccoshop.dto.CursorPageDTO;
 import ru.alexds.ccoshop.dto.ProductDTO;
 import ru.alexds.ccoshop.entity.Category;
 import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.event.ProductChangedEvent;
 import ru.alexds.ccoshop.repository.CategoryRepository;
 import ru.alexds.ccoshop.repository.ProductRepository;
 import ru.alexds.ccoshop.service.ProductService;
@@ -31,6 +34,9 @@ public class ProductServiceTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private ProductService productService;
 
@@ -64,6 +70,56 @@ public class ProductServiceTest {
         testProductDTO.setPopularity(4.5);
     }
 
+    @Test
+    public void testGetProductsPage() {
+        ProductDTO first = new ProductDTO(1L, "A", "a", BigDecimal.ONE, 1, 1.0, 1L, null, null, null);
+        ProductDTO second = new ProductDTO(2L, "B", "b", BigDecimal.TEN, 2, 2.0, 1L, null, null, null);
+        ProductDTO third = new ProductDTO(3L, "C", "c", BigDecimal.TEN, 3, 3.0, 1L, null, null, null);
+        when(productRepository.findProductViewsFirst(PageRequest.of(0, 3)))
+                .thenReturn(new ArrayList<>(List.of(first, second, third)));
+        when(productRepository.findCharacteristicRowsByProductIdIn(any()))
+                .thenReturn(List.of(new Object[]{1L, "red"}, new Object[]{2L, "blue"}, new Object[]{1L, "cotton"}), List.of());
+
+        CursorPageDTO<ProductDTO> page = productService.getProductsPage(null, 2);
+
+        assertEquals(List.of(1L, 2L), page.getItems().stream().map(ProductDTO::getId).toList());
+        assertEquals(List.of("red", "cotton"), page.getItems().get(0).getCharacteristic());
+        assertEquals(List.of("blue"), page.getItems().get(1).getCharacteristic());
+        assertNotNull(page.getNextCursor());
+
+        when(productRepository.findProductViewsAfter(2L, PageRequest.of(0, 3))).thenReturn(new ArrayList<>(List.of(third)));
+        CursorPageDTO<ProductDTO> last = productService.getProductsPage(page.getNextCursor(), 2);
+
+        assertEquals(List.of(3L), last.getItems().stream().map(ProductDTO::getId).toList());
+        assertNull(last.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsPage("???", 2));
+    }
+
+    @Test
+    public void testCatalogueETagChangesWithVersion() {
+        LocalDateTime updatedAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        when(productRepository.findCatalogueVersion()).thenReturn(
+                List.<Object[]>of(new Object[]{updatedAt, 5L}),
+                List.<Object[]>of(new Object[]{updatedAt, 5L}),
+                List.<Object[]>of(new Object[]{updatedAt, 4L}),
+                List.<Object[]>of(new Object[]{updatedAt.plusNanos(1000), 4L}));
+
+        String eTag = productService.getCatalogueETag();
+
+        assertTrue(eTag.startsWith("\"") && eTag.endsWith("\""));
+        // Без изменений продуктов ETag берется из памяти
+        assertEquals(eTag, productService.getCatalogueETag());
+        verify(productRepository, times(1)).findCatalogueVersion();
+
+        productService.onProductChanged(ProductChangedEvent.of(1L, ProductChangedEvent.Type.UPDATED));
+        assertEquals(eTag, productService.getCatalogueETag());
+        productService.onProductChanged(ProductChangedEvent.of(1L, ProductChangedEvent.Type.DELETED));
+        assertNotEquals(eTag, productService.getCatalogueETag());
+        productService.onProductChanged(ProductChangedEvent.of(1L, ProductChangedEvent.Type.STOCK));
+        assertNotEquals(eTag, productService.getCatalogueETag());
+        verify(productRepository, times(4)).findCatalogueVersion();
+    }
+
     @Test
     public void testGetAllProducts() {
         when(productRepository.findAll()).thenReturn(Collections.singletonList(testProduct));
@@ -0,0 +1,127 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.ArchivedOrderRepository;
+import ru.alexds.ccoshop.repository.OrderItemRepository;
+import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.service.PurchasedProductsService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PurchasedProductsServiceTest {
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @Mock
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private PurchasedProductsService purchasedProductsService;
+
+    @BeforeEach
+    public void setUp() {
+        purchasedProductsService = new PurchasedProductsService(orderItemRepository, archivedOrderRepository, productRepository, 200);
+    }
+
+    private void givenPurchases(Long userId, List<Long> hot, List<Long> archived) {
+        when(orderItemRepository.findProductIdsByUserIdAndStatus(userId, Status.COMPLETED)).thenReturn(hot);
+        when(archivedOrderRepository.findPurchasedProductIds(userId, Status.COMPLETED)).thenReturn(archived);
+    }
+
+    private static OrderStatusChangedEvent event(Long orderId, Long userId, Status previous, Status next) {
+        return new OrderStatusChangedEvent(orderId, userId, previous, next, new BigDecimal("10.00"), LocalDateTime.now());
+    }
+
+    @Test
+    public void testPurchasesAreLoadedOnceFromHotAndArchivedOrders() {
+        givenPurchases(1L, List.of(3L, 5L), List.of(8L));
+
+        assertTrue(purchasedProductsService.hasPurchased(1L, 5L));
+        assertTrue(purchasedProductsService.hasPurchased(1L, 8L));
+        assertFalse(purchasedProductsService.hasPurchased(1L, 4L));
+        assertEquals(List.of(3L, 5L, 8L), purchasedProductsService.getPurchasedProductIds(1L));
+        assertEquals(List.of(4L, 9L), purchasedProductsService.excludePurchased(1L, List.of(3L, 4L, 8L, 9L)));
+
+        verify(orderItemRepository, times(1)).findProductIdsByUserIdAndStatus(1L, Status.COMPLETED);
+    }
+
+    @Test
+    public void testCompletedOrderIsAddedToCachedPurchases() {
+        givenPurchases(1L, List.of(3L), List.of());
+        purchasedProductsService.hasPurchased(1L, 3L);
+        when(orderItemRepository.findProductIdsByOrderId(10L)).thenReturn(List.of(7L));
+
+        purchasedProductsService.onOrderStatusChanged(event(10L, 1L, Status.DELIVERED, Status.COMPLETED));
+
+        assertTrue(purchasedProductsService.hasPurchased(1L, 7L));
+        verify(orderItemRepository, times(1)).findProductIdsByUserIdAndStatus(1L, Status.COMPLETED);
+    }
+
+    @Test
+    public void testLeavingCompletedResetsPurchases() {
+        givenPurchases(1L, List.of(3L), List.of());
+        purchasedProductsService.hasPurchased(1L, 3L);
+
+        purchasedProductsService.onOrderStatusChanged(event(10L, 1L, Status.COMPLETED, Status.CANCELLED));
+
+        assertEquals(0, purchasedProductsService.getCachedUserCount());
+        purchasedProductsService.hasPurchased(1L, 3L);
+        verify(orderItemRepository, times(2)).findProductIdsByUserIdAndStatus(1L, Status.COMPLETED);
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        givenPurchases(1L, List.of(1L), List.of());
+        givenPurchases(2L, List.of(2L), List.of());
+        givenPurchases(3L, List.of(3L), List.of());
+
+        purchasedProductsService.hasPurchased(1L, 1L);
+        purchasedProductsService.hasPurchased(2L, 2L);
+        purchasedProductsService.hasPurchased(3L, 3L);
+
+        // Каждая запись с одним продуктом занимает 88 байт, в лимит 200 байт помещаются две
+        assertEquals(2, purchasedProductsService.getCachedUserCount());
+        assertTrue(purchasedProductsService.getCachedBytes() <= 200);
+    }
+
+    @Test
+    public void testMemoryDoesNotDependOnProductIds() {
+        givenPurchases(1L, List.of(2_000_000L), List.of(Long.MAX_VALUE));
+
+        assertTrue(purchasedProductsService.hasPurchased(1L, 2_000_000L));
+        assertTrue(purchasedProductsService.hasPurchased(1L, Long.MAX_VALUE));
+        assertFalse(purchasedProductsService.hasPurchased(1L, 1L));
+        assertEquals(96, purchasedProductsService.getCachedBytes());
+    }
+
+    @Test
+    public void testCompletedOrderUpdatesCachedBytes() {
+        givenPurchases(1L, List.of(3L), List.of());
+        purchasedProductsService.hasPurchased(1L, 3L);
+        when(orderItemRepository.findProductIdsByOrderId(10L)).thenReturn(List.of(3L, 7L));
+
+        purchasedProductsService.onOrderStatusChanged(event(10L, 1L, Status.DELIVERED, Status.COMPLETED));
+
+        assertEquals(List.of(3L, 7L), purchasedProductsService.getPurchasedProductIds(1L));
+        assertEquals(96, purchasedProductsService.getCachedBytes());
+
+        purchasedProductsService.onOrderStatusChanged(event(10L, 1L, Status.COMPLETED, Status.CANCELLED));
+
+        assertEquals(0, purchasedProductsService.getCachedBytes());
+    }
+}
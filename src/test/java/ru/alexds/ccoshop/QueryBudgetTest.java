@@ -0,0 +1,428 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.alexds.ccoshop.entity.CartItem;
+import ru.alexds.ccoshop.entity.Category;
+import ru.alexds.ccoshop.entity.Order;
+import ru.alexds.ccoshop.entity.OrderItem;
+import ru.alexds.ccoshop.entity.Product;
+import ru.alexds.ccoshop.entity.Rating;
+import ru.alexds.ccoshop.entity.Role;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.entity.User;
+import ru.alexds.ccoshop.repository.CartItemRepository;
+import ru.alexds.ccoshop.repository.CategoryRepository;
+import ru.alexds.ccoshop.repository.OrderRepository;
+import ru.alexds.ccoshop.repository.ProductRepository;
+import ru.alexds.ccoshop.repository.RatingRepository;
+import ru.alexds.ccoshop.repository.UserRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Бюджеты SQL-запросов на обработку одного HTTP-запроса для эндпоинтов контроллеров.
+ * Приложение поднимается на H2 с тестовыми данными (несколько пользователей, категорий, продуктов и заказов
+ * с несколькими позициями), а источник данных оборачивается прокси, который считает выполненные JDBC-запросы
+ * в потоке запроса. Новый обход ленивой связи при построении DTO умножает количество запросов на число строк
+ * и превышает бюджет эндпоинта. Бюджеты сняты на небольшом наборе данных, поэтому для эндпоинтов, которые
+ * загружают связи пакетно, дополнительно проверяется, что количество запросов не растет на втором, большем наборе.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:querybudget;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QueryBudgetTest {
+    private static final int BULK_ROWS = 20; // Размер большого набора данных: продукты, позиции корзины, заказы и их позиции
+
+    @Autowired
+    private MockMvc mockMvc; // Для выполнения HTTP-запросов
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Category> categories = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+    private User cartUser; // Пользователь для изменения корзины
+    private User orderUser; // Пользователь для оформления заказа и смены статусов
+    private List<Order> orderUserOrders; // Заказы для смены статусов: PAID, SHIPPED, DELIVERED
+    private Order unpaidOrder; // Заказ для оплаты
+    private User bulkUser; // Пользователь большого набора данных: большая корзина и много заказов
+
+    @BeforeAll
+    public void seed() {
+        for (int i = 0; i < 3; i++) {
+            users.add(givenUser("user" + i + "@example.com"));
+        }
+        for (int i = 0; i < 2; i++) {
+            categories.add(categoryRepository.save(Category.builder().name("Category " + i).products(new ArrayList<>()).build()));
+        }
+        for (int i = 0; i < 6; i++) {
+            Product product = productRepository.save(Product.builder()
+                    .name("Product " + i)
+                    .description("Description " + i)
+                    .price(BigDecimal.valueOf(100 + i))
+                    .stockQuantity(1000)
+                    .popularity(1.0 + i)
+                    .characteristics(new ArrayList<>(List.of("color", "size")))
+                    .category(categories.get(i % 2))
+                    .build());
+            products.add(product);
+            for (User user : users) {
+                ratingRepository.save(new Rating(null, user.getId(), product.getId(), 1.0 + i % 5, System.currentTimeMillis()));
+            }
+        }
+        givenCart(users.get(0), 3);
+        for (Status status : List.of(Status.NEW, Status.PAID, Status.SHIPPED, Status.DELIVERED, Status.COMPLETED)) {
+            orders.add(givenOrder(users.get(0), status));
+        }
+
+        // Данные для изменяющих запросов создаются заранее, чтобы набор данных не зависел от порядка тестов
+        cartUser = givenUser("cart@example.com");
+        givenCart(cartUser, 3);
+        orderUser = givenUser("orders@example.com");
+        givenCart(orderUser, 3);
+        orderUserOrders = List.of(givenOrder(orderUser, Status.PAID), givenOrder(orderUser, Status.SHIPPED),
+                givenOrder(orderUser, Status.DELIVERED));
+        unpaidOrder = givenOrder(givenUser("payments@example.com"), Status.NEW);
+
+        // Большой набор данных: продукты не попадают в популярные, в поиск по имени "Product" и в диапазон цен
+        // эндпоинтов с бюджетами 1 + N, поэтому их бюджеты остаются прежними
+        List<Product> bulkProducts = new ArrayList<>();
+        for (int i = 0; i < BULK_ROWS; i++) {
+            bulkProducts.add(productRepository.save(Product.builder()
+                    .name("Bulk item " + i)
+                    .description("Bulk description " + i)
+                    .price(BigDecimal.valueOf(5000 + i))
+                    .stockQuantity(1000)
+                    .popularity(0.0)
+                    .characteristics(new ArrayList<>(List.of("color", "size", "weight")))
+                    .category(categories.get(1))
+                    .build()));
+        }
+        bulkUser = givenUser("bulk@example.com");
+        for (Product product : bulkProducts) {
+            cartItemRepository.save(CartItem.builder().user(bulkUser).product(product).quantity(1).price(product.getPrice()).build());
+        }
+        for (int i = 0; i < BULK_ROWS; i++) {
+            givenOrder(bulkUser, Status.PAID, bulkProducts);
+        }
+    }
+
+    @Test
+    public void userEndpointsStayWithinBudget() throws Exception {
+        assertBudget(1, get("/api/users"));
+        assertBudget(1, get("/api/users/{id}", users.get(0).getId()));
+    }
+
+    @Test
+    public void productEndpointsStayWithinBudget() throws Exception {
+        // Страница каталога: версия (ETag), проекции страницы и характеристики страницы; неизменившийся каталог - только версия
+        assertBudget(3, get("/api/products").param("size", "2"));
+        String eTag = mockMvc.perform(get("/api/products")).andReturn().getResponse().getHeader("ETag");
+        assertBudget(1, get("/api/products").header("If-None-Match", eTag));
+        assertBudget(2, get("/api/products/{id}", products.get(0).getId()));
+        // Списки продуктов ниже загружают характеристики отдельным запросом на каждый продукт (1 + N)
+        assertBudget(6, get("/api/products/popular"));
+        assertBudget(7, get("/api/products/search").param("name", "Product"));
+        assertBudget(5, get("/api/products/category/{categoryId}", categories.get(0).getId()));
+        assertBudget(7, get("/api/products/price").param("min", "0").param("max", "1000"));
+        assertBudget(0, get("/api/products/autocomplete").param("prefix", "Prod"));
+    }
+
+    @Test
+    public void statementCountsDoNotGrowWithRows() throws Exception {
+        int pageSize = BULK_ROWS + products.size();
+        assertSameCount(get("/api/products").param("size", "2"),
+                get("/api/products").param("size", String.valueOf(pageSize)));
+        assertSameCount(get("/api/cart/{userId}", users.get(0).getId()), get("/api/cart/{userId}", bulkUser.getId()));
+        assertSameCount(get("/api/cart/{userId}/view", users.get(0).getId()), get("/api/cart/{userId}/view", bulkUser.getId()));
+        assertSameCount(get("/api/orders").param("size", "2"), get("/api/orders").param("size", String.valueOf(pageSize)));
+    }
+
+    @Test
+    public void categoryEndpointsStayWithinBudget() throws Exception {
+        // Продукты загружаются отдельным запросом на каждую категорию (1 + N)
+        assertBudget(3, get("/api/categories"));
+        assertBudget(2, get("/api/categories/{id}", categories.get(0).getId()));
+    }
+
+    @Test
+    public void cartEndpointsStayWithinBudget() throws Exception {
+        assertBudget(1, get("/api/cart/{userId}", users.get(0).getId()));
+        assertBudget(1, get("/api/cart/{userId}/view", users.get(0).getId()));
+        assertBudget(4, post("/api/cart/add").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userId\":" + cartUser.getId() + ",\"productId\":" + products.get(4).getId() + ",\"quantity\":1}"));
+        // Пакет операций: корзина, продукты, удаление, пакет изменений и пакет вставок - независимо от числа операций
+        assertBudget(5, post("/api/cart/{userId}/batch", cartUser.getId()).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"operations\":["
+                        + "{\"type\":\"ADD\",\"productId\":" + products.get(3).getId() + ",\"quantity\":2},"
+                        + "{\"type\":\"ADD\",\"productId\":" + products.get(5).getId() + ",\"quantity\":1},"
+                        + "{\"type\":\"UPDATE\",\"productId\":" + products.get(0).getId() + ",\"quantity\":3},"
+                        + "{\"type\":\"UPDATE\",\"productId\":" + products.get(2).getId() + ",\"quantity\":2},"
+                        + "{\"type\":\"REMOVE\",\"productId\":" + products.get(1).getId() + "}]}"));
+    }
+
+    @Test
+    public void orderReadEndpointsStayWithinBudget() throws Exception {
+        Long userId = users.get(0).getId();
+        Long orderId = orders.get(0).getId();
+
+        // Позиции загружаются отдельными запросами на каждый заказ
+        assertBudget(10, get("/api/orders/user/{userId}", userId));
+        assertBudget(2, get("/api/orders"));
+        // Заказ и его позиции: продукт загружается отдельным запросом на каждую позицию (1 + N)
+        assertBudget(5, get("/api/orders/{orderId}", orderId));
+        assertBudget(4, get("/api/orders/{orderId}/items", orderId));
+        assertBudget(1, get("/api/orders/{userId}/order-statistics", userId));
+    }
+
+    @Test
+    public void orderWriteEndpointsStayWithinBudget() throws Exception {
+        assertBudget(13, post("/api/orders/{userId}/create", orderUser.getId()));
+        assertBudget(7, put("/api/orders/{orderId}/status", orderUserOrders.get(0).getId()).param("status", "SHIPPED"));
+        assertBudget(8, post("/api/orders/status/bulk").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"orderIds\":[" + orderUserOrders.get(1).getId() + "," + orderUserOrders.get(2).getId() + "],\"status\":\"CANCELLED\"}"));
+    }
+
+    @Test
+    public void paymentEndpointsStayWithinBudget() throws Exception {
+        assertBudget(8, post("/api/payments/process").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"orderId\":" + unpaidOrder.getId() + ",\"amount\":" + unpaidOrder.getTotalPrice() + ",\"currency\":\"USD\"}"));
+    }
+
+    @Test
+    public void analyticsEndpointsStayWithinBudget() throws Exception {
+        String from = LocalDate.now().minusDays(7).toString();
+        String to = LocalDate.now().toString();
+
+        assertBudget(1, get("/api/analytics/sales/daily").param("from", from).param("to", to));
+        assertBudget(1, get("/api/analytics/orders/status-counts").param("from", from).param("to", to));
+        assertBudget(1, get("/api/analytics/sales/products").param("from", from).param("to", to));
+        assertBudget(1, get("/api/analytics/sales/categories").param("from", from).param("to", to));
+    }
+
+    @Test
+    public void inventoryEndpointsStayWithinBudget() throws Exception {
+        assertBudget(0, get("/api/inventory/hot"));
+    }
+
+    @Test
+    public void clusterEndpointsStayWithinBudget() throws Exception {
+        // Веса и пользователи кластера загружаются жадно отдельными запросами
+        assertBudget(3, get("/api/clusters"));
+    }
+
+    @Test
+    public void recommendationEndpointsStayWithinBudget() throws Exception {
+        // Рекомендации на основе Mahout используют MySQL-специфичные запросы и на H2 не проверяются
+        assertBudget(0, get("/api/v1/recommendations/ping"));
+        // Количество запросов зависит от числа пользователей и оценок в тестовых данных
+        assertBudget(46, get("/api/v1/recommendations/art/{userId}", users.get(0).getId()));
+    }
+
+    @Test
+    public void queryMetricsEndpointsStayWithinBudget() throws Exception {
+        assertBudget(0, get("/api/admin/queries/hot"));
+        assertBudget(0, get("/api/admin/queries/slow"));
+    }
+
+    /**
+     * Вспомогательный метод: выполняет запрос и проверяет, что он завершился успешно
+     * и выполнил не больше заданного количества SQL-запросов.
+     */
+    private void assertBudget(int budget, MockHttpServletRequestBuilder request) throws Exception {
+        int queries = countStatements(request);
+        assertTrue(queries <= budget, endpoint(request) + " executed " + queries + " SQL statements, budget is " + budget);
+    }
+
+    /**
+     * Вспомогательный метод: проверяет, что запрос к небольшому и к большому набору данных
+     * выполняет одинаковое количество SQL-запросов.
+     */
+    private void assertSameCount(MockHttpServletRequestBuilder small, MockHttpServletRequestBuilder large) throws Exception {
+        int expected = countStatements(small);
+        int actual = countStatements(large);
+        assertEquals(expected, actual, endpoint(large) + " executed " + actual + " SQL statements on the large data set, "
+                + expected + " on the small one");
+    }
+
+    /**
+     * Вспомогательный метод: выполняет запрос, проверяет, что он завершился успешно,
+     * и возвращает количество выполненных SQL-запросов.
+     */
+    private int countStatements(MockHttpServletRequestBuilder request) throws Exception {
+        QueryCounter.start();
+        int status;
+        int queries;
+        try {
+            status = mockMvc.perform(request).andReturn().getResponse().getStatus();
+        } finally {
+            queries = QueryCounter.stop();
+        }
+        assertTrue(status < 400, endpoint(request) + " failed with status " + status);
+        return queries;
+    }
+
+    private static String endpoint(MockHttpServletRequestBuilder request) {
+        MockHttpServletRequest servletRequest = request.buildRequest(new MockServletContext());
+        return servletRequest.getMethod() + " " + servletRequest.getRequestURI();
+    }
+
+    private User givenUser(String email) {
+        User user = new User();
+        user.setFirstName("Ivan");
+        user.setLastName("Petrov");
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setRole(Role.USER);
+        return userRepository.save(user);
+    }
+
+    private void givenCart(User user, int items) {
+        for (int i = 0; i < items; i++) {
+            Product product = products.get(i);
+            cartItemRepository.save(CartItem.builder().user(user).product(product).quantity(1).price(product.getPrice()).build());
+        }
+    }
+
+    private Order givenOrder(User user, Status status) {
+        return givenOrder(user, status, products.subList(0, 3));
+    }
+
+    private Order givenOrder(User user, Status status, List<Product> itemProducts) {
+        Order order = Order.builder()
+                .user(user)
+                .orderDate(LocalDateTime.now())
+                .status(status)
+                .totalPrice(BigDecimal.valueOf(100L * itemProducts.size()))
+                .items(new ArrayList<>())
+                .build();
+        for (Product product : itemProducts) {
+            order.getItems().add(OrderItem.builder().order(order).product(product).quantity(1).price(BigDecimal.valueOf(100)).build());
+        }
+        return orderRepository.save(order);
+    }
+
+    /**
+     * Счетчик SQL-запросов, выполненных в текущем потоке между start() и stop().
+     * Запросы фоновых задач по расписанию выполняются в других потоках и не учитываются.
+     */
+    static final class QueryCounter {
+        private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+        static void start() {
+            COUNT.set(new int[1]);
+        }
+
+        static int stop() {
+            int count = COUNT.get()[0];
+            COUNT.remove();
+            return count;
+        }
+
+        static void increment() {
+            int[] count = COUNT.get();
+            if (count != null) {
+                count[0]++;
+            }
+        }
+    }
+
+    /**
+     * Оборачивает источник данных прокси, который считает вызовы execute* у выданных им JDBC-запросов.
+     */
+    @TestConfiguration
+    static class QueryCountingConfig {
+
+        @Bean
+        static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? proxy(DataSource.class, dataSource) : bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+                if (target instanceof Statement && method.getName().startsWith("execute")) {
+                    QueryCounter.increment();
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof Connection connection) {
+                    return proxy(Connection.class, connection);
+                } else if (result instanceof CallableStatement statement) {
+                    return proxy(CallableStatement.class, statement);
+                } else if (result instanceof PreparedStatement statement) {
+                    return proxy(PreparedStatement.class, statement);
+                } else if (result instanceof Statement statement) {
+                    return proxy(Statement.class, statement);
+                }
+                return result;
+            });
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.alexds.ccoshop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.alexds.ccoshop.dto.QueryStatsDTO;
+import ru.alexds.ccoshop.service.QueryMetricsService;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryMetricsServiceTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private QueryMetricsService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new QueryMetricsService(Duration.ofMillis(500), 1.0, 3);
+    }
+
+    @Test
+    public void testNormalizeReplacesLiteralsAndCollapsesInLists() {
+        String sql = "select o1_0.id from orders o1_0\n  where o1_0.status = 'NEW' and o1_0.total_price > 10.5 and o1_0.id in (?, ?, ?)";
+
+        assertEquals("select o1_0.id from orders o1_0 where o1_0.status = ? and o1_0.total_price > ? and o1_0.id in (?)",
+                QueryMetricsService.normalize(sql));
+        assertEquals(QueryMetricsService.normalize("select * from orders where id IN (?)"),
+                QueryMetricsService.normalize("select * from orders where id IN (?,?)"));
+    }
+
+    @Test
+    public void testNormalizeHandlesLongInListsAndLiterals() {
+        String placeholders = String.join(", ", Collections.nCopies(5000, "?"));
+        assertEquals("select * from products where id in (?)",
+                QueryMetricsService.normalize("select * from products where id in (" + placeholders + ")"));
+        assertEquals("select * from products where name = ?",
+                QueryMetricsService.normalize("select * from products where name = '" + "x".repeat(19_000) + "'"));
+
+        String huge = "select * from products where id in (" + String.join(", ", Collections.nCopies(20_000, "?")) + ")";
+        String normalized = QueryMetricsService.normalize(huge);
+        assertTrue(normalized.length() <= 20_010);
+        assertTrue(normalized.endsWith("..."));
+    }
+
+    @Test
+    public void testRecordGroupsBySqlAndCallSite() {
+        String previous = service.enterRepository("OrderRepository.findById");
+        service.record("select * from orders where id = ?", 2 * MILLIS);
+        service.record("select * from orders where id = ?", 4 * MILLIS);
+        service.exitRepository(previous);
+        service.record("select * from orders where id = ?", MILLIS);
+
+        List<QueryStatsDTO> hot = service.getHotQueries(10);
+
+        assertEquals(2, hot.size());
+        QueryStatsDTO top = hot.get(0);
+        assertEquals(2, top.getCount());
+        assertEquals("QueryMetricsServiceTest.testRecordGroupsBySqlAndCallSite > OrderRepository.findById", top.getCallSite());
+        assertEquals(6.0, top.getTotalMillis(), 0.001);
+        assertEquals(3.0, top.getMeanMillis(), 0.001);
+        assertEquals(4.0, top.getMaxMillis(), 0.001);
+        assertEquals("QueryMetricsServiceTest.testRecordGroupsBySqlAndCallSite", hot.get(1).getCallSite());
+    }
+
+    @Test
+    public void testSlowQueriesAreOrderedByPercentile() {
+        for (int i = 0; i < 100; i++) {
+            service.record("select * from products", MILLIS / 2);
+        }
+        for (int i = 0; i < 5; i++) {
+            service.record("select * from orders", 300 * MILLIS);
+        }
+
+        List<QueryStatsDTO> slow = service.getSlowQueries(1);
+
+        assertEquals(1, slow.size());
+        assertEquals("select * from orders", slow.get(0).getSql());
+        assertEquals(300.0, slow.get(0).getP95Millis(), 0.001);
+        assertEquals("select * from products", service.getHotQueries(1).get(0).getSql());
+        assertEquals(0.5, service.getHotQueries(1).get(0).getP99Millis(), 0.001);
+    }
+
+    @Test
+    public void testEntriesAboveLimitAreAggregated() {
+        for (int i = 0; i < 5; i++) {
+            service.record("select * from table_" + (char) ('a' + i), MILLIS);
+        }
+
+        List<QueryStatsDTO> hot = service.getHotQueries(10);
+
+        assertEquals(4, hot.size());
+        QueryStatsDTO other = hot.get(0);
+        assertEquals("<other>", other.getSql());
+        assertEquals(2, other.getCount());
+
+        service.reset();
+        assertTrue(service.getHotQueries(10).isEmpty());
+    }
+}
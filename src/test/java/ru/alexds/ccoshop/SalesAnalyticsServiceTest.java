@@ -0,0 +1,197 @@
+package ru.alexds.ccoshop;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import ru.alexds.ccoshop.entity.Status;
+import ru.alexds.ccoshop.event.OrderStatusChangedEvent;
+import ru.alexds.ccoshop.repository.OrderItemRepository;
+import ru.alexds.ccoshop.repository.SalesDailyProductRepository;
+import ru.alexds.ccoshop.repository.SalesDailyStatusRepository;
+import ru.alexds.ccoshop.service.SalesAnalyticsService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SalesAnalyticsServiceTest {
+
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2025, 3, 10, 15, 30);
+    private static final LocalDate DAY = ORDER_DATE.toLocalDate();
+
+    private JdbcTemplate jdbcTemplate;
+    private OrderItemRepository orderItemRepository;
+    private SalesAnalyticsService service;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:analytics" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, category_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, status VARCHAR(32), order_date TIMESTAMP, total_price DECIMAL(19, 2))");
+        jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT PRIMARY KEY, order_id BIGINT, product_id BIGINT, quantity INT, price DECIMAL(19, 2))");
+        jdbcTemplate.execute("CREATE TABLE orders_archive (id BIGINT PRIMARY KEY, status VARCHAR(32), order_date TIMESTAMP, total_price DECIMAL(19, 2))");
+        jdbcTemplate.execute("CREATE TABLE order_items_archive (id BIGINT PRIMARY KEY, order_id BIGINT, product_id BIGINT, quantity INT, price DECIMAL(19, 2))");
+        jdbcTemplate.execute("CREATE TABLE sales_daily_status (id BIGINT AUTO_INCREMENT PRIMARY KEY, sales_day DATE, status VARCHAR(32), " +
+                "orders_count BIGINT, revenue DECIMAL(19, 2), UNIQUE (sales_day, status))");
+        jdbcTemplate.execute("CREATE TABLE sales_daily_product (id BIGINT AUTO_INCREMENT PRIMARY KEY, sales_day DATE, product_id BIGINT, " +
+                "category_id BIGINT, orders_count BIGINT, units BIGINT, revenue DECIMAL(19, 2), UNIQUE (sales_day, product_id))");
+
+        orderItemRepository = mock(OrderItemRepository.class);
+        service = new SalesAnalyticsService(jdbcTemplate, orderItemRepository, mock(SalesDailyStatusRepository.class),
+                mock(SalesDailyProductRepository.class), new DataSourceTransactionManager(dataSource), 4);
+    }
+
+    private void givenOrder(long orderId, Status status, String total, long productId, long categoryId, int quantity, String price) {
+        jdbcTemplate.update("MERGE INTO products (id, category_id) KEY (id) VALUES (?, ?)", productId, categoryId);
+        jdbcTemplate.update("INSERT INTO orders (id, status, order_date, total_price) VALUES (?, ?, ?, ?)",
+                orderId, status.name(), ORDER_DATE, new BigDecimal(total));
+        jdbcTemplate.update("INSERT INTO order_items (id, order_id, product_id, quantity, price) VALUES (?, ?, ?, ?, ?)",
+                orderId, orderId, productId, quantity, new BigDecimal(price));
+        when(orderItemRepository.aggregateByProduct(orderId)).thenReturn(Collections.singletonList(
+                new Object[]{productId, categoryId, (long) quantity, new BigDecimal(price).multiply(BigDecimal.valueOf(quantity))}));
+    }
+
+    private void changeStatus(long orderId, Status previous, Status next, String total) {
+        service.onOrderStatusChanged(new OrderStatusChangedEvent(orderId, 1L, previous, next, new BigDecimal(total), ORDER_DATE));
+    }
+
+    private Map<String, Object> statusRow(Status status) {
+        return jdbcTemplate.queryForMap("SELECT orders_count, revenue FROM sales_daily_status WHERE sales_day = ? AND status = ?",
+                DAY, status.name());
+    }
+
+    private Map<String, Object> productRow(long productId) {
+        return jdbcTemplate.queryForMap("SELECT orders_count, units, revenue FROM sales_daily_product WHERE sales_day = ? AND product_id = ?",
+                DAY, productId);
+    }
+
+    @Test
+    public void testIncrementalRollupsAreFlushedInBatch() {
+        givenOrder(1L, Status.NEW, "100.00", 10L, 5L, 2, "50.00");
+        givenOrder(2L, Status.NEW, "30.00", 10L, 5L, 1, "30.00");
+
+        changeStatus(1L, null, Status.NEW, "100.00");
+        changeStatus(2L, null, Status.NEW, "30.00");
+        changeStatus(1L, Status.NEW, Status.PAID, "100.00");
+        service.flushPending();
+
+        assertEquals(1L, statusRow(Status.NEW).get("ORDERS_COUNT"));
+        assertEquals(0, new BigDecimal("30.00").compareTo((BigDecimal) statusRow(Status.NEW).get("REVENUE")));
+        assertEquals(1L, statusRow(Status.PAID).get("ORDERS_COUNT"));
+        assertEquals(2L, productRow(10L).get("ORDERS_COUNT"));
+        assertEquals(3L, productRow(10L).get("UNITS"));
+
+        changeStatus(2L, Status.NEW, Status.CANCELLED, "30.00");
+        service.flushPending();
+
+        assertEquals(0L, statusRow(Status.NEW).get("ORDERS_COUNT"));
+        assertEquals(1L, statusRow(Status.CANCELLED).get("ORDERS_COUNT"));
+        assertEquals(1L, productRow(10L).get("ORDERS_COUNT"));
+        assertEquals(2L, productRow(10L).get("UNITS"));
+        assertEquals(0, new BigDecimal("100.00").compareTo((BigDecimal) productRow(10L).get("REVENUE")));
+    }
+
+    @Test
+    public void testBackfillMatchesIncrementalRollups() {
+        givenOrder(1L, Status.PAID, "100.00", 10L, 5L, 2, "50.00");
+        givenOrder(2L, Status.CANCELLED, "30.00", 10L, 5L, 1, "30.00");
+        givenOrder(3L, Status.PAID, "45.00", 11L, 6L, 3, "15.00");
+
+        int days = service.backfill(DAY.minusDays(1), DAY.plusDays(1));
+
+        assertEquals(3, days);
+        assertEquals(2L, statusRow(Status.PAID).get("ORDERS_COUNT"));
+        assertEquals(0, new BigDecimal("145.00").compareTo((BigDecimal) statusRow(Status.PAID).get("REVENUE")));
+        assertEquals(1L, statusRow(Status.CANCELLED).get("ORDERS_COUNT"));
+        assertEquals(1L, productRow(10L).get("ORDERS_COUNT"));
+        assertEquals(2L, productRow(10L).get("UNITS"));
+        assertEquals(3L, productRow(11L).get("UNITS"));
+
+        // Повторный пересчет не удваивает агрегаты
+        service.backfill(DAY, DAY);
+        assertEquals(2L, statusRow(Status.PAID).get("ORDERS_COUNT"));
+        assertEquals(List.of(2L), jdbcTemplate.queryForList("SELECT COUNT(*) FROM sales_daily_product", Long.class));
+    }
+
+    @Test
+    public void testBackfillIncludesArchivedOrders() {
+        givenOrder(1L, Status.COMPLETED, "100.00", 10L, 5L, 2, "50.00");
+        givenOrder(2L, Status.COMPLETED, "30.00", 10L, 5L, 1, "30.00");
+        // Заказ 2 перенесен в архив
+        jdbcTemplate.update("INSERT INTO orders_archive SELECT id, status, order_date, total_price FROM orders WHERE id = 2");
+        jdbcTemplate.update("INSERT INTO order_items_archive SELECT * FROM order_items WHERE order_id = 2");
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id = 2");
+        jdbcTemplate.update("DELETE FROM orders WHERE id = 2");
+
+        service.backfill(DAY, DAY);
+
+        assertEquals(2L, statusRow(Status.COMPLETED).get("ORDERS_COUNT"));
+        assertEquals(0, new BigDecimal("130.00").compareTo((BigDecimal) statusRow(Status.COMPLETED).get("REVENUE")));
+        assertEquals(2L, productRow(10L).get("ORDERS_COUNT"));
+        assertEquals(3L, productRow(10L).get("UNITS"));
+    }
+
+    @Test
+    public void testPendingDeltasAreFlushedOnShutdown() {
+        givenOrder(1L, Status.NEW, "100.00", 10L, 5L, 2, "50.00");
+        changeStatus(1L, null, Status.NEW, "100.00");
+
+        service.shutdown();
+
+        assertEquals(1L, statusRow(Status.NEW).get("ORDERS_COUNT"));
+        assertEquals(2L, productRow(10L).get("UNITS"));
+    }
+
+    @Test
+    public void testOrdersCommittedDuringBackfillAreNotCountedTwice() {
+        givenOrder(1L, Status.PAID, "100.00", 10L, 5L, 2, "50.00");
+        givenOrder(2L, Status.NEW, "30.00", 10L, 5L, 1, "30.00");
+        // Заказ 2 зафиксирован до пересчета дня, но его изменение приходит во время пересчета
+        JdbcTemplate racingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+                Thread writer = new Thread(() -> changeStatus(2L, null, Status.NEW, "30.00"));
+                writer.start();
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.queryForList(sql, elementType, args);
+            }
+        };
+        service = new SalesAnalyticsService(racingTemplate, orderItemRepository, mock(SalesDailyStatusRepository.class),
+                mock(SalesDailyProductRepository.class), new DataSourceTransactionManager(jdbcTemplate.getDataSource()), 1);
+
+        service.backfill(DAY, DAY);
+        service.flushPending();
+
+        assertEquals(1L, statusRow(Status.NEW).get("ORDERS_COUNT"));
+        assertEquals(2L, productRow(10L).get("ORDERS_COUNT"));
+        assertEquals(3L, productRow(10L).get("UNITS"));
+
+        // После пересчета изменения дня снова попадают в агрегаты
+        changeStatus(2L, Status.NEW, Status.PAID, "30.00");
+        service.flushPending();
+        assertEquals(0L, statusRow(Status.NEW).get("ORDERS_COUNT"));
+        assertEquals(2L, statusRow(Status.PAID).get("ORDERS_COUNT"));
+    }
+
+    @Test
+    public void testInvalidRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.getDailySales(DAY, DAY.minusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> service.backfill(null, DAY));
+    }
+}